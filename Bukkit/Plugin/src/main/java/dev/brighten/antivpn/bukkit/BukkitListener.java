@@ -18,17 +18,18 @@ package dev.brighten.antivpn.bukkit;
 
 import dev.brighten.antivpn.AntiVPN;
 import dev.brighten.antivpn.api.APIPlayer;
+import dev.brighten.antivpn.api.CheckResult;
 import dev.brighten.antivpn.api.OfflinePlayer;
 import dev.brighten.antivpn.api.VPNExecutor;
-import dev.brighten.antivpn.utils.StringUtil;
+import dev.brighten.antivpn.message.VpnString;
 import net.md_5.bungee.api.ChatColor;
 import org.bukkit.Bukkit;
 import org.bukkit.event.EventHandler;
 import org.bukkit.event.EventPriority;
 import org.bukkit.event.HandlerList;
 import org.bukkit.event.Listener;
+import org.bukkit.event.player.AsyncPlayerPreLoginEvent;
 import org.bukkit.event.player.PlayerJoinEvent;
-import org.bukkit.event.player.PlayerLoginEvent;
 import org.bukkit.event.player.PlayerQuitEvent;
 
 import java.util.logging.Level;
@@ -68,42 +69,44 @@ public class BukkitListener extends VPNExecutor implements Listener {
         Bukkit.getPluginManager().disablePlugin(BukkitPlugin.pluginInstance.getPlugin());
     }
 
+    /**
+     * Bukkit fires this event on a login thread of its own and waits for every listener before letting the player
+     * in, so waiting for the verdict here holds only this login and never the main thread.
+     */
     @EventHandler(priority = EventPriority.HIGH)
-    public void onLogin(final PlayerLoginEvent event) {
-        APIPlayer player = AntiVPN.getInstance().getPlayerExecutor().getPlayer(event.getPlayer().getUniqueId())
+    public void onLogin(final AsyncPlayerPreLoginEvent event) {
+        if(event.getLoginResult() != AsyncPlayerPreLoginEvent.Result.ALLOWED) return;
+
+        APIPlayer player = AntiVPN.getInstance().getPlayerExecutor().getPlayer(event.getUniqueId())
                 .orElse(new OfflinePlayer(
-                        event.getPlayer().getUniqueId(),
-                        event.getPlayer().getName(),
+                        event.getUniqueId(),
+                        event.getName(),
                         event.getAddress()
                 ));
 
-        player.checkPlayer(result -> {
-            if(!result.resultType().isShouldBlock()) return;
-
-            if(!AntiVPN.getInstance().getVpnConfig().isKickPlayers()) {
-                return;
-            }
-
-            event.setResult(PlayerLoginEvent.Result.KICK_BANNED);
-            event.setKickMessage(switch (result.resultType()) {
-                case DENIED_COUNTRY -> StringUtil.varReplace(
-                        AntiVPN.getInstance().getVpnConfig().getCountryVanillaKickReason(),
-                        player,
-                        result.response()
-                );
-                case DENIED_PROXY ->
-                        StringUtil.varReplace(
-                                AntiVPN.getInstance().getVpnConfig().getKickMessage(),
-                                player,
-                                result.response()
-                        );
-                default -> "You were kicked by KauriVPN for an unknown reason!";
-            });
+        CheckResult result = player.loginVerdict().join();
+
+        if(!result.resultType().isShouldBlock()) return;
+
+        if(!AntiVPN.getInstance().getVpnConfig().isKickPlayers()) {
+            return;
+        }
+
+        event.disallow(AsyncPlayerPreLoginEvent.Result.KICK_BANNED, switch (result.resultType()) {
+            case DENIED_COUNTRY -> AntiVPN.getInstance().getVpnConfig().getCountryKickTemplate()
+                    .render(player, result.response());
+            case DENIED_PROXY -> AntiVPN.getInstance().getVpnConfig().getKickTemplate()
+                    .render(player, result.response());
+            case TIMED_OUT -> AntiVPN.getInstance().getVpnConfig().getLoginTimeoutTemplate()
+                    .render(new VpnString.Var<>("player", player.getName()));
+            default -> "You were kicked by KauriVPN for an unknown reason!";
         });
     }
 
     @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
     public void onJoin(final PlayerJoinEvent event) {
+        AntiVPN.getInstance().getExecutor().playerJoined(event.getPlayer().getUniqueId());
+        BukkitPlugin.pluginInstance.getPlayerCommandRunner().playerJoined(event.getPlayer().getUniqueId());
         AntiVPN.getInstance().getPlayerExecutor().getPlayer(event.getPlayer().getUniqueId())
                 .ifPresent(APIPlayer::checkAlertsState);
     }
@@ -111,5 +114,6 @@ public class BukkitListener extends VPNExecutor implements Listener {
     @EventHandler
     public void onQuit(PlayerQuitEvent event) {
         AntiVPN.getInstance().getPlayerExecutor().unloadPlayer(event.getPlayer().getUniqueId());
+        AntiVPN.getInstance().getExecutor().playerQuit(event.getPlayer().getUniqueId());
     }
 }
@@ -68,8 +68,10 @@ public class BukkitPlugin implements LoaderBootstrap {
         Bukkit.getLogger().info("Starting AntiVPN services...");
         AntiVPN.start(new BukkitListener(), new BukkitPlayerExecutor(), getDataFolder());
 
-        playerCommandRunner = new PlayerCommandRunner();
+        playerCommandRunner = new PlayerCommandRunner(plugin);
         playerCommandRunner.start();
+        AntiVPN.getInstance().getMetrics().registerGauge("queue.playerActions", playerCommandRunner::size);
+        AntiVPN.getInstance().getMetrics().registerGauge("playerActions.dropped", playerCommandRunner::getDropped);
 
         // Loading our bStats metrics to be pushed to https://bstats.org
         if(AntiVPN.getInstance().getVpnConfig().metrics()) {
@@ -78,7 +80,7 @@ public class BukkitPlugin implements LoaderBootstrap {
             metrics.addCustomChart(new SimplePie("database_used", this::getDatabaseType));
             new BukkitRunnable() {
                 public void run() {
-                    AntiVPN.getInstance().checked = AntiVPN.getInstance().detections = 0;
+                    AntiVPN.getInstance().getMetrics().resetCheckCounts();
                 }
             }.runTaskTimerAsynchronously(plugin, 12000, 12000);
         }
@@ -16,62 +16,252 @@
 
 package dev.brighten.antivpn.bukkit;
 
+import dev.brighten.antivpn.AntiVPN;
 import dev.brighten.antivpn.utils.MiscUtils;
-import lombok.Data;
 import org.bukkit.Bukkit;
-import org.bukkit.scheduler.BukkitRunnable;
+import org.bukkit.Server;
+import org.bukkit.plugin.Plugin;
 
+import java.lang.reflect.Method;
+import java.util.List;
+import java.util.Map;
 import java.util.Queue;
 import java.util.UUID;
-import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.DelayQueue;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
 
+/**
+ * Runs actions against a player on the main thread once that player is online, or once
+ * {@link #PLAYER_TIMEOUT_MILLIS} passed without them joining.
+ * <p>
+ * Waiting actions sit in a {@link DelayQueue} ordered by their timeout, which the worker thread blocks on, so it
+ * sleeps until the next action is due. A join hands that player's actions over right away through
+ * {@link #playerJoined(UUID)}. Every action that became ready is run by a single main thread task, or a global region
+ * task on Folia, so a burst of actions costs one task per tick instead of one each.
+ */
 public class PlayerCommandRunner {
-    private final ScheduledExecutorService executorService;
-    private final Queue<PlayerAction> playerActions = new ArrayBlockingQueue<>(10000);
 
-    public PlayerCommandRunner() {
-        executorService = Executors.newSingleThreadScheduledExecutor(
+    static final int CAPACITY = 10000;
+    static final long PLAYER_TIMEOUT_MILLIS = 2000L;
+
+    private final Plugin plugin;
+    private final int capacity;
+    private final long timeoutMillis;
+    private final ExecutorService executorService;
+    private final DelayQueue<PlayerAction> waiting = new DelayQueue<>();
+    private final Map<UUID, List<PlayerAction>> waitingByPlayer = new ConcurrentHashMap<>();
+    private final Queue<PlayerAction> ready = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean tickScheduled = new AtomicBoolean();
+    private final AtomicInteger size = new AtomicInteger();
+    private final LongAdder dropped = new LongAdder();
+
+    public PlayerCommandRunner(Plugin plugin) {
+        this(plugin, CAPACITY, PLAYER_TIMEOUT_MILLIS);
+    }
+
+    PlayerCommandRunner(Plugin plugin, int capacity, long timeoutMillis) {
+        this.plugin = plugin;
+        this.capacity = capacity;
+        this.timeoutMillis = timeoutMillis;
+        executorService = Executors.newSingleThreadExecutor(
                 MiscUtils.createThreadFactory("AntiVPN:PlayerCommandRunner")
         );
     }
 
     void start() {
-        executorService.scheduleAtFixedRate(() -> {
-            long currentTime = System.currentTimeMillis();
-            while(!playerActions.isEmpty()) {
-                PlayerAction action = playerActions.peek();
-
-                if(action == null) continue;
+        executorService.execute(() -> {
+            try {
+                while (!Thread.currentThread().isInterrupted()) {
+                    PlayerAction action = waiting.take();
 
-                if(currentTime - action.start > 2000L || Bukkit.getPlayer(action.getUuid()) != null) {
-                    new BukkitRunnable() {
-                        public void run() {
-                            action.getAction().run();
-                        }
-                    }.runTask(BukkitPlugin.pluginInstance.getPlugin());
-
-                    playerActions.poll();
+                    waitingByPlayer.computeIfPresent(action.uuid, (uuid, actions) -> {
+                        actions.remove(action);
+                        return actions.isEmpty() ? null : actions;
+                    });
+                    makeReady(action);
                 }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
             }
-        }, 1000, 100, TimeUnit.MILLISECONDS);
+        });
     }
 
     void stop() {
-        executorService.shutdown();
-        playerActions.clear();
+        executorService.shutdownNow();
+        waiting.clear();
+        waitingByPlayer.clear();
+        ready.clear();
+        size.set(0);
+    }
+
+    /**
+     * Queues an action to run once the player is online. Drops it if {@link #CAPACITY} actions are already queued.
+     *
+     * @param uuid UUID of the player
+     * @param action Runnable to run on the main thread
+     * @return boolean, whether the action was queued
+     */
+    boolean addAction(UUID uuid, Runnable action) {
+        if(size.incrementAndGet() > capacity) {
+            size.decrementAndGet();
+            dropped.increment();
+
+            // Once the queue is full drops come in bursts, one line per thousand is enough to notice.
+            long total = dropped.sum();
+            if(total == 1 || total % 1000 == 0) {
+                AntiVPN.getInstance().getExecutor().log("Dropped an action for " + uuid
+                        + ", too many are queued already (" + total + " dropped so far).");
+            }
+            return false;
+        }
+
+        PlayerAction playerAction = new PlayerAction(uuid, System.nanoTime()
+                + TimeUnit.MILLISECONDS.toNanos(timeoutMillis), action);
+
+        if(Bukkit.getPlayer(uuid) != null) {
+            makeReady(playerAction);
+            return true;
+        }
+
+        waitingByPlayer.computeIfAbsent(uuid, key -> new CopyOnWriteArrayList<>()).add(playerAction);
+        waiting.add(playerAction);
+
+        // The join may have been seen between the check above and queueing the action.
+        if(Bukkit.getPlayer(uuid) != null) {
+            playerJoined(uuid);
+        }
+        return true;
+    }
+
+    /**
+     * Called once the player joined, runs their queued actions on the next tick.
+     *
+     * @param uuid UUID
+     */
+    void playerJoined(UUID uuid) {
+        List<PlayerAction> actions = waitingByPlayer.remove(uuid);
+
+        if(actions == null) return;
+
+        for (PlayerAction action : actions) {
+            waiting.remove(action);
+            makeReady(action);
+        }
+    }
+
+    /**
+     * @return int, actions waiting for their player or the next tick
+     */
+    int size() {
+        return size.get();
     }
 
-    void addAction(UUID uuid, Runnable action) {
-        playerActions.add(new PlayerAction(uuid, System.currentTimeMillis(), action));
+    /**
+     * @return long, actions dropped because the queue was full
+     */
+    long getDropped() {
+        return dropped.sum();
     }
 
-    @Data
-    static class PlayerAction {
+    private void makeReady(PlayerAction action) {
+        // The join and the timeout can race for the same action, only the first one hands it over.
+        if(!action.claimed.compareAndSet(false, true)) return;
+
+        ready.add(action);
+        if(tickScheduled.compareAndSet(false, true) && !runOnMainThread(this::runReady)) {
+            // Nothing will run the ready actions, so the next one made ready has to try scheduling again.
+            tickScheduled.set(false);
+        }
+    }
+
+    private void runReady() {
+        // Cleared first, so actions made ready while these run get a task of their own.
+        tickScheduled.set(false);
+
+        PlayerAction action;
+        while ((action = ready.poll()) != null) {
+            size.decrementAndGet();
+            try {
+                action.action.run();
+            } catch (RuntimeException e) {
+                AntiVPN.getInstance().getExecutor().logException("Could not run action for " + action.uuid, e);
+            }
+        }
+    }
+
+    /**
+     * @param task Runnable
+     * @return boolean, whether the task was scheduled
+     */
+    private boolean runOnMainThread(Runnable task) {
+        if(!plugin.isEnabled()) return false;
+
+        if(FoliaScheduler.GLOBAL_EXECUTE != null) {
+            return FoliaScheduler.execute(plugin, task);
+        }
+        Bukkit.getScheduler().runTask(plugin, task);
+        return true;
+    }
+
+    private static final class PlayerAction implements Delayed {
         private final UUID uuid;
-        private final long start;
+        private final long dueNanos;
         private final Runnable action;
+        private final AtomicBoolean claimed = new AtomicBoolean();
+
+        private PlayerAction(UUID uuid, long dueNanos, Runnable action) {
+            this.uuid = uuid;
+            this.dueNanos = dueNanos;
+            this.action = action;
+        }
+
+        @Override
+        public long getDelay(TimeUnit unit) {
+            return unit.convert(dueNanos - System.nanoTime(), TimeUnit.NANOSECONDS);
+        }
+
+        @Override
+        public int compareTo(Delayed other) {
+            return Long.compare(dueNanos, ((PlayerAction) other).dueNanos);
+        }
+    }
+
+    /**
+     * Folia has no main thread and rejects the Bukkit scheduler, its global region scheduler takes that place. The
+     * Spigot API we compile against does not have it, so it is looked up once by reflection.
+     */
+    private static final class FoliaScheduler {
+        private static final Method GLOBAL_EXECUTE = globalExecute();
+
+        private static Method globalExecute() {
+            try {
+                Class.forName("io.papermc.paper.threadedregions.RegionizedServer");
+                return Class.forName("io.papermc.paper.threadedregions.scheduler.GlobalRegionScheduler")
+                        .getMethod("execute", Plugin.class, Runnable.class);
+            } catch (ReflectiveOperationException e) {
+                return null;
+            }
+        }
+
+        private static boolean execute(Plugin plugin, Runnable task) {
+            try {
+                Object scheduler = Server.class.getMethod("getGlobalRegionScheduler").invoke(Bukkit.getServer());
+
+                GLOBAL_EXECUTE.invoke(scheduler, plugin, task);
+                return true;
+            } catch (ReflectiveOperationException e) {
+                AntiVPN.getInstance().getExecutor().logException("Could not schedule on the global region", e);
+                return false;
+            }
+        }
     }
 }
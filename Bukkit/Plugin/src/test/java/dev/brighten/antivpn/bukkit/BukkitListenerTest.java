@@ -2,26 +2,30 @@ package dev.brighten.antivpn.bukkit;
 
 import be.seeseemelk.mockbukkit.MockBukkit;
 import be.seeseemelk.mockbukkit.ServerMock;
-import be.seeseemelk.mockbukkit.entity.PlayerMock;
 import dev.brighten.antivpn.AntiVPN;
+import dev.brighten.antivpn.api.CheckPolicy;
 import dev.brighten.antivpn.api.PlayerExecutor;
 import dev.brighten.antivpn.api.VPNConfig;
 import dev.brighten.antivpn.api.VPNExecutor;
 import dev.brighten.antivpn.message.MessageHandler;
+import dev.brighten.antivpn.message.MessageTemplate;
 import dev.brighten.antivpn.message.VpnString;
+import dev.brighten.antivpn.metrics.VPNMetrics;
 import dev.brighten.antivpn.web.objects.VPNResponse;
-import org.bukkit.event.player.PlayerLoginEvent;
+import org.bukkit.event.player.AsyncPlayerPreLoginEvent;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
 import java.lang.reflect.Field;
 import java.net.InetAddress;
+import java.time.Duration;
 import java.util.Optional;
 import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
 import static org.mockito.Mockito.*;
 
 public class BukkitListenerTest {
@@ -29,13 +33,14 @@ public class BukkitListenerTest {
     private ServerMock server;
     private BukkitListener listener;
     private VPNExecutor vpnExecutor;
+    private VPNConfig config;
 
     @BeforeEach
     public void setUp() throws Exception {
         server = MockBukkit.mock();
 
         AntiVPN antiVPN = mock(AntiVPN.class);
-        VPNConfig config = mock(VPNConfig.class);
+        config = mock(VPNConfig.class);
         PlayerExecutor playerExecutor = mock(PlayerExecutor.class);
         vpnExecutor = mock(VPNExecutor.class);
         MessageHandler messageHandler = mock(MessageHandler.class);
@@ -44,18 +49,22 @@ public class BukkitListenerTest {
         when(antiVPN.getPlayerExecutor()).thenReturn(playerExecutor);
         when(antiVPN.getExecutor()).thenReturn(vpnExecutor);
         when(antiVPN.getMessageHandler()).thenReturn(messageHandler);
+        when(antiVPN.getMetrics()).thenReturn(new VPNMetrics());
         
         when(playerExecutor.getPlayer(any(UUID.class))).thenReturn(Optional.empty());
         when(config.getPrefixWhitelists()).thenReturn(java.util.Collections.emptyList());
         when(config.getCountryList()).thenReturn(java.util.Collections.emptyList());
+        when(config.getPolicy()).thenReturn(CheckPolicy.EMPTY);
         when(config.isKickPlayers()).thenReturn(true);
         when(config.getKickMessage()).thenReturn("Blocked!");
+        when(config.getKickTemplate()).thenReturn(MessageTemplate.compile("Blocked!"));
+        when(config.getCountryKickTemplate()).thenReturn(MessageTemplate.compile("Blocked!"));
         
         VpnString mockVpnString = mock(VpnString.class);
         when(mockVpnString.getFormattedMessage(any())).thenReturn("Blocked!");
         when(messageHandler.getString(anyString())).thenReturn(mockVpnString);
         
-        when(vpnExecutor.checkIp(anyString())).thenReturn(CompletableFuture.completedFuture(
+        when(vpnExecutor.checkIp(anyString(), any())).thenReturn(CompletableFuture.completedFuture(
                 VPNResponse.builder().success(true).proxy(false).ip("127.0.0.1")
                         .method("N/A").countryName("N/A").city("N/A").build()
         ));
@@ -80,32 +89,44 @@ public class BukkitListenerTest {
 
     @Test
     public void testLoginEventAllowed() throws Exception {
-        PlayerMock player = server.addPlayer("TestPlayer");
         InetAddress address = InetAddress.getByName("127.0.0.1");
         
-        PlayerLoginEvent event = new PlayerLoginEvent(player, "localhost", address);
+        AsyncPlayerPreLoginEvent event = new AsyncPlayerPreLoginEvent("TestPlayer", address, UUID.randomUUID());
         
         listener.onLogin(event);
         
-        assertEquals(PlayerLoginEvent.Result.ALLOWED, event.getResult());
+        assertEquals(AsyncPlayerPreLoginEvent.Result.ALLOWED, event.getLoginResult());
     }
 
     @Test
     public void testLoginEventBlocked() throws Exception {
-        PlayerMock player = server.addPlayer("ProxyPlayer");
         InetAddress address = InetAddress.getByName("1.1.1.1");
         
         // Mock proxy response
-        when(vpnExecutor.checkIp("1.1.1.1")).thenReturn(CompletableFuture.completedFuture(
+        when(vpnExecutor.checkIp(eq("1.1.1.1"), any())).thenReturn(CompletableFuture.completedFuture(
                 VPNResponse.builder().success(true).proxy(true).ip("1.1.1.1")
                         .method("N/A").countryName("N/A").countryCode("N/A").city("N/A").build()
         ));
         
-        PlayerLoginEvent event = new PlayerLoginEvent(player, "localhost", address);
+        AsyncPlayerPreLoginEvent event = new AsyncPlayerPreLoginEvent("ProxyPlayer", address, UUID.randomUUID());
         
         listener.onLogin(event);
         
-        assertEquals(PlayerLoginEvent.Result.KICK_BANNED, event.getResult());
+        assertEquals(AsyncPlayerPreLoginEvent.Result.KICK_BANNED, event.getLoginResult());
         assertEquals("Blocked!", net.kyori.adventure.text.serializer.legacy.LegacyComponentSerializer.legacySection().serialize(event.kickMessage()));
     }
+
+    @Test
+    public void testLoginAllowedAtDeadlineWhenFailingOpen() throws Exception {
+        InetAddress address = InetAddress.getByName("2.2.2.2");
+        when(config.getLoginDeadline()).thenReturn(50);
+
+        // The lookup never answers.
+        when(vpnExecutor.checkIp(eq("2.2.2.2"), any())).thenReturn(new CompletableFuture<>());
+
+        AsyncPlayerPreLoginEvent event = new AsyncPlayerPreLoginEvent("SlowPlayer", address, UUID.randomUUID());
+
+        assertTimeoutPreemptively(Duration.ofSeconds(5), () -> listener.onLogin(event));
+        assertEquals(AsyncPlayerPreLoginEvent.Result.ALLOWED, event.getLoginResult());
+    }
 }
@@ -0,0 +1,130 @@
+package dev.brighten.antivpn.bukkit;
+
+import be.seeseemelk.mockbukkit.MockBukkit;
+import be.seeseemelk.mockbukkit.ServerMock;
+import be.seeseemelk.mockbukkit.entity.PlayerMock;
+import org.bukkit.plugin.Plugin;
+import dev.brighten.antivpn.AntiVPN;
+import dev.brighten.antivpn.api.VPNExecutor;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Field;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class PlayerCommandRunnerTest {
+
+    private ServerMock server;
+    private Plugin plugin;
+    private PlayerCommandRunner runner;
+    private final AtomicInteger ran = new AtomicInteger();
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        server = MockBukkit.mock();
+
+        AntiVPN antiVPN = mock(AntiVPN.class);
+        when(antiVPN.getExecutor()).thenReturn(mock(VPNExecutor.class));
+        setInstance(antiVPN);
+
+        plugin = MockBukkit.createMockPlugin();
+        runner = new PlayerCommandRunner(plugin, 2, 100);
+        runner.start();
+    }
+
+    @AfterEach
+    public void tearDown() throws Exception {
+        runner.stop();
+        setInstance(null);
+        MockBukkit.unmock();
+    }
+
+    private static void setInstance(AntiVPN antiVPN) throws Exception {
+        Field instanceField = AntiVPN.class.getDeclaredField("INSTANCE");
+        instanceField.setAccessible(true);
+        instanceField.set(null, antiVPN);
+    }
+
+    @Test
+    public void runsActionsOfOnlinePlayersOnTheNextTick() {
+        PlayerMock player = server.addPlayer();
+
+        assertTrue(runner.addAction(player.getUniqueId(), ran::incrementAndGet));
+        assertTrue(runner.addAction(player.getUniqueId(), ran::incrementAndGet));
+        assertEquals(0, ran.get());
+
+        server.getScheduler().performOneTick();
+        assertEquals(2, ran.get());
+        assertEquals(0, runner.size());
+    }
+
+    @Test
+    public void waitsForThePlayerToJoin() {
+        UUID uuid = UUID.randomUUID();
+
+        assertTrue(runner.addAction(uuid, ran::incrementAndGet));
+        server.getScheduler().performOneTick();
+        assertEquals(0, ran.get());
+
+        runner.playerJoined(uuid);
+        server.getScheduler().performOneTick();
+        assertEquals(1, ran.get());
+
+        // The timeout must not run it a second time.
+        sleep(200);
+        server.getScheduler().performOneTick();
+        assertEquals(1, ran.get());
+    }
+
+    @Test
+    public void runsOnceThePlayerTimedOut() {
+        assertTrue(runner.addAction(UUID.randomUUID(), ran::incrementAndGet));
+
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (ran.get() == 0) {
+            assertTrue(System.nanoTime() < deadline, "Timed out waiting for the action");
+            sleep(10);
+            server.getScheduler().performOneTick();
+        }
+        assertEquals(0, runner.size());
+    }
+
+    @Test
+    public void schedulesAgainOnceThePluginIsEnabledAgain() {
+        PlayerMock player = server.addPlayer();
+
+        server.getPluginManager().disablePlugin(plugin);
+        assertTrue(runner.addAction(player.getUniqueId(), ran::incrementAndGet));
+        server.getScheduler().performOneTick();
+        assertEquals(0, ran.get());
+
+        server.getPluginManager().enablePlugin(plugin);
+        assertTrue(runner.addAction(player.getUniqueId(), ran::incrementAndGet));
+        server.getScheduler().performOneTick();
+        assertEquals(2, ran.get());
+    }
+
+    @Test
+    public void dropsActionsOnceFull() {
+        assertTrue(runner.addAction(UUID.randomUUID(), ran::incrementAndGet));
+        assertTrue(runner.addAction(UUID.randomUUID(), ran::incrementAndGet));
+
+        assertFalse(runner.addAction(UUID.randomUUID(), ran::incrementAndGet));
+        assertEquals(1, runner.getDropped());
+        assertEquals(2, runner.size());
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            throw new RuntimeException(e);
+        }
+    }
+}
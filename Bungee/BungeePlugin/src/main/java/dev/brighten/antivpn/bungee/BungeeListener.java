@@ -18,11 +18,12 @@ package dev.brighten.antivpn.bungee;
 
 import dev.brighten.antivpn.AntiVPN;
 import dev.brighten.antivpn.api.*;
+import dev.brighten.antivpn.message.VpnString;
 import dev.brighten.antivpn.utils.MiscUtils;
-import dev.brighten.antivpn.utils.StringUtil;
 import net.md_5.bungee.api.chat.TextComponent;
 import net.md_5.bungee.api.event.LoginEvent;
 import net.md_5.bungee.api.event.PlayerDisconnectEvent;
+import net.md_5.bungee.api.event.PostLoginEvent;
 import net.md_5.bungee.api.event.PreLoginEvent;
 import net.md_5.bungee.api.plugin.Listener;
 import net.md_5.bungee.api.scheduler.ScheduledTask;
@@ -31,6 +32,7 @@ import net.md_5.bungee.event.EventPriority;
 
 import java.net.InetSocketAddress;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 import java.util.logging.Level;
 
 public class BungeeListener extends VPNExecutor implements Listener {
@@ -75,10 +77,45 @@ public class BungeeListener extends VPNExecutor implements Listener {
         BungeePlugin.pluginInstance.onDisable();
     }
 
+    /**
+     * Holds the login with an intent until the verdict arrives. The UUID lookup and the check both run off the
+     * network thread, which is free to handle other connections in the meantime.
+     */
     @EventHandler(priority = EventPriority.HIGH)
     public void onListener(final PreLoginEvent event) {
+        if(event.isCancelled()) return;
+
+        event.registerIntent(BungeePlugin.pluginInstance.getPlugin());
+
+        CompletableFuture.supplyAsync(() -> player(event), getBlockingExecutor())
+                .thenCompose(player -> player.loginVerdict().thenAccept(result -> {
+                    if (!result.resultType().isShouldBlock()) return;
+
+                    if(!AntiVPN.getInstance().getVpnConfig().isKickPlayers()) {
+                        return;
+                    }
+
+                    event.setCancelled(true);
+                    event.setReason(TextComponent.fromLegacy(switch (result.resultType()) {
+                        case DENIED_PROXY -> AntiVPN.getInstance().getVpnConfig().getKickTemplate()
+                                .render(player, result.response());
+                        case DENIED_COUNTRY -> AntiVPN.getInstance().getVpnConfig().getCountryKickTemplate()
+                                .render(player, result.response());
+                        case TIMED_OUT -> AntiVPN.getInstance().getVpnConfig().getLoginTimeoutTemplate()
+                                .render(new VpnString.Var<>("player", player.getName()));
+                        default -> "You were kicked by KauriVPN for an unknown reason!";
+                    }));
+                }))
+                .whenComplete((ignored, e) -> {
+                    if(e != null) {
+                        logException("Could not check " + event.getConnection().getName() + " on login", e);
+                    }
+                    event.completeIntent(BungeePlugin.pluginInstance.getPlugin());
+                });
+    }
 
-        APIPlayer player = AntiVPN.getInstance().getPlayerExecutor().getPlayer(event.getConnection().getUniqueId())
+    private APIPlayer player(PreLoginEvent event) {
+        return AntiVPN.getInstance().getPlayerExecutor().getPlayer(event.getConnection().getUniqueId())
                 .orElseGet(() -> {
                     UUID uuid = MiscUtils.lookupUUID(event.getConnection().getName());
                     AntiVPN.getInstance().getExecutor().log(Level.INFO, "Getting offline player for %s with name %s",
@@ -87,23 +124,6 @@ public class BungeeListener extends VPNExecutor implements Listener {
                     return new OfflinePlayer(uuid, event.getConnection().getName(),
                             ((InetSocketAddress) event.getConnection().getSocketAddress()).getAddress());
                 });
-
-        player.checkPlayer(result -> {
-            if (!result.resultType().isShouldBlock()) return;
-
-            if(!AntiVPN.getInstance().getVpnConfig().isKickPlayers()) {
-                return;
-            }
-
-            event.setCancelled(true);
-            event.setReason(TextComponent.fromLegacy(StringUtil.varReplace(switch (result.resultType()) {
-                case DENIED_PROXY -> StringUtil.varReplace(AntiVPN.getInstance().getVpnConfig()
-                        .getKickMessage(), player, result.response());
-                case DENIED_COUNTRY -> StringUtil.varReplace(AntiVPN.getInstance().getVpnConfig()
-                        .getCountryVanillaKickReason(), player, result.response());
-                default -> "You were kicked by KauriVPN for an unknown reason!";
-            }, player, result.response())));
-        });
     }
 
     @EventHandler(priority = EventPriority.HIGH)
@@ -115,8 +135,15 @@ public class BungeeListener extends VPNExecutor implements Listener {
                 .ifPresent(APIPlayer::checkAlertsState);
     }
 
+    @EventHandler
+    public void onPostLogin(PostLoginEvent event) {
+        // The proxy only resolves the player from here on, so a pending kick can run now.
+        AntiVPN.getInstance().getExecutor().playerJoined(event.getPlayer().getUniqueId());
+    }
+
     @EventHandler
     public void onLeave(PlayerDisconnectEvent event) {
         AntiVPN.getInstance().getPlayerExecutor().unloadPlayer(event.getPlayer().getUniqueId());
+        AntiVPN.getInstance().getExecutor().playerQuit(event.getPlayer().getUniqueId());
     }
 }
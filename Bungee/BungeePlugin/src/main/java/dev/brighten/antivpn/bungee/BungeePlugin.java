@@ -69,7 +69,7 @@ public class BungeePlugin implements LoaderBootstrap {
             Metrics metrics = new Metrics(getPlugin(), 12616);
             metrics.addCustomChart(new SimplePie("database_used", this::getDatabaseType));
             ProxyServer.getInstance().getScheduler().schedule(getPlugin(),
-                    () -> AntiVPN.getInstance().checked = AntiVPN.getInstance().detections = 0,
+                    () -> AntiVPN.getInstance().getMetrics().resetCheckCounts(),
                     10, 10, TimeUnit.MINUTES);
         }
 
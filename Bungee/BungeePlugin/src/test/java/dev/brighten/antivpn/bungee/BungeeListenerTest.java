@@ -1,11 +1,14 @@
 package dev.brighten.antivpn.bungee;
 
 import dev.brighten.antivpn.AntiVPN;
+import dev.brighten.antivpn.api.CheckPolicy;
 import dev.brighten.antivpn.api.PlayerExecutor;
 import dev.brighten.antivpn.api.VPNConfig;
 import dev.brighten.antivpn.api.VPNExecutor;
 import dev.brighten.antivpn.message.MessageHandler;
+import dev.brighten.antivpn.message.MessageTemplate;
 import dev.brighten.antivpn.message.VpnString;
+import dev.brighten.antivpn.metrics.VPNMetrics;
 import dev.brighten.antivpn.web.objects.VPNResponse;
 import net.md_5.bungee.api.connection.PendingConnection;
 import net.md_5.bungee.api.event.PreLoginEvent;
@@ -38,18 +41,22 @@ public class BungeeListenerTest {
         when(antiVPN.getPlayerExecutor()).thenReturn(playerExecutor);
         when(antiVPN.getExecutor()).thenReturn(vpnExecutor);
         when(antiVPN.getMessageHandler()).thenReturn(messageHandler);
+        when(antiVPN.getMetrics()).thenReturn(new VPNMetrics());
 
         when(playerExecutor.getPlayer(any(UUID.class))).thenReturn(Optional.empty());
         when(config.getPrefixWhitelists()).thenReturn(java.util.Collections.emptyList());
         when(config.getCountryList()).thenReturn(java.util.Collections.emptyList());
+        when(config.getPolicy()).thenReturn(CheckPolicy.EMPTY);
         when(config.isKickPlayers()).thenReturn(true);
         when(config.getKickMessage()).thenReturn("Blocked!");
+        when(config.getKickTemplate()).thenReturn(MessageTemplate.compile("Blocked!"));
+        when(config.getCountryKickTemplate()).thenReturn(MessageTemplate.compile("Blocked!"));
 
         VpnString mockVpnString = mock(VpnString.class);
         when(mockVpnString.getFormattedMessage(any())).thenReturn("Blocked!");
         when(messageHandler.getString(anyString())).thenReturn(mockVpnString);
 
-        when(vpnExecutor.checkIp(anyString())).thenReturn(CompletableFuture.completedFuture(
+        when(vpnExecutor.checkIp(anyString(), any())).thenReturn(CompletableFuture.completedFuture(
                 VPNResponse.builder().success(true).proxy(false).ip("127.0.0.1")
                         .method("N/A").countryName("N/A").city("N/A").build()
         ));
@@ -59,6 +66,8 @@ public class BungeeListenerTest {
         instanceField.setAccessible(true);
         instanceField.set(null, antiVPN);
 
+        BungeePlugin.pluginInstance = mock(BungeePlugin.class);
+
         listener = new BungeeListener();
     }
 
@@ -68,6 +77,9 @@ public class BungeeListenerTest {
         Field instanceField = AntiVPN.class.getDeclaredField("INSTANCE");
         instanceField.setAccessible(true);
         instanceField.set(null, null);
+
+        BungeePlugin.pluginInstance = null;
+        listener.getThreadExecutor().shutdownNow();
     }
 
     @Test
@@ -82,6 +94,8 @@ public class BungeeListenerTest {
 
         listener.onListener(event);
 
+        verify(event).registerIntent(any());
+        verify(event, timeout(5000)).completeIntent(any());
         verify(event, never()).setCancelled(true);
     }
 
@@ -97,13 +111,14 @@ public class BungeeListenerTest {
         when(connection.getSocketAddress()).thenReturn(new InetSocketAddress("1.1.1.1", 12345));
 
         // Mock proxy response
-        when(vpnExecutor.checkIp("1.1.1.1")).thenReturn(CompletableFuture.completedFuture(
+        when(vpnExecutor.checkIp(eq("1.1.1.1"), any())).thenReturn(CompletableFuture.completedFuture(
                 VPNResponse.builder().success(true).proxy(true).ip("1.1.1.1")
                         .method("N/A").countryName("N/A").countryCode("N/A").city("N/A").build()
         ));
 
         listener.onListener(event);
 
+        verify(event, timeout(5000)).completeIntent(any());
         verify(event).setCancelled(true);
         verify(event).setReason(any());
     }
@@ -0,0 +1,166 @@
+/*
+ * Copyright 2026 Dawson Hessler
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package dev.brighten.antivpn.benchmarks;
+
+import dev.brighten.antivpn.AntiVPN;
+import dev.brighten.antivpn.api.APIPlayer;
+import dev.brighten.antivpn.api.PlayerExecutor;
+import dev.brighten.antivpn.api.VPNConfig;
+import dev.brighten.antivpn.api.VPNExecutor;
+import dev.brighten.antivpn.utils.config.ConfigurationProvider;
+import dev.brighten.antivpn.utils.config.YamlConfiguration;
+import dev.brighten.antivpn.web.objects.VPNResponse;
+
+import java.io.File;
+import java.io.InputStream;
+import java.lang.reflect.Field;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.logging.Level;
+
+/**
+ * Installs an {@link AntiVPN} instance built from the bundled config.yml, with an executor that never logs,
+ * runs commands or touches a database. Unlike mocks, every call made during a check is the real one.
+ */
+final class BenchmarkFixture {
+
+    private BenchmarkFixture() {
+    }
+
+    static AntiVPN start() throws Exception {
+        AntiVPN antiVPN = new AntiVPN();
+        Executor executor = new Executor();
+        File pluginFolder = Files.createTempDirectory("antivpn-bench").toFile();
+
+        pluginFolder.deleteOnExit();
+        set(antiVPN, "pluginFolder", pluginFolder);
+        set(antiVPN, "executor", executor);
+        set(antiVPN, "playerExecutor", new Players());
+        try (InputStream config = antiVPN.getResource("config.yml")) {
+            set(antiVPN, "config", ConfigurationProvider.getProvider(YamlConfiguration.class).load(config));
+        }
+
+        Field instance = AntiVPN.class.getDeclaredField("INSTANCE");
+        instance.setAccessible(true);
+        instance.set(null, antiVPN);
+
+        VPNConfig vpnConfig = new VPNConfig();
+        set(antiVPN, "vpnConfig", vpnConfig);
+        vpnConfig.update();
+        executor.registerMetrics(antiVPN.getMetrics());
+
+        return antiVPN;
+    }
+
+    static void stop(AntiVPN antiVPN) {
+        antiVPN.getExecutor().shutdownThreads();
+    }
+
+    static VPNResponse response(String ip, boolean proxy) {
+        return VPNResponse.builder()
+                .ip(ip).asn("AS64500").isp("Example Hosting GmbH")
+                .countryName("Germany").countryCode("DE").city("Frankfurt am Main").timeZone("Europe/Berlin")
+                .method(proxy ? "ASN" : "N/A").proxy(proxy).cached(true).success(true)
+                .latitude(50.1109).longitude(8.6821).queriesLeft(48211)
+                .build();
+    }
+
+    static InetAddress address(String literal) {
+        try {
+            return InetAddress.getByName(literal);
+        } catch (UnknownHostException e) {
+            throw new IllegalArgumentException(e);
+        }
+    }
+
+    private static void set(AntiVPN antiVPN, String field, Object value) throws ReflectiveOperationException {
+        Field declared = AntiVPN.class.getDeclaredField(field);
+
+        declared.setAccessible(true);
+        declared.set(antiVPN, value);
+    }
+
+    static class Player extends APIPlayer {
+        Player(UUID uuid, String name, InetAddress ip) {
+            super(uuid, name, ip);
+        }
+
+        @Override
+        public void sendMessage(String message) {
+        }
+
+        @Override
+        public void kickPlayer(String reason) {
+        }
+
+        @Override
+        public boolean hasPermission(String permission) {
+            return false;
+        }
+    }
+
+    static class Executor extends VPNExecutor {
+        @Override
+        public void registerListeners() {
+        }
+
+        @Override
+        public void log(Level level, String log, Object... objects) {
+        }
+
+        @Override
+        public void log(String log, Object... objects) {
+        }
+
+        @Override
+        public void logException(String message, Throwable ex) {
+        }
+
+        @Override
+        public void runCommand(String command) {
+        }
+
+        @Override
+        public void disablePlugin() {
+        }
+    }
+
+    static class Players implements PlayerExecutor {
+        @Override
+        public Optional<APIPlayer> getPlayer(String name) {
+            return Optional.empty();
+        }
+
+        @Override
+        public Optional<APIPlayer> getPlayer(UUID uuid) {
+            return Optional.empty();
+        }
+
+        @Override
+        public void unloadPlayer(UUID uuid) {
+        }
+
+        @Override
+        public List<APIPlayer> getOnlinePlayers() {
+            return List.of();
+        }
+    }
+}
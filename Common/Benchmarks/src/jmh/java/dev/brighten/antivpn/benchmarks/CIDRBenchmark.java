@@ -0,0 +1,72 @@
+/*
+ * Copyright 2026 Dawson Hessler
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package dev.brighten.antivpn.benchmarks;
+
+import dev.brighten.antivpn.utils.CIDRUtils;
+import dev.brighten.antivpn.utils.IpAddress;
+import dev.brighten.antivpn.utils.MiscUtils;
+import org.openjdk.jmh.annotations.*;
+
+import java.math.BigInteger;
+import java.net.UnknownHostException;
+import java.util.List;
+
+/**
+ * Range parsing and matching as done for allowlisted ranges and database range imports.
+ */
+@State(Scope.Benchmark)
+public class CIDRBenchmark {
+
+    @Param({"192.168.0.0/16", "2001:db8::/32"})
+    public String cidr;
+
+    private CIDRUtils range;
+    private String addressInside;
+    private IpAddress parsedInside;
+    private BigInteger rangeStart, rangeEnd;
+
+    @Setup
+    public void setup() throws UnknownHostException {
+        range = new CIDRUtils(cidr);
+        addressInside = range.isIpv4() ? "192.168.77.12" : "2001:db8:1234::77";
+        parsedInside = IpAddress.parse(addressInside);
+
+        // An unaligned range, so it splits into many blocks like real ASN imports do.
+        rangeStart = range.getStartIpInt().add(BigInteger.valueOf(3));
+        rangeEnd = range.getEndIpInt().subtract(BigInteger.valueOf(5));
+    }
+
+    @Benchmark
+    public CIDRUtils construct() throws UnknownHostException {
+        return new CIDRUtils(cidr);
+    }
+
+    @Benchmark
+    public boolean isInRangeString() {
+        return range.isInRange(addressInside);
+    }
+
+    @Benchmark
+    public boolean isInRangeParsed() {
+        return range.isInRange(parsedInside);
+    }
+
+    @Benchmark
+    public List<CIDRUtils> rangeToCidrs() {
+        return MiscUtils.rangeToCidrs(rangeStart, rangeEnd, range.isIpv4());
+    }
+}
@@ -0,0 +1,87 @@
+/*
+ * Copyright 2026 Dawson Hessler
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package dev.brighten.antivpn.benchmarks;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import dev.brighten.antivpn.AntiVPN;
+import dev.brighten.antivpn.api.APIPlayer;
+import dev.brighten.antivpn.api.CheckResult;
+import dev.brighten.antivpn.api.ResultType;
+import dev.brighten.antivpn.web.objects.VPNResponse;
+import org.openjdk.jmh.annotations.*;
+
+import java.lang.reflect.Field;
+
+/**
+ * Lookups against the two Caffeine caches consulted on every login: the per-IP check results kept by
+ * {@link APIPlayer} and the API responses kept by the executor.
+ */
+@State(Scope.Benchmark)
+public class CacheBenchmark {
+
+    private static final String CACHED_IP = "203.0.113.7", MISSING_IP = "198.51.100.99";
+
+    private AntiVPN antiVPN;
+    private Cache<String, CheckResult> checkResultCache;
+
+    @Setup
+    @SuppressWarnings("unchecked")
+    public void setup() throws Exception {
+        antiVPN = BenchmarkFixture.start();
+
+        Field field = APIPlayer.class.getDeclaredField("checkResultCache");
+        field.setAccessible(true);
+        checkResultCache = (Cache<String, CheckResult>) field.get(null);
+
+        VPNResponse response = BenchmarkFixture.response(CACHED_IP, false);
+        antiVPN.getExecutor().cacheResponse(CACHED_IP, response);
+        checkResultCache.put(CACHED_IP, new CheckResult(response, ResultType.ALLOWED, true));
+    }
+
+    @TearDown
+    public void tearDown() {
+        antiVPN.getExecutor().clearCachedResponses();
+        checkResultCache.invalidateAll();
+        BenchmarkFixture.stop(antiVPN);
+    }
+
+    @Benchmark
+    public VPNResponse responseHit() {
+        return antiVPN.getExecutor().getCachedResponse(CACHED_IP);
+    }
+
+    @Benchmark
+    public VPNResponse responseMiss() {
+        return antiVPN.getExecutor().getCachedResponse(MISSING_IP);
+    }
+
+    @Benchmark
+    public CheckResult checkResultHit() {
+        return checkResultCache.getIfPresent(CACHED_IP);
+    }
+
+    @Benchmark
+    public CheckResult checkResultMiss() {
+        return checkResultCache.getIfPresent(MISSING_IP);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public VPNResponse responseHitContended() {
+        return antiVPN.getExecutor().getCachedResponse(CACHED_IP);
+    }
+}
@@ -0,0 +1,91 @@
+/*
+ * Copyright 2026 Dawson Hessler
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package dev.brighten.antivpn.benchmarks;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import dev.brighten.antivpn.AntiVPN;
+import dev.brighten.antivpn.api.APIPlayer;
+import dev.brighten.antivpn.api.CheckResult;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.lang.reflect.Field;
+import java.util.UUID;
+
+/**
+ * A full {@link APIPlayer#checkPlayer} call on each path that completes without I/O: allowlisted players,
+ * players whose IP has a cached check result, and players whose IP only has a cached API response.
+ */
+@State(Scope.Benchmark)
+public class CheckPlayerBenchmark {
+
+    private AntiVPN antiVPN;
+    private APIPlayer allowlisted, cachedResult, cachedResponse;
+    private Cache<String, CheckResult> checkResultCache;
+
+    @Setup
+    @SuppressWarnings("unchecked")
+    public void setup() throws Exception {
+        antiVPN = BenchmarkFixture.start();
+
+        Field field = APIPlayer.class.getDeclaredField("checkResultCache");
+        field.setAccessible(true);
+        checkResultCache = (Cache<String, CheckResult>) field.get(null);
+
+        allowlisted = new BenchmarkFixture.Player(UUID.randomUUID(), "Allowlisted",
+                BenchmarkFixture.address("203.0.113.1"));
+        antiVPN.getExecutor().getWhitelisted().add(allowlisted.getUuid());
+
+        cachedResult = new BenchmarkFixture.Player(UUID.randomUUID(), "CachedResult",
+                BenchmarkFixture.address("203.0.113.2"));
+        cachedResponse = new BenchmarkFixture.Player(UUID.randomUUID(), "CachedResponse",
+                BenchmarkFixture.address("2001:db8::3"));
+
+        for (APIPlayer player : new APIPlayer[] {cachedResult, cachedResponse}) {
+            String ip = player.getIp().getHostAddress();
+
+            antiVPN.getExecutor().cacheResponse(ip, BenchmarkFixture.response(ip, false));
+        }
+        // Populates the check result cache from the response cache.
+        cachedResult.checkPlayer(result -> {});
+    }
+
+    @TearDown
+    public void tearDown() {
+        antiVPN.getExecutor().clearCachedResponses();
+        checkResultCache.invalidateAll();
+        BenchmarkFixture.stop(antiVPN);
+    }
+
+    @Benchmark
+    public void allowlisted(Blackhole blackhole) {
+        allowlisted.checkPlayer(blackhole::consume);
+    }
+
+    @Benchmark
+    public void cachedResult(Blackhole blackhole) {
+        cachedResult.checkPlayer(blackhole::consume);
+    }
+
+    @Benchmark
+    public void cachedResponse(Blackhole blackhole) {
+        // Forces the lookup through VPNExecutor#checkIp. The response is already cached there, so the
+        // returned future is complete and the rest of the check runs on this thread.
+        checkResultCache.invalidate(cachedResponse.getIp().getHostAddress());
+        cachedResponse.checkPlayer(blackhole::consume);
+    }
+}
@@ -0,0 +1,56 @@
+/*
+ * Copyright 2026 Dawson Hessler
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package dev.brighten.antivpn.benchmarks;
+
+import dev.brighten.antivpn.api.APIPlayer;
+import dev.brighten.antivpn.message.MessageTemplate;
+import dev.brighten.antivpn.utils.StringUtil;
+import dev.brighten.antivpn.web.objects.VPNResponse;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.UUID;
+
+/**
+ * Placeholder replacement for kick, alert and command messages.
+ */
+@State(Scope.Benchmark)
+public class MessageBenchmark {
+
+    private static final String ALERT = "&8[&6KauriVPN&8] &e%player% &7has joined on a VPN/proxy &8(&f%reason%&8) "
+            + "&7in location &8(&f%city%&7, &f%country%&8)";
+
+    private APIPlayer player;
+    private VPNResponse response;
+    private MessageTemplate template;
+
+    @Setup
+    public void setup() {
+        player = new BenchmarkFixture.Player(UUID.randomUUID(), "Notch", BenchmarkFixture.address("203.0.113.7"));
+        response = BenchmarkFixture.response("203.0.113.7", true);
+        template = MessageTemplate.compile(ALERT);
+    }
+
+    @Benchmark
+    public String varReplace() {
+        return StringUtil.varReplace(ALERT, player, response);
+    }
+
+    @Benchmark
+    public String renderTemplate() {
+        return template.render(player, response);
+    }
+}
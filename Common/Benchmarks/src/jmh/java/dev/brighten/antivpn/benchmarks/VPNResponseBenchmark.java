@@ -0,0 +1,81 @@
+/*
+ * Copyright 2026 Dawson Hessler
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package dev.brighten.antivpn.benchmarks;
+
+import dev.brighten.antivpn.utils.json.JSONException;
+import dev.brighten.antivpn.utils.json.JSONObject;
+import dev.brighten.antivpn.web.ResponseDecoder;
+import dev.brighten.antivpn.web.objects.VPNResponse;
+import dev.brighten.antivpn.web.objects.VPNResponseCodec;
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Decoding of API responses, streamed by {@link ResponseDecoder} and through the vendored {@link JSONObject}, and
+ * the {@link VPNResponseCodec} binary form the in-memory response cache holds.
+ */
+@State(Scope.Benchmark)
+public class VPNResponseBenchmark {
+
+    // Shaped like a funkemunky.cc response. VPNResponse#toJson leaves out fields fromJson requires.
+    private static final String JSON = "{\"success\":true,\"ip\":\"203.0.113.7\",\"asn\":\"AS64500\","
+            + "\"countryName\":\"Germany\",\"countryCode\":\"DE\",\"city\":\"Frankfurt am Main\","
+            + "\"timeZone\":\"Europe/Berlin\",\"method\":\"ASN\",\"isp\":\"Example Hosting GmbH\","
+            + "\"proxy\":true,\"cached\":true,\"latitude\":50.1109,\"longitude\":8.6821,"
+            + "\"lastAccess\":1767225600000,\"queriesLeft\":48211}";
+    private static final byte[] BODY = JSON.getBytes(StandardCharsets.UTF_8);
+
+    private VPNResponse response;
+    private byte[] binary;
+
+    @Setup
+    public void setup() throws JSONException {
+        response = ResponseDecoder.decodeVPNResponse(BODY);
+        binary = VPNResponseCodec.encode(response);
+    }
+
+    @Benchmark
+    public VPNResponse decodeBody() throws JSONException {
+        return ResponseDecoder.decodeVPNResponse(BODY);
+    }
+
+    @Benchmark
+    public VPNResponse fromJsonString() throws JSONException {
+        return VPNResponse.fromJson(JSON);
+    }
+
+    @Benchmark
+    public VPNResponse fromJsonObject() throws JSONException {
+        return VPNResponse.fromJson(new JSONObject(JSON));
+    }
+
+    @Benchmark
+    public JSONObject parseOnly() throws JSONException {
+        return new JSONObject(JSON);
+    }
+
+    @Benchmark
+    public byte[] encodeBinary() {
+        return VPNResponseCodec.encode(response);
+    }
+
+    @Benchmark
+    public VPNResponse decodeBinary() {
+        return VPNResponseCodec.decode(binary);
+    }
+}
@@ -29,6 +29,7 @@ import dev.brighten.antivpn.depends.LibraryLoader;
 import dev.brighten.antivpn.depends.MavenLibrary;
 import dev.brighten.antivpn.depends.Relocate;
 import dev.brighten.antivpn.message.MessageHandler;
+import dev.brighten.antivpn.metrics.VPNMetrics;
 import dev.brighten.antivpn.utils.ConfigDefault;
 import dev.brighten.antivpn.utils.MiscUtils;
 import dev.brighten.antivpn.utils.config.Configuration;
@@ -77,7 +78,7 @@ public class AntiVPN {
     private MessageHandler messageHandler;
     private Configuration config;
     private List<Command> commands = new ArrayList<>();
-    public int detections, checked;
+    private final VPNMetrics metrics = new VPNMetrics();
     private File pluginFolder;
 
     public static void start(VPNExecutor executor, PlayerExecutor playerExecutor, File pluginFolder) {
@@ -88,6 +89,7 @@ public class AntiVPN {
         INSTANCE.pluginFolder = pluginFolder;
         INSTANCE.executor = executor;
         INSTANCE.playerExecutor = playerExecutor;
+        executor.registerMetrics(INSTANCE.metrics);
 
         LibraryLoader.loadAll(INSTANCE);
 
@@ -153,13 +155,10 @@ public class AntiVPN {
         //Registering commands
         INSTANCE.registerCommands();
 
-        //Turning on alerts of players who are already online.
+        //Turning on alerts of players who are already online, the database loaded every subscription in bulk.
         playerExecutor.getOnlinePlayers().forEach(player -> {
-            //We want to make sure they even have permission to see alerts before we make a bunch
-            //of unnecessary database queries.
             if(player.hasPermission("antivpn.command.alerts")) {
-                //Running database check for enabled alerts.
-                INSTANCE.database.alertsState(player.getUuid(), player::setAlertsEnabled);
+                player.setAlertsEnabled(executor.hasAlertsEnabled(player.getUuid()));
             }
         });
 
@@ -167,9 +166,6 @@ public class AntiVPN {
                 (vpnString.getDefaultMessage(), "messages." + vpnString.getKey(), AntiVPN.getInstance())
                 .get());
         AntiVPN.getInstance().getMessageHandler().reloadStrings();
-
-        // Starting kick checks
-        AntiVPN.getInstance().getExecutor().startKickChecks();
     }
 
     public InputStream getResource(String filename) {
@@ -207,7 +203,7 @@ public class AntiVPN {
             }
         }
         if (executor != null && executor.getThreadExecutor() != null) {
-            executor.getThreadExecutor().shutdown();
+            executor.shutdownThreads();
         }
         if(database != null) database.shutdown();
 
@@ -20,11 +20,16 @@ import com.github.benmanes.caffeine.cache.Cache;
 import com.github.benmanes.caffeine.cache.Caffeine;
 import dev.brighten.antivpn.AntiVPN;
 import dev.brighten.antivpn.message.VpnString;
+import dev.brighten.antivpn.metrics.Stage;
+import dev.brighten.antivpn.metrics.VPNMetrics;
 import lombok.Getter;
 import lombok.Setter;
 
 import java.net.InetAddress;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.TimeUnit;
 import java.util.function.Consumer;
 import java.util.logging.Level;
@@ -58,77 +63,153 @@ public abstract class APIPlayer {
         //Updating into database so its synced across servers and saved on logout.
         AntiVPN.getInstance().getDatabase().updateAlertsState(uuid, alertsEnabled);
 
+        sendAlertsState();
+    }
+
+    /**
+     * Turns alerts back on if the player subscribed to them before. Only reads the in-memory subscriptions, so a
+     * join never costs a database query.
+     */
+    public void checkAlertsState() {
+        if(AntiVPN.getInstance().getExecutor().hasAlertsEnabled(uuid)) {
+            alertsEnabled = true;
+            sendAlertsState();
+        }
+    }
+
+    private void sendAlertsState() {
         sendMessage(AntiVPN.getInstance().getMessageHandler()
                 .getString("command-alerts-toggled")
                 .getFormattedMessage(new VpnString.Var<>("state", alertsEnabled)));
     }
 
-    public void checkAlertsState() {
-        AntiVPN.getInstance().getExecutor().getThreadExecutor().execute(() ->
-                AntiVPN.getInstance().getDatabase().alertsState(uuid, state -> {
-                    if(state) {
-                        alertsEnabled = true;
-                        updateAlertsState();
+    /**
+     * Reports the verdict right away if it is known without a lookup. Otherwise reports
+     * {@link ResultType#UNKNOWN} first and the verdict once the lookup finishes. A lookup that failed, or was shed
+     * during a login wave, is reported as {@link ResultType#API_FAILURE}.
+     *
+     * @param onResult Consumer of every result
+     */
+    public void checkPlayer(Consumer<CheckResult> onResult) {
+        CompletableFuture<CheckResult> verdict = checkPlayer().handle((result, throwable) -> {
+            if(throwable == null) return result;
+
+            if(!isShed(throwable)) {
+                AntiVPN.getInstance().getExecutor().logException("Could not check " + name, throwable);
+            }
+            return new CheckResult(null, ResultType.API_FAILURE, false);
+        });
+
+        if(verdict.isDone()) {
+            onResult.accept(verdict.join());
+            return;
+        }
+        // Reported before waiting on the verdict, so it always comes first.
+        onResult.accept(new CheckResult(null, ResultType.UNKNOWN, false));
+        verdict.thenAccept(onResult);
+    }
+
+    /**
+     * The verdict for holding a login, bounded by the configured login deadline. Once the deadline passes the
+     * login is let in or refused depending on {@link VPNConfig#isLoginFailClosed()}, the lookup keeps running and a
+     * late detection still kicks the player through {@link VPNExecutor#handleKickingOfPlayer(CheckResult, APIPlayer)}.
+     *
+     * @return CompletableFuture that never completes exceptionally
+     */
+    public CompletableFuture<CheckResult> loginVerdict() {
+        VPNConfig config = AntiVPN.getInstance().getVpnConfig();
+        CheckResult noVerdict = new CheckResult(null, config.isLoginFailClosed()
+                ? ResultType.TIMED_OUT : ResultType.UNKNOWN, false);
+        CompletableFuture<CheckResult> verdict;
+
+        try {
+            verdict = checkPlayer();
+        } catch (RuntimeException e) {
+            AntiVPN.getInstance().getExecutor().logException("Could not check " + name + " on login", e);
+            return CompletableFuture.completedFuture(noVerdict);
+        }
+
+        if(verdict.isDone() && !verdict.isCompletedExceptionally()) {
+            return verdict;
+        }
+
+        // A copy, so completing it on the deadline leaves the lookup itself running.
+        return verdict.copy()
+                .completeOnTimeout(noVerdict, Math.max(0, config.getLoginDeadline()), TimeUnit.MILLISECONDS)
+                .exceptionally(e -> {
+                    // Shedding during a login wave is expected and would flood the log.
+                    if(isShed(e)) {
+                        AntiVPN.getInstance().getExecutor().log(Level.FINE, "Check of " + name
+                                + " was shed, too many logins are waiting.");
+                    } else {
+                        AntiVPN.getInstance().getExecutor().logException("Could not check " + name + " on login", e);
                     }
-                })
-        );
+                    return noVerdict;
+                });
     }
 
-    public void checkPlayer(Consumer<CheckResult> onResult) {
-        if (hasPermission("antivpn.bypass") //Has bypass permission
+    private static boolean isShed(Throwable throwable) {
+        Throwable cause = throwable instanceof CompletionException ? throwable.getCause() : throwable;
+
+        return cause instanceof RejectedExecutionException;
+    }
+
+    /**
+     * @return CompletableFuture of the verdict, already completed if no lookup was needed
+     */
+    public CompletableFuture<CheckResult> checkPlayer() {
+        CheckPolicy policy = AntiVPN.getInstance().getVpnConfig().getPolicy();
+        VPNMetrics metrics = AntiVPN.getInstance().getMetrics();
+        long start = System.nanoTime();
+
+        boolean exempt = hasPermission("antivpn.bypass") //Has bypass permission
                 //Is exempt
                 || (uuid != null && AntiVPN.getInstance().getExecutor().isWhitelisted(uuid))
+                || AntiVPN.getInstance().getExecutor().isWhitelisted(ip)
                 //Or has a name that starts with a certain prefix. This is for Bedrock exempting.
-                || AntiVPN.getInstance().getExecutor().isWhitelisted(ip.getHostAddress() + "/32")
-                || AntiVPN.getInstance().getVpnConfig().getPrefixWhitelists().stream()
-                .anyMatch(name::startsWith)) {
-            onResult.accept(new CheckResult(null, ResultType.WHITELISTED, false));
-            return;
+                || policy.isExempt(name);
+        metrics.record(Stage.ALLOWLIST, start);
+
+        if (exempt) {
+            return CompletableFuture.completedFuture(new CheckResult(null, ResultType.WHITELISTED, false));
         }
 
+        start = System.nanoTime();
         CheckResult cachedResult = checkResultCache.getIfPresent(ip.getHostAddress());
+        metrics.record(Stage.CACHE, start);
 
         if(cachedResult != null) {
             if(cachedResult.response().getIp().equals(ip.getHostAddress())) {
+                // Misses are counted by VPNExecutor#checkIp, which also consults the response cache.
+                metrics.recordCacheLookup(true);
                 AntiVPN.getInstance().getExecutor().log(Level.FINE, "Cached result for " + ip.getHostAddress() + " is " + cachedResult.resultType());
                 if(cachedResult.resultType().isShouldBlock()) {
                     AntiVPN.getInstance().getExecutor().handleKickingOfPlayer(cachedResult, this);
                 }
-                onResult.accept(cachedResult);
-                return;
+                return CompletableFuture.completedFuture(cachedResult);
             }
         }
 
-        AntiVPN.getInstance().getExecutor().checkIp(ip.getHostAddress())
-                .thenAccept(result -> {
+        // Players who passed a check recently are admitted ahead of unknown logins, where bot attacks land.
+        LookupPriority priority = uuid != null && AntiVPN.getInstance().getExecutor().isKnownPlayer(uuid)
+                ? LookupPriority.RELOGIN : LookupPriority.LOGIN;
+
+        return AntiVPN.getInstance().getExecutor().checkIp(ip.getHostAddress(), priority)
+                .thenApply(result -> {
                     if(!result.isSuccess()) {
                         AntiVPN.getInstance().getExecutor().log(Level.WARNING, "The API query was not a success! " +
                                 "You may need to upgrade your license on " +
                                 "https://funkemunky.cc/shop");
-                        onResult.accept(new CheckResult(null, ResultType.API_FAILURE, false));
-                        return;
+                        return new CheckResult(null, ResultType.API_FAILURE, false);
                     }
-                    // If the countryList() size is zero, no need to check.
-                    // Running country check first
-                    CheckResult checkResult;
-                    if (!AntiVPN.getInstance().getVpnConfig().getCountryList().isEmpty()
-                            && !((uuid != null && AntiVPN.getInstance().getExecutor()
-                            .isWhitelisted(uuid))
-                            //Or has a name that starts with a certain prefix. This is for Bedrock exempting.
-                            || AntiVPN.getInstance().getExecutor().isWhitelisted(ip.getHostAddress() + "/32"))
-                            // This bit of code will decide whether or not to kick the player
-                            // If it contains the code and it is set to whitelist, it will not kick
-                            // as they are equal and vise versa. However, if the contains does not match
-                            // the state, it will kick.
-                            && AntiVPN.getInstance().getVpnConfig().getCountryList()
-                            .contains(result.getCountryCode())
-                            != AntiVPN.getInstance().getVpnConfig().getWhitelistCountries()) {
-                        //Using our built in kicking system if no commands are configured
-                        checkResult = new CheckResult(result, ResultType.DENIED_COUNTRY, false);
-                    } else if (result.isProxy()) {
-                        checkResult = new CheckResult(result, ResultType.DENIED_PROXY, false);
-                    } else {
-                        checkResult = new CheckResult(result, ResultType.ALLOWED, false);
+                    // Allowlisted players never reach this point, so the compiled policy only has to look at the
+                    // response itself.
+                    long evaluationStart = System.nanoTime();
+                    CheckResult checkResult = new CheckResult(result, policy.evaluate(result), false);
+                    metrics.record(Stage.POLICY, evaluationStart);
+                    metrics.getChecked().increment();
+                    if(checkResult.resultType().isShouldBlock()) {
+                        metrics.getDetections().increment();
                     }
 
                     AntiVPN.getInstance().getExecutor().log(Level.FINE, "Result for " + ip.getHostAddress() + " is " + checkResult.resultType());
@@ -136,10 +217,10 @@ public abstract class APIPlayer {
                     checkResultCache.put(ip.getHostAddress(), new CheckResult(checkResult.response(), checkResult.resultType(), true));
                     if(checkResult.resultType().isShouldBlock()) {
                         AntiVPN.getInstance().getExecutor().handleKickingOfPlayer(checkResult, this);
+                    } else if(uuid != null) {
+                        AntiVPN.getInstance().getExecutor().rememberPlayer(uuid);
                     }
-                    onResult.accept(checkResult);
-                    AntiVPN.getInstance().checked++;
+                    return checkResult;
                 });
-        onResult.accept(new CheckResult(null, ResultType.UNKNOWN, false));
     }
 }
@@ -0,0 +1,136 @@
+/*
+ * Copyright 2026 Dawson Hessler
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package dev.brighten.antivpn.api;
+
+import dev.brighten.antivpn.AntiVPN;
+import dev.brighten.antivpn.utils.PrefixTrie;
+import dev.brighten.antivpn.web.objects.VPNResponse;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.logging.Level;
+
+/**
+ * The player check rules from {@link VPNConfig}, compiled into an immutable form on load and reload so a
+ * verdict can be reached in a single pass without allocating.
+ * <p>
+ * Name prefixes are kept in a {@link PrefixTrie} and countries in a bitset indexed by their ISO 3166-1
+ * alpha-2 code. Additional rule kinds, such as ASN or ISP blocklists, plug in as {@link ResponseRule}s.
+ */
+public final class CheckPolicy {
+
+    public static final CheckPolicy EMPTY = new CheckPolicy(List.of(), List.of(), true, List.of());
+
+    private final PrefixTrie exemptPrefixes;
+    private final long[] countries = new long[(26 * 26 + 63) / 64];
+    private final boolean countryFilter, whitelistCountries;
+    private final ResponseRule[] responseRules;
+
+    public CheckPolicy(Collection<String> exemptPrefixes, Collection<String> countryCodes,
+                       boolean whitelistCountries, List<ResponseRule> responseRules) {
+        this.exemptPrefixes = PrefixTrie.of(exemptPrefixes);
+        this.countryFilter = !countryCodes.isEmpty();
+        this.whitelistCountries = whitelistCountries;
+        this.responseRules = responseRules.toArray(new ResponseRule[0]);
+
+        for (String code : countryCodes) {
+            int index = countryIndex(code);
+
+            if(index >= 0) countries[index >>> 6] |= 1L << index;
+        }
+    }
+
+    /**
+     * Compiles the rules currently loaded in the provided config.
+     *
+     * @param config VPNConfig
+     * @return CheckPolicy
+     */
+    public static CheckPolicy compile(VPNConfig config) {
+        for (String code : config.getCountryList()) {
+            if(countryIndex(code) < 0) {
+                AntiVPN.getInstance().getExecutor().log(Level.WARNING,
+                        "Ignoring country '%s' in countries.list, it is not a two letter ISO country code.", code);
+            }
+        }
+
+        return new CheckPolicy(config.getPrefixWhitelists(), config.getCountryList(),
+                config.getWhitelistCountries(), List.of());
+    }
+
+    /**
+     * Checks whether the player name starts with one of the configured prefixes. This is for Bedrock exempting.
+     *
+     * @param name String
+     * @return boolean
+     */
+    public boolean isExempt(String name) {
+        return exemptPrefixes.matchesPrefixOf(name);
+    }
+
+    public boolean isCountryListed(String countryCode) {
+        int index = countryIndex(countryCode);
+
+        return index >= 0 && (countries[index >>> 6] & (1L << index)) != 0;
+    }
+
+    /**
+     * Decides what to do with a player based on a successful API response. Allowlist checks are expected to
+     * have happened before the lookup.
+     *
+     * @param response VPNResponse
+     * @return {@link ResultType#DENIED_COUNTRY}, {@link ResultType#DENIED_PROXY}, {@link ResultType#ALLOWED}
+     * or whatever a {@link ResponseRule} decided.
+     */
+    public ResultType evaluate(VPNResponse response) {
+        // If it contains the code and it is set to whitelist, it will not kick as they are equal and vise versa.
+        // However, if the contains does not match the state, it will kick.
+        if(countryFilter && isCountryListed(response.getCountryCode()) != whitelistCountries) {
+            return ResultType.DENIED_COUNTRY;
+        }
+
+        for (ResponseRule rule : responseRules) {
+            ResultType result = rule.evaluate(response);
+
+            if(result != null) return result;
+        }
+
+        return response.isProxy() ? ResultType.DENIED_PROXY : ResultType.ALLOWED;
+    }
+
+    private static int countryIndex(String code) {
+        if(code == null || code.length() != 2) return -1;
+
+        int first = Character.toUpperCase(code.charAt(0)) - 'A', second = Character.toUpperCase(code.charAt(1)) - 'A';
+
+        if(first < 0 || first >= 26 || second < 0 || second >= 26) return -1;
+
+        return first * 26 + second;
+    }
+
+    /**
+     * A compiled rule evaluated against API responses after the country check and before the proxy check.
+     */
+    @FunctionalInterface
+    public interface ResponseRule {
+        /**
+         * @param response VPNResponse
+         * @return The verdict, or null if this rule has no opinion on the response.
+         */
+        ResultType evaluate(VPNResponse response);
+    }
+}
@@ -0,0 +1,223 @@
+/*
+ * Copyright 2026 Dawson Hessler
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package dev.brighten.antivpn.api;
+
+import dev.brighten.antivpn.AntiVPN;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Makes sure a blocked player actually leaves, once per decision.
+ * <p>
+ * Every decision starts {@link State#PENDING}: the player is usually still logging in and cannot be kicked yet.
+ * The kick is tried as soon as the platform reports the join, then retried with exponential backoff while the
+ * player stays online ({@link State#KICKED}). The platform reporting the disconnect, or the player no longer being
+ * online, ends it ({@link State#CONFIRMED}). A decision whose player never shows up, because their login was
+ * refused, is dropped after {@link #PENDING_TIMEOUT_MILLIS}.
+ */
+public class KickEnforcer {
+
+    static final long FIRST_RETRY_MILLIS = 1000;
+    static final long MAX_RETRY_MILLIS = 30_000;
+    // The retries alone span about a minute, a player still online after that is not going to leave for a kick.
+    static final int MAX_ATTEMPTS = 6;
+    static final long PENDING_TIMEOUT_MILLIS = TimeUnit.MINUTES.toMillis(1);
+
+    private final ScheduledExecutorService scheduler;
+    private final long firstRetryMillis, pendingTimeoutMillis;
+    private final Map<UUID, Enforcement> enforcements = new ConcurrentHashMap<>();
+
+    /**
+     * @param scheduler ScheduledExecutorService retries and timeouts are scheduled on
+     */
+    public KickEnforcer(ScheduledExecutorService scheduler) {
+        this(scheduler, FIRST_RETRY_MILLIS, PENDING_TIMEOUT_MILLIS);
+    }
+
+    KickEnforcer(ScheduledExecutorService scheduler, long firstRetryMillis, long pendingTimeoutMillis) {
+        this.scheduler = scheduler;
+        this.firstRetryMillis = firstRetryMillis;
+        this.pendingTimeoutMillis = pendingTimeoutMillis;
+    }
+
+    /**
+     * Starts enforcing a new decision for the player, replacing any earlier one, and kicks right away if the
+     * player is already online.
+     *
+     * @param uuid UUID of the player
+     * @param kick Kick that removes the player if they are online
+     */
+    public void enforce(UUID uuid, Kick kick) {
+        Enforcement enforcement = new Enforcement(uuid, kick);
+        Enforcement previous = enforcements.put(uuid, enforcement);
+
+        if(previous != null) {
+            previous.finish();
+        }
+
+        synchronized (enforcement) {
+            enforcement.retry = scheduler.schedule(() -> expire(enforcement), pendingTimeoutMillis,
+                    TimeUnit.MILLISECONDS);
+        }
+        attempt(enforcement);
+    }
+
+    /**
+     * Called once the platform can resolve the player, kicks them if a decision is pending.
+     *
+     * @param uuid UUID
+     */
+    public void joined(UUID uuid) {
+        Enforcement enforcement = enforcements.get(uuid);
+
+        if(enforcement != null) {
+            scheduler.execute(() -> attempt(enforcement));
+        }
+    }
+
+    /**
+     * Called once the platform saw the player disconnect, ends the decision if the player was kicked.
+     *
+     * @param uuid UUID
+     */
+    public void disconnected(UUID uuid) {
+        Enforcement enforcement = enforcements.get(uuid);
+
+        if(enforcement == null) return;
+
+        synchronized (enforcement) {
+            // A player still pending has not joined since the decision, so this is an older session leaving.
+            if(enforcement.state == State.KICKED) {
+                confirm(enforcement);
+            }
+        }
+    }
+
+    /**
+     * @param uuid UUID
+     * @return State of the player's current decision, or null if there is none
+     */
+    public State getState(UUID uuid) {
+        Enforcement enforcement = enforcements.get(uuid);
+
+        if(enforcement == null) return null;
+
+        synchronized (enforcement) {
+            return enforcement.state;
+        }
+    }
+
+    /**
+     * @return int, decisions still being enforced
+     */
+    public int size() {
+        return enforcements.size();
+    }
+
+    private void attempt(Enforcement enforcement) {
+        synchronized (enforcement) {
+            if(enforcement.state == State.CONFIRMED) return;
+
+            boolean online;
+            try {
+                online = enforcement.kick.tryKick();
+            } catch (RuntimeException e) {
+                AntiVPN.getInstance().getExecutor().logException("Could not kick " + enforcement.uuid, e);
+                online = true;
+            }
+
+            if(!online) {
+                // Gone after a kick means the kick worked, before any kick it means they have not joined yet.
+                if(enforcement.state == State.KICKED) confirm(enforcement);
+                return;
+            }
+
+            if(enforcement.state == State.PENDING) {
+                enforcement.state = State.KICKED;
+            }
+            if(++enforcement.attempts >= MAX_ATTEMPTS) {
+                AntiVPN.getInstance().getExecutor().log("Gave up kicking " + enforcement.uuid + " after "
+                        + enforcement.attempts + " attempts.");
+                confirm(enforcement);
+                return;
+            }
+
+            long delay = Math.min(MAX_RETRY_MILLIS, firstRetryMillis << Math.min(20, enforcement.attempts - 1));
+
+            enforcement.cancelRetry();
+            enforcement.retry = scheduler.schedule(() -> attempt(enforcement), delay, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void expire(Enforcement enforcement) {
+        synchronized (enforcement) {
+            if(enforcement.state == State.PENDING) {
+                confirm(enforcement);
+            }
+        }
+    }
+
+    private void confirm(Enforcement enforcement) {
+        enforcement.finish();
+        enforcements.remove(enforcement.uuid, enforcement);
+    }
+
+    public enum State {
+        PENDING, KICKED, CONFIRMED
+    }
+
+    @FunctionalInterface
+    public interface Kick {
+        /**
+         * Kicks the player if they are online.
+         *
+         * @return boolean, whether the player was online
+         */
+        boolean tryKick();
+    }
+
+    private static final class Enforcement {
+        private final UUID uuid;
+        private final Kick kick;
+        // Guarded by this.
+        private State state = State.PENDING;
+        private int attempts;
+        private ScheduledFuture<?> retry;
+
+        private Enforcement(UUID uuid, Kick kick) {
+            this.uuid = uuid;
+            this.kick = kick;
+        }
+
+        private synchronized void finish() {
+            state = State.CONFIRMED;
+            cancelRetry();
+        }
+
+        private void cancelRetry() {
+            if(retry != null) {
+                retry.cancel(false);
+                retry = null;
+            }
+        }
+    }
+}
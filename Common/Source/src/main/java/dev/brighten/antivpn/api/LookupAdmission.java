@@ -0,0 +1,209 @@
+/*
+ * Copyright 2026 Dawson Hessler
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package dev.brighten.antivpn.api;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Admits IP lookups by {@link LookupPriority} instead of first come, first served.
+ * <p>
+ * At most {@link #getMaxConcurrent()} lookups run at once. The number is read on every admission, so it can follow a
+ * limit that changes at runtime, such as that of the API's {@link dev.brighten.antivpn.web.AdaptiveLimiter}. A lower
+ * number only takes effect as running lookups finish. Lookups beyond it wait in the bounded queue of their
+ * class and the next one is always taken from the highest class with anything waiting, so staff commands and known
+ * players are not stuck behind a wave of new logins. A full queue sheds lookups following
+ * {@link LookupPriority#getShedding()}, shed lookups fail with a {@link RejectedExecutionException}.
+ */
+public class LookupAdmission {
+
+    private final Map<LookupPriority, Deque<Admission<?>>> queues = new EnumMap<>(LookupPriority.class);
+    private final Map<LookupPriority, LongAdder> shed = new EnumMap<>(LookupPriority.class);
+    private final IntSupplier maxConcurrent;
+
+    // Guarded by this.
+    private int running;
+
+    /**
+     * @param maxConcurrent IntSupplier of the lookups allowed to run at once
+     */
+    public LookupAdmission(IntSupplier maxConcurrent) {
+        this.maxConcurrent = maxConcurrent;
+
+        for (LookupPriority priority : LookupPriority.values()) {
+            queues.put(priority, new ArrayDeque<>());
+            shed.put(priority, new LongAdder());
+        }
+    }
+
+    /**
+     * Runs the lookup now if a slot is free, otherwise queues it behind lookups of the same or a higher class.
+     *
+     * @param priority LookupPriority of the caller
+     * @param lookup Supplier starting the lookup
+     * @return CompletableFuture of the lookup's result
+     */
+    public <T> CompletableFuture<T> submit(LookupPriority priority, Supplier<CompletableFuture<T>> lookup) {
+        Admission<T> admission = new Admission<>(lookup);
+        Admission<?> dropped = null;
+        boolean runNow = false;
+
+        synchronized (this) {
+            if(running < getMaxConcurrent()) {
+                running++;
+                runNow = true;
+            } else {
+                Deque<Admission<?>> queue = queues.get(priority);
+
+                if(queue.size() >= priority.getQueueCapacity()) {
+                    shed.get(priority).increment();
+
+                    if(priority.getShedding() == LookupPriority.Shedding.REJECT_NEWEST) {
+                        return CompletableFuture.failedFuture(rejected(priority));
+                    }
+                    dropped = queue.pollFirst();
+                }
+                queue.addLast(admission);
+            }
+        }
+
+        if(dropped != null) {
+            dropped.future.completeExceptionally(rejected(priority));
+        }
+        if(runNow) {
+            start(List.of(admission));
+        }
+        return admission.future;
+    }
+
+    /**
+     * @return int, lookups currently allowed to run at once
+     */
+    public int getMaxConcurrent() {
+        return Math.max(1, maxConcurrent.getAsInt());
+    }
+
+    /**
+     * @return int, lookups currently running
+     */
+    public synchronized int getRunning() {
+        return running;
+    }
+
+    /**
+     * @param priority LookupPriority
+     * @return int, lookups of the class waiting for admission
+     */
+    public synchronized int getQueued(LookupPriority priority) {
+        return queues.get(priority).size();
+    }
+
+    /**
+     * @param priority LookupPriority
+     * @return long, lookups of the class shed because its queue was full
+     */
+    public long getShed(LookupPriority priority) {
+        return shed.get(priority).sum();
+    }
+
+    private void start(List<Admission<?>> admissions) {
+        // Lookups that finish right away, like those refused by a shut down executor, admit the next ones in this
+        // loop rather than recursively, so draining a long queue cannot overflow the stack.
+        Deque<Admission<?>> toStart = new ArrayDeque<>(admissions);
+        Admission<?> admission;
+
+        while ((admission = toStart.poll()) != null) {
+            CompletableFuture<?> lookup = admission.begin();
+
+            if(lookup.isDone()) {
+                toStart.addAll(release());
+            } else {
+                lookup.whenComplete((result, throwable) -> start(release()));
+            }
+        }
+    }
+
+    private synchronized List<Admission<?>> release() {
+        running--;
+        return admitWaiting();
+    }
+
+    /**
+     * Takes a slot for every waiting lookup that may run now, so a limit that rose since the last admission is
+     * filled right away.
+     *
+     * @return the lookups to run, highest class first
+     */
+    private synchronized List<Admission<?>> admitWaiting() {
+        List<Admission<?>> admitted = new ArrayList<>();
+        int max = getMaxConcurrent();
+
+        for (LookupPriority priority : LookupPriority.values()) {
+            Deque<Admission<?>> queue = queues.get(priority);
+
+            while (running < max && !queue.isEmpty()) {
+                running++;
+                admitted.add(queue.pollFirst());
+            }
+        }
+        return admitted;
+    }
+
+    private static RejectedExecutionException rejected(LookupPriority priority) {
+        return new RejectedExecutionException("Too many " + priority.name().toLowerCase()
+                + " lookups are waiting already");
+    }
+
+    private static final class Admission<T> {
+        private final Supplier<CompletableFuture<T>> lookup;
+        private final CompletableFuture<T> future = new CompletableFuture<>();
+
+        private Admission(Supplier<CompletableFuture<T>> lookup) {
+            this.lookup = lookup;
+        }
+
+        /**
+         * Starts the lookup and passes its outcome on to {@link #future}.
+         *
+         * @return CompletableFuture that completes once the outcome was passed on
+         */
+        private CompletableFuture<T> begin() {
+            CompletableFuture<T> started;
+
+            try {
+                started = lookup.get();
+            } catch (RuntimeException e) {
+                started = CompletableFuture.failedFuture(e);
+            }
+
+            return started.whenComplete((result, throwable) -> {
+                if(throwable != null) {
+                    future.completeExceptionally(throwable);
+                } else future.complete(result);
+            });
+        }
+    }
+}
@@ -0,0 +1,66 @@
+/*
+ * Copyright 2026 Dawson Hessler
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package dev.brighten.antivpn.api;
+
+import lombok.Getter;
+
+/**
+ * Classes of IP lookups admitted by {@link LookupAdmission}, in the order they are served. Each class has its own
+ * bounded queue, so a wave of one class cannot crowd out the others.
+ */
+public enum LookupPriority {
+    /**
+     * Lookups requested by staff through commands.
+     */
+    STAFF(100, Shedding.REJECT_NEWEST),
+    /**
+     * Logins of players who passed a check on this server recently.
+     */
+    RELOGIN(2000, Shedding.DROP_OLDEST),
+    /**
+     * Logins of players not seen recently, which is where bot attacks land.
+     */
+    LOGIN(5000, Shedding.DROP_OLDEST),
+    /**
+     * Lookups nobody is waiting on, such as those requested by other plugins through the API.
+     */
+    RECHECK(500, Shedding.REJECT_NEWEST);
+
+    // Lookups of this class that may wait for admission at once.
+    @Getter
+    private final int queueCapacity;
+    // Applied once the queue of this class is full.
+    @Getter
+    private final Shedding shedding;
+
+    LookupPriority(int queueCapacity, Shedding shedding) {
+        this.queueCapacity = queueCapacity;
+        this.shedding = shedding;
+    }
+
+    public enum Shedding {
+        /**
+         * Refuses the new lookup, for callers that are not bound by a deadline and can simply ask again.
+         */
+        REJECT_NEWEST,
+        /**
+         * Fails the lookup that waited longest to make room. Logins are held only up to the login deadline, so
+         * the oldest one has usually been let through or refused already.
+         */
+        DROP_OLDEST
+    }
+}
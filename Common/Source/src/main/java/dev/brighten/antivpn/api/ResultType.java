@@ -24,7 +24,9 @@ public enum ResultType {
     DENIED_COUNTRY(true),
     DENIED_PROXY(true),
     API_FAILURE(false),
-    UNKNOWN(false);
+    UNKNOWN(false),
+    // No verdict before the login deadline with login.failClosed enabled.
+    TIMED_OUT(true);
 
     @Getter
     private final boolean shouldBlock;
@@ -17,9 +17,13 @@
 package dev.brighten.antivpn.api;
 
 import dev.brighten.antivpn.AntiVPN;
+import dev.brighten.antivpn.message.MessageTemplate;
 import dev.brighten.antivpn.utils.ConfigDefault;
+import dev.brighten.antivpn.web.FunkemunkyAPI;
+import dev.brighten.antivpn.web.WebClient;
 import lombok.Getter;
 
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
@@ -44,7 +48,9 @@ public class VPNConfig {
             defaultIp = new ConfigDefault<>("localhost", "database.ip", AntiVPN.getInstance()),
             defaultAlertMsg = new ConfigDefault<>("&8[&6KauriVPN&8] &e%player% &7has joined on a VPN/proxy" +
                     " &8(&f%reason%&8) &7in location &8(&f%city%&7, &f%country%&8)", "alerts.message",
-                    AntiVPN.getInstance());
+                    AntiVPN.getInstance()),
+            defaultLoginTimeoutMessage = new ConfigDefault<>("Could not check your connection in time, please "
+                    + "try again", "login.timeoutMessage", AntiVPN.getInstance());
     private final ConfigDefault<Boolean> cacheResultsDefault = new ConfigDefault<>(true,
             "cachedResults", AntiVPN.getInstance()),
             defaultUseCredentials = new ConfigDefault<>(true,
@@ -57,9 +63,46 @@ public class VPNConfig {
                     AntiVPN.getInstance()),
             defaultWhitelistCountries = new ConfigDefault<>(true, "countries.whitelist",
                     AntiVPN.getInstance()),
-            defaultMetrics = new ConfigDefault<>(true, "bstats", AntiVPN.getInstance());
+            defaultMetrics = new ConfigDefault<>(true, "bstats", AntiVPN.getInstance()),
+            defaultVirtualThreads = new ConfigDefault<>(false, "performance.virtualThreads",
+                    AntiVPN.getInstance()),
+            defaultLoginFailClosed = new ConfigDefault<>(false, "login.failClosed", AntiVPN.getInstance()),
+            defaultH2CompactOnShutdown = new ConfigDefault<>(true, "database.h2.compactOnShutdown",
+                    AntiVPN.getInstance()),
+            defaultMysqlUseServerPrepStmts = new ConfigDefault<>(true, "database.mysql.useServerPrepStmts",
+                    AntiVPN.getInstance()),
+            defaultMysqlCachePrepStmts = new ConfigDefault<>(true, "database.mysql.cachePrepStmts",
+                    AntiVPN.getInstance()),
+            defaultMysqlRewriteBatchedStatements = new ConfigDefault<>(true,
+                    "database.mysql.rewriteBatchedStatements", AntiVPN.getInstance());
     private final ConfigDefault<Integer>
-            defaultPort = new ConfigDefault<>(-1, "database.port", AntiVPN.getInstance());
+            defaultPort = new ConfigDefault<>(-1, "database.port", AntiVPN.getInstance()),
+            defaultApiConnectTimeout = new ConfigDefault<>(3000, "api.connectTimeout", AntiVPN.getInstance()),
+            defaultApiReadTimeout = new ConfigDefault<>(5000, "api.readTimeout", AntiVPN.getInstance()),
+            defaultApiMaxConcurrent = new ConfigDefault<>(FunkemunkyAPI.DEFAULT_MAX_CONCURRENT,
+                    "api.maxConcurrent", AntiVPN.getInstance()),
+            defaultApiMaxQueued = new ConfigDefault<>(FunkemunkyAPI.DEFAULT_MAX_QUEUED, "api.maxQueued",
+                    AntiVPN.getInstance()),
+            defaultLoginDeadline = new ConfigDefault<>(3000, "login.deadline", AntiVPN.getInstance()),
+            defaultDatabasePoolMinimumIdle = new ConfigDefault<>(2, "database.pool.minimumIdle",
+                    AntiVPN.getInstance()),
+            defaultDatabasePoolMaximumSize = new ConfigDefault<>(8, "database.pool.maximumSize",
+                    AntiVPN.getInstance()),
+            defaultDatabasePoolIdleTimeout = new ConfigDefault<>(600000, "database.pool.idleTimeout",
+                    AntiVPN.getInstance()),
+            defaultDatabasePoolBorrowTimeout = new ConfigDefault<>(5000, "database.pool.borrowTimeout",
+                    AntiVPN.getInstance()),
+            defaultMysqlPrepStmtCacheSize = new ConfigDefault<>(250, "database.mysql.prepStmtCacheSize",
+                    AntiVPN.getInstance()),
+            defaultWriteBehindMaxBatchSize = new ConfigDefault<>(100, "database.writeBehind.maxBatchSize",
+                    AntiVPN.getInstance()),
+            defaultWriteBehindFlushInterval = new ConfigDefault<>(500, "database.writeBehind.flushInterval",
+                    AntiVPN.getInstance()),
+            defaultResponseTtl = new ConfigDefault<>(60, "database.responses.ttl", AntiVPN.getInstance()),
+            defaultResponsePurgeInterval = new ConfigDefault<>(10, "database.responses.purgeInterval",
+                    AntiVPN.getInstance()),
+            defaultResponsePurgeBatchSize = new ConfigDefault<>(1000, "database.responses.purgeBatchSize",
+                    AntiVPN.getInstance());
     private final ConfigDefault<List<String>> prefixWhitelistsDefault = new ConfigDefault<>(new ArrayList<>(),
             "prefixWhitelists", AntiVPN.getInstance()), defaultCommands = new ConfigDefault<>(
             Collections.singletonList("kick %player% VPNs are not allowed on our server!"), "commands.execute",
@@ -95,6 +138,48 @@ public class VPNConfig {
     private List<String> countryList;
     private List<String> countryKickCommands;
     private int port;
+    @Getter
+    private int apiConnectTimeout;
+    @Getter
+    private int apiReadTimeout;
+    @Getter
+    private int apiMaxConcurrent;
+    @Getter
+    private int apiMaxQueued;
+    @Getter
+    private int loginDeadline;
+    @Getter
+    private boolean loginFailClosed;
+    @Getter
+    private String loginTimeoutMessage;
+    @Getter
+    private int databasePoolMinimumIdle;
+    @Getter
+    private int databasePoolMaximumSize;
+    @Getter
+    private int databasePoolIdleTimeout;
+    @Getter
+    private int databasePoolBorrowTimeout;
+    @Getter
+    private boolean mysqlUseServerPrepStmts;
+    @Getter
+    private boolean mysqlCachePrepStmts;
+    @Getter
+    private int mysqlPrepStmtCacheSize;
+    @Getter
+    private boolean mysqlRewriteBatchedStatements;
+    @Getter
+    private int writeBehindMaxBatchSize;
+    @Getter
+    private int writeBehindFlushInterval;
+    @Getter
+    private int responseTtl;
+    @Getter
+    private int responsePurgeInterval;
+    @Getter
+    private int responsePurgeBatchSize;
+    @Getter
+    private boolean h2CompactOnShutdown;
     private boolean cacheResults;
     @Getter
     private boolean databaseEnabled;
@@ -106,6 +191,13 @@ public class VPNConfig {
     private boolean alertToStaff;
     private boolean metrics;
     private boolean whitelistCountries;
+    private boolean virtualThreads;
+    @Getter
+    private volatile CheckPolicy policy = CheckPolicy.EMPTY;
+    @Getter
+    private MessageTemplate kickTemplate, countryKickTemplate, alertTemplate, loginTimeoutTemplate;
+    @Getter
+    private List<MessageTemplate> commandTemplates, countryCommandTemplates;
 
     /**
      * If true, results will be cached to reduce queries to <a href="https://funkemunky.cc">...</a>
@@ -163,6 +255,15 @@ public class VPNConfig {
         return countryKickCommands;
     }
 
+    /**
+     * If true, blocking lookup, database and command work runs on Java 21 virtual threads instead of the
+     * shared two-thread pool.
+     * @return boolean
+     */
+    public boolean useVirtualThreads() {
+        return virtualThreads;
+    }
+
     /**
      * Gets the port based on configuration. If {@link VPNConfig#port} is -1, will get default port
      * based on {@link VPNConfig#getDatabaseType()} lowerCase().
@@ -210,6 +311,20 @@ public class VPNConfig {
         password = defaultPassword.get();
         ip = defaultIp.get();
         port = defaultPort.get();
+        databasePoolMinimumIdle = defaultDatabasePoolMinimumIdle.get();
+        databasePoolMaximumSize = defaultDatabasePoolMaximumSize.get();
+        databasePoolIdleTimeout = defaultDatabasePoolIdleTimeout.get();
+        databasePoolBorrowTimeout = defaultDatabasePoolBorrowTimeout.get();
+        mysqlUseServerPrepStmts = defaultMysqlUseServerPrepStmts.get();
+        mysqlCachePrepStmts = defaultMysqlCachePrepStmts.get();
+        mysqlPrepStmtCacheSize = defaultMysqlPrepStmtCacheSize.get();
+        mysqlRewriteBatchedStatements = defaultMysqlRewriteBatchedStatements.get();
+        writeBehindMaxBatchSize = defaultWriteBehindMaxBatchSize.get();
+        writeBehindFlushInterval = defaultWriteBehindFlushInterval.get();
+        responseTtl = defaultResponseTtl.get();
+        responsePurgeInterval = defaultResponsePurgeInterval.get();
+        responsePurgeBatchSize = defaultResponsePurgeBatchSize.get();
+        h2CompactOnShutdown = defaultH2CompactOnShutdown.get();
         commandsEnabled = defaultCommandsEnable.get();
         commands = defaultCommands.get();
         kickPlayers = defaultKickPlayers.get();
@@ -220,6 +335,45 @@ public class VPNConfig {
         whitelistCountries = defaultWhitelistCountries.get();
         countryKickCommands = defCountryKickCommands.get();
         countryVanillaKickReason = defaultCountryKickReason.get();
+        apiConnectTimeout = defaultApiConnectTimeout.get();
+        apiReadTimeout = defaultApiReadTimeout.get();
+        apiMaxConcurrent = defaultApiMaxConcurrent.get();
+        apiMaxQueued = defaultApiMaxQueued.get();
+        loginDeadline = defaultLoginDeadline.get();
+        loginFailClosed = defaultLoginFailClosed.get();
+        loginTimeoutMessage = defaultLoginTimeoutMessage.get();
+        virtualThreads = defaultVirtualThreads.get();
+        policy = CheckPolicy.compile(this);
+        compileTemplates();
+
+        updateWebClient();
+        FunkemunkyAPI.getLimiter().configure(apiMaxConcurrent, apiMaxQueued);
+        AntiVPN.getInstance().getExecutor().useVirtualThreads(virtualThreads);
+    }
+
+    /**
+     * Parses the kick, alert and command strings once so detections only have to fill in the placeholders.
+     */
+    private void compileTemplates() {
+        kickTemplate = MessageTemplate.compile(kickMessage);
+        countryKickTemplate = MessageTemplate.compile(countryVanillaKickReason);
+        alertTemplate = MessageTemplate.compile(alertMsg);
+        loginTimeoutTemplate = MessageTemplate.compile(loginTimeoutMessage);
+        commandTemplates = commands.stream().map(MessageTemplate::compile).toList();
+        countryCommandTemplates = countryKickCommands.stream().map(MessageTemplate::compile).toList();
+    }
+
+    /**
+     * Rebuilds the shared API {@link WebClient} if the configured timeouts no longer match the current one.
+     */
+    private void updateWebClient() {
+        Duration connectTimeout = Duration.ofMillis(Math.max(1, apiConnectTimeout));
+        Duration readTimeout = Duration.ofMillis(Math.max(1, apiReadTimeout));
+        WebClient current = FunkemunkyAPI.getClient();
+
+        if(!current.getConnectTimeout().equals(connectTimeout) || !current.getReadTimeout().equals(readTimeout)) {
+            FunkemunkyAPI.setClient(new WebClient(connectTimeout, readTimeout));
+        }
     }
 
 }
\ No newline at end of file
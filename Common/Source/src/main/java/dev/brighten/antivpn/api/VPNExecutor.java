@@ -19,28 +19,43 @@ package dev.brighten.antivpn.api;
 import com.github.benmanes.caffeine.cache.Cache;
 import com.github.benmanes.caffeine.cache.Caffeine;
 import dev.brighten.antivpn.AntiVPN;
+import dev.brighten.antivpn.message.MessageTemplate;
+import dev.brighten.antivpn.metrics.Stage;
+import dev.brighten.antivpn.metrics.VPNMetrics;
+import dev.brighten.antivpn.utils.CIDRTrie;
 import dev.brighten.antivpn.utils.CIDRUtils;
-import dev.brighten.antivpn.utils.StringUtil;
-import dev.brighten.antivpn.utils.Tuple;
-import dev.brighten.antivpn.utils.json.JSONException;
+import dev.brighten.antivpn.utils.SnapshotSet;
 import dev.brighten.antivpn.web.FunkemunkyAPI;
+import dev.brighten.antivpn.web.WebClient;
 import dev.brighten.antivpn.web.objects.VPNResponse;
+import dev.brighten.antivpn.web.objects.VPNResponseCodec;
+import lombok.AccessLevel;
 import lombok.Getter;
 
-import java.io.IOException;
+import java.net.InetAddress;
 import java.net.UnknownHostException;
 import java.util.*;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.logging.Level;
 
 @Getter
 public abstract class VPNExecutor {
-    private final ScheduledExecutorService threadExecutor = Executors.newScheduledThreadPool(2);
-    private final Set<UUID> whitelisted = Collections.synchronizedSet(new HashSet<>());
-    private final Set<CIDRUtils> whitelistedIps = Collections.synchronizedSet(new HashSet<>());
-    private final Queue<Tuple<CheckResult, UUID>> toKick = new LinkedBlockingQueue<>();
+    private final ScheduledThreadPoolExecutor threadExecutor = new ScheduledThreadPoolExecutor(2);
+    // Runs blocking work such as database queries and command dispatch. Either the scheduler pool above or
+    // a virtual thread per task, depending on configuration.
+    private volatile ExecutorService blockingExecutor = threadExecutor;
+    private final SnapshotSet<UUID> whitelisted = new SnapshotSet<>();
+    private final CIDRTrie whitelistedIps = new CIDRTrie();
+    private final SnapshotSet<UUID> alertSubscribers = new SnapshotSet<>();
+    private final KickEnforcer kickEnforcer = new KickEnforcer(threadExecutor);
     private final Queue<APIPlayer> playersToRecheck = new LinkedBlockingQueue<>();
-    private ScheduledFuture<?> kickTask = null;
+    // Admits as many API calls as the API's adaptive limit allows, so the limit is not capped by admission and the
+    // calls waiting for it are ordered by priority rather than by arrival. Database reads never wait on it.
+    private final LookupAdmission lookupAdmission = new LookupAdmission(() -> FunkemunkyAPI.getLimiter().getLimit());
+    @Getter(AccessLevel.NONE)
+    private volatile VPNMetrics metrics = new VPNMetrics();
 
 
     public abstract void registerListeners();
@@ -57,90 +72,178 @@ public abstract class VPNExecutor {
         logException("An exception occurred: " + ex.getMessage(), ex);
     }
 
-    public void startKickChecks() {
-        kickTask = threadExecutor.scheduleAtFixedRate(() -> {
-            synchronized (toKick) {
-                if(toKick.isEmpty()) return;
+    /**
+     * Points lookup instrumentation at the provided metrics and registers the executor's queue depths as gauges.
+     *
+     * @param metrics VPNMetrics
+     */
+    public void registerMetrics(VPNMetrics metrics) {
+        this.metrics = metrics;
+
+        metrics.registerGauge("executor.scheduler.queued", () -> threadExecutor.getQueue().size());
+        metrics.registerGauge("executor.scheduler.active", threadExecutor::getActiveCount);
+        metrics.registerGauge("executor.virtualThreads", () -> isUsingVirtualThreads() ? 1 : 0);
+        metrics.registerGauge("lookups.pending", pendingLookups::size);
+        metrics.registerGauge("lookups.coalesced", coalescedLookups::sum);
+        metrics.registerGauge("cache.responses", cachedResponses::estimatedSize);
+        metrics.registerGauge("queue.kick", kickEnforcer::size);
+        metrics.registerGauge("queue.recheck", playersToRecheck::size);
+        metrics.registerGauge("lookups.running", lookupAdmission::getRunning);
+        metrics.registerGauge("api.limit", FunkemunkyAPI.getLimiter()::getLimit);
+        metrics.registerGauge("api.inFlight", FunkemunkyAPI.getLimiter()::getInFlight);
+        metrics.registerGauge("api.queued", FunkemunkyAPI.getLimiter()::getQueued);
+        metrics.registerGauge("api.rejected", FunkemunkyAPI.getLimiter()::getRejected);
+        for (LookupPriority priority : LookupPriority.values()) {
+            String name = priority.name().toLowerCase();
+
+            metrics.registerGauge("lookups.queued." + name, () -> lookupAdmission.getQueued(priority));
+            metrics.registerGauge("lookups.shed." + name, () -> lookupAdmission.getShed(priority));
+        }
+    }
 
-                Tuple<CheckResult, UUID> toCheck;
+    /**
+     * Switches blocking work (database lookups, alert queries and command dispatch) between the shared
+     * {@link #threadExecutor} and Java 21 virtual threads. Scheduling always stays on {@link #threadExecutor}.
+     *
+     * @param enabled boolean
+     */
+    public synchronized void useVirtualThreads(boolean enabled) {
+        if(enabled == isUsingVirtualThreads()) return;
 
-                while((toCheck = toKick.poll()) != null) {
-                    Optional<APIPlayer> player = AntiVPN.getInstance().getPlayerExecutor().getPlayer(toCheck.second());
+        ExecutorService previous = blockingExecutor;
 
-                    if(player.isEmpty()) {
-                        continue;
-                    }
+        blockingExecutor = enabled
+                ? Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("AntiVPN-Virtual-", 0).factory())
+                : threadExecutor;
 
-                    handleKickingOfPlayer(toCheck.first(), player.get());
-                }
-            }
-        }, 8, 2, TimeUnit.SECONDS);
+        if(previous != threadExecutor) {
+            previous.shutdown();
+        }
+    }
+
+    public boolean isUsingVirtualThreads() {
+        return blockingExecutor != threadExecutor;
+    }
+
+    /**
+     * Stops accepting new work on both the scheduler and the blocking executor.
+     */
+    public void shutdownThreads() {
+        if(isUsingVirtualThreads()) {
+            blockingExecutor.shutdown();
+        }
+        threadExecutor.shutdown();
     }
 
     public void handleKickingOfPlayer(CheckResult result, APIPlayer player) {
+        long start = System.nanoTime();
 
-        //Ensuring kick task is always running
-        if(kickTask == null || kickTask.isDone() || kickTask.isCancelled()) {
-            startKickChecks();
+        try {
+            enforce(result, player);
+        } finally {
+            metrics.record(Stage.KICK, start);
         }
+    }
 
-        if (AntiVPN.getInstance().getVpnConfig().isAlertToSTaff()) AntiVPN.getInstance().getPlayerExecutor()
-                .getOnlinePlayers()
-                .stream()
-                .filter(APIPlayer::isAlertsEnabled)
-                .forEach(pl ->
-                        pl.sendMessage(StringUtil.translateAlternateColorCodes('&',
-                                StringUtil.varReplace(dev.brighten.antivpn.AntiVPN.getInstance().getVpnConfig()
-                                        .getAlertMsg(), player, result.response()))));
-
-        if(AntiVPN.getInstance().getVpnConfig().isKickPlayers()) {
-            switch (result.resultType()) {
-                case DENIED_PROXY -> player.kickPlayer(StringUtil.varReplace(AntiVPN.getInstance().getVpnConfig()
-                        .getKickMessage(), player, result.response()));
-                case DENIED_COUNTRY -> player.kickPlayer(StringUtil.varReplace(AntiVPN.getInstance().getVpnConfig()
-                        .getCountryVanillaKickReason(), player, result.response()));
+    /**
+     * Acts on a blocking decision. Called once per decision, so alerts and commands run exactly once and repeated
+     * kicks are left to the {@link #kickEnforcer}.
+     *
+     * @param result CheckResult
+     * @param player APIPlayer
+     */
+    private void enforce(CheckResult result, APIPlayer player) {
+        VPNConfig config = AntiVPN.getInstance().getVpnConfig();
+
+        if (config.isAlertToSTaff()) {
+            String alert = config.getAlertTemplate().render(player, result.response());
+
+            for (APIPlayer staff : AntiVPN.getInstance().getPlayerExecutor().getOnlinePlayers()) {
+                if(staff.isAlertsEnabled()) staff.sendMessage(alert);
             }
+        }
+
+        if(config.isKickPlayers()) {
+            if(player.getUuid() != null) {
+                UUID uuid = player.getUuid();
+
+                // The player checked at login cannot be kicked yet, the one online once they joined can.
+                kickEnforcer.enforce(uuid, () -> AntiVPN.getInstance().getPlayerExecutor().getPlayer(uuid)
+                        .map(online -> {
+                            kick(config, result, online);
+                            return true;
+                        }).orElse(false));
+            } else kick(config, result, player);
         } else {
-            if(!AntiVPN.getInstance().getVpnConfig().isCommandsEnabled()) return;
+            if(!config.isCommandsEnabled()) return;
         }
 
         Runnable runCommands = () -> {
-            switch (result.resultType()) {
-                case DENIED_PROXY -> {
-                    for (String command : AntiVPN.getInstance().getVpnConfig().commands()) {
-                        runCommand(StringUtil.varReplace(command, player, result.response()));
-                    }
-                }
-                case DENIED_COUNTRY -> {
-                    for (String command : AntiVPN.getInstance().getVpnConfig().countryKickCommands()) {
-                        runCommand(StringUtil.varReplace(command, player, result.response()));
-                    }
-                }
+            List<MessageTemplate> commands = switch (result.resultType()) {
+                case DENIED_PROXY -> config.getCommandTemplates();
+                case DENIED_COUNTRY -> config.getCountryCommandTemplates();
+                default -> List.of();
+            };
+
+            for (MessageTemplate command : commands) {
+                runCommand(command.render(player, result.response()));
             }
         };
 
         // Fixes the commands running too fast and causing messaging errors by any downstream plugins like LiteBans
-        var scheduleResult = threadExecutor.schedule(runCommands, 1, TimeUnit.SECONDS);
+        var scheduleResult = threadExecutor.schedule(() -> blockingExecutor.execute(runCommands),
+                1, TimeUnit.SECONDS);
 
         if(scheduleResult.isCancelled()) {
             runCommands.run();
         }
+    }
 
-        //Ensuring players are actually kicked as they are supposed to be.
-        toKick.add(new Tuple<>(result, player.getUuid()));
+    private static void kick(VPNConfig config, CheckResult result, APIPlayer player) {
+        switch (result.resultType()) {
+            case DENIED_PROXY -> player.kickPlayer(config.getKickTemplate().render(player, result.response()));
+            case DENIED_COUNTRY -> player.kickPlayer(config.getCountryKickTemplate()
+                    .render(player, result.response()));
+        }
+    }
+
+    /**
+     * Called by the platform once a joining player can be resolved through the {@link PlayerExecutor}.
+     *
+     * @param uuid UUID
+     */
+    public void playerJoined(UUID uuid) {
+        kickEnforcer.joined(uuid);
+    }
+
+    /**
+     * Called by the platform once a player disconnected.
+     *
+     * @param uuid UUID
+     */
+    public void playerQuit(UUID uuid) {
+        kickEnforcer.disconnected(uuid);
     }
 
+    /**
+     * Checks the player against the in-memory allowlist. With the database enabled, the allowlist mirrors the
+     * database and is kept up to date by its refresh job and writes, so this never waits on a query.
+     *
+     * @param uuid UUID
+     * @return boolean
+     */
     public boolean isWhitelisted(UUID uuid) {
-        if(AntiVPN.getInstance().getVpnConfig().isDatabaseEnabled()) {
-            return AntiVPN.getInstance().getDatabase().isWhitelisted(uuid);
-        }
         return whitelisted.contains(uuid);
     }
 
+    /**
+     * Checks the provided range against the in-memory allowlist. With the database enabled, the allowlist is
+     * rebuilt from the database rather than queried on every check.
+     *
+     * @param cidr String
+     * @return boolean
+     */
     public boolean isWhitelisted(String cidr) {
-        if(AntiVPN.getInstance().getVpnConfig().isDatabaseEnabled()) {
-            return AntiVPN.getInstance().getDatabase().isWhitelisted(cidr);
-        }
         try {
             return whitelistedIps.contains(new CIDRUtils(cidr));
         } catch (UnknownHostException e) {
@@ -148,29 +251,158 @@ public abstract class VPNExecutor {
         }
     }
 
-    private final Cache<String, VPNResponse> cachedResponses = Caffeine.newBuilder()
+    public boolean isWhitelisted(InetAddress address) {
+        return whitelistedIps.contains(address);
+    }
+
+    /**
+     * Checks the player against the in-memory alert subscriptions, loaded and kept up to date the same way as the
+     * allowlist, so joins never wait on a query.
+     *
+     * @param uuid UUID
+     * @return boolean
+     */
+    public boolean hasAlertsEnabled(UUID uuid) {
+        return alertSubscribers.contains(uuid);
+    }
+
+    // Held in the VPNResponseCodec format, a fraction of the size of the decoded object.
+    @Getter(AccessLevel.NONE)
+    private final Cache<String, byte[]> cachedResponses = Caffeine.newBuilder()
             .expireAfterWrite(20, TimeUnit.MINUTES)
             .maximumSize(4000)
             .build();
 
+    // Players whose login passed a check recently, their next login is admitted ahead of unknown ones.
+    @Getter(AccessLevel.NONE)
+    private final Cache<UUID, Boolean> knownPlayers = Caffeine.newBuilder()
+            .expireAfterWrite(1, TimeUnit.DAYS)
+            .maximumSize(20000)
+            .build();
+
+    // Lookups currently running, keyed by IP, so concurrent logins from the same address share one query.
+    @Getter(AccessLevel.NONE)
+    private final Map<String, PendingLookup> pendingLookups = new ConcurrentHashMap<>();
+    @Getter(AccessLevel.NONE)
+    private final LongAdder coalescedLookups = new LongAdder();
+
+    /**
+     * Looks the IP up with {@link LookupPriority#RECHECK}, for callers no login or staff member is waiting on.
+     *
+     * @param ip String
+     * @return CompletableFuture of the response
+     */
     public CompletableFuture<VPNResponse> checkIp(String ip) {
-        VPNResponse cached = cachedResponses.getIfPresent(ip);
+        return checkIp(ip, LookupPriority.RECHECK);
+    }
 
+    /**
+     * Answers from the cache or joins a lookup already running for the IP. Otherwise the database is read, and only
+     * on a miss the API call waits for admission in the queue of its priority. It fails with a
+     * {@link RejectedExecutionException} if it is shed.
+     *
+     * @param ip String
+     * @param priority LookupPriority of the caller
+     * @return CompletableFuture of the response
+     */
+    public CompletableFuture<VPNResponse> checkIp(String ip, LookupPriority priority) {
+        long start = System.nanoTime();
+        VPNResponse cached = getCachedResponse(ip);
+
+        metrics.record(Stage.CACHE, start);
+        metrics.recordCacheLookup(cached != null);
         if(cached != null) {
             return CompletableFuture.completedFuture(cached);
         }
 
-        return CompletableFuture.supplyAsync(() -> {
-            Optional<VPNResponse> cachedRes = AntiVPN.getInstance().getDatabase().getStoredResponse(ip);
+        PendingLookup created = new PendingLookup(new CompletableFuture<>(), new AtomicInteger());
+        PendingLookup pending = pendingLookups.putIfAbsent(ip, created);
 
-            if(cachedRes.isPresent()) {
-                return cachedRes.get();
+        if(pending != null) {
+            //Another caller is already looking this IP up, so we just wait on their result.
+            pending.joined().incrementAndGet();
+            coalescedLookups.increment();
+            return pending.future();
+        }
+
+        // Shed lookups complete exceptionally like failed ones, so joined callers are released as well.
+        lookupIp(ip, priority).whenComplete((response, throwable) -> {
+            if(response != null && response.isSuccess()) {
+                cacheResponse(ip, response);
+            }
+
+            // Removing only after caching so that late callers hit the cache instead of the API.
+            pendingLookups.remove(ip, created);
+
+            int joined = created.joined().get();
+            if(joined > 0) {
+                log(Level.FINE, "Lookup for %s was shared with %s other caller(s).", ip, joined);
             }
-            else {
-                try {
-                    VPNResponse response = FunkemunkyAPI
-                            .getVPNResponse(ip, AntiVPN.getInstance().getVpnConfig().getLicense(), true);
 
+            if(throwable != null) {
+                created.future().completeExceptionally(throwable);
+            } else created.future().complete(response);
+        });
+
+        return created.future();
+    }
+
+    /**
+     * @param ip String
+     * @return a copy of the response cached in memory for the IP, or null if there is none
+     */
+    public VPNResponse getCachedResponse(String ip) {
+        byte[] encoded = cachedResponses.getIfPresent(ip);
+
+        return encoded == null ? null : VPNResponseCodec.decode(encoded);
+    }
+
+    /**
+     * Keeps the response in memory for later lookups of the IP. Later changes to the passed object are not seen.
+     *
+     * @param ip String
+     * @param response VPNResponse
+     */
+    public void cacheResponse(String ip, VPNResponse response) {
+        cachedResponses.put(ip, VPNResponseCodec.encode(response));
+    }
+
+    public void clearCachedResponses() {
+        cachedResponses.invalidateAll();
+    }
+
+    private CompletableFuture<VPNResponse> lookupIp(String ip, LookupPriority priority) {
+        return CompletableFuture.supplyAsync(() -> {
+                    long start = System.nanoTime();
+                    Optional<VPNResponse> stored = AntiVPN.getInstance().getDatabase().getStoredResponse(ip);
+
+                    metrics.record(Stage.DATABASE, start);
+                    metrics.recordDatabaseLookup(stored != null && stored.isPresent());
+                    return stored;
+                }, blockingExecutor)
+                .thenCompose(cachedRes -> {
+                    if(cachedRes != null && cachedRes.isPresent()) {
+                        return CompletableFuture.completedFuture(cachedRes.get());
+                    }
+
+                    return lookupAdmission.submit(priority, () -> queryApi(ip));
+                });
+    }
+
+    private CompletableFuture<VPNResponse> queryApi(String ip) {
+        long start = System.nanoTime();
+        // The API call itself does not hold one of our threads while waiting on the network.
+        return FunkemunkyAPI
+                .getVPNResponseAsync(ip, AntiVPN.getInstance().getVpnConfig().getLicense(), true)
+                .whenComplete((response, throwable) -> {
+                    metrics.record(Stage.API, start);
+                    // Calls shed by the limiter never reached the API, so they are not failures of it.
+                    if(throwable != null ? !isShed(throwable) : !response.isSuccess()) {
+                        metrics.getApiFailures().increment();
+                    }
+                })
+                // Caching only queues the write, so the verdict is handed out as soon as the API answered.
+                .thenApply(response -> {
                     if (response.isSuccess()) {
                         AntiVPN.getInstance().getDatabase().cacheResponse(response);
                     } else {
@@ -178,12 +410,49 @@ public abstract class VPNExecutor {
                     }
 
                     return response;
-                } catch (JSONException | IOException e) {
-                    log("Query to VPN API failed! Reason: " + e.getMessage());
+                })
+                .exceptionally(throwable -> {
+                    // Shed calls are passed on, so callers can tell them apart from a failed query.
+                    if(isShed(throwable)) {
+                        throw new CompletionException(WebClient.unwrap(throwable));
+                    }
+                    log("Query to VPN API failed! Reason: " + WebClient.unwrap(throwable).getMessage());
                     return VPNResponse.FAILED_RESPONSE;
-                }
-            }
-        }, threadExecutor);
+                });
+    }
+
+    private static boolean isShed(Throwable throwable) {
+        return WebClient.unwrap(throwable) instanceof RejectedExecutionException;
+    }
+
+    /**
+     * Marks the player as known after their login passed a check, so their next login is a
+     * {@link LookupPriority#RELOGIN}.
+     *
+     * @param uuid UUID
+     */
+    public void rememberPlayer(UUID uuid) {
+        knownPlayers.put(uuid, Boolean.TRUE);
+    }
+
+    /**
+     * @param uuid UUID
+     * @return boolean, whether the player passed a check recently
+     */
+    public boolean isKnownPlayer(UUID uuid) {
+        return knownPlayers.getIfPresent(uuid) != null;
+    }
+
+    /**
+     * Total number of {@link #checkIp(String)} callers that joined a lookup already in flight for the same IP
+     * instead of starting their own.
+     * @return long
+     */
+    public long getCoalescedLookupCount() {
+        return coalescedLookups.sum();
+    }
+
+    private record PendingLookup(CompletableFuture<VPNResponse> future, AtomicInteger joined) {
     }
 
     public abstract void disablePlugin();
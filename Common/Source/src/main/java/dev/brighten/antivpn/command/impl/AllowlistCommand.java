@@ -91,7 +91,7 @@ public class AllowlistCommand extends Command {
                     : new ArrayList<>(AntiVPN.getInstance().getExecutor().getWhitelisted());
             List<CIDRUtils> ips = databaseEnabled
                     ? AntiVPN.getInstance().getDatabase().getAllWhitelistedIps()
-                    : new ArrayList<>(AntiVPN.getInstance().getExecutor().getWhitelistedIps());
+                    : AntiVPN.getInstance().getExecutor().getWhitelistedIps().toList();
 
             List<String> entries = new ArrayList<>();
             for (UUID uuid : uuids) {
@@ -136,7 +136,7 @@ public class AllowlistCommand extends Command {
                     : new ArrayList<>(AntiVPN.getInstance().getExecutor().getWhitelisted());
             List<CIDRUtils> ips = databaseEnabled
                     ? AntiVPN.getInstance().getDatabase().getAllWhitelistedIps()
-                    : new ArrayList<>(AntiVPN.getInstance().getExecutor().getWhitelistedIps());
+                    : AntiVPN.getInstance().getExecutor().getWhitelistedIps().toList();
 
             List<String> entries = new ArrayList<>();
             for (UUID uuid : uuids) {
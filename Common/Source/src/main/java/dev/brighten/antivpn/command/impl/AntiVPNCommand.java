@@ -61,7 +61,7 @@ public class AntiVPNCommand extends Command {
     @Override
     public Command[] children() {
         return new Command[] {new LookupCommand(), new AllowlistCommand(), new AlertsCommand(),
-                new ClearCacheCommand(), new PlanCommand(), new ReloadCommand()};
+                new ClearCacheCommand(), new PlanCommand(), new ReloadCommand(), new StatsCommand()};
     }
 
     @Override
@@ -62,7 +62,7 @@ public class ClearCacheCommand extends Command {
 
     @Override
     public String execute(CommandExecutor executor, String[] args) {
-        AntiVPN.getInstance().getExecutor().getThreadExecutor().execute(() -> AntiVPN.getInstance().getDatabase().clearResponses());
+        AntiVPN.getInstance().getExecutor().getBlockingExecutor().execute(() -> AntiVPN.getInstance().getDatabase().clearResponses());
         return "&aCleared all cached API response information!";
     }
 
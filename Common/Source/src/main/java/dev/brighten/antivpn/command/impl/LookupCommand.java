@@ -18,6 +18,7 @@ package dev.brighten.antivpn.command.impl;
 
 import dev.brighten.antivpn.AntiVPN;
 import dev.brighten.antivpn.api.APIPlayer;
+import dev.brighten.antivpn.api.LookupPriority;
 import dev.brighten.antivpn.command.Command;
 import dev.brighten.antivpn.command.CommandExecutor;
 import dev.brighten.antivpn.utils.StringUtil;
@@ -76,7 +77,7 @@ public class LookupCommand extends Command {
         }
 
         AntiVPN.getInstance().getExecutor()
-                .checkIp(player.get().getIp().getHostAddress())
+                .checkIp(player.get().getIp().getHostAddress(), LookupPriority.STAFF)
                 .thenAccept(result -> {
                     if(!result.isSuccess()) {
                         executor.sendMessage("&cThere was an error trying to find the " +
@@ -95,6 +96,10 @@ public class LookupCommand extends Command {
                     executor.sendMessage("&e%s&8: &f%s", "Coordinates", result.getLatitude()
                             + "&7/&f" + result.getLongitude());
                     executor.sendMessage(StringUtil.line("&8"));
+                })
+                .exceptionally(throwable -> {
+                    executor.sendMessage("&cCould not look up this player right now, please try again.");
+                    return null;
                 });
 
 
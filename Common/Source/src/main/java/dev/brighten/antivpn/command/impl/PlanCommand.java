@@ -67,7 +67,7 @@ public class PlanCommand extends Command {
 
     @Override
     public String execute(CommandExecutor executor, String[] args) {
-        AntiVPN.getInstance().getExecutor().getThreadExecutor().execute(() -> {
+        AntiVPN.getInstance().getExecutor().getBlockingExecutor().execute(() -> {
             QueryResponse result;
             try {
                 if(AntiVPN.getInstance().getVpnConfig().getLicense().isEmpty()) {
@@ -0,0 +1,102 @@
+/*
+ * Copyright 2026 Dawson Hessler
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package dev.brighten.antivpn.command.impl;
+
+import dev.brighten.antivpn.AntiVPN;
+import dev.brighten.antivpn.command.Command;
+import dev.brighten.antivpn.command.CommandExecutor;
+import dev.brighten.antivpn.metrics.LatencyHistogram;
+import dev.brighten.antivpn.metrics.Stage;
+import dev.brighten.antivpn.metrics.VPNMetrics;
+import dev.brighten.antivpn.utils.StringUtil;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+public class StatsCommand extends Command {
+    @Override
+    public String permission() {
+        return "antivpn.command.stats";
+    }
+
+    @Override
+    public String name() {
+        return "stats";
+    }
+
+    @Override
+    public String[] aliases() {
+        return new String[] {"metrics"};
+    }
+
+    @Override
+    public String description() {
+        return "Show check counters and where login check time is spent.";
+    }
+
+    @Override
+    public String usage() {
+        return "[reset]";
+    }
+
+    @Override
+    public String parent() {
+        return "antivpn";
+    }
+
+    @Override
+    public Command[] children() {
+        return new Command[0];
+    }
+
+    @Override
+    public String execute(CommandExecutor executor, String[] args) {
+        VPNMetrics metrics = AntiVPN.getInstance().getMetrics();
+
+        if(args.length > 0 && args[0].equalsIgnoreCase("reset")) {
+            metrics.reset();
+            return "&aReset all KauriVPN statistics.";
+        }
+
+        executor.sendMessage(StringUtil.line("&8"));
+        executor.sendMessage("&6&lKauriVPN Statistics");
+        executor.sendMessage("");
+        executor.sendMessage("&e%s&8: &f%s &7(&f%s &7detected, &f%s &7API failures)", "Checked",
+                metrics.getChecked().sum(), metrics.getDetections().sum(), metrics.getApiFailures().sum());
+        executor.sendMessage("&e%s&8: &f%.1f%% &7cache, &f%.1f%% &7database", "Hit ratio",
+                metrics.getCacheHitRatio() * 100, metrics.getDatabaseHitRatio() * 100);
+        executor.sendMessage("");
+        for (Stage stage : Stage.values()) {
+            LatencyHistogram latency = metrics.latency(stage);
+
+            executor.sendMessage("&e%s&8: &f%s &7samples, mean &f%.2fms&7, p50 &f%.2fms&7, p99 &f%.2fms",
+                    stage.name().toLowerCase(), latency.getCount(), latency.getMeanMillis(),
+                    latency.getPercentileMillis(0.5), latency.getPercentileMillis(0.99));
+        }
+        executor.sendMessage("");
+        for (Map.Entry<String, Long> gauge : metrics.readGauges().entrySet()) {
+            executor.sendMessage("&e%s&8: &f%s", gauge.getKey(), gauge.getValue());
+        }
+        return StringUtil.line("&8");
+    }
+
+    @Override
+    public List<String> tabComplete(CommandExecutor executor, String alias, String[] args) {
+        return args.length == 1 ? Collections.singletonList("reset") : Collections.emptyList();
+    }
+}
@@ -0,0 +1,278 @@
+/*
+ * Copyright 2026 Dawson Hessler
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package dev.brighten.antivpn.database;
+
+import dev.brighten.antivpn.AntiVPN;
+import dev.brighten.antivpn.utils.CIDRTrie;
+import dev.brighten.antivpn.utils.CIDRUtils;
+import dev.brighten.antivpn.utils.SnapshotSet;
+
+import java.net.UnknownHostException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Keeps the in-memory allowlist in step with the database by replaying its change log, instead of reloading every
+ * entry on each refresh. Staff alert subscriptions share the log, so they are kept in memory the same way.
+ * <p>
+ * Every allowlist mutation appends a {@link Change} with a revision higher than all before it. {@link #sync()}
+ * applies the changes after the last revision seen, in order, so a refresh costs one indexed range query no matter
+ * how large the allowlist is. Adding and removing are idempotent, which lets {@link #reload()} read the revision
+ * first and the entries afterwards: changes made in between are simply applied twice.
+ * <p>
+ * A revision can be taken before its change is committed, so a missing revision is waited for. If it never shows
+ * up, because the insert failed or the log was pruned, the allowlist is reloaded in full after
+ * {@link #GAP_TIMEOUT_NANOS}. Both reloads and changes publish in one step, readers never see a partial or empty
+ * allowlist.
+ */
+public class AllowlistSync {
+
+    // Each sync is a single indexed query that usually returns nothing, so it can run often.
+    public static final long SYNC_INTERVAL_SECONDS = 5;
+    // Far longer than any node goes without syncing, nodes that fell further behind reload in full anyway.
+    public static final long CHANGE_RETENTION_MILLIS = TimeUnit.DAYS.toMillis(1);
+
+    static final int BATCH_SIZE = 1000;
+    static final long GAP_TIMEOUT_NANOS = TimeUnit.MINUTES.toNanos(1);
+
+    private final ChangeLog log;
+    private final SnapshotSet<UUID> players;
+    private final CIDRTrie ranges;
+    private final SnapshotSet<UUID> alerts;
+    private final LongSupplier nanoTime;
+
+    // Guarded by this.
+    private long revision = -1, gapRevision = -1, gapSince;
+
+    /**
+     * @param log ChangeLog of the database
+     * @param players SnapshotSet of allowlisted players to keep up to date
+     * @param ranges CIDRTrie of allowlisted ranges to keep up to date
+     * @param alerts SnapshotSet of players subscribed to alerts to keep up to date
+     */
+    public AllowlistSync(ChangeLog log, SnapshotSet<UUID> players, CIDRTrie ranges, SnapshotSet<UUID> alerts) {
+        this(log, players, ranges, alerts, System::nanoTime);
+    }
+
+    AllowlistSync(ChangeLog log, SnapshotSet<UUID> players, CIDRTrie ranges, SnapshotSet<UUID> alerts,
+                  LongSupplier nanoTime) {
+        this.log = log;
+        this.players = players;
+        this.ranges = ranges;
+        this.alerts = alerts;
+        this.nanoTime = nanoTime;
+    }
+
+    /**
+     * Replaces the allowlist and alert subscriptions with every entry in the database. Keeps the current allowlist if that fails.
+     *
+     * @return boolean, whether the allowlist was reloaded
+     */
+    public synchronized boolean reload() {
+        try {
+            long latest = log.latestRevision();
+            List<UUID> allPlayers = log.allPlayers();
+            List<CIDRUtils> allRanges = log.allRanges();
+            List<UUID> allAlerts = log.allAlerts();
+
+            players.replaceAll(allPlayers);
+            ranges.replaceAll(allRanges);
+            alerts.replaceAll(allAlerts);
+            revision = latest;
+            gapRevision = -1;
+            return true;
+        } catch (Exception e) {
+            AntiVPN.getInstance().getExecutor().logException("Could not load the allowlist", e);
+            return false;
+        }
+    }
+
+    /**
+     * Applies every change made since the last sync, or reloads everything if nothing was loaded yet.
+     *
+     * @return int, changes applied
+     */
+    public synchronized int sync() {
+        if(revision < 0) {
+            reload();
+            return 0;
+        }
+
+        int applied = 0;
+        try {
+            List<Change> changes;
+            do {
+                changes = log.changesSince(revision, BATCH_SIZE);
+
+                Batch batch = new Batch(revision);
+                boolean gap = false;
+                for (Change change : changes) {
+                    // Already contained in the allowlist, e.g. through a reload.
+                    if(change.revision() <= batch.revision) continue;
+
+                    if(change.revision() > batch.revision + 1) {
+                        gap = true;
+                        break;
+                    }
+                    batch.add(change);
+                }
+                applied += publish(batch);
+
+                if(gap) {
+                    // After a reload the rest of the batch is stale, the next sync reads on from the new revision.
+                    awaitGap();
+                    return applied;
+                }
+            } while (changes.size() >= BATCH_SIZE);
+        } catch (Exception e) {
+            AntiVPN.getInstance().getExecutor().logException("Could not sync the allowlist", e);
+        }
+        return applied;
+    }
+
+    public synchronized long getRevision() {
+        return revision;
+    }
+
+    /**
+     * Starts timing the gap after the current revision and reloads everything once it is open for too long.
+     */
+    private void awaitGap() throws Exception {
+        long now = nanoTime.getAsLong();
+
+        if(gapRevision != revision + 1) {
+            gapRevision = revision + 1;
+            gapSince = now;
+            return;
+        }
+        if(now - gapSince < GAP_TIMEOUT_NANOS) {
+            return;
+        }
+
+        // Whatever the missing change was, a full load contains its outcome.
+        if(!reload()) {
+            throw new Exception("Could not reload the allowlist after revision " + gapRevision + " went missing");
+        }
+    }
+
+    /**
+     * Applies a batch with one publish per allowlist, rather than copying a whole set for every change.
+     *
+     * @return int, changes applied
+     */
+    private int publish(Batch batch) {
+        if(batch.size == 0) return 0;
+
+        publish(players, batch.players);
+        publish(alerts, batch.alerts);
+        batch.ranges.forEach((entry, added) -> {
+            try {
+                CIDRUtils cidr = new CIDRUtils(entry);
+
+                if(added) ranges.add(cidr);
+                else ranges.remove(cidr);
+            } catch (UnknownHostException e) {
+                AntiVPN.getInstance().getExecutor().logException("Could not format ip "
+                        + entry + " into a CIDR!", e);
+            }
+        });
+        revision = batch.revision;
+        gapRevision = -1;
+        return batch.size;
+    }
+
+    private static void publish(SnapshotSet<UUID> uuids, Map<String, Boolean> changes) {
+        List<UUID> added = new ArrayList<>(), removed = new ArrayList<>();
+
+        changes.forEach((entry, add) -> (add ? added : removed).add(UUID.fromString(entry)));
+        if(!added.isEmpty()) uuids.addAll(added);
+        if(!removed.isEmpty()) uuids.removeAll(removed);
+    }
+
+    /**
+     * Consecutive changes read in one query. Only the last change of each entry counts, so the added and removed
+     * entries never overlap and can be published in any order.
+     */
+    private static final class Batch {
+        private final Map<String, Boolean> players = new LinkedHashMap<>(), alerts = new LinkedHashMap<>(),
+                ranges = new LinkedHashMap<>();
+        private long revision;
+        private int size;
+
+        private Batch(long revision) {
+            this.revision = revision;
+        }
+
+        private void add(Change change) {
+            Map<String, Boolean> entries = switch (change.kind()) {
+                case PLAYER -> players;
+                case ALERTS -> alerts;
+                case RANGE -> ranges;
+            };
+
+            entries.remove(change.entry());
+            entries.put(change.entry(), change.added());
+            revision = change.revision();
+            size++;
+        }
+    }
+
+    public enum Kind {
+        PLAYER, RANGE, ALERTS
+    }
+
+    /**
+     * @param revision long, higher than the revision of every earlier change
+     * @param kind Kind of entry changed
+     * @param entry String, the UUID or CIDR notation
+     * @param added boolean, whether the entry was added or removed
+     */
+    public record Change(long revision, Kind kind, String entry, boolean added) {
+    }
+
+    /**
+     * The allowlist as stored in a database. Failures must be thrown rather than answered with empty results, so
+     * a database hiccup is never mistaken for an empty allowlist.
+     */
+    public interface ChangeLog {
+        /**
+         * @return long, the highest revision so far, or 0 if there were no changes yet
+         */
+        long latestRevision() throws Exception;
+
+        /**
+         * @param revision long
+         * @param limit int
+         * @return at most limit changes with a higher revision, in revision order
+         */
+        List<Change> changesSince(long revision, int limit) throws Exception;
+
+        List<UUID> allPlayers() throws Exception;
+
+        List<CIDRUtils> allRanges() throws Exception;
+
+        /**
+         * @return every player with alerts enabled
+         */
+        List<UUID> allAlerts() throws Exception;
+    }
+}
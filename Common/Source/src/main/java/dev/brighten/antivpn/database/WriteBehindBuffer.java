@@ -0,0 +1,205 @@
+/*
+ * Copyright 2026 Dawson Hessler
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package dev.brighten.antivpn.database;
+
+import dev.brighten.antivpn.AntiVPN;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Collects writes for a short window and hands them to the database in batches, so a wave of logins turns into a
+ * few multi-row writes instead of one round trip per lookup.
+ * <p>
+ * Writes are keyed, a newer value replaces a pending one with the same key. A batch is written once
+ * {@code maxBatchSize} values are pending or {@code flushInterval} after the first pending value, whichever comes
+ * first. Batches are written one at a time, and values stay visible through {@link #getPending(Object)} until
+ * their batch was written. {@link #remove(Object)} and {@link #clear()} wait for a running batch, so a value
+ * deleted afterwards can never be written back by it.
+ *
+ * @param <K> key, e.g. the IP of a response
+ * @param <V> value written
+ */
+public class WriteBehindBuffer<K, V> implements AutoCloseable {
+
+    private final int maxBatchSize;
+    private final long flushIntervalNanos;
+    private final ScheduledExecutorService scheduler;
+    private final Executor executor;
+    private final Function<V, K> key;
+    private final Consumer<List<V>> writer;
+    private final ReentrantLock flushLock = new ReentrantLock();
+
+    // Guarded by this.
+    private final LinkedHashMap<K, V> pending = new LinkedHashMap<>();
+    private Map<K, V> writing = Collections.emptyMap();
+    private boolean flushScheduled, flushQueued, closed;
+
+    /**
+     * @param maxBatchSize values written per batch, reaching it flushes right away
+     * @param flushInterval Duration a value waits at most before it is written
+     * @param scheduler ScheduledExecutorService timing delayed flushes
+     * @param executor Executor writing the batches, as writes block
+     * @param key Function giving the key of a value
+     * @param writer Consumer writing one batch of at most {@code maxBatchSize} values
+     */
+    public WriteBehindBuffer(int maxBatchSize, Duration flushInterval, ScheduledExecutorService scheduler,
+                             Executor executor, Function<V, K> key, Consumer<List<V>> writer) {
+        this.maxBatchSize = Math.max(1, maxBatchSize);
+        this.flushIntervalNanos = flushInterval.toNanos();
+        this.scheduler = scheduler;
+        this.executor = executor;
+        this.key = key;
+        this.writer = writer;
+    }
+
+    /**
+     * Queues the value to be written, replacing a pending value with the same key.
+     *
+     * @param value V
+     */
+    public void add(V value) {
+        boolean flushNow = false, scheduleFlush = false;
+
+        synchronized (this) {
+            if(closed) return;
+
+            pending.put(key.apply(value), value);
+            if(pending.size() >= maxBatchSize) {
+                flushNow = !flushQueued;
+                flushQueued = true;
+            } else if(!flushScheduled) {
+                scheduleFlush = flushScheduled = true;
+            }
+        }
+
+        try {
+            if(flushNow) {
+                executor.execute(this::flush);
+            } else if(scheduleFlush) {
+                scheduler.schedule(() -> executor.execute(this::flush), flushIntervalNanos, TimeUnit.NANOSECONDS);
+            }
+        } catch (RejectedExecutionException e) {
+            // Shutting down, whatever is left gets written by the final flush.
+            synchronized (this) {
+                flushQueued = flushScheduled = false;
+            }
+        }
+    }
+
+    /**
+     * @param key K
+     * @return the value waiting to be written for the key, or null if there is none
+     */
+    public synchronized V getPending(K key) {
+        V value = pending.get(key);
+
+        return value != null ? value : writing.get(key);
+    }
+
+    /**
+     * Drops the pending value for the key, after any batch being written right now was written.
+     *
+     * @param key K
+     * @return the dropped value, or null if none was pending
+     */
+    public V remove(K key) {
+        flushLock.lock();
+        try {
+            synchronized (this) {
+                return pending.remove(key);
+            }
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    /**
+     * Drops every pending value, after any batch being written right now was written.
+     */
+    public void clear() {
+        flushLock.lock();
+        try {
+            synchronized (this) {
+                pending.clear();
+            }
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    public synchronized int size() {
+        return pending.size();
+    }
+
+    /**
+     * Writes everything pending on the calling thread.
+     */
+    public void flush() {
+        flushLock.lock();
+        try {
+            List<V> values;
+
+            synchronized (this) {
+                flushScheduled = flushQueued = false;
+                if(pending.isEmpty()) return;
+
+                writing = new LinkedHashMap<>(pending);
+                values = new ArrayList<>(pending.values());
+                pending.clear();
+            }
+
+            for (int from = 0; from < values.size(); from += maxBatchSize) {
+                List<V> batch = values.subList(from, Math.min(values.size(), from + maxBatchSize));
+
+                try {
+                    writer.accept(batch);
+                } catch (RuntimeException e) {
+                    AntiVPN.getInstance().getExecutor().logException("Could not write a batch of "
+                            + batch.size() + " entries", e);
+                }
+            }
+        } finally {
+            synchronized (this) {
+                writing = Collections.emptyMap();
+            }
+            flushLock.unlock();
+        }
+    }
+
+    /**
+     * Writes everything pending and ignores values added afterwards.
+     */
+    @Override
+    public void close() {
+        synchronized (this) {
+            closed = true;
+        }
+        flush();
+    }
+}
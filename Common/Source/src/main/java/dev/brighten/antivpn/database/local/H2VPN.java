@@ -17,12 +17,16 @@
 package dev.brighten.antivpn.database.local;
 
 import dev.brighten.antivpn.AntiVPN;
+import dev.brighten.antivpn.database.AllowlistSync;
 import dev.brighten.antivpn.database.VPNDatabase;
+import dev.brighten.antivpn.database.WriteBehindBuffer;
 import dev.brighten.antivpn.database.sql.utils.ExecutableStatement;
 import dev.brighten.antivpn.database.sql.utils.MySQL;
 import dev.brighten.antivpn.database.sql.utils.Query;
 import dev.brighten.antivpn.database.version.Version;
 import dev.brighten.antivpn.utils.CIDRUtils;
+import dev.brighten.antivpn.utils.IpAddress;
+import dev.brighten.antivpn.utils.SnapshotSet;
 import dev.brighten.antivpn.web.objects.VPNResponse;
 import lombok.SneakyThrows;
 
@@ -32,38 +36,43 @@ import java.net.UnknownHostException;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Timestamp;
+import java.time.Duration;
 import java.util.*;
+import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
 import java.util.function.Consumer;
 
-public class H2VPN implements VPNDatabase {
+public class H2VPN implements VPNDatabase, AllowlistSync.ChangeLog {
 
+    protected static final String RESPONSE_COLUMNS = "`ip`,`asn`,`countryName`,`countryCode`,`city`,`timeZone`,"
+            + "`method`,`isp`,`proxy`,`cached`,`inserted`,`latitude`,`longitude`";
 
-    public H2VPN() {
-        AntiVPN.getInstance().getExecutor().getThreadExecutor().scheduleAtFixedRate(() -> {
-            if(!AntiVPN.getInstance().getVpnConfig().isDatabaseEnabled() || MySQL.isClosed()) return;
-
-            //Refreshing whitelisted players
-            AntiVPN.getInstance().getExecutor().getWhitelisted().clear();
-            AntiVPN.getInstance().getExecutor().getWhitelisted()
-                    .addAll(AntiVPN.getInstance().getDatabase().getAllWhitelisted());
-
-            //Refreshing whitlisted IPs
-            AntiVPN.getInstance().getExecutor().getWhitelistedIps().clear();
-            AntiVPN.getInstance().getExecutor().getWhitelistedIps()
-                    .addAll(AntiVPN.getInstance().getDatabase().getAllWhitelistedIps());
-        }, 2, 30, TimeUnit.SECONDS);
-    }
+    private volatile WriteBehindBuffer<String, VPNResponse> responseWrites;
+    private volatile ScheduledFuture<?> maintenance, allowlistSync;
 
     @Override
     public Optional<VPNResponse> getStoredResponse(String ip) {
         if (!AntiVPN.getInstance().getVpnConfig().isDatabaseEnabled()|| MySQL.isClosed())
             return Optional.empty();
 
-        try(ExecutableStatement statement = Query.prepare("select * from `responses` where `ip` = ? limit 1").append(ip)) {
+        WriteBehindBuffer<String, VPNResponse> writes = responseWrites;
+        VPNResponse pending = writes != null ? writes.getPending(ip) : null;
+        if(pending != null) {
+            return Optional.of(pending);
+        }
+
+        IpAddress key = IpAddress.tryParse(ip);
+        if(key == null) {
+            return Optional.empty();
+        }
+
+        try(ExecutableStatement statement = Query.prepare("select `asn`, `countryName`, `countryCode`, `city`, "
+                + "`timeZone`, `method`, `isp`, `proxy`, `cached`, `inserted`, `latitude`, `longitude` "
+                + "from `responses` where `ip` = ? and `inserted` > ?").append(key.toBytes())
+                .append(new Timestamp(System.currentTimeMillis() - responseTtlMillis()))) {
             try(ResultSet rs = statement.executeQuery()) {
                 if (rs != null && rs.next()) {
-                    return Optional.of(new VPNResponse(rs.getString("asn"), rs.getString("ip"),
+                    return Optional.of(new VPNResponse(rs.getString("asn"), ip,
                             rs.getString("countryName"), rs.getString("countryCode"),
                             rs.getString("city"), rs.getString("timeZone"),
                             rs.getString("method"), rs.getString("isp"), "N/A",
@@ -95,25 +104,171 @@ public class H2VPN implements VPNDatabase {
         if (!AntiVPN.getInstance().getVpnConfig().isDatabaseEnabled() || MySQL.isClosed())
             return;
 
-        try(var statement = Query.prepare("insert into `responses` (`ip`,`asn`,`countryName`,`countryCode`,`city`,`timeZone`,"
-                        + "`method`,`isp`,`proxy`,`cached`,`inserted`,`latitude`,`longitude`) values (?,?,?,?,?,?,?,?,?,?,?,?,?)")
-                .append(toCache.getIp()).append(toCache.getAsn()).append(toCache.getCountryName())
-                .append(toCache.getCountryCode()).append(toCache.getCity()).append(toCache.getTimeZone())
-                .append(toCache.getMethod()).append(toCache.getIsp()).append(toCache.isProxy())
-                .append(toCache.isCached()).append(new Timestamp(System.currentTimeMillis()))
-                .append(toCache.getLatitude()).append(toCache.getLongitude())) {
-            statement.execute();
+        WriteBehindBuffer<String, VPNResponse> writes = responseWrites;
+        if(writes != null) {
+            writes.add(toCache);
+        } else {
+            writeResponses(Collections.singletonList(toCache));
+        }
+    }
+
+    /**
+     * Upserts the responses with a single batch, which MySQL sends as one multi-row statement.
+     *
+     * @param responses List of VPNResponse
+     */
+    protected void writeResponses(List<VPNResponse> responses) {
+        if(MySQL.isClosed()) return;
+
+        try(var statement = Query.prepare(responseUpsertSql("responses"))) {
+            Timestamp inserted = new Timestamp(System.currentTimeMillis());
+
+            for (VPNResponse toCache : responses) {
+                IpAddress key = IpAddress.tryParse(toCache.getIp());
+
+                // Could never be looked up again.
+                if(key == null) continue;
+
+                statement.append(key.toBytes()).append(toCache.getAsn()).append(toCache.getCountryName())
+                        .append(toCache.getCountryCode()).append(toCache.getCity()).append(toCache.getTimeZone())
+                        .append(toCache.getMethod()).append(toCache.getIsp()).append(toCache.isProxy())
+                        .append(toCache.isCached()).append(inserted)
+                        .append(toCache.getLatitude()).append(toCache.getLongitude())
+                        .addBatch();
+            }
+            statement.executeBatch();
         } catch(SQLException e) {
-            AntiVPN.getInstance().getExecutor().logException("Could not cache response for IP: " + toCache.getIp(), e);
+            AntiVPN.getInstance().getExecutor().logException("Could not cache " + responses.size()
+                    + " responses", e);
+        }
+    }
+
+    /**
+     * Inserts a response or replaces the one stored for the same IP, keyed by {@link IpAddress#toBytes()}.
+     * Parameters are the IP followed by asn, countryName, countryCode, city, timeZone, method, isp, proxy,
+     * cached, inserted, latitude and longitude.
+     *
+     * @param table String, the responses table
+     * @return String
+     */
+    public String responseUpsertSql(String table) {
+        return "merge into `" + table + "` (" + RESPONSE_COLUMNS + ") key (`ip`) "
+                + "values (?,?,?,?,?,?,?,?,?,?,?,?,?)";
+    }
+
+    /**
+     * Starts collecting {@link #cacheResponse(VPNResponse)} calls into batches, see {@link WriteBehindBuffer}.
+     */
+    protected void startResponseWrites() {
+        int maxBatchSize = AntiVPN.getInstance().getVpnConfig().getWriteBehindMaxBatchSize();
+        int flushInterval = AntiVPN.getInstance().getVpnConfig().getWriteBehindFlushInterval();
+
+        responseWrites = new WriteBehindBuffer<>(maxBatchSize > 0 ? maxBatchSize : 100,
+                Duration.ofMillis(flushInterval > 0 ? flushInterval : 500),
+                AntiVPN.getInstance().getExecutor().getThreadExecutor(),
+                task -> AntiVPN.getInstance().getExecutor().getBlockingExecutor().execute(task),
+                VPNResponse::getIp, this::writeResponses);
+    }
+
+    /**
+     * Starts the job removing expired responses. The store is compacted on {@link #shutdown()} only.
+     */
+    protected void startMaintenance() {
+        int purgeInterval = AntiVPN.getInstance().getVpnConfig().getResponsePurgeInterval();
+        long period = TimeUnit.MINUTES.toMillis(purgeInterval > 0 ? purgeInterval : 10);
+
+        maintenance = AntiVPN.getInstance().getExecutor().getThreadExecutor()
+                .scheduleWithFixedDelay(this::runMaintenance, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    private void runMaintenance() {
+        if(!AntiVPN.getInstance().getVpnConfig().isDatabaseEnabled() || MySQL.isClosed()) return;
+
+        try {
+            pruneAllowlistChanges();
+
+            int purged = purgeExpiredResponses();
+            if(purged > 0) {
+                AntiVPN.getInstance().getExecutor().log("Removed %s expired responses.", purged);
+            }
+        } catch (RuntimeException e) {
+            // A failed run must not cancel the schedule.
+            AntiVPN.getInstance().getExecutor().logException("Database maintenance failed", e);
         }
     }
 
+    /**
+     * Deletes responses older than the TTL, {@code purgeBatchSize} rows per statement so no single delete holds
+     * the table for long. Runs on the {@code inserted} index.
+     *
+     * @return int, responses removed
+     */
+    public int purgeExpiredResponses() {
+        int batchSize = AntiVPN.getInstance().getVpnConfig().getResponsePurgeBatchSize();
+        if(batchSize <= 0) batchSize = 1000;
+
+        Timestamp expiredBefore = new Timestamp(System.currentTimeMillis() - responseTtlMillis());
+        int total = 0, deleted;
+
+        do {
+            try(var statement = Query.prepare(responsePurgeSql()).append(expiredBefore).append(batchSize)) {
+                deleted = statement.execute();
+            } catch (SQLException e) {
+                AntiVPN.getInstance().getExecutor().logException("Could not remove expired responses", e);
+                break;
+            }
+            total += deleted;
+        } while (deleted >= batchSize && !MySQL.isClosed());
+
+        return total;
+    }
+
+    private void pruneAllowlistChanges() {
+        try(var statement = Query.prepare("delete from `allowlist_changes` where `changed` < ?")
+                .append(new Timestamp(System.currentTimeMillis() - AllowlistSync.CHANGE_RETENTION_MILLIS))) {
+            statement.execute();
+        } catch (SQLException e) {
+            AntiVPN.getInstance().getExecutor().logException("Could not prune allowlist changes", e);
+        }
+    }
+
+    /**
+     * @return String deleting at most the second parameter of responses inserted before the first
+     */
+    protected String responsePurgeSql() {
+        return "delete from `responses` where `inserted` < ? fetch first ? rows only";
+    }
+
+    /**
+     * Gives the space of deleted rows back to the file system, see {@link MySQL#compactH2()}. Closes the database,
+     * so it is only called while shutting down.
+     */
+    protected void compactStore() {
+        AntiVPN.getInstance().getExecutor().log("Compacting H2 database...");
+        MySQL.compactH2();
+    }
+
+    protected static long responseTtlMillis() {
+        int ttl = AntiVPN.getInstance().getVpnConfig().getResponseTtl();
+
+        return TimeUnit.MINUTES.toMillis(ttl > 0 ? ttl : 60);
+    }
+
     @Override
     public void deleteResponse(String ip) {
         if(!AntiVPN.getInstance().getVpnConfig().isDatabaseEnabled() || MySQL.isClosed())
             return;
 
-        try(var statement = Query.prepare("delete from `responses` where `ip` = ?").append(ip)) {
+        // Dropped first, so a batch written later cannot bring the response back.
+        WriteBehindBuffer<String, VPNResponse> writes = responseWrites;
+        if(writes != null) {
+            writes.remove(ip);
+        }
+
+        IpAddress key = IpAddress.tryParse(ip);
+        if(key == null) return;
+
+        try(var statement = Query.prepare("delete from `responses` where `ip` = ?").append(key.toBytes())) {
             statement.execute();
         } catch (SQLException e) {
             AntiVPN.getInstance().getExecutor().logException("Could not delete response from IP: " + ip, e);
@@ -170,6 +325,7 @@ public class H2VPN implements VPNDatabase {
         try(var statement = Query.prepare("insert into `whitelisted` (`uuid`) values (?)").append(uuid.toString())) {
             statement.execute();
             AntiVPN.getInstance().getExecutor().getWhitelisted().add(uuid);
+            recordAllowlistChange(AllowlistSync.Kind.PLAYER, uuid.toString(), true);
         } catch (SQLException e) {
             AntiVPN.getInstance().getExecutor().logException("Could not add uuid '" + uuid + "' to whitelist due to SQL error.", e);
         }
@@ -182,6 +338,7 @@ public class H2VPN implements VPNDatabase {
         try(var statement = Query.prepare("delete from `whitelisted` where `uuid` = ?").append(uuid.toString())) {
             statement.execute();
             AntiVPN.getInstance().getExecutor().getWhitelisted().remove(uuid);
+            recordAllowlistChange(AllowlistSync.Kind.PLAYER, uuid.toString(), false);
         } catch (SQLException e) {
             AntiVPN.getInstance().getExecutor().logException("Could not remove uuid '" + uuid + "' from whitelist due to SQL error.", e);
         }
@@ -195,7 +352,8 @@ public class H2VPN implements VPNDatabase {
         try(var statement = Query.prepare("insert into `whitelisted-ranges` (`cidr_string`, `ip_start`, `ip_end`) values (?, ?, ?)")
                 .append(cidr.getCidr()).append(cidr.getStartIpInt()).append(cidr.getEndIpInt())) {
             statement.execute();
-
+            AntiVPN.getInstance().getExecutor().getWhitelistedIps().add(cidr);
+            recordAllowlistChange(AllowlistSync.Kind.RANGE, cidr.getCidr(), true);
         } catch (SQLException e) {
             AntiVPN.getInstance().getExecutor().logException("Could not add cidr '" + cidr + "' to whitelist due to SQL error.", e);
         }
@@ -208,103 +366,158 @@ public class H2VPN implements VPNDatabase {
 
         try(var statement = Query.prepare("delete from `whitelisted-ranges` where `cidr_string` = ?").append(cidr.getCidr())) {
             statement.execute();
-
+            AntiVPN.getInstance().getExecutor().getWhitelistedIps().remove(cidr);
+            recordAllowlistChange(AllowlistSync.Kind.RANGE, cidr.getCidr(), false);
         } catch (SQLException e) {
             AntiVPN.getInstance().getExecutor().logException("Could not remove cidr '" + cidr + "' from whitelist due to SQL error.", e);
         }
     }
 
+    /**
+     * Appends the mutation to the change log other servers sync from, see {@link AllowlistSync}.
+     *
+     * @param kind AllowlistSync.Kind
+     * @param entry String
+     * @param added boolean
+     */
+    private void recordAllowlistChange(AllowlistSync.Kind kind, String entry, boolean added) {
+        try(var statement = Query.prepare("insert into `allowlist_changes` (`kind`, `entry`, `added`, `changed`) "
+                + "values (?, ?, ?, ?)").append(kind.name()).append(entry).append(added)
+                .append(new Timestamp(System.currentTimeMillis()))) {
+            statement.execute();
+        } catch (SQLException e) {
+            AntiVPN.getInstance().getExecutor().logException("Could not record allowlist change for '" + entry
+                    + "', other servers only see it after their next restart.", e);
+        }
+    }
+
     @Override
     public List<UUID> getAllWhitelisted() {
-        List<UUID> uuids = new ArrayList<>();
+        if (!AntiVPN.getInstance().getVpnConfig().isDatabaseEnabled() || MySQL.isClosed())
+            return new ArrayList<>();
 
+        try {
+            return allPlayers();
+        } catch (SQLException e) {
+            AntiVPN.getInstance().getExecutor().logException("Could not get all whitelisted players due to SQL error.", e);
+            return new ArrayList<>();
+        }
+    }
+
+    @Override
+    public List<CIDRUtils> getAllWhitelistedIps() {
         if (!AntiVPN.getInstance().getVpnConfig().isDatabaseEnabled() || MySQL.isClosed())
-            return uuids;
+            return new ArrayList<>();
+
+        try {
+            return allRanges();
+        } catch (SQLException e) {
+            AntiVPN.getInstance().getExecutor().logException("Could not get all whitelisted ips due to SQL error.", e);
+            return new ArrayList<>();
+        }
+    }
+
+    @Override
+    public long latestRevision() throws SQLException {
+        try(var statement = Query.prepare("select max(`revision`) from `allowlist_changes`");
+            var set = statement.executeQuery()) {
+            return set.next() ? set.getLong(1) : 0;
+        }
+    }
+
+    @Override
+    public List<AllowlistSync.Change> changesSince(long revision, int limit) throws SQLException {
+        List<AllowlistSync.Change> changes = new ArrayList<>();
+
+        try(var statement = Query.prepare("select `revision`, `kind`, `entry`, `added` from `allowlist_changes` "
+                + "where `revision` > ? order by `revision` limit ?").append(revision).append(limit)) {
+            statement.execute(set -> changes.add(new AllowlistSync.Change(set.getLong("revision"),
+                    AllowlistSync.Kind.valueOf(set.getString("kind")), set.getString("entry"),
+                    set.getBoolean("added"))));
+        }
+        return changes;
+    }
+
+    @Override
+    public List<UUID> allPlayers() throws SQLException {
+        List<UUID> uuids = new ArrayList<>();
 
         try(var statement = Query.prepare("select uuid from `whitelisted`")) {
             statement.execute(set -> uuids.add(UUID.fromString(set.getString("uuid"))));
-        } catch (SQLException e) {
-            AntiVPN.getInstance().getExecutor().logException("Could not get all whitelisted players due to SQL error.", e);
         }
+        return uuids;
+    }
+
+    @Override
+    public List<UUID> allAlerts() throws SQLException {
+        List<UUID> uuids = new ArrayList<>();
 
+        try(var statement = Query.prepare("select distinct `uuid` from `alerts`")) {
+            statement.execute(set -> uuids.add(UUID.fromString(set.getString("uuid"))));
+        }
         return uuids;
     }
 
     @Override
-    public List<CIDRUtils> getAllWhitelistedIps() {
+    public List<CIDRUtils> allRanges() throws SQLException {
         List<CIDRUtils> ips = new ArrayList<>();
 
-        if (!AntiVPN.getInstance().getVpnConfig().isDatabaseEnabled() || MySQL.isClosed())
-            return ips;
-        try(var statement = Query.prepare("select `cidr_string`, `ip_start`, `ip_end` from `whitelisted-ranges`")) {
+        try(var statement = Query.prepare("select `cidr_string` from `whitelisted-ranges`")) {
             statement.execute(set -> {
                         try {
-                            String cidrString = set.getString("cidr_string");
-
-                            ips.add(new CIDRUtils(cidrString));
-
+                            ips.add(new CIDRUtils(set.getString("cidr_string")));
                         } catch (UnknownHostException e) {
                             AntiVPN.getInstance().getExecutor()
                                     .logException("Could not format ip "
                                             + set.getString("cidr_string") + " into a CIDR!", e);
                         }
                     });
-        } catch (SQLException e) {
-            AntiVPN.getInstance().getExecutor().logException("Could not get all whitelisted ips due to SQL error.", e);
         }
-
         return ips;
     }
 
     @Override
     public void alertsState(UUID uuid, Consumer<Boolean> result) {
-        if(MySQL.isClosed()) return;
-        AntiVPN.getInstance().getExecutor().getThreadExecutor().execute(() -> {
-
-            try(var statement = Query.prepare("select * from `alerts` where `uuid` = ? limit 1")
-                    .append(uuid.toString())) {
-                try(var set = statement.executeQuery()) {
-                    result.accept(set != null && set.next() && set.getString("uuid") != null);
-                }
-            } catch (SQLException e) {
-                AntiVPN.getInstance().getExecutor().logException("There was a problem getting alerts state for " + uuid, e);
-                result.accept(false);
-            }
-        });
+        result.accept(AntiVPN.getInstance().getExecutor().hasAlertsEnabled(uuid));
     }
 
     @Override
     public void updateAlertsState(UUID uuid, boolean enabled) {
+        // Written through to memory first, so the player's next join already sees it.
+        SnapshotSet<UUID> subscribers = AntiVPN.getInstance().getExecutor().getAlertSubscribers();
+        if(enabled) subscribers.add(uuid);
+        else subscribers.remove(uuid);
+
         if(MySQL.isClosed()) return;
 
-        if(enabled) {
-            //We want to make sure there isn't already a uuid inserted to prevent double insertions
-            alertsState(uuid, alreadyEnabled -> { //No need to make another thread execute, already async
-                if(!alreadyEnabled) {
-                    try(var statement = Query.prepare("insert into `alerts` (`uuid`) values (?)")
+        AntiVPN.getInstance().getExecutor().getBlockingExecutor().execute(() -> {
+            //Deleting first so there are never double insertions, removing the uuid disables alerts globally.
+            try(var delete = Query.prepare("delete from `alerts` where `uuid` = ?").append(uuid.toString())) {
+                delete.execute();
+
+                if(enabled) {
+                    try(var insert = Query.prepare("insert into `alerts` (`uuid`) values (?)")
                             .append(uuid.toString())) {
-                        statement.execute();
-                    } catch (SQLException e) {
-                        AntiVPN.getInstance().getExecutor()
-                                .logException("There was a problem updating alerts state for " + uuid, e);
+                        insert.execute();
                     }
-                } //No need to insert again of already enabled
-            });
-            //Removing any uuid from the alerts table will disable alerts globally.
-        } else {
-            try(var statement = Query.prepare("delete from `alerts` where `uuid` = ?").append(uuid.toString())) {
-                        statement.execute();
+                }
+                recordAllowlistChange(AllowlistSync.Kind.ALERTS, uuid.toString(), enabled);
             } catch (SQLException e) {
                 AntiVPN.getInstance().getExecutor().logException("There was a problem updating alerts state for "
                         + uuid, e);
             }
-        }
+        });
     }
 
     @Override
     public void clearResponses() {
         if(MySQL.isClosed()) return;
 
+        WriteBehindBuffer<String, VPNResponse> writes = responseWrites;
+        if(writes != null) {
+            writes.clear();
+        }
+
         try(var statement = Query.prepare("delete from `responses`")) {
             statement.execute();
         } catch (SQLException e) {
@@ -331,6 +544,25 @@ public class H2VPN implements VPNDatabase {
         AntiVPN.getInstance().getExecutor().log("Creating tables...");
 
         //Running check for old table types to update
+
+        loadAllowlist();
+        startResponseWrites();
+        startMaintenance();
+    }
+
+    /**
+     * Loads allowlisted players, ranges and alert subscriptions into memory so logins and joins never have to query
+     * the database for them, then keeps them in sync with the change log.
+     */
+    protected void loadAllowlist() {
+        AllowlistSync sync = new AllowlistSync(this, AntiVPN.getInstance().getExecutor().getWhitelisted(),
+                AntiVPN.getInstance().getExecutor().getWhitelistedIps(),
+                AntiVPN.getInstance().getExecutor().getAlertSubscribers());
+
+        sync.reload();
+        allowlistSync = AntiVPN.getInstance().getExecutor().getThreadExecutor().scheduleWithFixedDelay(() -> {
+            if(!MySQL.isClosed()) sync.sync();
+        }, AllowlistSync.SYNC_INTERVAL_SECONDS, AllowlistSync.SYNC_INTERVAL_SECONDS, TimeUnit.SECONDS);
     }
 
     @Override
@@ -338,6 +570,22 @@ public class H2VPN implements VPNDatabase {
         if (!AntiVPN.getInstance().getVpnConfig().isDatabaseEnabled())
             return;
 
+        for (ScheduledFuture<?> task : new ScheduledFuture<?>[] {maintenance, allowlistSync}) {
+            if(task != null) task.cancel(false);
+        }
+        maintenance = allowlistSync = null;
+
+        // Whatever is still pending gets written before the connections are closed.
+        WriteBehindBuffer<String, VPNResponse> writes = responseWrites;
+        if(writes != null) {
+            responseWrites = null;
+            writes.close();
+        }
+
+        // Compacting closes the database, which is only safe here where nothing else uses it anymore.
+        if(AntiVPN.getInstance().getVpnConfig().isH2CompactOnShutdown()) {
+            compactStore();
+        }
         MySQL.shutdown();
     }
 
@@ -349,9 +597,9 @@ public class H2VPN implements VPNDatabase {
         }
 
         try {
-            var connection = Query.getConn();
-            if (connection == null || connection.getMetaData() == null
-                    || !connection.getMetaData().getDatabaseProductName().equalsIgnoreCase("H2")) {
+            boolean h2 = Query.withConnection(connection -> connection != null && connection.getMetaData() != null
+                    && connection.getMetaData().getDatabaseProductName().equalsIgnoreCase("H2"));
+            if (!h2) {
                 return;
             }
         } catch (SQLException e) {
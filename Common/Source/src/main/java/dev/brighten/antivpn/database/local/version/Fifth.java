@@ -0,0 +1,65 @@
+/*
+ * Copyright 2026 Dawson Hessler
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package dev.brighten.antivpn.database.local.version;
+
+import dev.brighten.antivpn.database.DatabaseException;
+import dev.brighten.antivpn.database.VPNDatabase;
+import dev.brighten.antivpn.database.sql.utils.Query;
+import dev.brighten.antivpn.database.version.Version;
+
+import java.sql.SQLException;
+
+/**
+ * Adds the allowlist change log, see {@link dev.brighten.antivpn.database.AllowlistSync}.
+ */
+public class Fifth extends First implements Version<VPNDatabase> {
+
+    @Override
+    public void update(VPNDatabase database) throws DatabaseException {
+        try {
+            try(var statement = Query.prepare("create table if not exists `allowlist_changes` "
+                    + "(`revision` bigint auto_increment primary key, `kind` varchar(8) not null, "
+                    + "`entry` varchar(64) not null, `added` boolean not null, `changed` timestamp not null)")) {
+                statement.execute();
+            }
+            createIndexIfAbsent("allowlist_changes", "allowlist_changes_changed_1", "`changed`");
+
+            try(var statement = Query.prepare("insert into `database_version` (`version`) values (?)")
+                    .append(versionNumber())) {
+                statement.execute();
+            }
+        } catch (SQLException e) {
+            throw new DatabaseException("Failed to update database to version 4", e);
+        }
+    }
+
+    @Override
+    public int versionNumber() {
+        return 4;
+    }
+
+    @Override
+    public boolean needsUpdate(VPNDatabase database) {
+        try (var statement = Query.prepare("select * from `database_version` where version = 4")) {
+            try(var set = statement.executeQuery()) {
+                return !set.next();
+            }
+        } catch (SQLException e) {
+            return true;
+        }
+    }
+}
@@ -75,12 +75,15 @@ public class First implements Version<VPNDatabase> {
             return;
         }
 
-        closeOnEnd(Query.prepare(String.format(
+        // Closed right away, subclasses call this outside of update() where toClose is never closed.
+        try(var statement = Query.prepare(String.format(
                 "create index `%s` on `%s` (%s)",
                 indexName,
                 tableName,
                 columnList
-        ))).execute();
+        ))) {
+            statement.execute();
+        }
     }
 
     protected void dropIndexIfPresent(String tableName, String indexName) throws SQLException {
@@ -88,27 +91,31 @@ public class First implements Version<VPNDatabase> {
             return;
         }
 
-        closeOnEnd(Query.prepare(String.format(
+        try(var statement = Query.prepare(String.format(
                 "drop index `%s` on `%s`",
                 indexName,
                 tableName
-        ))).execute();
+        ))) {
+            statement.execute();
+        }
     }
 
     protected boolean hasIndex(String tableName, String indexName) throws SQLException {
-        DatabaseMetaData metaData = Query.getConn().getMetaData();
+        return Query.withConnection(connection -> {
+            DatabaseMetaData metaData = connection.getMetaData();
 
-        try (ResultSet indexes = metaData.getIndexInfo(null, null, tableName, false, false)) {
-            while (indexes.next()) {
-                String existingIndexName = indexes.getString("INDEX_NAME");
+            try (ResultSet indexes = metaData.getIndexInfo(null, null, tableName, false, false)) {
+                while (indexes.next()) {
+                    String existingIndexName = indexes.getString("INDEX_NAME");
 
-                if (existingIndexName != null && existingIndexName.equalsIgnoreCase(indexName)) {
-                    return true;
+                    if (existingIndexName != null && existingIndexName.equalsIgnoreCase(indexName)) {
+                        return true;
+                    }
                 }
             }
-        }
 
-        return false;
+            return false;
+        });
     }
 
     @Override
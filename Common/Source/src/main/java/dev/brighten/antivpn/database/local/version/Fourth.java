@@ -0,0 +1,127 @@
+/*
+ * Copyright 2026 Dawson Hessler
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package dev.brighten.antivpn.database.local.version;
+
+import dev.brighten.antivpn.AntiVPN;
+import dev.brighten.antivpn.database.DatabaseException;
+import dev.brighten.antivpn.database.VPNDatabase;
+import dev.brighten.antivpn.database.local.H2VPN;
+import dev.brighten.antivpn.database.sql.utils.Query;
+import dev.brighten.antivpn.database.version.Version;
+import dev.brighten.antivpn.utils.IpAddress;
+
+import java.sql.SQLException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Rebuilds {@code responses} with the IP as a unique binary key, so every IP has at most one row, writes can
+ * upsert it and lookups are a primary key seek no matter how large the cache grows.
+ * <p>
+ * Rows are copied oldest first with the new upsert, so duplicates collapse into the newest response. Rows whose IP
+ * is not an address literal could never be looked up and are dropped.
+ */
+public class Fourth extends First implements Version<VPNDatabase> {
+
+    private static final int COPY_BATCH_SIZE = 500;
+
+    @Override
+    public void update(VPNDatabase database) throws DatabaseException {
+        H2VPN sqlDatabase = (H2VPN) database;
+        AtomicInteger copied = new AtomicInteger(), skipped = new AtomicInteger();
+
+        try {
+            // Left over from an update that was interrupted before the tables were swapped.
+            try(var statement = Query.prepare("drop table if exists `responses_new`")) {
+                statement.execute();
+            }
+            try(var statement = Query.prepare("create table `responses_new` (`ip` varbinary(16) not null primary key, "
+                    + "`asn` varchar(12), `countryName` text, `countryCode` varchar(10), `city` text, "
+                    + "`timeZone` varchar(64), `method` varchar(32), `isp` text, `proxy` boolean, `cached` boolean, "
+                    + "`inserted` timestamp, `latitude` double, `longitude` double)")) {
+                statement.execute();
+            }
+
+            AntiVPN.getInstance().getExecutor().log("Moving cached responses to the new format...");
+            try(var select = Query.prepare("select `ip`, `asn`, `countryName`, `countryCode`, `city`, `timeZone`, "
+                    + "`method`, `isp`, `proxy`, `cached`, `inserted`, `latitude`, `longitude` from `responses` "
+                    + "order by `inserted`");
+                var upsert = Query.prepare(sqlDatabase.responseUpsertSql("responses_new"))) {
+                select.execute(set -> {
+                    IpAddress ip = IpAddress.tryParse(set.getString("ip"));
+
+                    if(ip == null) {
+                        skipped.incrementAndGet();
+                        return;
+                    }
+
+                    upsert.append(ip.toBytes()).append(set.getString("asn")).append(set.getString("countryName"))
+                            .append(set.getString("countryCode")).append(set.getString("city"))
+                            .append(set.getString("timeZone")).append(set.getString("method"))
+                            .append(set.getString("isp")).append(set.getBoolean("proxy"))
+                            .append(set.getBoolean("cached")).append(set.getTimestamp("inserted"))
+                            .append(set.getDouble("latitude")).append(set.getDouble("longitude"))
+                            .addBatch();
+
+                    if(copied.incrementAndGet() % COPY_BATCH_SIZE == 0) {
+                        upsert.executeBatch();
+                    }
+                });
+                upsert.executeBatch();
+            }
+
+            // Takes the old indexes with it, their names are free again for the renamed table.
+            try(var statement = Query.prepare("drop table `responses`")) {
+                statement.execute();
+            }
+            try(var statement = Query.prepare("alter table `responses_new` rename to `responses`")) {
+                statement.execute();
+            }
+            createIndexIfAbsent("responses", "responses_inserted_1", "`inserted`");
+
+            try(var statement = Query.prepare("insert into `database_version` (`version`) values (?)")
+                    .append(versionNumber())) {
+                statement.execute();
+            }
+        } catch (SQLException e) {
+            try(var statement = Query.prepare("drop table if exists `responses_new`")) {
+                statement.execute();
+            } catch (SQLException ex) {
+                e.addSuppressed(ex);
+            }
+            throw new DatabaseException("Failed to update database to version 3", e);
+        }
+
+        AntiVPN.getInstance().getExecutor().log("Moved %s cached responses, dropped %s without a valid IP.",
+                copied.get(), skipped.get());
+    }
+
+    @Override
+    public int versionNumber() {
+        return 3;
+    }
+
+    @Override
+    public boolean needsUpdate(VPNDatabase database) {
+        try (var statement = Query.prepare("select * from `database_version` where version = 3")) {
+            try(var set = statement.executeQuery()) {
+                return !set.next();
+            }
+        } catch (SQLException e) {
+            return true;
+        }
+    }
+}
@@ -68,7 +68,7 @@ public class Second extends First implements Version<VPNDatabase> {
                     throw new RuntimeException("Could not format ip " + ip + " into a CIDR!", e);
                 }
             }).toList();
-            var insertStatement = Query.prepare("INSERT INTO `whitelisted-ranges` (`cidr_string`, `ip_start`, `ip_end`) VALUES (?, ?, ?)");
+            var insertStatement = closeOnEnd(Query.prepare("INSERT INTO `whitelisted-ranges` (`cidr_string`, `ip_start`, `ip_end`) VALUES (?, ?, ?)"));
             for (CIDRUtils cidr : cidrs) {
                 insertStatement = insertStatement
                         .append(cidr.toString())
@@ -37,20 +37,22 @@ public class Third implements Version<VPNDatabase> {
         List<CIDRUtils> ipRanges = new ArrayList<>();
         List<CIDRUtils> rangesToInsert = new ArrayList<>();
         List<BigInteger[]> rangesToRemove = new ArrayList<>(); 
-        try (var preparedQuery = Query.prepare("select ip_start, ip_end from `whitelisted-ranges`")) {
+        try (var preparedQuery = Query.prepare("select cidr_string, ip_start, ip_end from `whitelisted-ranges`")) {
             preparedQuery.execute(set -> {
+                String cidr = set.getString("cidr_string");
                 BigInteger start = set.getBigDecimal("ip_start").toBigInteger();
                 BigInteger end = set.getBigDecimal("ip_end").toBigInteger();
 
                 try {
-                    var range = MiscUtils.rangeToCidrs(start, end);
+                    // The numbers alone cannot tell a low IPv6 range from an IPv4 one, the stored CIDR can.
+                    var range = MiscUtils.rangeToCidrs(start, end, cidr == null || new CIDRUtils(cidr).isIpv4());
 
                     if(range.size() > 1) {
                         rangesToRemove.add(new BigInteger[]{start, end});
                         rangesToInsert.addAll(range);
                         AntiVPN.getInstance().getExecutor().log(Level.WARNING, "Found multiple CIDR ranges for whitelist range for %s, %s!", start, end);
                     } else ipRanges.addAll(range);
-                } catch (UnknownHostException e) {
+                } catch (IllegalArgumentException | UnknownHostException e) {
                     AntiVPN.getInstance().getExecutor().logException(
                             String.format("Could not convert ip range to CIDR! %s, %s", start, end), e);
                 }
@@ -23,12 +23,23 @@ import com.mongodb.client.MongoClient;
 import com.mongodb.client.MongoClients;
 import com.mongodb.client.MongoCollection;
 import com.mongodb.client.MongoDatabase;
+import com.mongodb.client.model.BulkWriteOptions;
 import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.FindOneAndUpdateOptions;
+import com.mongodb.client.model.IndexOptions;
+import com.mongodb.client.model.Indexes;
+import com.mongodb.client.model.ReturnDocument;
+import com.mongodb.client.model.Sorts;
+import com.mongodb.client.model.UpdateOneModel;
 import com.mongodb.client.model.UpdateOptions;
+import com.mongodb.client.model.Updates;
 import dev.brighten.antivpn.AntiVPN;
+import dev.brighten.antivpn.database.AllowlistSync;
 import dev.brighten.antivpn.database.VPNDatabase;
+import dev.brighten.antivpn.database.WriteBehindBuffer;
 import dev.brighten.antivpn.database.version.Version;
 import dev.brighten.antivpn.utils.CIDRUtils;
+import dev.brighten.antivpn.utils.SnapshotSet;
 import dev.brighten.antivpn.web.objects.VPNResponse;
 import org.bson.Document;
 import org.bson.conversions.Bson;
@@ -36,42 +47,40 @@ import org.bson.types.Decimal128;
 
 import java.math.BigDecimal;
 import java.net.UnknownHostException;
+import java.time.Duration;
 import java.util.*;
+import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
 import java.util.function.Consumer;
 
-public class MongoVPN implements VPNDatabase {
+public class MongoVPN implements VPNDatabase, AllowlistSync.ChangeLog {
 
     public MongoCollection<Document> settingsDocument;
-    MongoCollection<Document> cacheDocument;
+    public MongoCollection<Document> cacheDocument;
+    public MongoCollection<Document> allowlistChanges;
     private MongoClient client;
     public MongoDatabase antivpnDatabase;
+    private static final String RESPONSE_TTL_INDEX = "inserted_ttl";
 
-    public MongoVPN() {
-        AntiVPN.getInstance().getExecutor().getThreadExecutor().scheduleAtFixedRate(() -> {
-            if(!AntiVPN.getInstance().getVpnConfig().isDatabaseEnabled()) return;
+    private volatile WriteBehindBuffer<String, VPNResponse> responseWrites;
+    private volatile ScheduledFuture<?> allowlistSync;
 
-            //Refreshing whitelisted players
-            AntiVPN.getInstance().getExecutor().getWhitelisted().clear();
-            AntiVPN.getInstance().getExecutor().getWhitelisted()
-                    .addAll(AntiVPN.getInstance().getDatabase().getAllWhitelisted());
-
-            //Refreshing whitlisted IPs
-            AntiVPN.getInstance().getExecutor().getWhitelistedIps().clear();
-            AntiVPN.getInstance().getExecutor().getWhitelistedIps()
-                    .addAll(AntiVPN.getInstance().getDatabase().getAllWhitelistedIps());
-        }, 2, 30, TimeUnit.SECONDS);
-    }
     @Override
     public Optional<VPNResponse> getStoredResponse(String ip) {
+        WriteBehindBuffer<String, VPNResponse> writes = responseWrites;
+        VPNResponse pending = writes != null ? writes.getPending(ip) : null;
+        if(pending != null) {
+            return Optional.of(pending);
+        }
+
         Document rdoc = cacheDocument.find(Filters.eq("ip", ip)).first();
 
         if(rdoc != null) {
             long lastUpdate = rdoc.get("lastAccess", 0L);
 
-            if(System.currentTimeMillis() - lastUpdate > TimeUnit.HOURS.toMillis(1)) {
-                AntiVPN.getInstance().getExecutor().getThreadExecutor().execute(() -> deleteResponse(ip));
-                return null;
+            // The TTL index removes expired responses within a minute or so, until then they are skipped.
+            if(System.currentTimeMillis() - lastUpdate > responseTtlMillis()) {
+                return Optional.empty();
             }
 
             return Optional.of(VPNResponse.builder().asn(rdoc.getString("asn")).ip(ip)
@@ -95,6 +104,31 @@ public class MongoVPN implements VPNDatabase {
     @Override
     public void cacheResponse(VPNResponse toCache) {
         if(AntiVPN.getInstance().getVpnConfig().cachedResults()) {
+            WriteBehindBuffer<String, VPNResponse> writes = responseWrites;
+
+            if(writes != null) {
+                writes.add(toCache);
+            } else {
+                AntiVPN.getInstance().getExecutor().getBlockingExecutor()
+                        .execute(() -> writeResponses(Collections.singletonList(toCache)));
+            }
+        }
+    }
+
+    /**
+     * Upserts the responses with a single unordered bulk write.
+     *
+     * @param responses List of VPNResponse
+     */
+    private void writeResponses(List<VPNResponse> responses) {
+        MongoCollection<Document> collection = cacheDocument;
+        if(collection == null) return;
+
+        long now = System.currentTimeMillis();
+        List<UpdateOneModel<Document>> updates = new ArrayList<>(responses.size());
+        UpdateOptions upsert = new UpdateOptions().upsert(true);
+
+        for (VPNResponse toCache : responses) {
             Document rdoc = new Document("ip", toCache.getIp());
 
             rdoc.put("asn", toCache.getAsn());
@@ -109,18 +143,24 @@ public class MongoVPN implements VPNDatabase {
             rdoc.put("success", toCache.isSuccess());
             rdoc.put("latitude", toCache.getLatitude());
             rdoc.put("longitude", toCache.getLongitude());
-            rdoc.put("lastAccess", System.currentTimeMillis());
+            rdoc.put("lastAccess", now);
+            rdoc.put("inserted", new Date(now));
 
-            AntiVPN.getInstance().getExecutor().getThreadExecutor().execute(() -> {
-                Bson update = new Document("$set", rdoc);
-                cacheDocument.updateOne(Filters.eq("ip", toCache.getIp()), update,
-                        new UpdateOptions().upsert(true));
-            });
+            Bson update = new Document("$set", rdoc);
+            updates.add(new UpdateOneModel<>(Filters.eq("ip", toCache.getIp()), update, upsert));
         }
+
+        // Unordered, so one failing upsert does not hold back the rest of the batch.
+        collection.bulkWrite(updates, new BulkWriteOptions().ordered(false));
     }
 
     @Override
     public void deleteResponse(String ip) {
+        // Dropped first, so a batch written later cannot bring the response back.
+        WriteBehindBuffer<String, VPNResponse> writes = responseWrites;
+        if(writes != null) {
+            writes.remove(ip);
+        }
         cacheDocument.deleteMany(Filters.eq("ip", ip));
     }
 
@@ -153,17 +193,19 @@ public class MongoVPN implements VPNDatabase {
     public void addWhitelist(UUID uuid) {
         Document wdoc = new Document("setting", "whitelist");
         wdoc.put("uuid", uuid.toString());
-        AntiVPN.getInstance().getExecutor().getWhitelisted().add(uuid);
         settingsDocument.insertOne(wdoc);
+        AntiVPN.getInstance().getExecutor().getWhitelisted().add(uuid);
+        recordAllowlistChange(AllowlistSync.Kind.PLAYER, uuid.toString(), true);
     }
 
     @Override
     public void removeWhitelist(UUID uuid) {
-        AntiVPN.getInstance().getExecutor().getWhitelisted().remove(uuid);
         settingsDocument.deleteMany(Filters
                 .and(
                         Filters.eq("setting", "whitelist"),
                         Filters.eq("uuid", uuid.toString())));
+        AntiVPN.getInstance().getExecutor().getWhitelisted().remove(uuid);
+        recordAllowlistChange(AllowlistSync.Kind.PLAYER, uuid.toString(), false);
     }
 
     @Override
@@ -174,6 +216,8 @@ public class MongoVPN implements VPNDatabase {
         doc.append("cidr_string", cidr.getCidr());
 
         settingsDocument.insertOne(doc);
+        AntiVPN.getInstance().getExecutor().getWhitelistedIps().add(cidr);
+        recordAllowlistChange(AllowlistSync.Kind.RANGE, cidr.getCidr(), true);
     }
 
     @Override
@@ -183,10 +227,65 @@ public class MongoVPN implements VPNDatabase {
                         Filters.eq("setting", "whitelist"),
                         Filters.eq("ip_start", new Decimal128(new BigDecimal(cidr.getStartIpInt()))),
                         Filters.eq("ip_end", new Decimal128(new BigDecimal(cidr.getEndIpInt())))));
+        AntiVPN.getInstance().getExecutor().getWhitelistedIps().remove(cidr);
+        recordAllowlistChange(AllowlistSync.Kind.RANGE, cidr.getCidr(), false);
+    }
+
+    /**
+     * Appends the mutation to the change log other servers sync from, see {@link AllowlistSync}.
+     *
+     * @param kind AllowlistSync.Kind
+     * @param entry String
+     * @param added boolean
+     */
+    private void recordAllowlistChange(AllowlistSync.Kind kind, String entry, boolean added) {
+        try {
+            Document counter = antivpnDatabase.getCollection("counters").findOneAndUpdate(
+                    Filters.eq("_id", "allowlist"), Updates.inc("revision", 1L),
+                    new FindOneAndUpdateOptions().upsert(true).returnDocument(ReturnDocument.AFTER));
+
+            allowlistChanges.insertOne(new Document("revision", counter.get("revision", Number.class).longValue())
+                    .append("kind", kind.name())
+                    .append("entry", entry)
+                    .append("added", added)
+                    .append("changed", new Date()));
+        } catch (MongoException e) {
+            AntiVPN.getInstance().getExecutor().logException("Could not record allowlist change for '" + entry
+                    + "', other servers only see it after their next restart.", e);
+        }
     }
 
     @Override
     public List<UUID> getAllWhitelisted() {
+        return allPlayers();
+    }
+
+    @Override
+    public List<CIDRUtils> getAllWhitelistedIps() {
+        return allRanges();
+    }
+
+    @Override
+    public long latestRevision() {
+        Document counter = antivpnDatabase.getCollection("counters").find(Filters.eq("_id", "allowlist")).first();
+
+        return counter != null ? counter.get("revision", Number.class).longValue() : 0;
+    }
+
+    @Override
+    public List<AllowlistSync.Change> changesSince(long revision, int limit) {
+        List<AllowlistSync.Change> changes = new ArrayList<>();
+
+        allowlistChanges.find(Filters.gt("revision", revision)).sort(Sorts.ascending("revision")).limit(limit)
+                .forEach((Consumer<? super Document>) doc -> changes.add(new AllowlistSync.Change(
+                        doc.get("revision", Number.class).longValue(),
+                        AllowlistSync.Kind.valueOf(doc.getString("kind")), doc.getString("entry"),
+                        doc.getBoolean("added"))));
+        return changes;
+    }
+
+    @Override
+    public List<UUID> allPlayers() {
         List<UUID> uuids = new ArrayList<>();
         settingsDocument.find(Filters.and(Filters.eq("setting", "whitelist"),
                 Filters.exists("uuid")))
@@ -195,7 +294,15 @@ public class MongoVPN implements VPNDatabase {
     }
 
     @Override
-    public List<CIDRUtils> getAllWhitelistedIps() {
+    public List<UUID> allAlerts() {
+        List<UUID> uuids = new ArrayList<>();
+        settingsDocument.find(Filters.and(Filters.eq("setting", "alerts"), Filters.exists("uuid")))
+                .forEach((Consumer<? super Document>) doc -> uuids.add(UUID.fromString(doc.getString("uuid"))));
+        return uuids;
+    }
+
+    @Override
+    public List<CIDRUtils> allRanges() {
         List<CIDRUtils> ips = new ArrayList<>();
         settingsDocument.find(Filters.and(Filters.eq("setting", "whitelist"),
                         Filters.exists("cidr_string"))).forEach((Consumer<? super Document>) doc -> {
@@ -211,14 +318,17 @@ public class MongoVPN implements VPNDatabase {
 
     @Override
     public void alertsState(UUID uuid, Consumer<Boolean> result) {
-        AntiVPN.getInstance().getExecutor().getThreadExecutor().execute(() -> result.accept(settingsDocument
-                .find(Filters.and(Filters.eq("setting", "alerts"),
-                Filters.eq("uuid", uuid.toString()))).first() != null));
+        result.accept(AntiVPN.getInstance().getExecutor().hasAlertsEnabled(uuid));
     }
 
     @Override
     public void updateAlertsState(UUID uuid, boolean state) {
-        AntiVPN.getInstance().getExecutor().getThreadExecutor().execute(() -> {
+        // Written through to memory first, so the player's next join already sees it.
+        SnapshotSet<UUID> subscribers = AntiVPN.getInstance().getExecutor().getAlertSubscribers();
+        if(state) subscribers.add(uuid);
+        else subscribers.remove(uuid);
+
+        AntiVPN.getInstance().getExecutor().getBlockingExecutor().execute(() -> {
             settingsDocument.deleteMany(Filters.and(Filters.eq("setting", "alerts"),
                     Filters.eq("uuid", uuid.toString())));
             if(state) {
@@ -227,11 +337,16 @@ public class MongoVPN implements VPNDatabase {
                 adoc.put("uuid", uuid.toString());
                 settingsDocument.insertOne(adoc);
             }
+            recordAllowlistChange(AllowlistSync.Kind.ALERTS, uuid.toString(), state);
         });
     }
 
     @Override
     public void clearResponses() {
+        WriteBehindBuffer<String, VPNResponse> writes = responseWrites;
+        if(writes != null) {
+            writes.clear();
+        }
         cacheDocument.deleteMany(Filters.exists("ip"));
     }
 
@@ -264,17 +379,79 @@ public class MongoVPN implements VPNDatabase {
 
         cacheDocument = antivpnDatabase.getCollection("cache");
 
+        allowlistChanges = antivpnDatabase.getCollection("allowlist_changes");
+
         for (Version<MongoVPN> mongoDbVersion : Version.mongoDbVersions) {
             if(mongoDbVersion.needsUpdate(this)) {
                 mongoDbVersion.update(this);
             }
         }
+
+        // Loading allowlisted players, ranges and alert subscriptions into memory so logins and joins never have
+        // to query for them.
+        AllowlistSync sync = new AllowlistSync(this, AntiVPN.getInstance().getExecutor().getWhitelisted(),
+                AntiVPN.getInstance().getExecutor().getWhitelistedIps(),
+                AntiVPN.getInstance().getExecutor().getAlertSubscribers());
+
+        sync.reload();
+        allowlistSync = AntiVPN.getInstance().getExecutor().getThreadExecutor().scheduleWithFixedDelay(sync::sync,
+                AllowlistSync.SYNC_INTERVAL_SECONDS, AllowlistSync.SYNC_INTERVAL_SECONDS, TimeUnit.SECONDS);
+
+        ensureResponseTtlIndex();
+
+        int maxBatchSize = AntiVPN.getInstance().getVpnConfig().getWriteBehindMaxBatchSize();
+        int flushInterval = AntiVPN.getInstance().getVpnConfig().getWriteBehindFlushInterval();
+
+        responseWrites = new WriteBehindBuffer<>(maxBatchSize > 0 ? maxBatchSize : 100,
+                Duration.ofMillis(flushInterval > 0 ? flushInterval : 500),
+                AntiVPN.getInstance().getExecutor().getThreadExecutor(),
+                task -> AntiVPN.getInstance().getExecutor().getBlockingExecutor().execute(task),
+                VPNResponse::getIp, this::writeResponses);
+    }
+
+    /**
+     * Creates the TTL index removing expired responses, or replaces it if the configured TTL changed.
+     */
+    private void ensureResponseTtlIndex() {
+        long ttlSeconds = TimeUnit.MILLISECONDS.toSeconds(responseTtlMillis());
+
+        for (Document index : cacheDocument.listIndexes()) {
+            if(!RESPONSE_TTL_INDEX.equals(index.getString("name"))) continue;
+
+            Number expireAfter = index.get("expireAfterSeconds", Number.class);
+            if(expireAfter != null && expireAfter.longValue() == ttlSeconds) return;
+
+            cacheDocument.dropIndex(RESPONSE_TTL_INDEX);
+            break;
+        }
+
+        cacheDocument.createIndex(Indexes.ascending("inserted"),
+                new IndexOptions().name(RESPONSE_TTL_INDEX).expireAfter(ttlSeconds, TimeUnit.SECONDS));
+    }
+
+    private static long responseTtlMillis() {
+        int ttl = AntiVPN.getInstance().getVpnConfig().getResponseTtl();
+
+        return TimeUnit.MINUTES.toMillis(ttl > 0 ? ttl : 60);
     }
 
     @Override
     public void shutdown() {
+        ScheduledFuture<?> sync = allowlistSync;
+        if(sync != null) {
+            allowlistSync = null;
+            sync.cancel(false);
+        }
+
+        // Whatever is still pending gets written before the client is closed.
+        WriteBehindBuffer<String, VPNResponse> writes = responseWrites;
+        if(writes != null) {
+            responseWrites = null;
+            writes.close();
+        }
         settingsDocument = null;
         cacheDocument = null;
+        allowlistChanges = null;
         client.close();
     }
 }
@@ -0,0 +1,57 @@
+/*
+ * Copyright 2026 Dawson Hessler
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package dev.brighten.antivpn.database.mongo.version;
+
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.IndexOptions;
+import com.mongodb.client.model.Indexes;
+import dev.brighten.antivpn.database.AllowlistSync;
+import dev.brighten.antivpn.database.DatabaseException;
+import dev.brighten.antivpn.database.mongo.MongoVPN;
+import dev.brighten.antivpn.database.version.Version;
+import org.bson.Document;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Indexes the allowlist change log, see {@link AllowlistSync}. Changes are read by revision and expire on their
+ * own once no server could still need them.
+ */
+public class MongoFifth implements Version<MongoVPN> {
+
+    @Override
+    public void update(MongoVPN database) throws DatabaseException {
+        database.allowlistChanges.createIndex(Indexes.ascending("revision"), new IndexOptions().unique(true));
+        database.allowlistChanges.createIndex(Indexes.ascending("changed"), new IndexOptions()
+                .expireAfter(AllowlistSync.CHANGE_RETENTION_MILLIS, TimeUnit.MILLISECONDS));
+
+        var versionCollect = database.antivpnDatabase.getCollection("version");
+        versionCollect.insertOne(new Document("version", versionNumber()));
+    }
+
+    @Override
+    public int versionNumber() {
+        return 4;
+    }
+
+    @Override
+    public boolean needsUpdate(MongoVPN database) {
+        var versionCollect = database.antivpnDatabase.getCollection("version");
+
+        return versionCollect.find(Filters.eq("version", versionNumber())).first() == null;
+    }
+}
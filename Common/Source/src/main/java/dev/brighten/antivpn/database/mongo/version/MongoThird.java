@@ -42,18 +42,20 @@ public class MongoThird  implements Version<MongoVPN> {
         List<BigInteger[]> rangesToRemove = new ArrayList<>();
         database.settingsDocument.find(Filters.and(Filters.eq("setting", "whitelist"), Filters.exists("cidr_string")))
                 .forEach((Consumer<? super Document>) doc -> {
+                    String cidr = doc.getString("cidr_string");
                     BigInteger start = doc.get("ip_start", Decimal128.class).bigDecimalValue().toBigInteger();
                     BigInteger end = doc.get("ip_end", Decimal128.class).bigDecimalValue().toBigInteger();
 
                     try {
-                        var range = MiscUtils.rangeToCidrs(start, end);
+                        // The numbers alone cannot tell a low IPv6 range from an IPv4 one, the stored CIDR can.
+                        var range = MiscUtils.rangeToCidrs(start, end, cidr == null || new CIDRUtils(cidr).isIpv4());
 
                         if(range.size() > 1) {
                             rangesToRemove.add(new BigInteger[]{start, end});
                             rangesToInsert.addAll(range);
                             AntiVPN.getInstance().getExecutor().log(Level.WARNING, "Found multiple CIDR ranges for whitelist range for %s, %s!", start, end);
                         } else ipRanges.addAll(range);
-                    } catch (UnknownHostException e) {
+                    } catch (IllegalArgumentException | UnknownHostException e) {
                         AntiVPN.getInstance().getExecutor().logException(
                                 String.format("Could not convert ip range to CIDR! %s, %s", start, end), e);
                     }
@@ -21,24 +21,31 @@ import dev.brighten.antivpn.database.local.H2VPN;
 import dev.brighten.antivpn.database.sql.utils.MySQL;
 import dev.brighten.antivpn.database.version.Version;
 
+import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
 
 public class MySqlVPN extends H2VPN {
 
-    public MySqlVPN() {
-        AntiVPN.getInstance().getExecutor().getThreadExecutor().scheduleAtFixedRate(() -> {
-            if(!AntiVPN.getInstance().getVpnConfig().isDatabaseEnabled() || MySQL.isClosed()) return;
+    private volatile ScheduledFuture<?> poolMaintenance;
 
-            //Refreshing whitelisted players
-            AntiVPN.getInstance().getExecutor().getWhitelisted().clear();
-            AntiVPN.getInstance().getExecutor().getWhitelisted()
-                    .addAll(AntiVPN.getInstance().getDatabase().getAllWhitelisted());
+    @Override
+    public String responseUpsertSql(String table) {
+        return "insert into `" + table + "` (" + RESPONSE_COLUMNS + ") values (?,?,?,?,?,?,?,?,?,?,?,?,?) "
+                + "on duplicate key update `asn` = values(`asn`), `countryName` = values(`countryName`), "
+                + "`countryCode` = values(`countryCode`), `city` = values(`city`), `timeZone` = values(`timeZone`), "
+                + "`method` = values(`method`), `isp` = values(`isp`), `proxy` = values(`proxy`), "
+                + "`cached` = values(`cached`), `inserted` = values(`inserted`), `latitude` = values(`latitude`), "
+                + "`longitude` = values(`longitude`)";
+    }
+
+    @Override
+    protected String responsePurgeSql() {
+        return "delete from `responses` where `inserted` < ? limit ?";
+    }
 
-            //Refreshing whitlisted IPs
-            AntiVPN.getInstance().getExecutor().getWhitelistedIps().clear();
-            AntiVPN.getInstance().getExecutor().getWhitelistedIps()
-                    .addAll(AntiVPN.getInstance().getDatabase().getAllWhitelistedIps());
-        }, 2, 30, TimeUnit.SECONDS);
+    @Override
+    protected void compactStore() {
+        // InnoDB reuses the pages of deleted rows, there is no file to shrink.
     }
 
     @Override
@@ -47,6 +54,8 @@ public class MySqlVPN extends H2VPN {
             return;
         AntiVPN.getInstance().getExecutor().log("Initializing MySQL...");
         MySQL.init();
+        poolMaintenance = AntiVPN.getInstance().getExecutor().getThreadExecutor()
+                .scheduleAtFixedRate(MySQL::maintainPool, 30, 30, TimeUnit.SECONDS);
 
         AntiVPN.getInstance().getExecutor().log("Checking for updates...");
 
@@ -60,5 +69,20 @@ public class MySqlVPN extends H2VPN {
         } catch (Exception e) {
             throw new RuntimeException("Could not complete version setup due to SQL error", e);
         }
+
+        loadAllowlist();
+        startResponseWrites();
+        startMaintenance();
+    }
+
+    @Override
+    public void shutdown() {
+        ScheduledFuture<?> task = poolMaintenance;
+        if(task != null) {
+            task.cancel(false);
+            poolMaintenance = null;
+        }
+
+        super.shutdown();
     }
 }
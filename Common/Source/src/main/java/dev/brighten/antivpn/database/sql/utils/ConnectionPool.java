@@ -0,0 +1,291 @@
+/*
+ * Copyright 2026 Dawson Hessler
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package dev.brighten.antivpn.database.sql.utils;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.time.Duration;
+import java.util.Deque;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * A small pool of JDBC connections, so one slow query no longer holds up every other database call.
+ * <p>
+ * At most {@code maximumSize} connections are borrowed at once, further callers wait up to the borrow timeout.
+ * Connections that sat idle for a while are validated before they are handed out, and {@link #evictIdle()} closes
+ * the ones idle past the idle timeout while keeping {@code minimumIdle} open.
+ * <p>
+ * Borrowing is reentrant per thread: a thread that already holds a connection gets the same one back until it
+ * released it as often as it borrowed it. Nested queries, such as one run while iterating the results of another,
+ * therefore share a connection just like they did before pooling and cannot deadlock a full pool.
+ */
+public class ConnectionPool implements AutoCloseable {
+
+    // Connections used within this window are assumed healthy, checking every borrow would double the round trips.
+    private static final long VALIDATE_AFTER_IDLE_NANOS = TimeUnit.MILLISECONDS.toNanos(500);
+    private static final int VALIDATION_TIMEOUT_SECONDS = 2;
+
+    private final ConnectionFactory factory;
+    private final int minimumIdle, maximumSize;
+    private final long idleTimeoutNanos, borrowTimeoutNanos;
+    private final Semaphore permits;
+    // Most recently returned first, so the busy connections stay warm and the tail is what eviction closes.
+    private final Deque<IdleConnection> idle = new ConcurrentLinkedDeque<>();
+    private final AtomicInteger total = new AtomicInteger();
+    private final ThreadLocal<Lease> leases = new ThreadLocal<>();
+    private volatile Consumer<Connection> discardListener = connection -> {};
+    private volatile boolean closed;
+
+    /**
+     * @param factory opens a new connection
+     * @param minimumIdle connections kept open even when idle
+     * @param maximumSize connections that can be borrowed at the same time
+     * @param idleTimeout Duration after which idle connections above the minimum are closed
+     * @param borrowTimeout Duration to wait for a connection before giving up
+     */
+    public ConnectionPool(ConnectionFactory factory, int minimumIdle, int maximumSize, Duration idleTimeout,
+                          Duration borrowTimeout) {
+        if(maximumSize < 1 || minimumIdle < 0 || minimumIdle > maximumSize) {
+            throw new IllegalArgumentException("Invalid pool size, minimumIdle=" + minimumIdle
+                    + " maximumSize=" + maximumSize);
+        }
+        this.factory = factory;
+        this.minimumIdle = minimumIdle;
+        this.maximumSize = maximumSize;
+        this.idleTimeoutNanos = idleTimeout.toNanos();
+        this.borrowTimeoutNanos = borrowTimeout.toNanos();
+        this.permits = new Semaphore(maximumSize, true);
+    }
+
+    /**
+     * Borrows a connection, which must be handed back to {@link #release(Connection)} on the same thread.
+     *
+     * @return Connection
+     * @throws SQLException if the pool is closed, no connection freed up in time, or opening one failed
+     */
+    public Connection borrow() throws SQLException {
+        Lease lease = leases.get();
+        if(lease != null) {
+            lease.depth++;
+            return lease.connection;
+        }
+
+        if(closed) throw new SQLException("Connection pool is closed");
+
+        try {
+            if(!permits.tryAcquire(borrowTimeoutNanos, TimeUnit.NANOSECONDS)) {
+                throw new SQLTransientConnectionException("Timed out after "
+                        + TimeUnit.NANOSECONDS.toMillis(borrowTimeoutNanos) + "ms waiting for a database connection, "
+                        + "all " + maximumSize + " are in use");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a database connection", e);
+        }
+
+        try {
+            Connection connection = takeIdle();
+            if(connection == null) {
+                connection = create();
+            }
+
+            leases.set(new Lease(connection));
+            return connection;
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    /**
+     * Hands a connection from {@link #borrow()} back. Broken connections are closed instead of reused.
+     *
+     * @param connection Connection
+     */
+    public void release(Connection connection) {
+        Lease lease = leases.get();
+        if(lease == null || lease.connection != connection) {
+            throw new IllegalStateException("Connection was not borrowed from this pool by the current thread");
+        }
+        if(--lease.depth > 0) return;
+
+        leases.remove();
+        try {
+            if(closed || connection.isClosed()) {
+                discard(connection);
+                return;
+            }
+
+            // Never let a half finished transaction leak into the next borrower.
+            if(!connection.getAutoCommit()) {
+                connection.rollback();
+                connection.setAutoCommit(true);
+            }
+            idle.addFirst(new IdleConnection(connection, System.nanoTime()));
+
+            if(closed) {
+                closeIdle();
+            }
+        } catch (SQLException e) {
+            discard(connection);
+        } finally {
+            permits.release();
+        }
+    }
+
+    /**
+     * Closes connections idle past the idle timeout, down to the minimum, then opens connections until the
+     * minimum is reached again. Meant to be called periodically.
+     *
+     * @throws SQLException if a new connection could not be opened
+     */
+    public void evictIdle() throws SQLException {
+        long now = System.nanoTime();
+
+        while (idle.size() > minimumIdle) {
+            IdleConnection oldest = idle.peekLast();
+
+            if(oldest == null || now - oldest.since() < idleTimeoutNanos) break;
+            if(idle.removeLastOccurrence(oldest)) {
+                discard(oldest.connection());
+            }
+        }
+
+        while (!closed && total.get() < minimumIdle) {
+            idle.addLast(new IdleConnection(create(), now));
+        }
+    }
+
+    /**
+     * @return connections currently open, borrowed or idle
+     */
+    public int getTotal() {
+        return total.get();
+    }
+
+    /**
+     * @return connections currently borrowed
+     */
+    public int getActive() {
+        return maximumSize - permits.availablePermits();
+    }
+
+    public int getIdle() {
+        return idle.size();
+    }
+
+    public boolean isClosed() {
+        return closed;
+    }
+
+    /**
+     * @param discardListener Consumer called right before a connection is closed for good
+     */
+    public void setDiscardListener(Consumer<Connection> discardListener) {
+        this.discardListener = discardListener;
+    }
+
+    /**
+     * Closes every idle connection. Borrowed connections are closed as they are released.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        closeIdle();
+    }
+
+    private Connection takeIdle() {
+        IdleConnection candidate;
+
+        while ((candidate = idle.pollFirst()) != null) {
+            Connection connection = candidate.connection();
+
+            if(System.nanoTime() - candidate.since() < VALIDATE_AFTER_IDLE_NANOS || isValid(connection)) {
+                return connection;
+            }
+            discard(connection);
+        }
+        return null;
+    }
+
+    private Connection create() throws SQLException {
+        total.incrementAndGet();
+        try {
+            Connection connection = factory.create();
+
+            if(connection == null) {
+                throw new SQLException("Connection factory did not return a connection");
+            }
+            return connection;
+        } catch (SQLException | RuntimeException e) {
+            total.decrementAndGet();
+            throw e;
+        }
+    }
+
+    private static boolean isValid(Connection connection) {
+        try {
+            return connection.isValid(VALIDATION_TIMEOUT_SECONDS);
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    private void discard(Connection connection) {
+        total.decrementAndGet();
+        try {
+            discardListener.accept(connection);
+        } catch (RuntimeException e) {
+            // Cleanup of whatever was attached to the connection must not keep it open.
+        }
+        try {
+            connection.close();
+        } catch (SQLException e) {
+            // Already broken, there is nothing left to clean up.
+        }
+    }
+
+    private void closeIdle() {
+        IdleConnection connection;
+
+        while ((connection = idle.pollFirst()) != null) {
+            discard(connection.connection());
+        }
+    }
+
+    @FunctionalInterface
+    public interface ConnectionFactory {
+        Connection create() throws SQLException;
+    }
+
+    private record IdleConnection(Connection connection, long since) {
+    }
+
+    private static final class Lease {
+        private final Connection connection;
+        private int depth = 1;
+
+        private Lease(Connection connection) {
+            this.connection = connection;
+        }
+    }
+}
@@ -25,10 +25,20 @@ import java.util.UUID;
 public class ExecutableStatement implements AutoCloseable {
     @Getter
     private final PreparedStatement statement;
+    private final StatementCloser closer;
     private int pos = 1;
 
     public ExecutableStatement(PreparedStatement statement) {
+        this(statement, PreparedStatement::close);
+    }
+
+    /**
+     * @param statement PreparedStatement
+     * @param closer StatementCloser called instead of {@link PreparedStatement#close()}, e.g. to cache the statement
+     */
+    public ExecutableStatement(PreparedStatement statement, StatementCloser closer) {
         this.statement = statement;
+        this.closer = closer;
     }
 
     public int execute() throws SQLException {
@@ -137,11 +147,18 @@ public class ExecutableStatement implements AutoCloseable {
     @SneakyThrows
     public ExecutableStatement addBatch() {
         statement.addBatch();
+        // The next row of the batch is appended from the first parameter again.
+        pos = 1;
         return this;
     }
 
     @Override
     public void close() throws SQLException {
-        statement.close();
+        closer.close(statement);
+    }
+
+    @FunctionalInterface
+    public interface StatementCloser {
+        void close(PreparedStatement statement) throws SQLException;
     }
 }
@@ -18,6 +18,7 @@ package dev.brighten.antivpn.database.sql.utils;
 
 import com.mysql.cj.jdbc.Driver;
 import dev.brighten.antivpn.AntiVPN;
+import dev.brighten.antivpn.api.VPNConfig;
 import org.h2.jdbc.JdbcSQLFeatureNotSupportedException;
 import org.h2.jdbc.JdbcSQLNonTransientConnectionException;
 
@@ -27,43 +28,51 @@ import java.nio.file.Files;
 import java.sql.Connection;
 import java.sql.SQLException;
 import java.sql.SQLSyntaxErrorException;
+import java.sql.Statement;
+import java.time.Duration;
 import java.util.Properties;
 import java.util.logging.Level;
 
 public class MySQL {
     private static Connection conn;
+    private static ConnectionPool pool;
 
     public static void init() {
         try {
-            if (conn == null || conn.isClosed()) {
-                String url = "jdbc:mysql://" + AntiVPN.getInstance().getVpnConfig().getIp()
-                        + ":" + AntiVPN.getInstance().getVpnConfig().getPort()
-                        + "/?useSSL=true&autoReconnect=true";
-                Properties properties = new Properties();
-                properties.setProperty("user", AntiVPN.getInstance().getVpnConfig().getUsername());
-                properties.setProperty("password", AntiVPN.getInstance().getVpnConfig().getPassword());
-
-                conn = new Driver().connect(url, properties);
-                if (conn == null) {
-                    throw new SQLException("MySQL driver did not accept URL: " + url);
+            if (pool == null || pool.isClosed()) {
+                VPNConfig config = AntiVPN.getInstance().getVpnConfig();
+                String url = "jdbc:mysql://" + config.getIp() + ":" + config.getPort() + "/?useSSL=true";
+                Properties properties = connectionProperties(config);
+                String databaseName = config.getDatabaseName();
+
+                try (Connection bootstrap = connect(url, properties)) {
+                    createDatabase(bootstrap, databaseName);
                 }
-                conn.setAutoCommit(true);
-                Query.use(conn);
-                String databaseName = AntiVPN.getInstance().getVpnConfig().getDatabaseName();
 
-                try {
-                    Query.prepare("CREATE DATABASE IF NOT EXISTS `" + databaseName + "`").execute();
-                } catch (SQLException ex) {
-                    if (!isDatabaseCreationPermissionIssue(ex)) {
-                        throw ex;
+                ConnectionPool created = new ConnectionPool(() -> {
+                    Connection connection = connect(url, properties);
+
+                    try (Statement statement = connection.createStatement()) {
+                        statement.execute("USE `" + databaseName + "`");
+                    } catch (SQLException e) {
+                        connection.close();
+                        throw e;
                     }
+                    return connection;
+                }, Math.max(0, Math.min(config.getDatabasePoolMinimumIdle(), config.getDatabasePoolMaximumSize())),
+                        Math.max(1, config.getDatabasePoolMaximumSize()),
+                        Duration.ofMillis(positiveOr(config.getDatabasePoolIdleTimeout(), 600_000)),
+                        Duration.ofMillis(positiveOr(config.getDatabasePoolBorrowTimeout(), 5_000)));
 
-                    AntiVPN.getInstance().getExecutor().log(
-                            "No permission to create MySQL database `" + databaseName
-                                    + "`. Attempting to use the existing database instead.");
+                // Opens the minimum idle connections right away, so bad credentials fail here and not on first use.
+                try {
+                    created.evictIdle();
+                } catch (SQLException e) {
+                    created.close();
+                    throw e;
                 }
-
-                Query.prepare("USE `" + databaseName + "`").execute();
+                pool = created;
+                Query.use(created);
                 AntiVPN.getInstance().getExecutor().log("Connection to MySQL has been established.");
             }
         } catch (Exception e) {
@@ -72,6 +81,63 @@ public class MySQL {
         }
     }
 
+    /**
+     * Closes idle pooled connections past their timeout and reopens any below the minimum.
+     */
+    public static void maintainPool() {
+        ConnectionPool pool = MySQL.pool;
+
+        if(pool == null || pool.isClosed()) return;
+
+        try {
+            pool.evictIdle();
+        } catch (SQLException e) {
+            AntiVPN.getInstance().getExecutor().logException("Could not refill the MySQL connection pool", e);
+        }
+    }
+
+    private static Connection connect(String url, Properties properties) throws SQLException {
+        Connection connection = new Driver().connect(url, properties);
+
+        if (connection == null) {
+            throw new SQLException("MySQL driver did not accept URL: " + url);
+        }
+        connection.setAutoCommit(true);
+        return connection;
+    }
+
+    private static Properties connectionProperties(VPNConfig config) {
+        Properties properties = new Properties();
+
+        properties.setProperty("user", config.getUsername());
+        properties.setProperty("password", config.getPassword());
+        properties.setProperty("useServerPrepStmts", String.valueOf(config.isMysqlUseServerPrepStmts()));
+        properties.setProperty("cachePrepStmts", String.valueOf(config.isMysqlCachePrepStmts()));
+        properties.setProperty("prepStmtCacheSize", String.valueOf(Math.max(0, config.getMysqlPrepStmtCacheSize())));
+        properties.setProperty("prepStmtCacheSqlLimit", "2048");
+        properties.setProperty("rewriteBatchedStatements",
+                String.valueOf(config.isMysqlRewriteBatchedStatements()));
+        return properties;
+    }
+
+    private static void createDatabase(Connection connection, String databaseName) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("CREATE DATABASE IF NOT EXISTS `" + databaseName + "`");
+        } catch (SQLException ex) {
+            if (!isDatabaseCreationPermissionIssue(ex)) {
+                throw ex;
+            }
+
+            AntiVPN.getInstance().getExecutor().log(
+                    "No permission to create MySQL database `" + databaseName
+                            + "`. Attempting to use the existing database instead.");
+        }
+    }
+
+    private static int positiveOr(int value, int fallback) {
+        return value > 0 ? value : fallback;
+    }
+
     private static boolean isDatabaseCreationPermissionIssue(SQLException ex) {
         return ex instanceof SQLSyntaxErrorException
                 && ex.getMessage() != null
@@ -122,6 +188,23 @@ public class MySQL {
         }
     }
 
+    /**
+     * Closes the H2 database with {@code SHUTDOWN COMPACT}, which rewrites the file without the space left by
+     * deleted rows. H2 only compacts fully while closing, so this is meant for plugin shutdown, once nothing else
+     * uses the database anymore.
+     */
+    public static synchronized void compactH2() {
+        if(pool != null || isClosed()) return;
+
+        try (var statement = conn.createStatement()) {
+            statement.execute("SHUTDOWN COMPACT");
+        } catch (SQLException e) {
+            AntiVPN.getInstance().getExecutor().logException("Could not compact H2 database", e);
+        }
+
+        shutdown();
+    }
+
     public static boolean backupOldDB(File dbFile, File dataFolder) {
         if (!dbFile.exists()) {
             return true;
@@ -169,11 +252,22 @@ public class MySQL {
     }
 
     public static void shutdown() {
+        Query.closeStatements();
+
+        ConnectionPool pool = MySQL.pool;
+        if(pool != null) {
+            MySQL.pool = null;
+            pool.close();
+        }
+
         try {
-            if(conn != null && !conn.isClosed()) {
-                if(conn instanceof NonClosableConnection) {
-                    ((NonClosableConnection)conn).shutdown();
-                } else conn.close();
+            if(conn != null) {
+                // Already closed after SHUTDOWN COMPACT, which still leaves the reference to clear.
+                if(!conn.isClosed()) {
+                    if(conn instanceof NonClosableConnection) {
+                        ((NonClosableConnection)conn).shutdown();
+                    } else conn.close();
+                }
                 conn = null;
             }
         } catch (Exception e) {
@@ -182,6 +276,10 @@ public class MySQL {
     }
 
     public static boolean isClosed() {
+        ConnectionPool pool = MySQL.pool;
+        if(pool != null)
+            return pool.isClosed();
+
         if(conn == null)
             return true;
 
@@ -16,24 +16,123 @@
 
 package dev.brighten.antivpn.database.sql.utils;
 
-import lombok.Getter;
 import org.intellij.lang.annotations.Language;
 
 import java.sql.Connection;
+import java.sql.PreparedStatement;
 import java.sql.SQLException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class Query {
-    @Getter
+    // Well above the number of distinct data statements the plugin runs, so in practice nothing is evicted.
+    private static final int STATEMENT_CACHE_SIZE = 64;
+
     private static Connection conn;
+    private static ConnectionPool pool;
+    private static final Map<Connection, StatementCache> statementCaches = new ConcurrentHashMap<>();
 
+    /**
+     * Runs every query over the one given connection, as H2 does.
+     *
+     * @param conn Connection
+     */
     public static void use(Connection conn) {
+        closeStatements();
         Query.conn = conn;
+        Query.pool = null;
+    }
+
+    /**
+     * Borrows a connection from the pool for every statement, returning it once the statement is closed.
+     *
+     * @param pool ConnectionPool
+     */
+    public static void use(ConnectionPool pool) {
+        closeStatements();
+        pool.setDiscardListener(Query::closeStatements);
+        Query.pool = pool;
+        Query.conn = null;
     }
 
+    /**
+     * Prepares a statement, reusing a cached one for data statements. Closing the returned statement puts it back
+     * into the cache and, with a pool in use, returns its connection, so it has to be closed on the thread that
+     * prepared it.
+     *
+     * @param sql String
+     * @return ExecutableStatement
+     * @throws SQLException if no connection could be borrowed or the statement could not be prepared
+     */
     @SuppressWarnings("SqlSourceToSinkFlow")
     public static ExecutableStatement prepare(@Language("SQL") String sql) throws SQLException {
-        return new ExecutableStatement(conn.prepareStatement(sql));
+        ConnectionPool pool = Query.pool;
+        Connection connection = pool == null ? conn : pool.borrow();
+
+        try {
+            StatementCache cache = StatementCache.isCacheable(sql)
+                    ? statementCaches.computeIfAbsent(connection, key -> new StatementCache(STATEMENT_CACHE_SIZE))
+                    : null;
+            PreparedStatement statement = cache != null ? cache.take(sql) : null;
+
+            if(statement == null) {
+                statement = connection.prepareStatement(sql);
+            }
+
+            return new ExecutableStatement(statement, prepared -> {
+                try {
+                    if(cache != null) {
+                        cache.release(sql, prepared);
+                    } else prepared.close();
+                } finally {
+                    if(pool != null) pool.release(connection);
+                }
+            });
+        } catch (SQLException | RuntimeException e) {
+            if(pool != null) pool.release(connection);
+            throw e;
+        }
     }
 
+    /**
+     * Runs the callback with a connection, borrowed from the pool if one is in use.
+     *
+     * @param callback ConnectionCallback
+     * @return T
+     * @throws SQLException if the callback failed or no connection could be borrowed
+     */
+    public static <T> T withConnection(ConnectionCallback<T> callback) throws SQLException {
+        ConnectionPool pool = Query.pool;
 
+        if(pool == null) {
+            return callback.apply(conn);
+        }
+
+        Connection connection = pool.borrow();
+        try {
+            return callback.apply(connection);
+        } finally {
+            pool.release(connection);
+        }
+    }
+
+    /**
+     * Closes the cached statements of every connection, e.g. before the connections themselves are closed.
+     */
+    public static void closeStatements() {
+        statementCaches.keySet().forEach(Query::closeStatements);
+    }
+
+    private static void closeStatements(Connection connection) {
+        StatementCache cache = statementCaches.remove(connection);
+
+        if(cache != null) {
+            cache.close();
+        }
+    }
+
+    @FunctionalInterface
+    public interface ConnectionCallback<T> {
+        T apply(Connection connection) throws SQLException;
+    }
 }
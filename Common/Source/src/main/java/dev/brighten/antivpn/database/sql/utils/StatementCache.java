@@ -0,0 +1,172 @@
+/*
+ * Copyright 2026 Dawson Hessler
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package dev.brighten.antivpn.database.sql.utils;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Prepared statements of one connection that are not in use right now, keyed by their SQL, so the fixed queries
+ * run on every login are only parsed and planned once.
+ * <p>
+ * A statement is taken out of the cache while it is used and only put back once it was reset, so two threads
+ * sharing a connection never get the same statement. Whoever asks for a SQL string whose statement is already
+ * taken just prepares a new one, which is closed again on return if the cache already holds that SQL. The least
+ * recently used statements are closed once more than {@code capacity} are cached.
+ */
+public class StatementCache {
+
+    private final int capacity;
+    private final LinkedHashMap<String, PreparedStatement> idle = new LinkedHashMap<>(16, 0.75f, true);
+    private boolean closed;
+
+    /**
+     * @param capacity int
+     */
+    public StatementCache(int capacity) {
+        this.capacity = capacity;
+    }
+
+    /**
+     * Only plain data statements are cached. Schema changes and one-off statements such as H2 backups are rare,
+     * often built from changing strings, and may leave a cached plan outdated.
+     *
+     * @param sql String
+     * @return boolean
+     */
+    public static boolean isCacheable(String sql) {
+        String trimmed = sql.stripLeading();
+        int end = 0;
+
+        while (end < trimmed.length() && Character.isLetter(trimmed.charAt(end))) end++;
+
+        return switch (trimmed.substring(0, end).toLowerCase(Locale.ROOT)) {
+            case "select", "insert", "update", "delete", "replace", "merge" -> true;
+            default -> false;
+        };
+    }
+
+    /**
+     * @param sql String
+     * @return a cached statement that is now owned by the caller, or null if none is cached
+     */
+    public PreparedStatement take(String sql) {
+        PreparedStatement statement;
+
+        synchronized (this) {
+            statement = idle.remove(sql);
+        }
+
+        if(statement != null && isClosed(statement)) {
+            return null;
+        }
+        return statement;
+    }
+
+    /**
+     * Clears the statement's parameters and batch and caches it, or closes it if it is broken, the SQL is
+     * already cached or the cache was closed.
+     *
+     * @param sql String
+     * @param statement PreparedStatement taken from or prepared for this cache
+     */
+    public void release(String sql, PreparedStatement statement) {
+        if(!reset(statement)) {
+            closeQuietly(statement);
+            return;
+        }
+
+        PreparedStatement evicted = null;
+        boolean keep;
+
+        synchronized (this) {
+            keep = !closed && !idle.containsKey(sql);
+
+            if(keep) {
+                idle.put(sql, statement);
+
+                if(idle.size() > capacity) {
+                    Iterator<Map.Entry<String, PreparedStatement>> eldest = idle.entrySet().iterator();
+
+                    evicted = eldest.next().getValue();
+                    eldest.remove();
+                }
+            }
+        }
+
+        if(!keep) {
+            closeQuietly(statement);
+        }
+        if(evicted != null) {
+            closeQuietly(evicted);
+        }
+    }
+
+    public synchronized int size() {
+        return idle.size();
+    }
+
+    /**
+     * Closes every cached statement. Statements in use are closed when they are released.
+     */
+    public void close() {
+        List<PreparedStatement> statements;
+
+        synchronized (this) {
+            closed = true;
+            statements = new ArrayList<>(idle.values());
+            idle.clear();
+        }
+
+        statements.forEach(StatementCache::closeQuietly);
+    }
+
+    private static boolean reset(PreparedStatement statement) {
+        try {
+            if(statement.isClosed()) return false;
+
+            statement.clearParameters();
+            statement.clearBatch();
+            statement.clearWarnings();
+            return true;
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    private static boolean isClosed(PreparedStatement statement) {
+        try {
+            return statement.isClosed();
+        } catch (SQLException e) {
+            return true;
+        }
+    }
+
+    private static void closeQuietly(PreparedStatement statement) {
+        try {
+            statement.close();
+        } catch (SQLException e) {
+            // The statement or its connection is already broken, there is nothing left to release.
+        }
+    }
+}
@@ -18,11 +18,15 @@ package dev.brighten.antivpn.database.version;
 
 import dev.brighten.antivpn.database.DatabaseException;
 import dev.brighten.antivpn.database.local.H2VPN;
+import dev.brighten.antivpn.database.local.version.Fifth;
 import dev.brighten.antivpn.database.local.version.First;
+import dev.brighten.antivpn.database.local.version.Fourth;
 import dev.brighten.antivpn.database.local.version.Second;
 import dev.brighten.antivpn.database.local.version.Third;
 import dev.brighten.antivpn.database.mongo.MongoVPN;
+import dev.brighten.antivpn.database.mongo.version.MongoFifth;
 import dev.brighten.antivpn.database.mongo.version.MongoFirst;
+import dev.brighten.antivpn.database.mongo.version.MongoFourth;
 import dev.brighten.antivpn.database.mongo.version.MongoSecond;
 import dev.brighten.antivpn.database.mongo.version.MongoThird;
 import dev.brighten.antivpn.database.sql.MySqlVPN;
@@ -34,7 +38,10 @@ public interface Version<DB> {
     int versionNumber();
     boolean needsUpdate(DB database);
 
-    Version<MongoVPN>[] mongoDbVersions = new Version[] {new MongoFirst(), new MongoSecond(), new MongoThird()};
-    Version<MySqlVPN>[] mysqlVersions = new Version[] {new MySQLFirst(), new Second(), new Third()};
-    Version<H2VPN>[] h2Versions = new Version[] {new First(), new Second(), new Third()};
+    Version<MongoVPN>[] mongoDbVersions = new Version[] {new MongoFirst(), new MongoSecond(), new MongoThird(),
+            new MongoFourth(), new MongoFifth()};
+    Version<MySqlVPN>[] mysqlVersions = new Version[] {new MySQLFirst(), new Second(), new Third(),
+            new Fourth(), new Fifth()};
+    Version<H2VPN>[] h2Versions = new Version[] {new First(), new Second(), new Third(), new Fourth(),
+            new Fifth()};
 }
\ No newline at end of file
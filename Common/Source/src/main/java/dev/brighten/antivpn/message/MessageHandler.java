@@ -45,7 +45,7 @@ public class MessageHandler {
 
     public void addString(VpnString string, Function<VpnString, String> getter) {
         string.setConfigStringGetter(getter);
-        getter.apply(string);
+        string.updateString();
         AntiVPN.getInstance().getExecutor().log("Added string " + string.getKey());
         messages.put(string.getKey(), string);
     }
@@ -0,0 +1,231 @@
+/*
+ * Copyright 2026 Dawson Hessler
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package dev.brighten.antivpn.message;
+
+import dev.brighten.antivpn.api.APIPlayer;
+import dev.brighten.antivpn.utils.StringUtil;
+import dev.brighten.antivpn.web.objects.VPNResponse;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A message parsed once into literal text and {@code %variable%} placeholders, so rendering it is a single
+ * pass that appends each segment into a reused builder instead of chaining {@link String#replace} calls.
+ * <p>
+ * Color codes are translated in the literal text at compile time when requested. Values substituted for
+ * placeholders are inserted as they are.
+ */
+public final class MessageTemplate {
+
+    private static final int MAX_CACHED_BUILDER = 1024;
+    private static final ThreadLocal<StringBuilder> BUILDER = ThreadLocal.withInitial(() -> new StringBuilder(256));
+
+    // literals always has one more entry than variables: literal, variable, literal, ..., literal
+    private final String[] literals;
+    private final String[] variables;
+    private final Detail[] details;
+    private final String raw;
+
+    private MessageTemplate(String raw, String[] literals, String[] variables) {
+        this.raw = raw;
+        this.literals = literals;
+        this.variables = variables;
+        this.details = new Detail[variables.length];
+
+        for (int i = 0; i < variables.length; i++) {
+            details[i] = Detail.byName(variables[i]);
+        }
+    }
+
+    /**
+     * Compiles a message, translating {@code &} color codes in its text.
+     *
+     * @param raw String
+     * @return MessageTemplate
+     */
+    public static MessageTemplate compile(String raw) {
+        return compile(raw, true);
+    }
+
+    public static MessageTemplate compile(String raw, boolean translateColors) {
+        List<String> literals = new ArrayList<>();
+        List<String> variables = new ArrayList<>();
+        int start = 0, open;
+
+        while ((open = raw.indexOf('%', start)) != -1) {
+            int close = raw.indexOf('%', open + 1);
+            if(close == -1) break;
+
+            String name = raw.substring(open + 1, close);
+            if(!isVariableName(name)) {
+                // Not a placeholder, so the second '%' may open the next one.
+                literals.add(raw.substring(start, close));
+                variables.add(null);
+                start = close;
+                continue;
+            }
+
+            literals.add(raw.substring(start, open));
+            variables.add(name);
+            start = close + 1;
+        }
+        literals.add(raw.substring(start));
+
+        return merge(raw, literals, variables, translateColors);
+    }
+
+    private static MessageTemplate merge(String raw, List<String> literals, List<String> variables,
+                                         boolean translateColors) {
+        List<String> mergedLiterals = new ArrayList<>();
+        List<String> mergedVariables = new ArrayList<>();
+        StringBuilder current = new StringBuilder(literals.getFirst());
+
+        for (int i = 0; i < variables.size(); i++) {
+            if(variables.get(i) != null) {
+                mergedLiterals.add(current.toString());
+                mergedVariables.add(variables.get(i));
+                current.setLength(0);
+            }
+            current.append(literals.get(i + 1));
+        }
+        mergedLiterals.add(current.toString());
+
+        String[] literalArray = new String[mergedLiterals.size()];
+        for (int i = 0; i < literalArray.length; i++) {
+            literalArray[i] = translateColors
+                    ? StringUtil.translateAlternateColorCodes('&', mergedLiterals.get(i))
+                    : mergedLiterals.get(i);
+        }
+        return new MessageTemplate(raw, literalArray, mergedVariables.toArray(new String[0]));
+    }
+
+    private static boolean isVariableName(String name) {
+        if(name.isEmpty()) return false;
+
+        for (int i = 0; i < name.length(); i++) {
+            char c = name.charAt(i);
+            if(!Character.isLetterOrDigit(c) && c != '_' && c != '-') return false;
+        }
+        return true;
+    }
+
+    /**
+     * @return The message this template was compiled from.
+     */
+    public String getRaw() {
+        return raw;
+    }
+
+    /**
+     * Renders the template with the player and lookup details of a detection, filling {@code %player%},
+     * {@code %reason%}, {@code %country%}, {@code %code%} and {@code %city%}.
+     *
+     * @param player APIPlayer
+     * @param response VPNResponse
+     * @return String
+     */
+    public String render(APIPlayer player, VPNResponse response) {
+        if(variables.length == 0) return literals[0];
+
+        StringBuilder builder = builder();
+        builder.append(literals[0]);
+        for (int i = 0; i < variables.length; i++) {
+            Detail detail = details[i];
+
+            if(detail == null) builder.append('%').append(variables[i]).append('%');
+            else builder.append(detail.resolve(player, response));
+            builder.append(literals[i + 1]);
+        }
+        return finish(builder);
+    }
+
+    /**
+     * Renders the template, replacing placeholders with the matching {@link VpnString.Var}. Placeholders
+     * without a match are left as they are.
+     *
+     * @param replacements Var
+     * @return String
+     */
+    @SafeVarargs
+    public final String render(VpnString.Var<String, Object>... replacements) {
+        if(variables.length == 0) return literals[0];
+
+        StringBuilder builder = builder();
+        builder.append(literals[0]);
+        for (int i = 0; i < variables.length; i++) {
+            VpnString.Var<String, Object> match = null;
+
+            for (VpnString.Var<String, Object> replacement : replacements) {
+                if(replacement.getKey().equals(variables[i])) {
+                    match = replacement;
+                    break;
+                }
+            }
+
+            if(match == null) builder.append('%').append(variables[i]).append('%');
+            else builder.append(match.getReplacement());
+            builder.append(literals[i + 1]);
+        }
+        return finish(builder);
+    }
+
+    private static StringBuilder builder() {
+        StringBuilder builder = BUILDER.get();
+        builder.setLength(0);
+        return builder;
+    }
+
+    private static String finish(StringBuilder builder) {
+        String result = builder.toString();
+
+        if(builder.capacity() > MAX_CACHED_BUILDER) {
+            BUILDER.remove();
+        }
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return raw;
+    }
+
+    private enum Detail {
+        PLAYER, REASON, COUNTRY, CODE, CITY;
+
+        static Detail byName(String name) {
+            return switch (name) {
+                case "player" -> PLAYER;
+                case "reason" -> REASON;
+                case "country" -> COUNTRY;
+                case "code" -> CODE;
+                case "city" -> CITY;
+                default -> null;
+            };
+        }
+
+        String resolve(APIPlayer player, VPNResponse response) {
+            return switch (this) {
+                case PLAYER -> player.getName();
+                case REASON -> response.getMethod();
+                case COUNTRY -> response.getCountryName();
+                case CODE -> response.getCountryCode();
+                case CITY -> response.getCity();
+            };
+        }
+    }
+}
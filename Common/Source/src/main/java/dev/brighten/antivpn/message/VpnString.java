@@ -29,6 +29,7 @@ public class VpnString {
     private final String key;
     private final String defaultMessage;
     private String message;
+    private MessageTemplate template;
     @Setter
     private Function<VpnString, String> configStringGetter;
 
@@ -42,27 +43,18 @@ public class VpnString {
         if(configStringGetter == null) throw new Exception("The configStringGetter for string " + key + " is null!");
 
         message = configStringGetter.apply(this);
+        // Color codes are left for the platform to translate when the message is sent.
+        template = MessageTemplate.compile(message, false);
     }
 
     public String getFormattedMessage(Var<String, Object>... replacements) {
-        String formatted = configStringGetter.apply(this);
+        if(template == null) updateString();
 
-        for (Var<String, Object> replacement : replacements) {
-            formatted = formatted
-                    .replace("%" + replacement.getKey() + "%", replacement.getReplacement().toString());
-        }
-
-        return formatted;
+        return template.render(replacements);
     }
 
     public void sendMessage(APIPlayer player, Var<String, Object>... replacements) {
-        String formatted = message;
-
-        for (Var<String, Object> replacement : replacements) {
-            formatted = formatted
-                    .replace("%" + replacement.getKey() + "%", replacement.getReplacement().toString());
-        }
-        player.sendMessage(formatted);
+        player.sendMessage(getFormattedMessage(replacements));
     }
 
     @Getter
@@ -0,0 +1,109 @@
+/*
+ * Copyright 2026 Dawson Hessler
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package dev.brighten.antivpn.metrics;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A lock-free latency histogram with power-of-two nanosecond buckets. Recording is a couple of
+ * {@link LongAdder} increments, so it can be called on every login without contention. Percentiles are
+ * approximate and report the upper bound of the bucket they fall in.
+ */
+public class LatencyHistogram {
+
+    // Bucket i holds durations in [2^(i-1), 2^i) nanoseconds, the last bucket everything above ~9 minutes.
+    private static final int BUCKETS = 40;
+
+    private final LongAdder[] buckets = new LongAdder[BUCKETS];
+    private final LongAdder count = new LongAdder(), totalNanos = new LongAdder();
+    private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0L);
+
+    public LatencyHistogram() {
+        for (int i = 0; i < BUCKETS; i++) {
+            buckets[i] = new LongAdder();
+        }
+    }
+
+    public void record(long nanos) {
+        if(nanos < 0) nanos = 0;
+
+        buckets[Math.min(BUCKETS - 1, 64 - Long.numberOfLeadingZeros(nanos))].increment();
+        count.increment();
+        totalNanos.add(nanos);
+        maxNanos.accumulate(nanos);
+    }
+
+    /**
+     * Records the time elapsed since {@code startNanos}, as returned by {@link System#nanoTime()}.
+     *
+     * @param startNanos long
+     */
+    public void recordSince(long startNanos) {
+        record(System.nanoTime() - startNanos);
+    }
+
+    public long getCount() {
+        return count.sum();
+    }
+
+    public long getMaxNanos() {
+        return maxNanos.get();
+    }
+
+    public double getMeanMillis() {
+        long samples = count.sum();
+
+        return samples == 0 ? 0 : totalNanos.sum() / (double) samples / TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+    /**
+     * @param quantile double between 0 and 1
+     * @return The approximate latency in milliseconds below which the given fraction of samples fall.
+     */
+    public double getPercentileMillis(double quantile) {
+        long[] counts = new long[BUCKETS];
+        long samples = 0;
+
+        for (int i = 0; i < BUCKETS; i++) {
+            samples += counts[i] = buckets[i].sum();
+        }
+        if(samples == 0) return 0;
+
+        long rank = (long) Math.ceil(Math.min(1, Math.max(0, quantile)) * samples);
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts[i];
+
+            if(seen >= rank && counts[i] > 0) {
+                long upperNanos = i == BUCKETS - 1 ? getMaxNanos() : Math.min(1L << i, getMaxNanos());
+                return upperNanos / (double) TimeUnit.MILLISECONDS.toNanos(1);
+            }
+        }
+        return getMaxNanos() / (double) TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+    public void reset() {
+        for (LongAdder bucket : buckets) {
+            bucket.reset();
+        }
+        count.reset();
+        totalNanos.reset();
+        maxNanos.reset();
+    }
+}
@@ -0,0 +1,35 @@
+/*
+ * Copyright 2026 Dawson Hessler
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package dev.brighten.antivpn.metrics;
+
+/**
+ * The steps of a player check that have their latency recorded.
+ */
+public enum Stage {
+    /** Bypass permission, UUID and IP allowlists and name prefixes. */
+    ALLOWLIST,
+    /** In-memory result and response caches. */
+    CACHE,
+    /** Stored response lookup in the configured database. */
+    DATABASE,
+    /** Query to the VPN API. */
+    API,
+    /** Evaluation of the compiled {@link dev.brighten.antivpn.api.CheckPolicy}. */
+    POLICY,
+    /** Alerts, kicks and command scheduling for a blocked player. */
+    KICK
+}
@@ -0,0 +1,143 @@
+/*
+ * Copyright 2026 Dawson Hessler
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package dev.brighten.antivpn.metrics;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Counters and per-{@link Stage} latency histograms for player checks, shared by every platform through
+ * {@link dev.brighten.antivpn.AntiVPN#getMetrics()}.
+ * <p>
+ * Counters are striped {@link LongAdder}s so updating them from many login threads at once does not contend.
+ * Gauges such as executor queue depths are read only when the metrics are looked at.
+ */
+@Getter
+public class VPNMetrics {
+    /** Players that went through a full check, i.e. were not allowlisted or served from a cached result. */
+    private final LongAdder checked = new LongAdder();
+    /** Checks that ended in a block verdict. */
+    private final LongAdder detections = new LongAdder();
+    private final LongAdder apiFailures = new LongAdder();
+    private final LongAdder cacheHits = new LongAdder(), cacheMisses = new LongAdder();
+    private final LongAdder databaseHits = new LongAdder(), databaseMisses = new LongAdder();
+
+    @Getter(AccessLevel.NONE)
+    private final Map<Stage, LatencyHistogram> latencies = new EnumMap<>(Stage.class);
+    @Getter(AccessLevel.NONE)
+    private final Map<String, LongSupplier> gauges = new ConcurrentHashMap<>();
+
+    public VPNMetrics() {
+        for (Stage stage : Stage.values()) {
+            latencies.put(stage, new LatencyHistogram());
+        }
+    }
+
+    public LatencyHistogram latency(Stage stage) {
+        return latencies.get(stage);
+    }
+
+    /**
+     * Records the time elapsed since {@code startNanos}, as returned by {@link System#nanoTime()}.
+     *
+     * @param stage Stage
+     * @param startNanos long
+     */
+    public void record(Stage stage, long startNanos) {
+        latencies.get(stage).recordSince(startNanos);
+    }
+
+    public void recordCacheLookup(boolean hit) {
+        (hit ? cacheHits : cacheMisses).increment();
+    }
+
+    public void recordDatabaseLookup(boolean hit) {
+        (hit ? databaseHits : databaseMisses).increment();
+    }
+
+    /**
+     * @return The fraction of in-memory cache lookups that were hits, or 0 if there were none.
+     */
+    public double getCacheHitRatio() {
+        return ratio(cacheHits.sum(), cacheMisses.sum());
+    }
+
+    /**
+     * @return The fraction of database lookups that found a stored response, or 0 if there were none.
+     */
+    public double getDatabaseHitRatio() {
+        return ratio(databaseHits.sum(), databaseMisses.sum());
+    }
+
+    /**
+     * Registers a value that is sampled whenever {@link #readGauges()} is called, replacing any gauge
+     * registered under the same name.
+     *
+     * @param name String
+     * @param gauge LongSupplier
+     */
+    public void registerGauge(String name, LongSupplier gauge) {
+        gauges.put(name, gauge);
+    }
+
+    /**
+     * @return The current value of every registered gauge, sorted by name.
+     */
+    public Map<String, Long> readGauges() {
+        Map<String, Long> values = new LinkedHashMap<>();
+
+        gauges.keySet().stream().sorted().forEach(name -> values.put(name, gauges.get(name).getAsLong()));
+        return Collections.unmodifiableMap(values);
+    }
+
+    /**
+     * Clears the check and detection counts, which are reported per bStats interval. Everything else keeps
+     * accumulating until {@link #reset()}.
+     */
+    public void resetCheckCounts() {
+        checked.reset();
+        detections.reset();
+    }
+
+    /**
+     * Clears all counters and histograms. Gauges are left registered.
+     */
+    public void reset() {
+        checked.reset();
+        detections.reset();
+        apiFailures.reset();
+        cacheHits.reset();
+        cacheMisses.reset();
+        databaseHits.reset();
+        databaseMisses.reset();
+        latencies.values().forEach(LatencyHistogram::reset);
+    }
+
+    private static double ratio(long hits, long misses) {
+        long total = hits + misses;
+
+        return total == 0 ? 0 : hits / (double) total;
+    }
+}
@@ -0,0 +1,315 @@
+/*
+ * Copyright 2026 Dawson Hessler
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package dev.brighten.antivpn.utils;
+
+import java.net.Inet4Address;
+import java.net.InetAddress;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * A compressed binary radix trie of IPv4 and IPv6 prefixes, used to check allowlisted ranges in memory.
+ * <p>
+ * Nodes are immutable and every change copies only the path it touches before publishing a new root, so
+ * lookups never lock and never allocate no matter how many ranges are stored. Writers are serialized.
+ */
+public class CIDRTrie {
+
+    private volatile Node ipv4Root, ipv6Root;
+    private volatile int size;
+
+    /**
+     * Adds a range to the trie.
+     *
+     * @param cidr CIDRUtils
+     * @return false if the exact range was already present
+     */
+    public synchronized boolean add(CIDRUtils cidr) {
+        long[] key = toKey(cidr);
+        boolean ipv4 = isIpv4(cidr);
+        Node root = ipv4 ? ipv4Root : ipv6Root;
+        Node updated = insert(root, key[0], key[1], cidr.getPrefixLength(), cidr);
+
+        if(updated == root) return false;
+
+        if(ipv4) ipv4Root = updated;
+        else ipv6Root = updated;
+        size++;
+        return true;
+    }
+
+    /**
+     * Removes the exact range from the trie. Narrower or wider ranges that overlap it are left untouched.
+     *
+     * @param cidr CIDRUtils
+     * @return true if the range was present
+     */
+    public synchronized boolean remove(CIDRUtils cidr) {
+        long[] key = toKey(cidr);
+        boolean ipv4 = isIpv4(cidr);
+        Node root = ipv4 ? ipv4Root : ipv6Root;
+        Node updated = delete(root, key[0], key[1], cidr.getPrefixLength());
+
+        if(updated == root) return false;
+
+        if(ipv4) ipv4Root = updated;
+        else ipv6Root = updated;
+        size--;
+        return true;
+    }
+
+    /**
+     * Replaces every range in the trie with the provided ones. The new contents are built on the side and
+     * published at once, so readers never observe a partially filled or empty trie.
+     *
+     * @param ranges Collection of CIDRUtils
+     */
+    public synchronized void replaceAll(Collection<CIDRUtils> ranges) {
+        Node newIpv4 = null, newIpv6 = null;
+        int newSize = 0;
+
+        for (CIDRUtils cidr : ranges) {
+            long[] key = toKey(cidr);
+
+            if(isIpv4(cidr)) {
+                Node updated = insert(newIpv4, key[0], key[1], cidr.getPrefixLength(), cidr);
+                if(updated != newIpv4) newSize++;
+                newIpv4 = updated;
+            } else {
+                Node updated = insert(newIpv6, key[0], key[1], cidr.getPrefixLength(), cidr);
+                if(updated != newIpv6) newSize++;
+                newIpv6 = updated;
+            }
+        }
+
+        ipv4Root = newIpv4;
+        ipv6Root = newIpv6;
+        size = newSize;
+    }
+
+    public synchronized void clear() {
+        ipv4Root = ipv6Root = null;
+        size = 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Checks whether the address falls inside any stored range.
+     *
+     * @param address InetAddress
+     * @return boolean
+     */
+    public boolean contains(InetAddress address) {
+        byte[] bytes = address.getAddress();
+
+        if(address instanceof Inet4Address) {
+            return containsIpv4(((bytes[0] & 0xFFL) << 24) | ((bytes[1] & 0xFFL) << 16)
+                    | ((bytes[2] & 0xFFL) << 8) | (bytes[3] & 0xFFL));
+        }
+
+        long hi = 0, lo = 0;
+        for (int i = 0; i < 8; i++) {
+            hi = (hi << 8) | (bytes[i] & 0xFFL);
+            lo = (lo << 8) | (bytes[i + 8] & 0xFFL);
+        }
+        return containsIpv6(hi, lo);
+    }
+
+    /**
+     * Checks whether the address falls inside any stored range.
+     *
+     * @param address IpAddress
+     * @return boolean
+     */
+    public boolean contains(IpAddress address) {
+        return address.ipv4() ? containsIpv4(address.lo()) : containsIpv6(address.hi(), address.lo());
+    }
+
+    /**
+     * Checks whether the IPv4 address, given as an unsigned 32-bit value, falls inside any stored range.
+     *
+     * @param address long
+     * @return boolean
+     */
+    public boolean containsIpv4(long address) {
+        return covers(ipv4Root, address << 32, 0L, 32);
+    }
+
+    /**
+     * Checks whether the IPv6 address, given as its upper and lower 64 bits, falls inside any stored range.
+     *
+     * @param hi long
+     * @param lo long
+     * @return boolean
+     */
+    public boolean containsIpv6(long hi, long lo) {
+        return covers(ipv6Root, hi, lo, 128);
+    }
+
+    /**
+     * Checks whether every address in the provided range is covered by a stored range.
+     *
+     * @param cidr CIDRUtils
+     * @return boolean
+     */
+    public boolean contains(CIDRUtils cidr) {
+        long[] key = toKey(cidr);
+
+        return covers(isIpv4(cidr) ? ipv4Root : ipv6Root, key[0], key[1], cidr.getPrefixLength());
+    }
+
+    /**
+     * @return A snapshot of every stored range, IPv4 first.
+     */
+    public List<CIDRUtils> toList() {
+        List<CIDRUtils> ranges = new ArrayList<>(size);
+
+        collect(ipv4Root, ranges);
+        collect(ipv6Root, ranges);
+        return ranges;
+    }
+
+    private static boolean covers(Node node, long hi, long lo, int length) {
+        while (node != null && node.length <= length) {
+            if(!matches(node, hi, lo)) return false;
+
+            // Any stored prefix on the path covers the whole key.
+            if(node.value != null) return true;
+
+            if(node.length == length) return false;
+
+            node = bitAt(hi, lo, node.length) == 0 ? node.left : node.right;
+        }
+        return false;
+    }
+
+    private static Node insert(Node node, long hi, long lo, int length, CIDRUtils value) {
+        if(node == null) {
+            return new Node(hi, lo, length, value, null, null);
+        }
+
+        int common = Math.min(Math.min(commonPrefix(node.hi, node.lo, hi, lo), node.length), length);
+
+        if(common == node.length) {
+            if(length == node.length) {
+                return node.value != null ? node : new Node(node.hi, node.lo, node.length, value, node.left, node.right);
+            }
+
+            if(bitAt(hi, lo, node.length) == 0) {
+                Node left = insert(node.left, hi, lo, length, value);
+                return left == node.left ? node : new Node(node.hi, node.lo, node.length, node.value, left, node.right);
+            }
+
+            Node right = insert(node.right, hi, lo, length, value);
+            return right == node.right ? node : new Node(node.hi, node.lo, node.length, node.value, node.left, right);
+        }
+
+        if(common == length) {
+            // The new prefix sits above the existing node.
+            return bitAt(node.hi, node.lo, length) == 0
+                    ? new Node(hi, lo, length, value, node, null)
+                    : new Node(hi, lo, length, value, null, node);
+        }
+
+        Node leaf = new Node(hi, lo, length, value, null, null);
+        long splitHi = maskHi(hi, common), splitLo = maskLo(lo, common);
+
+        return bitAt(hi, lo, common) == 0
+                ? new Node(splitHi, splitLo, common, null, leaf, node)
+                : new Node(splitHi, splitLo, common, null, node, leaf);
+    }
+
+    private static Node delete(Node node, long hi, long lo, int length) {
+        if(node == null || node.length > length || !matches(node, hi, lo)) {
+            return node;
+        }
+
+        if(node.length == length) {
+            return node.value == null ? node : compact(node.hi, node.lo, node.length, null, node.left, node.right);
+        }
+
+        if(bitAt(hi, lo, node.length) == 0) {
+            Node left = delete(node.left, hi, lo, length);
+            return left == node.left ? node : compact(node.hi, node.lo, node.length, node.value, left, node.right);
+        }
+
+        Node right = delete(node.right, hi, lo, length);
+        return right == node.right ? node : compact(node.hi, node.lo, node.length, node.value, node.left, right);
+    }
+
+    private static Node compact(long hi, long lo, int length, CIDRUtils value, Node left, Node right) {
+        if(value == null) {
+            // Branch nodes without a value are only kept while they still split two subtrees.
+            if(left == null) return right;
+            if(right == null) return left;
+        }
+        return new Node(hi, lo, length, value, left, right);
+    }
+
+    private static void collect(Node node, List<CIDRUtils> ranges) {
+        if(node == null) return;
+
+        if(node.value != null) ranges.add(node.value);
+        collect(node.left, ranges);
+        collect(node.right, ranges);
+    }
+
+    private static boolean matches(Node node, long hi, long lo) {
+        return maskHi(hi, node.length) == node.hi && maskLo(lo, node.length) == node.lo;
+    }
+
+    private static int commonPrefix(long hi1, long lo1, long hi2, long lo2) {
+        long diff = hi1 ^ hi2;
+
+        if(diff != 0) return Long.numberOfLeadingZeros(diff);
+
+        return 64 + Long.numberOfLeadingZeros(lo1 ^ lo2);
+    }
+
+    private static int bitAt(long hi, long lo, int index) {
+        return index < 64 ? (int) ((hi >>> (63 - index)) & 1) : (int) ((lo >>> (127 - index)) & 1);
+    }
+
+    private static long maskHi(long hi, int length) {
+        return hi & IpAddress.ipv6MaskHi(length);
+    }
+
+    private static long maskLo(long lo, int length) {
+        return lo & IpAddress.ipv6MaskLo(length);
+    }
+
+    private static boolean isIpv4(CIDRUtils cidr) {
+        return cidr.isIpv4();
+    }
+
+    private static long[] toKey(CIDRUtils cidr) {
+        IpAddress start = cidr.getStart();
+
+        return start.ipv4() ? new long[] {start.lo() << 32, 0L} : new long[] {start.hi(), start.lo()};
+    }
+
+    private record Node(long hi, long lo, int length, CIDRUtils value, Node left, Node right) {
+    }
+}
@@ -21,9 +21,6 @@ import lombok.Getter;
 import java.math.BigInteger;
 import java.net.InetAddress;
 import java.net.UnknownHostException;
-import java.nio.ByteBuffer;
-import java.util.ArrayList;
-import java.util.List;
 
 /**
  * A class that enables to get an IP range from CIDR specification. It supports
@@ -33,99 +30,123 @@ import java.util.List;
 public class CIDRUtils {
     private final String cidr;
 
-    private final InetAddress inetAddress;
-
-    private InetAddress startAddress;
-    private BigInteger startIpInt, endIpInt;
-    private InetAddress endAddress;
+    private final IpAddress address, start, end;
     private final int prefixLength;
 
-
+    /**
+     * Parses a range in CIDR notation. IPv4-mapped ranges are normalized, so {@link #getCidr()} returns the range in
+     * the form it is stored and matched in.
+     *
+     * @param cidr String
+     * @throws UnknownHostException if the address part is not an address literal
+     */
     public CIDRUtils(String cidr) throws UnknownHostException {
 
-        this.cidr = cidr;
-
         /* split CIDR to address and prefix part */
-        if (this.cidr.contains("/")) {
-            int index = this.cidr.indexOf("/");
-            String addressPart = this.cidr.substring(0, index);
-            String networkPart = this.cidr.substring(index + 1);
-
-            inetAddress = InetAddress.getByName(addressPart);
-            prefixLength = Integer.parseInt(networkPart);
-
-            calculate();
-        } else {
+        int index = cidr.indexOf('/');
+        if (index == -1) {
             throw new IllegalArgumentException("not an valid CIDR format!");
         }
+
+        IpAddress parsed = IpAddress.tryParse(cidr, 0, index);
+        if (parsed == null) {
+            throw new UnknownHostException(cidr.substring(0, index) + ": not an IP address literal");
+        }
+        int prefix = Integer.parseInt(cidr, index + 1, cidr.length(), 10);
+
+        // IPv4-mapped ranges are normalized to IPv4 when they fit inside the mapped block.
+        boolean mapped = parsed.ipv4() && cidr.lastIndexOf(':', index) != -1;
+        if (mapped) {
+            if (prefix >= 96) {
+                prefix -= 96;
+            } else {
+                parsed = new IpAddress(0L, 0xFFFF00000000L | parsed.lo(), false);
+            }
+        }
+
+        this.address = parsed;
+        this.prefixLength = checkPrefix(parsed, prefix);
+        this.start = parsed.mask(prefixLength);
+        this.end = parsed.last(prefixLength);
+        this.cidr = mapped ? address + "/" + prefixLength : cidr;
     }
 
+    public CIDRUtils(IpAddress address, int prefixLength) {
+        this.address = address;
+        this.prefixLength = checkPrefix(address, prefixLength);
+        this.start = address.mask(prefixLength);
+        this.end = address.last(prefixLength);
+        this.cidr = address + "/" + prefixLength;
+    }
 
-    private void calculate() throws UnknownHostException {
-
-        ByteBuffer maskBuffer;
-        int targetSize;
-        if (inetAddress.getAddress().length == 4) {
-            maskBuffer =
-                    ByteBuffer
-                            .allocate(4)
-                            .putInt(-1);
-            targetSize = 4;
-        } else {
-            maskBuffer = ByteBuffer.allocate(16)
-                    .putLong(-1L)
-                    .putLong(-1L);
-            targetSize = 16;
+    private static int checkPrefix(IpAddress address, int prefixLength) {
+        if (prefixLength < 0 || prefixLength > address.bits()) {
+            throw new IllegalArgumentException("Invalid prefix length " + prefixLength + " for " + address);
         }
+        return prefixLength;
+    }
 
-        BigInteger mask = (new BigInteger(1, maskBuffer.array())).not().shiftRight(prefixLength);
-
-        ByteBuffer buffer = ByteBuffer.wrap(inetAddress.getAddress());
-        BigInteger ipVal = new BigInteger(1, buffer.array());
+    public boolean isIpv4() {
+        return address.ipv4();
+    }
 
-        BigInteger startIp = ipVal.and(mask);
-        this.startIpInt = startIp;
-        BigInteger endIp = startIp.add(mask.not());
-        this.endIpInt = endIp;
+    public InetAddress getInetAddress() {
+        return address.toInetAddress();
+    }
 
-        byte[] startIpArr = toBytes(startIp.toByteArray(), targetSize);
-        byte[] endIpArr = toBytes(endIp.toByteArray(), targetSize);
+    public InetAddress getStartAddress() {
+        return start.toInetAddress();
+    }
 
-        this.startAddress = InetAddress.getByAddress(startIpArr);
-        this.endAddress = InetAddress.getByAddress(endIpArr);
+    public InetAddress getEndAddress() {
+        return end.toInetAddress();
+    }
 
+    public BigInteger getStartIpInt() {
+        return start.toBigInteger();
     }
 
-    private byte[] toBytes(byte[] array, int targetSize) {
-        int counter = 0;
-        List<Byte> newArr = new ArrayList<Byte>();
-        while (counter < targetSize && (array.length - 1 - counter >= 0)) {
-            newArr.add(0, array[array.length - 1 - counter]);
-            counter++;
-        }
+    public BigInteger getEndIpInt() {
+        return end.toBigInteger();
+    }
 
-        int size = newArr.size();
-        for (int i = 0; i < (targetSize - size); i++) {
+    /**
+     * Checks whether the address falls inside this range.
+     *
+     * @param ip IpAddress
+     * @return boolean
+     */
+    public boolean isInRange(IpAddress ip) {
+        return ip.ipv4() == start.ipv4() && start.compareTo(ip) <= 0 && ip.compareTo(end) <= 0;
+    }
 
-            newArr.add(0, (byte) 0);
-        }
+    /**
+     * Checks whether the address literal falls inside this range. Hostnames are never resolved.
+     *
+     * @param ipAddress String
+     * @return false if the string is not an address literal
+     */
+    public boolean isInRange(String ipAddress) {
+        IpAddress ip = IpAddress.tryParse(ipAddress);
 
-        byte[] ret = new byte[newArr.size()];
-        for (int i = 0; i < newArr.size(); i++) {
-            ret[i] = newArr.get(i);
-        }
-        return ret;
+        return ip != null && isInRange(ip);
     }
 
-    public boolean isInRange(String ipAddress) throws UnknownHostException {
-        InetAddress address = InetAddress.getByName(ipAddress);
-        BigInteger start = new BigInteger(1, this.startAddress.getAddress());
-        BigInteger end = new BigInteger(1, this.endAddress.getAddress());
-        BigInteger target = new BigInteger(1, address.getAddress());
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof CIDRUtils other)) return false;
 
-        int st = start.compareTo(target);
-        int te = target.compareTo(end);
+        return prefixLength == other.prefixLength && start.equals(other.start);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * start.hashCode() + prefixLength;
+    }
 
-        return (st < 0 || st == 0) && (te < 0 || te == 0);
+    @Override
+    public String toString() {
+        return cidr;
     }
-}
\ No newline at end of file
+}
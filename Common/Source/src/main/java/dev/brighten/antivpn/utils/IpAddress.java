@@ -0,0 +1,382 @@
+/*
+ * Copyright 2026 Dawson Hessler
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package dev.brighten.antivpn.utils;
+
+import java.math.BigInteger;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+
+/**
+ * An immutable IPv4 or IPv6 address held as primitive values. IPv4 addresses are stored as an unsigned
+ * 32-bit value in {@code lo} with {@code hi} always zero, IPv6 addresses as their upper and lower 64 bits.
+ * <p>
+ * Parsing only ever accepts address literals, so it can never trigger a DNS lookup. IPv4-mapped IPv6
+ * addresses ({@code ::ffff:a.b.c.d}) are normalized to IPv4 by every factory method.
+ */
+public record IpAddress(long hi, long lo, boolean ipv4) implements Comparable<IpAddress> {
+
+    private static final long IPV4_MASK = 0xFFFFFFFFL;
+    private static final long MAPPED_PREFIX = 0xFFFFL << 32;
+
+    public IpAddress {
+        if(ipv4 && (hi != 0 || (lo & ~IPV4_MASK) != 0)) {
+            throw new IllegalArgumentException("IPv4 address does not fit in 32 bits");
+        }
+    }
+
+    public static IpAddress ofIpv4(long address) {
+        return new IpAddress(0L, address & IPV4_MASK, true);
+    }
+
+    /**
+     * Creates an IPv6 address, converting it to IPv4 if it is IPv4-mapped.
+     *
+     * @param hi long
+     * @param lo long
+     * @return IpAddress
+     */
+    public static IpAddress ofIpv6(long hi, long lo) {
+        if(hi == 0 && (lo & ~IPV4_MASK) == MAPPED_PREFIX) {
+            return new IpAddress(0L, lo & IPV4_MASK, true);
+        }
+        return new IpAddress(hi, lo, false);
+    }
+
+    public static IpAddress of(InetAddress address) {
+        return of(address.getAddress());
+    }
+
+    public static IpAddress of(byte[] bytes) {
+        if(bytes.length == 4) {
+            return ofIpv4(((bytes[0] & 0xFFL) << 24) | ((bytes[1] & 0xFFL) << 16)
+                    | ((bytes[2] & 0xFFL) << 8) | (bytes[3] & 0xFFL));
+        }
+        if(bytes.length != 16) {
+            throw new IllegalArgumentException("Invalid address length " + bytes.length);
+        }
+
+        long hi = 0, lo = 0;
+        for (int i = 0; i < 8; i++) {
+            hi = (hi << 8) | (bytes[i] & 0xFFL);
+            lo = (lo << 8) | (bytes[i + 8] & 0xFFL);
+        }
+        return ofIpv6(hi, lo);
+    }
+
+    /**
+     * Creates an address from its numeric value, as stored in the ip_start and ip_end database columns. The value
+     * alone cannot tell a low IPv6 address such as {@code ::1} from an IPv4 one, so the family is passed in.
+     *
+     * @param value BigInteger
+     * @param ipv4 boolean, whether the value is an IPv4 address
+     * @return IpAddress
+     * @throws IllegalArgumentException if the value does not fit in an address of that family
+     */
+    public static IpAddress of(BigInteger value, boolean ipv4) {
+        if(value.signum() < 0 || value.bitLength() > (ipv4 ? 32 : 128)) {
+            throw new IllegalArgumentException("Not a valid " + (ipv4 ? "IPv4" : "IPv6") + " address value: "
+                    + value);
+        }
+        if(ipv4) {
+            return ofIpv4(value.longValue());
+        }
+        return new IpAddress(value.shiftRight(64).longValue(), value.longValue(), false);
+    }
+
+    /**
+     * Parses an IPv4 or IPv6 address literal.
+     *
+     * @param literal String
+     * @return IpAddress
+     * @throws IllegalArgumentException if the string is not an address literal
+     */
+    public static IpAddress parse(CharSequence literal) {
+        IpAddress address = tryParse(literal);
+
+        if(address == null) {
+            throw new IllegalArgumentException("Not an IP address literal: " + literal);
+        }
+        return address;
+    }
+
+    /**
+     * Parses an IPv4 or IPv6 address literal.
+     *
+     * @param literal String
+     * @return IpAddress, or null if the string is not an address literal
+     */
+    public static IpAddress tryParse(CharSequence literal) {
+        return literal == null ? null : tryParse(literal, 0, literal.length());
+    }
+
+    /**
+     * Parses the address literal between {@code from} (inclusive) and {@code to} (exclusive).
+     *
+     * @param s CharSequence
+     * @param from int
+     * @param to int
+     * @return IpAddress, or null if the range is not an address literal
+     */
+    public static IpAddress tryParse(CharSequence s, int from, int to) {
+        if(from >= to) return null;
+
+        for (int i = from; i < to; i++) {
+            if(s.charAt(i) == ':') return parseIpv6(s, from, to);
+        }
+
+        long address = parseIpv4(s, from, to);
+        return address < 0 ? null : new IpAddress(0L, address, true);
+    }
+
+    /**
+     * Parses a dotted-quad IPv4 literal between {@code from} (inclusive) and {@code to} (exclusive).
+     *
+     * @param s CharSequence
+     * @param from int
+     * @param to int
+     * @return The address as an unsigned 32-bit value, or -1 if the range is not an IPv4 literal
+     */
+    public static long parseIpv4(CharSequence s, int from, int to) {
+        long address = 0;
+        int octets = 0, octet = 0, digits = 0;
+
+        for (int i = from; i < to; i++) {
+            char c = s.charAt(i);
+
+            if(c >= '0' && c <= '9') {
+                octet = octet * 10 + (c - '0');
+                if(++digits > 3 || octet > 255) return -1;
+            } else if(c == '.') {
+                if(digits == 0 || ++octets > 3) return -1;
+                address = (address << 8) | octet;
+                octet = digits = 0;
+            } else return -1;
+        }
+
+        if(digits == 0 || octets != 3) return -1;
+
+        return (address << 8) | octet;
+    }
+
+    private static IpAddress parseIpv6(CharSequence s, int from, int to) {
+        // Groups before "::" are collected in head, groups after it in tail.
+        long headHi = 0, headLo = 0, tailHi = 0, tailLo = 0;
+        int headGroups = 0, tailGroups = 0;
+        boolean compressed = false;
+        int i = from;
+
+        if(s.charAt(i) == ':') {
+            if(to - i < 2 || s.charAt(i + 1) != ':') return null;
+            compressed = true;
+            i += 2;
+        }
+
+        while (i < to) {
+            int end = i;
+            boolean dotted = false;
+
+            while (end < to && s.charAt(end) != ':') {
+                if(s.charAt(end) == '.') dotted = true;
+                end++;
+            }
+
+            if(dotted) {
+                // An embedded IPv4 address is only allowed as the last two groups.
+                long ipv4 = end == to ? parseIpv4(s, i, end) : -1;
+                if(ipv4 < 0) return null;
+
+                if(compressed) {
+                    tailHi = (tailHi << 32) | (tailLo >>> 32);
+                    tailLo = (tailLo << 32) | ipv4;
+                    tailGroups += 2;
+                } else {
+                    headHi = (headHi << 32) | (headLo >>> 32);
+                    headLo = (headLo << 32) | ipv4;
+                    headGroups += 2;
+                }
+                i = end;
+                break;
+            }
+
+            int group = parseGroup(s, i, end);
+            if(group < 0) return null;
+
+            if(compressed) {
+                tailHi = (tailHi << 16) | (tailLo >>> 48);
+                tailLo = (tailLo << 16) | group;
+                tailGroups++;
+            } else {
+                headHi = (headHi << 16) | (headLo >>> 48);
+                headLo = (headLo << 16) | group;
+                headGroups++;
+            }
+
+            if(headGroups + tailGroups > 8) return null;
+            if(end == to) {
+                i = end;
+                break;
+            }
+
+            if(end + 1 < to && s.charAt(end + 1) == ':') {
+                if(compressed) return null;
+                compressed = true;
+                i = end + 2;
+            } else {
+                i = end + 1;
+                if(i == to) return null;
+            }
+        }
+
+        int groups = headGroups + tailGroups;
+
+        if(compressed ? groups > 7 : groups != 8) return null;
+
+        if(!compressed) return ofIpv6(headHi, headLo);
+
+        int shift = 16 * (8 - headGroups);
+        return ofIpv6(shiftLeftHi(headHi, headLo, shift) | tailHi, shiftLeftLo(headLo, shift) | tailLo);
+    }
+
+    private static int parseGroup(CharSequence s, int from, int to) {
+        if(from >= to || to - from > 4) return -1;
+
+        int group = 0;
+        for (int i = from; i < to; i++) {
+            int digit = Character.digit(s.charAt(i), 16);
+            if(digit < 0) return -1;
+            group = (group << 4) | digit;
+        }
+        return group;
+    }
+
+    private static long shiftLeftHi(long hi, long lo, int shift) {
+        if(shift == 0) return hi;
+        if(shift >= 128) return 0L;
+        if(shift >= 64) return lo << (shift - 64);
+        return (hi << shift) | (lo >>> (64 - shift));
+    }
+
+    private static long shiftLeftLo(long lo, int shift) {
+        return shift >= 64 ? 0L : lo << shift;
+    }
+
+    /**
+     * @return 32 for IPv4 addresses, 128 for IPv6 addresses.
+     */
+    public int bits() {
+        return ipv4 ? 32 : 128;
+    }
+
+    /**
+     * Returns the first address of the network with the given prefix length.
+     *
+     * @param prefixLength int
+     * @return IpAddress
+     */
+    public IpAddress mask(int prefixLength) {
+        if(ipv4) {
+            return new IpAddress(0L, lo & ipv4Mask(prefixLength), true);
+        }
+        return new IpAddress(hi & ipv6MaskHi(prefixLength), lo & ipv6MaskLo(prefixLength), false);
+    }
+
+    /**
+     * Returns the last address of the network with the given prefix length.
+     *
+     * @param prefixLength int
+     * @return IpAddress
+     */
+    public IpAddress last(int prefixLength) {
+        if(ipv4) {
+            return new IpAddress(0L, (lo | ~ipv4Mask(prefixLength)) & IPV4_MASK, true);
+        }
+        return new IpAddress(hi | ~ipv6MaskHi(prefixLength), lo | ~ipv6MaskLo(prefixLength), false);
+    }
+
+    public byte[] toBytes() {
+        if(ipv4) {
+            return new byte[] {(byte) (lo >>> 24), (byte) (lo >>> 16), (byte) (lo >>> 8), (byte) lo};
+        }
+
+        byte[] bytes = new byte[16];
+        for (int i = 0; i < 8; i++) {
+            bytes[i] = (byte) (hi >>> (56 - 8 * i));
+            bytes[i + 8] = (byte) (lo >>> (56 - 8 * i));
+        }
+        return bytes;
+    }
+
+    public InetAddress toInetAddress() {
+        try {
+            return InetAddress.getByAddress(toBytes());
+        } catch (UnknownHostException e) {
+            // Only thrown for an illegal address length, which toBytes never produces.
+            throw new IllegalStateException(e);
+        }
+    }
+
+    public BigInteger toBigInteger() {
+        if(ipv4) return BigInteger.valueOf(lo);
+
+        return new BigInteger(1, toBytes());
+    }
+
+    @Override
+    public int compareTo(IpAddress other) {
+        if(ipv4 != other.ipv4) return ipv4 ? -1 : 1;
+
+        int result = Long.compareUnsigned(hi, other.hi);
+        return result != 0 ? result : Long.compareUnsigned(lo, other.lo);
+    }
+
+    /**
+     * @return The address in the same format as {@link InetAddress#getHostAddress()}.
+     */
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder(ipv4 ? 15 : 39);
+
+        if(ipv4) {
+            builder.append((lo >>> 24) & 0xFF).append('.').append((lo >>> 16) & 0xFF).append('.')
+                    .append((lo >>> 8) & 0xFF).append('.').append(lo & 0xFF);
+            return builder.toString();
+        }
+
+        for (int i = 0; i < 8; i++) {
+            long word = i < 4 ? hi : lo;
+            if(i > 0) builder.append(':');
+            builder.append(Long.toHexString((word >>> (48 - 16 * (i % 4))) & 0xFFFF));
+        }
+        return builder.toString();
+    }
+
+    static long ipv4Mask(int prefixLength) {
+        return prefixLength <= 0 ? 0L : (IPV4_MASK << (32 - prefixLength)) & IPV4_MASK;
+    }
+
+    static long ipv6MaskHi(int prefixLength) {
+        if(prefixLength <= 0) return 0L;
+        if(prefixLength >= 64) return -1L;
+        return -1L << (64 - prefixLength);
+    }
+
+    static long ipv6MaskLo(int prefixLength) {
+        if(prefixLength <= 64) return 0L;
+        if(prefixLength >= 128) return -1L;
+        return -1L << (128 - prefixLength);
+    }
+}
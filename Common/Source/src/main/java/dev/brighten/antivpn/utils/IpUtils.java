@@ -18,53 +18,33 @@ package dev.brighten.antivpn.utils;
 
 import java.math.BigDecimal;
 import java.math.BigInteger;
-import java.net.Inet4Address;
-import java.net.Inet6Address;
-import java.net.InetAddress;
 import java.net.UnknownHostException;
 import java.util.Optional;
 
 public class IpUtils {
     public static Optional<BigDecimal> getIpDecimal(String address) {
-        try {
-            InetAddress inet = InetAddress.getByName(address);
+        IpAddress ip = IpAddress.tryParse(address);
 
-            if(inet instanceof Inet4Address) {
-                return Optional.of(BigDecimal.valueOf(ipv4ToLong(address)));
-            } return Optional.of(new BigDecimal(ipv6ToDecimalFormat(address)));
-        } catch(Exception e) {
-            return Optional.empty();
-        }
+        if(ip == null) return Optional.empty();
+
+        return Optional.of(ip.ipv4() ? BigDecimal.valueOf(ip.lo()) : new BigDecimal(ip.toBigInteger()));
     }
 
+    /**
+     * @param address String
+     * @return The IPv4 literal as an unsigned 32-bit value
+     * @throws IllegalArgumentException if the string is not an IPv4 literal
+     */
     public static long ipv4ToLong(String address) {
-        String[] addrArray = address.split("\\.");
+        long ip = IpAddress.parseIpv4(address, 0, address.length());
 
-        long ipDecimal = 0;
+        if(ip < 0) throw new IllegalArgumentException("Not an IPv4 address literal: " + address);
 
-        for (int i = 0; i < addrArray.length; i++) {
-
-            int power = 3 - i;
-            ipDecimal += ((Integer.parseInt(addrArray[i]) % 256 * Math.pow(256, power)));
-        }
-
-        return ipDecimal;
+        return ip;
     }
 
     public static String getIpv4(long ip) {
-        StringBuilder sb = new StringBuilder(15);
-
-        for (int i = 0; i < 4; i++) {
-            sb.insert(0, ip & 0xff);
-
-            if (i < 3) {
-                sb.insert(0, '.');
-            }
-
-            ip >>= 8;
-        }
-
-        return sb.toString();
+        return IpAddress.ofIpv4(ip).toString();
     }
 
     public static boolean isIpv4(BigDecimal ip) {
@@ -75,35 +55,39 @@ public class IpUtils {
         return ip.compareTo(BigDecimal.valueOf(4294967295L)) > 0;
     }
     public static boolean isIpv4(String ip) {
-        return ip.matches("^(?:[0-9]{1,3}\\.){3}[0-9]{1,3}$");
+        return IpAddress.parseIpv4(ip, 0, ip.length()) >= 0;
     }
 
     public static boolean isNotIp(String ip) {
-        return !isIpv4(ip) && !isIpv6(ip);
+        return IpAddress.tryParse(ip) == null;
     }
 
     public static boolean isIpv6(String ip) {
-        return ip.matches("^([0-9a-fA-F]{1,4}:){7}([0-9a-fA-F]{1,4}|:)$|^(([0-9a-fA-F]{1,4}:){0,6}([0-9a-fA-F]{1,4}|:))?(::([0-9a-fA-F]{1,4}:){0,5}([0-9a-fA-F]{1,4}|:))?$");
+        return ip.indexOf(':') != -1 && IpAddress.tryParse(ip) != null;
     }
 
     public static String getIpv4(BigDecimal ip) {
-        try {
-            return Inet4Address.getByAddress(ip.toBigInteger().toByteArray()).getHostAddress();
-        } catch (UnknownHostException e) {
-            return "Error";
-        }
+        return toAddressString(ip, true);
     }
 
     public static String getIpv6(BigDecimal ip) {
+        return toAddressString(ip, false);
+    }
+
+    private static String toAddressString(BigDecimal ip, boolean ipv4) {
         try {
-            return Inet6Address.getByAddress(ip.toBigInteger().toByteArray()).getHostAddress();
-        } catch (UnknownHostException e) {
+            return IpAddress.of(ip.toBigIntegerExact(), ipv4).toString();
+        } catch (ArithmeticException | IllegalArgumentException e) {
             return "Error";
         }
     }
 
     public static BigInteger ipv6ToDecimalFormat(String ipAddress) throws UnknownHostException {
-        return new BigInteger(1, Inet6Address.getByName(ipAddress).getAddress());
+        IpAddress ip = IpAddress.tryParse(ipAddress);
+
+        if(ip == null) throw new UnknownHostException(ipAddress + ": not an IP address literal");
+
+        return ip.toBigInteger();
     }
 
 }
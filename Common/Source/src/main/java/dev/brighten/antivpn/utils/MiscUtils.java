@@ -23,8 +23,6 @@ import dev.brighten.antivpn.utils.json.JsonReader;
 
 import java.io.*;
 import java.math.BigInteger;
-import java.net.InetAddress;
-import java.net.UnknownHostException;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.UUID;
@@ -77,43 +75,67 @@ public class MiscUtils {
         };
     }
 
-    public static List<CIDRUtils> rangeToCidrs(BigInteger start, BigInteger end) throws UnknownHostException {
-        List<CIDRUtils> cidrs = new ArrayList<>();
-
-        while (start.compareTo(end) <= 0) {
-            // Find the number of trailing zero bits — this determines max block size alignment
-            int trailingZeros = start.equals(BigInteger.ZERO)
-                    ? 128  // handle the edge case
-                    : start.getLowestSetBit();
-
-            // Find the largest block that fits
-            BigInteger remaining = end.subtract(start).add(BigInteger.ONE);
-            int maxBits = remaining.bitLength() - 1;
+    /**
+     * Splits an address range, as stored in the ip_start and ip_end database columns, into CIDR blocks.
+     *
+     * @param start BigInteger
+     * @param end BigInteger
+     * @param ipv4 boolean, whether the range holds IPv4 addresses
+     * @return List of CIDRUtils
+     */
+    public static List<CIDRUtils> rangeToCidrs(BigInteger start, BigInteger end, boolean ipv4) {
+        return rangeToCidrs(IpAddress.of(start, ipv4), IpAddress.of(end, ipv4));
+    }
 
-            int blockBits = Math.min(trailingZeros, maxBits);
-            int prefixLen = 32 - blockBits; // use 128 for IPv6
+    /**
+     * Splits the inclusive range between two addresses of the same family into the smallest list of CIDR blocks.
+     *
+     * @param start IpAddress
+     * @param end IpAddress
+     * @return List of CIDRUtils
+     */
+    public static List<CIDRUtils> rangeToCidrs(IpAddress start, IpAddress end) {
+        if(start.ipv4() != end.ipv4()) {
+            throw new IllegalArgumentException("Cannot build a range between " + start + " and " + end);
+        }
 
-            // Build the CIDR string
-            byte[] addrBytes = toFixedLengthBytes(start, 4); // use 16 for IPv6
-            String cidr = InetAddress.getByAddress(addrBytes).getHostAddress() + "/" + prefixLen;
-            cidrs.add(new CIDRUtils(cidr));
+        List<CIDRUtils> cidrs = new ArrayList<>();
+        int bits = start.bits();
+        long hi = start.hi(), lo = start.lo();
 
-            // Advance past this block
-            start = start.add(BigInteger.ONE.shiftLeft(blockBits));
+        while (Long.compareUnsigned(hi, end.hi()) < 0
+                || (hi == end.hi() && Long.compareUnsigned(lo, end.lo()) <= 0)) {
+            // Find the number of trailing zero bits — this determines max block size alignment
+            int trailingZeros = lo != 0 ? Long.numberOfTrailingZeros(lo)
+                    : hi != 0 ? 64 + Long.numberOfTrailingZeros(hi) : 128;
+
+            // Find the largest block that fits, i.e. the bit length of (end - start + 1) minus one
+            long diffLo = end.lo() - lo;
+            long diffHi = end.hi() - hi - (Long.compareUnsigned(end.lo(), lo) < 0 ? 1 : 0);
+            long countLo = diffLo + 1;
+            long countHi = diffHi + (countLo == 0 ? 1 : 0);
+            int maxBits = countHi != 0 ? 127 - Long.numberOfLeadingZeros(countHi)
+                    : countLo != 0 ? 63 - Long.numberOfLeadingZeros(countLo) : 128;
+
+            int blockBits = Math.min(Math.min(trailingZeros, maxBits), bits);
+            cidrs.add(new CIDRUtils(new IpAddress(hi, lo, start.ipv4()), bits - blockBits));
+
+            // Advance past this block, stopping once the address space wraps around
+            if(blockBits >= 128) break;
+            long step = blockBits >= 64 ? 0L : 1L << blockBits;
+            long nextLo = lo + step;
+            long nextHi = hi + (blockBits >= 64 ? 1L << (blockBits - 64) : 0L)
+                    + (Long.compareUnsigned(nextLo, lo) < 0 ? 1 : 0);
+
+            if(Long.compareUnsigned(nextHi, hi) < 0 || (nextHi == hi && Long.compareUnsigned(nextLo, lo) <= 0)
+                    || (start.ipv4() && nextLo > 0xFFFFFFFFL)) break;
+            hi = nextHi;
+            lo = nextLo;
         }
 
         return cidrs;
     }
 
-    private static byte[] toFixedLengthBytes(BigInteger value, int length) {
-        byte[] raw = value.toByteArray();
-        byte[] result = new byte[length];
-        int srcPos = Math.max(0, raw.length - length);
-        int destPos = Math.max(0, length - raw.length);
-        System.arraycopy(raw, srcPos, result, destPos, Math.min(raw.length, length));
-        return result;
-    }
-
     public static UUID lookupUUID(String playername) {
         try {
             JSONObject object = JsonReader
@@ -0,0 +1,99 @@
+/*
+ * Copyright 2026 Dawson Hessler
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package dev.brighten.antivpn.utils;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * An immutable character trie used to check whether a string starts with any of a set of prefixes.
+ * Lookups walk the string once and never allocate, regardless of how many prefixes are stored.
+ */
+public final class PrefixTrie {
+
+    private static final PrefixTrie EMPTY = new PrefixTrie(null);
+
+    private final Node root;
+
+    private PrefixTrie(Node root) {
+        this.root = root;
+    }
+
+    public static PrefixTrie of(Collection<String> prefixes) {
+        if(prefixes == null || prefixes.isEmpty()) return EMPTY;
+
+        Builder root = new Builder();
+        for (String prefix : prefixes) {
+            if(prefix == null) continue;
+
+            Builder node = root;
+            for (int i = 0; i < prefix.length(); i++) {
+                node = node.children.computeIfAbsent(prefix.charAt(i), c -> new Builder());
+            }
+            node.terminal = true;
+        }
+        return new PrefixTrie(root.build());
+    }
+
+    public boolean isEmpty() {
+        return root == null;
+    }
+
+    /**
+     * Checks whether any stored prefix is a prefix of the provided value.
+     *
+     * @param value String
+     * @return boolean
+     */
+    public boolean matchesPrefixOf(CharSequence value) {
+        Node node = root;
+
+        if(node == null || value == null) return false;
+
+        for (int i = 0; !node.terminal; i++) {
+            if(i == value.length()) return false;
+
+            int index = Arrays.binarySearch(node.keys, value.charAt(i));
+            if(index < 0) return false;
+
+            node = node.children[index];
+        }
+        return true;
+    }
+
+    private record Node(char[] keys, Node[] children, boolean terminal) {
+    }
+
+    private static class Builder {
+        private final Map<Character, Builder> children = new TreeMap<>();
+        private boolean terminal;
+
+        private Node build() {
+            char[] keys = new char[children.size()];
+            Node[] nodes = new Node[children.size()];
+            int i = 0;
+
+            for (Map.Entry<Character, Builder> entry : children.entrySet()) {
+                keys[i] = entry.getKey();
+                nodes[i++] = entry.getValue().build();
+            }
+            return new Node(keys, nodes, terminal);
+        }
+    }
+}
@@ -0,0 +1,115 @@
+/*
+ * Copyright 2026 Dawson Hessler
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package dev.brighten.antivpn.utils;
+
+import java.util.AbstractSet;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Set;
+
+/**
+ * A copy-on-write set backed by an immutable snapshot. Reads go straight to the current snapshot without
+ * locking, while writers are serialized and publish a new snapshot atomically, so readers always see either
+ * the old or the new contents and never a partially updated set.
+ * <p>
+ * Every write copies the whole set, which suits read-mostly sets such as the player allowlist. Writers that
+ * change many elements at once should use {@link #addAll}, {@link #removeAll} or {@link #replaceAll} to publish
+ * them with a single copy. Null elements are not supported.
+ *
+ * @param <T> Element type
+ */
+public class SnapshotSet<T> extends AbstractSet<T> {
+
+    private volatile Set<T> snapshot = Set.of();
+
+    /**
+     * @return The current contents. The returned set is immutable and never changes afterwards.
+     */
+    public Set<T> snapshot() {
+        return snapshot;
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        return o != null && snapshot.contains(o);
+    }
+
+    @Override
+    public int size() {
+        return snapshot.size();
+    }
+
+    @Override
+    public Iterator<T> iterator() {
+        return snapshot.iterator();
+    }
+
+    @Override
+    public synchronized boolean add(T element) {
+        if(snapshot.contains(element)) return false;
+
+        Set<T> updated = new HashSet<>(snapshot);
+        updated.add(element);
+        snapshot = Set.copyOf(updated);
+        return true;
+    }
+
+    @Override
+    public synchronized boolean remove(Object o) {
+        if(!contains(o)) return false;
+
+        Set<T> updated = new HashSet<>(snapshot);
+        updated.remove(o);
+        snapshot = Set.copyOf(updated);
+        return true;
+    }
+
+    @Override
+    public synchronized boolean addAll(Collection<? extends T> elements) {
+        Set<T> updated = new HashSet<>(snapshot);
+
+        if(!updated.addAll(elements)) return false;
+
+        snapshot = Set.copyOf(updated);
+        return true;
+    }
+
+    @Override
+    public synchronized boolean removeAll(Collection<?> elements) {
+        Set<T> updated = new HashSet<>(snapshot);
+
+        if(!updated.removeAll(elements)) return false;
+
+        snapshot = Set.copyOf(updated);
+        return true;
+    }
+
+    /**
+     * Replaces the whole contents with the provided elements in a single publish.
+     *
+     * @param elements Collection
+     */
+    public synchronized void replaceAll(Collection<? extends T> elements) {
+        snapshot = Set.copyOf(elements);
+    }
+
+    @Override
+    public synchronized void clear() {
+        snapshot = Set.of();
+    }
+}
@@ -16,10 +16,16 @@
 
 package dev.brighten.antivpn.utils;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
 import dev.brighten.antivpn.api.APIPlayer;
+import dev.brighten.antivpn.message.MessageTemplate;
 import dev.brighten.antivpn.web.objects.VPNResponse;
 
 public class StringUtil {
+    // Bounded, since callers may pass strings built at runtime.
+    private static final Cache<String, MessageTemplate> TEMPLATES = Caffeine.newBuilder().maximumSize(256).build();
+
     public static String line(String color) {
         return color + "&m-----------------------------------------------------";
     }
@@ -28,11 +34,18 @@ public class StringUtil {
         return "&m-----------------------------------------------------";
     }
 
+    /**
+     * Fills in the detection placeholders of a string. The compiled template is kept, so repeated strings are only
+     * parsed once. Strings known up front, such as config messages, should still be compiled once with
+     * {@link MessageTemplate#compile(String)} instead.
+     *
+     * @param input String
+     * @param player APIPlayer
+     * @param result VPNResponse
+     * @return String
+     */
     public static String varReplace(String input, APIPlayer player, VPNResponse result) {
-        return translateAlternateColorCodes('&', input.replace("%player%", player.getName())
-                .replace("%reason%", result.getMethod())
-                .replace("%country%", result.getCountryName())
-                .replace("%city%", result.getCity()));
+        return TEMPLATES.get(input, MessageTemplate::compile).render(player, result);
     }
 
     public static String translateAlternateColorCodes(char altColorChar, String textToTranslate) {
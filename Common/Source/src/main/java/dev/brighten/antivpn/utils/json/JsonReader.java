@@ -23,9 +23,10 @@ public class JsonReader {
 
     public static String readAll(Reader rd) throws IOException {
         StringBuilder sb = new StringBuilder();
-        int cp;
-        while ((cp = rd.read()) != -1) {
-            sb.append((char) cp);
+        char[] buffer = new char[4096];
+        int read;
+        while ((read = rd.read(buffer)) != -1) {
+            sb.append(buffer, 0, read);
         }
         return sb.toString();
     }
@@ -0,0 +1,231 @@
+/*
+ * Copyright 2026 Dawson Hessler
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package dev.brighten.antivpn.web;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Limits how many calls to a remote run at once, with a limit that tunes itself from how the remote responds.
+ * <p>
+ * The limit follows additive increase, multiplicative decrease: every call that succeeds while the limit is in
+ * use raises it by {@code 1 / limit}, so by about one per round of calls. A call that fails, or takes more than
+ * {@link #LATENCY_TOLERANCE} times the smoothed latency, cuts it by {@link #BACKOFF_RATIO}. Calls that started
+ * before the last cut were sent under the old limit, so they do not cut it again and a burst of failures costs one
+ * cut rather than one per call. A remote that slows down under load is therefore given fewer calls at once until
+ * it is fast again, rather than being flooded or holding every caller up.
+ * <p>
+ * Calls beyond the limit wait in line, up to {@link #getMaxQueued()} of them. Further calls are shed right away
+ * with a {@link RejectedExecutionException}, so setting it to 0 sheds instead of waiting.
+ */
+public class AdaptiveLimiter {
+
+    static final int INITIAL_LIMIT = 10;
+    static final double BACKOFF_RATIO = 0.9;
+    static final double LATENCY_TOLERANCE = 2.0;
+    // Weight of each call in the smoothed latency, low enough that a few slow calls do not move it much.
+    static final double SMOOTHING = 0.05;
+
+    private final LongSupplier nanoTime;
+    private final LongAdder rejected = new LongAdder();
+
+    // Guarded by this.
+    private final Deque<Call<?>> waiting = new ArrayDeque<>();
+    private int maxLimit, maxQueued, inFlight;
+    private double limit, smoothedLatency = -1;
+    private long lastBackoff;
+
+    /**
+     * @param maxLimit int, the most calls ever allowed at once
+     * @param maxQueued int, calls allowed to wait for a free slot
+     */
+    public AdaptiveLimiter(int maxLimit, int maxQueued) {
+        this(maxLimit, maxQueued, System::nanoTime);
+    }
+
+    AdaptiveLimiter(int maxLimit, int maxQueued, LongSupplier nanoTime) {
+        this.nanoTime = nanoTime;
+        this.maxLimit = Math.max(1, maxLimit);
+        this.maxQueued = Math.max(0, maxQueued);
+        limit = Math.min(INITIAL_LIMIT, this.maxLimit);
+        lastBackoff = nanoTime.getAsLong();
+    }
+
+    /**
+     * Starts the call once the limit allows it.
+     *
+     * @param call Supplier starting the call
+     * @return CompletableFuture of the call's result, failing with a {@link RejectedExecutionException} if shed
+     */
+    public <T> CompletableFuture<T> submit(Supplier<CompletableFuture<T>> call) {
+        Call<T> created = new Call<>(call);
+
+        synchronized (this) {
+            if(inFlight >= (int) limit) {
+                if(waiting.size() >= maxQueued) {
+                    rejected.increment();
+                    return CompletableFuture.failedFuture(
+                            new RejectedExecutionException("Too many API calls are waiting already"));
+                }
+                waiting.addLast(created);
+                return created.future;
+            }
+            inFlight++;
+        }
+
+        start(List.of(created));
+        return created.future;
+    }
+
+    /**
+     * Changes the bounds on reload. The current limit is kept if it is still within them.
+     *
+     * @param maxLimit int, the most calls ever allowed at once
+     * @param maxQueued int, calls allowed to wait for a free slot
+     */
+    public void configure(int maxLimit, int maxQueued) {
+        List<Call<?>> admitted;
+
+        synchronized (this) {
+            this.maxLimit = Math.max(1, maxLimit);
+            this.maxQueued = Math.max(0, maxQueued);
+            limit = Math.min(limit, this.maxLimit);
+            admitted = admitWaiting();
+        }
+        start(admitted);
+    }
+
+    /**
+     * @return int, calls currently allowed at once
+     */
+    public synchronized int getLimit() {
+        return (int) limit;
+    }
+
+    public synchronized int getInFlight() {
+        return inFlight;
+    }
+
+    public synchronized int getQueued() {
+        return waiting.size();
+    }
+
+    public synchronized int getMaxQueued() {
+        return maxQueued;
+    }
+
+    /**
+     * @return long, calls shed because too many were waiting
+     */
+    public long getRejected() {
+        return rejected.sum();
+    }
+
+    private void start(List<Call<?>> calls) {
+        // Calls that finish right away admit the next ones in this loop rather than recursively.
+        Deque<Call<?>> toStart = new ArrayDeque<>(calls);
+        Call<?> call;
+
+        while ((call = toStart.poll()) != null) {
+            long start = nanoTime.getAsLong();
+            CompletableFuture<?> result = call.begin();
+
+            if(result.isDone()) {
+                toStart.addAll(finished(start, result.isCompletedExceptionally()));
+            } else {
+                result.whenComplete((value, throwable) -> start(finished(start, throwable != null)));
+            }
+        }
+    }
+
+    private synchronized List<Call<?>> finished(long start, boolean failed) {
+        long now = nanoTime.getAsLong(), latency = now - start;
+
+        if(failed) {
+            backOff(start, now);
+        } else {
+            if(smoothedLatency < 0) {
+                smoothedLatency = latency;
+            }
+
+            if(latency > smoothedLatency * LATENCY_TOLERANCE) {
+                backOff(start, now);
+            } else if(inFlight * 2 >= limit) {
+                // Only grows while at least half of it is used, an idle limit says nothing about the remote.
+                limit = Math.min(maxLimit, limit + 1 / limit);
+            }
+            smoothedLatency += (latency - smoothedLatency) * SMOOTHING;
+        }
+
+        inFlight--;
+        return admitWaiting();
+    }
+
+    private void backOff(long start, long now) {
+        if(start - lastBackoff < 0) return;
+
+        limit = Math.max(1, limit * BACKOFF_RATIO);
+        lastBackoff = now;
+    }
+
+    private synchronized List<Call<?>> admitWaiting() {
+        List<Call<?>> admitted = new ArrayList<>();
+
+        while (inFlight < (int) limit && !waiting.isEmpty()) {
+            inFlight++;
+            admitted.add(waiting.pollFirst());
+        }
+        return admitted;
+    }
+
+    private static final class Call<T> {
+        private final Supplier<CompletableFuture<T>> call;
+        private final CompletableFuture<T> future = new CompletableFuture<>();
+
+        private Call(Supplier<CompletableFuture<T>> call) {
+            this.call = call;
+        }
+
+        /**
+         * Starts the call and passes its outcome on to {@link #future}.
+         *
+         * @return CompletableFuture that completes once the outcome was passed on
+         */
+        private CompletableFuture<T> begin() {
+            CompletableFuture<T> started;
+
+            try {
+                started = call.get();
+            } catch (RuntimeException e) {
+                started = CompletableFuture.failedFuture(e);
+            }
+
+            return started.whenComplete((result, throwable) -> {
+                if(throwable != null) {
+                    future.completeExceptionally(throwable);
+                } else future.complete(result);
+            });
+        }
+    }
+}
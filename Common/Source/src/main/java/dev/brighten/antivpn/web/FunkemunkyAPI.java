@@ -17,15 +17,83 @@
 package dev.brighten.antivpn.web;
 
 import dev.brighten.antivpn.utils.json.JSONException;
-import dev.brighten.antivpn.utils.json.JSONObject;
-import dev.brighten.antivpn.utils.json.JsonReader;
 import dev.brighten.antivpn.web.objects.QueryResponse;
 import dev.brighten.antivpn.web.objects.VPNResponse;
 
 import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 public class FunkemunkyAPI {
 
+    public static final String DEFAULT_BASE_URL = "https://funkemunky.cc";
+    public static final int DEFAULT_MAX_CONCURRENT = 50, DEFAULT_MAX_QUEUED = 500;
+
+    private static volatile WebClient client;
+    private static volatile String baseUrl = DEFAULT_BASE_URL;
+    // Shared by every VPN lookup, so the limit reflects how the API copes with all of them together.
+    private static final AdaptiveLimiter limiter = new AdaptiveLimiter(DEFAULT_MAX_CONCURRENT, DEFAULT_MAX_QUEUED);
+
+    /**
+     * Replaces the shared {@link WebClient} used for API queries, for example after the configured
+     * timeouts change on reload. The replaced client is closed once its pending queries finished.
+     *
+     * @param webClient WebClient
+     */
+    public static void setClient(WebClient webClient) {
+        WebClient replaced;
+
+        synchronized (FunkemunkyAPI.class) {
+            replaced = client;
+            client = webClient;
+        }
+        if(replaced != null && replaced != webClient) {
+            replaced.close();
+        }
+    }
+
+    /**
+     * Returns the shared {@link WebClient}, creating one with default timeouts if none has been configured.
+     *
+     * @return WebClient
+     */
+    public static WebClient getClient() {
+        WebClient current = client;
+
+        if(current == null) {
+            synchronized (FunkemunkyAPI.class) {
+                if((current = client) == null) {
+                    client = current = new WebClient(Duration.ofSeconds(3), Duration.ofSeconds(5));
+                }
+            }
+        }
+        return current;
+    }
+
+    /**
+     * Points all API queries at a different host, such as a local stand-in for load testing. Not exposed in the
+     * config, tests set it themselves.
+     *
+     * @param url String, without a trailing slash or path
+     */
+    public static void setBaseUrl(String url) {
+        baseUrl = url == null || url.isBlank() ? DEFAULT_BASE_URL : url.replaceAll("/+$", "");
+    }
+
+    public static String getBaseUrl() {
+        return baseUrl;
+    }
+
+    /**
+     * Returns the {@link AdaptiveLimiter} VPN lookups pass through, to configure it or read its state.
+     *
+     * @return AdaptiveLimiter
+     */
+    public static AdaptiveLimiter getLimiter() {
+        return limiter;
+    }
+
     /**
      *
      * Queries <a href="https://funkemunky.cc/vpn">...</a> API and returns information on the IP
@@ -39,11 +107,32 @@ public class FunkemunkyAPI {
      */
     public static VPNResponse getVPNResponse(String ip, String license, boolean cachedResults /* faster if set to true*/)
             throws JSONException, IOException {
-        JSONObject result = JsonReader.readJsonFromUrl(String
-                .format("https://funkemunky.cc/vpn?ip=%s&license=%s&cache=%s",
-                        ip, license.isEmpty() ? "none" : license, cachedResults));
+        return WebClient.await(getVPNResponseAsync(ip, license, cachedResults));
+    }
 
-        return VPNResponse.fromJson(result);
+    /**
+     * Asynchronously queries <a href="https://funkemunky.cc/vpn">...</a> API and returns information on the IP.
+     * The returned future completes exceptionally with an {@link IOException} or {@link JSONException} on failure,
+     * or with a {@link java.util.concurrent.RejectedExecutionException} if the {@link #getLimiter() limiter} shed it.
+     *
+     * @param ip String
+     * @param license String
+     * @param cachedResults boolean
+     * @return CompletableFuture of VPNResponse
+     */
+    public static CompletableFuture<VPNResponse> getVPNResponseAsync(String ip, String license,
+                                                                     boolean cachedResults) {
+        String url = String.format("%s/vpn?ip=%s&license=%s&cache=%s", baseUrl,
+                ip, license.isEmpty() ? "none" : license, cachedResults);
+
+        return limiter.submit(() -> getClient().get(url))
+                .thenApply(body -> {
+                    try {
+                        return ResponseDecoder.decodeVPNResponse(body);
+                    } catch (JSONException e) {
+                        throw new CompletionException(e);
+                    }
+                });
     }
 
     /**
@@ -68,8 +157,23 @@ public class FunkemunkyAPI {
      * @throws IOException Throws when there is an error connecting to and processing information from API.
      */
     public static QueryResponse getQueryResponse(String license) throws JSONException, IOException {
-        JSONObject result = JsonReader.readJsonFromUrl("https://funkemunky.cc/vpn/queryCheck?license=" + license);
+        return WebClient.await(getQueryResponseAsync(license));
+    }
 
-        return QueryResponse.fromJson(result);
+    /**
+     * Asynchronously queries <a href="https://funkemunky.cc/vpn/queryCheck">...</a> for the provided license.
+     *
+     * @param license String
+     * @return CompletableFuture of QueryResponse
+     */
+    public static CompletableFuture<QueryResponse> getQueryResponseAsync(String license) {
+        return getClient().get(baseUrl + "/vpn/queryCheck?license=" + license)
+                .thenApply(body -> {
+                    try {
+                        return ResponseDecoder.decodeQueryResponse(body);
+                    } catch (JSONException e) {
+                        throw new CompletionException(e);
+                    }
+                });
     }
 }
@@ -0,0 +1,575 @@
+/*
+ * Copyright 2026 Dawson Hessler
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package dev.brighten.antivpn.web;
+
+import dev.brighten.antivpn.utils.json.JSONException;
+import dev.brighten.antivpn.web.objects.QueryResponse;
+import dev.brighten.antivpn.web.objects.VPNResponse;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Decodes API replies straight from their UTF-8 bytes into {@link VPNResponse} and {@link QueryResponse}.
+ * <p>
+ * Known fields are matched against the key bytes without creating a {@link String}, values are bound as they are
+ * read and everything else is skipped, so no intermediate tree or body string is ever built. Types are accepted
+ * and rejected the same way {@link dev.brighten.antivpn.utils.json.JSONObject} getters would.
+ */
+public final class ResponseDecoder {
+
+    private static final int ASN = 0, IP = 1, COUNTRY_NAME = 2, COUNTRY_CODE = 3, CITY = 4, TIME_ZONE = 5,
+            METHOD = 6, ISP = 7, FAILURE_REASON = 8, PROXY = 9, CACHED = 10, SUCCESS = 11, LATITUDE = 12,
+            LONGITUDE = 13, LAST_ACCESS = 14, QUERIES_LEFT = 15;
+    private static final String[] VPN_FIELDS = {"asn", "ip", "countryName", "countryCode", "city", "timeZone",
+            "method", "isp", "failureReason", "proxy", "cached", "success", "latitude", "longitude", "lastAccess",
+            "queriesLeft"};
+    // Everything a successful lookup must contain, as in VPNResponse#fromJson(JSONObject).
+    private static final int VPN_REQUIRED = bits(ASN, IP, COUNTRY_NAME, COUNTRY_CODE, CITY, TIME_ZONE, ISP, PROXY,
+            CACHED, LATITUDE, LONGITUDE, LAST_ACCESS, QUERIES_LEFT);
+
+    private static final int VALID_PLAN = 0, PLAN_TYPE = 1, QUERIES = 2, QUERY_LIMIT = 3;
+    private static final String[] QUERY_FIELDS = {"validPlan", "planType", "queries", "queryLimit"};
+    private static final int QUERY_REQUIRED = bits(PLAN_TYPE, QUERIES, QUERY_LIMIT);
+
+    private static final byte[][] VPN_KEYS = ascii(VPN_FIELDS), QUERY_KEYS = ascii(QUERY_FIELDS);
+    private static final double[] POWERS_OF_TEN = {1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+            1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22};
+
+    private final byte[] json;
+    private int pos, keyStart, keyEnd;
+    private String escapedKey;
+    private boolean first = true;
+    private int current;
+    // Type errors by field index, only reported if the field turns out to be required.
+    private String[] mismatches;
+
+    private ResponseDecoder(byte[] json) {
+        this.json = json;
+    }
+
+    /**
+     * Decodes a <a href="https://funkemunky.cc/vpn">...</a> lookup reply.
+     *
+     * @param json UTF-8 encoded response body
+     * @return VPNResponse
+     * @throws JSONException Throws when the body is not valid JSON or required fields are missing.
+     */
+    public static VPNResponse decodeVPNResponse(byte[] json) throws JSONException {
+        ResponseDecoder in = new ResponseDecoder(json);
+        String asn = null, ip = null, countryName = null, countryCode = null, city = null, timeZone = null,
+                method = "N/A", isp = null, failureReason = null;
+        boolean proxy = false, cached = false, success = false;
+        double latitude = 0, longitude = 0;
+        long lastAccess = 0, queriesLeft = 0;
+        int seen = 0;
+
+        in.beginObject();
+        while (in.nextField()) {
+            int field = in.field(VPN_KEYS, VPN_FIELDS);
+
+            seen = in.markSeen(seen, field, VPN_FIELDS);
+
+            switch (field) {
+                case ASN -> asn = in.readString(VPN_FIELDS[field]);
+                case IP -> ip = in.readString(VPN_FIELDS[field]);
+                case COUNTRY_NAME -> countryName = in.readString(VPN_FIELDS[field]);
+                case COUNTRY_CODE -> countryCode = in.readString(VPN_FIELDS[field]);
+                case CITY -> city = in.readString(VPN_FIELDS[field]);
+                case TIME_ZONE -> timeZone = in.readString(VPN_FIELDS[field]);
+                case METHOD -> method = in.readString(VPN_FIELDS[field]);
+                case ISP -> isp = in.readString(VPN_FIELDS[field]);
+                case FAILURE_REASON -> failureReason = in.readString(VPN_FIELDS[field]);
+                case PROXY -> proxy = in.readBoolean(VPN_FIELDS[field]);
+                case CACHED -> cached = in.readBoolean(VPN_FIELDS[field]);
+                case SUCCESS -> success = in.readBoolean(VPN_FIELDS[field]);
+                case LATITUDE -> latitude = in.readDouble(VPN_FIELDS[field]);
+                case LONGITUDE -> longitude = in.readDouble(VPN_FIELDS[field]);
+                case LAST_ACCESS -> lastAccess = in.readLong(VPN_FIELDS[field]);
+                case QUERIES_LEFT -> queriesLeft = in.readLong(VPN_FIELDS[field]);
+                default -> in.skipValue();
+            }
+        }
+        in.endDocument();
+
+        in.require(seen, 1 << SUCCESS, VPN_FIELDS);
+        if(!success) {
+            in.require(seen, 1 << FAILURE_REASON, VPN_FIELDS);
+            return VPNResponse.builder().success(false).failureReason(failureReason).build();
+        }
+        // A method of the wrong type only matters when it is present.
+        in.require(seen, VPN_REQUIRED | (seen & 1 << METHOD), VPN_FIELDS);
+
+        return new VPNResponse(asn, ip, countryName, countryCode, city, timeZone, method, isp, "N/A", proxy,
+                cached, true, latitude, longitude, lastAccess, queriesLeft);
+    }
+
+    /**
+     * Decodes a <a href="https://funkemunky.cc/vpn/queryCheck">...</a> reply.
+     *
+     * @param json UTF-8 encoded response body
+     * @return QueryResponse
+     * @throws JSONException Throws when the body is not valid JSON or required fields are missing.
+     */
+    public static QueryResponse decodeQueryResponse(byte[] json) throws JSONException {
+        ResponseDecoder in = new ResponseDecoder(json);
+        boolean validPlan = false;
+        String planType = null;
+        long queries = 0, queryLimit = 0;
+        int seen = 0;
+
+        in.beginObject();
+        while (in.nextField()) {
+            int field = in.field(QUERY_KEYS, QUERY_FIELDS);
+
+            seen = in.markSeen(seen, field, QUERY_FIELDS);
+
+            switch (field) {
+                case VALID_PLAN -> validPlan = in.readBoolean(QUERY_FIELDS[field]);
+                case PLAN_TYPE -> planType = in.readString(QUERY_FIELDS[field]);
+                case QUERIES -> queries = in.readLong(QUERY_FIELDS[field]);
+                case QUERY_LIMIT -> queryLimit = in.readLong(QUERY_FIELDS[field]);
+                default -> in.skipValue();
+            }
+        }
+        in.endDocument();
+
+        in.require(seen, 1 << VALID_PLAN, QUERY_FIELDS);
+        // Nothing else will be returned from API if validPlan is false.
+        if(!validPlan) {
+            return QueryResponse.builder().validPlan(false).build();
+        }
+        in.require(seen, QUERY_REQUIRED, QUERY_FIELDS);
+
+        return QueryResponse.builder().validPlan(true).planType(planType).queries(queries).queriesMax(queryLimit)
+                .build();
+    }
+
+    private void beginObject() throws JSONException {
+        if(skipWhitespace() != '{') throw syntaxError("A JSONObject text must begin with '{'");
+        pos++;
+    }
+
+    /**
+     * Moves past the next key and its colon. The key is left between {@link #keyStart} and {@link #keyEnd}, or
+     * in {@link #escapedKey} if it contains escapes.
+     *
+     * @return false once the closing brace has been consumed
+     */
+    private boolean nextField() throws JSONException {
+        int c = skipWhitespace();
+
+        if(!first) {
+            if(c == ',') {
+                pos++;
+                c = skipWhitespace();
+            } else if(c != '}') {
+                throw syntaxError("Expected a ',' or '}'");
+            }
+        }
+        first = false;
+
+        if(c == '}') {
+            pos++;
+            return false;
+        }
+        if(c != '"') throw syntaxError("Expected a key");
+
+        keyStart = ++pos;
+        escapedKey = null;
+        while (true) {
+            if(pos >= json.length) throw syntaxError("Unterminated string");
+
+            byte b = json[pos];
+            if(b == '"') break;
+            if(b == '\\') {
+                // Rare enough that decoding the key to compare it is fine.
+                pos = keyStart - 1;
+                escapedKey = readString("key");
+                break;
+            }
+            pos++;
+        }
+        if(escapedKey == null) keyEnd = pos++;
+
+        if(skipWhitespace() != ':') throw syntaxError("Expected a ':' after a key");
+        pos++;
+        return true;
+    }
+
+    private int field(byte[][] keys, String[] names) {
+        if(escapedKey != null) {
+            return Arrays.asList(names).indexOf(escapedKey);
+        }
+
+        int length = keyEnd - keyStart;
+        for (int i = 0; i < keys.length; i++) {
+            byte[] key = keys[i];
+
+            if(key.length == length && Arrays.equals(key, 0, length, json, keyStart, keyEnd)) return i;
+        }
+        return -1;
+    }
+
+    private String readString(String name) throws JSONException {
+        if(skipWhitespace() != '"') {
+            skipValue();
+            mismatch(name, "not a string.");
+            return null;
+        }
+
+        int start = ++pos;
+        while (true) {
+            if(pos >= json.length) throw syntaxError("Unterminated string");
+
+            byte b = json[pos];
+            if(b == '"') {
+                pos++;
+                return new String(json, start, pos - 1 - start, StandardCharsets.UTF_8);
+            }
+            if(b == '\\') return readEscapedString(start);
+            if(b >= 0 && b < 0x20) throw syntaxError("Unterminated string");
+            pos++;
+        }
+    }
+
+    private String readEscapedString(int start) throws JSONException {
+        StringBuilder builder = new StringBuilder(pos - start + 16);
+        int segment = start;
+
+        while (true) {
+            if(pos >= json.length) throw syntaxError("Unterminated string");
+
+            byte b = json[pos];
+            if(b == '"') {
+                builder.append(new String(json, segment, pos - segment, StandardCharsets.UTF_8));
+                pos++;
+                return builder.toString();
+            }
+            if(b >= 0 && b < 0x20) throw syntaxError("Unterminated string");
+            if(b != '\\') {
+                pos++;
+                continue;
+            }
+
+            builder.append(new String(json, segment, pos - segment, StandardCharsets.UTF_8));
+            if(++pos >= json.length) throw syntaxError("Unterminated string");
+
+            switch (json[pos++]) {
+                case '"' -> builder.append('"');
+                case '\\' -> builder.append('\\');
+                case '/' -> builder.append('/');
+                case 'b' -> builder.append('\b');
+                case 'f' -> builder.append('\f');
+                case 'n' -> builder.append('\n');
+                case 'r' -> builder.append('\r');
+                case 't' -> builder.append('\t');
+                case 'u' -> {
+                    int code = 0;
+                    for (int i = 0; i < 4; i++) {
+                        int digit = pos < json.length ? Character.digit(json[pos++], 16) : -1;
+
+                        if(digit < 0) throw syntaxError("Illegal escape.");
+                        code = (code << 4) | digit;
+                    }
+                    builder.append((char) code);
+                }
+                default -> throw syntaxError("Illegal escape.");
+            }
+            segment = pos;
+        }
+    }
+
+    private boolean readBoolean(String name) throws JSONException {
+        int c = skipWhitespace();
+
+        if(c == '"') {
+            // JSONObject#getBoolean also accepts "true" and "false" strings, in any case.
+            int start = pos + 1;
+            skipValue();
+            int length = pos - 1 - start;
+
+            if(length == 4 && equalsIgnoreCase(start, "true")) return true;
+            if(length == 5 && equalsIgnoreCase(start, "false")) return false;
+        } else if(literal("true")) {
+            return true;
+        } else if(literal("false")) {
+            return false;
+        } else {
+            skipValue();
+        }
+        mismatch(name, "is not a Boolean.");
+        return false;
+    }
+
+    private long readLong(String name) throws JSONException {
+        int c = skipWhitespace();
+        boolean quoted = c == '"';
+        int start = quoted ? pos + 1 : pos;
+        int end = numberEnd(start);
+
+        if(end == start || (quoted && (end >= json.length || json[end] != '"'))) {
+            skipValue();
+            mismatch(name, "is not a long.");
+            return 0;
+        }
+        pos = quoted ? end + 1 : end;
+
+        long value = parseInteger(start, end);
+        if(value != Long.MIN_VALUE) return value;
+
+        try {
+            return Long.parseLong(new String(json, start, end - start, StandardCharsets.ISO_8859_1));
+        } catch (NumberFormatException e) {
+            // JSONObject#getLong parses strings with Long#parseLong, but truncates fractions and exponents of numbers.
+            if(!quoted) return (long) parseDouble(start, end, name);
+
+            mismatch(name, "is not a long.");
+            return 0;
+        }
+    }
+
+    private double readDouble(String name) throws JSONException {
+        int c = skipWhitespace();
+        boolean quoted = c == '"';
+        int start = quoted ? pos + 1 : pos;
+        int end = numberEnd(start);
+
+        if(end == start || (quoted && (end >= json.length || json[end] != '"'))) {
+            skipValue();
+            mismatch(name, "is not a number.");
+            return 0;
+        }
+        pos = quoted ? end + 1 : end;
+
+        return parseDouble(start, end, name);
+    }
+
+    private int numberEnd(int from) {
+        int end = from;
+
+        while (end < json.length) {
+            byte b = json[end];
+
+            if((b >= '0' && b <= '9') || b == '-' || b == '+' || b == '.' || b == 'e' || b == 'E') end++;
+            else break;
+        }
+        return end;
+    }
+
+    /**
+     * @return The value if the range is an optionally negative run of at most 18 digits, otherwise
+     * {@link Long#MIN_VALUE}, which no such run can produce.
+     */
+    private long parseInteger(int start, int end) {
+        boolean negative = json[start] == '-';
+        int i = negative ? start + 1 : start;
+
+        if(i == end || end - i > 18) return Long.MIN_VALUE;
+
+        long value = 0;
+        for (; i < end; i++) {
+            int digit = json[i] - '0';
+
+            if(digit < 0 || digit > 9) return Long.MIN_VALUE;
+            value = value * 10 + digit;
+        }
+        return negative ? -value : value;
+    }
+
+    private double parseDouble(int start, int end, String name) {
+        int i = start;
+        boolean negative = json[i] == '-';
+        if(negative || json[i] == '+') i++;
+
+        long mantissa = 0;
+        int digits = 0, scale = 0;
+        boolean dot = false, any = false;
+
+        for (; i < end; i++) {
+            byte b = json[i];
+
+            if(b >= '0' && b <= '9') {
+                any = true;
+                if(digits < 18) {
+                    mantissa = mantissa * 10 + (b - '0');
+                    if(mantissa != 0) digits++;
+                    if(dot) scale--;
+                } else if(!dot) {
+                    scale++;
+                }
+            } else if(b == '.' && !dot) {
+                dot = true;
+            } else break;
+        }
+
+        // Exact when both the digits and the power of ten are representable, which covers every value the API
+        // sends. Anything else, including exponents, goes through the JDK parser.
+        if(any && i == end && mantissa < (1L << 53) && scale >= -22 && scale <= 22) {
+            double value = scale < 0 ? mantissa / POWERS_OF_TEN[-scale] : mantissa * POWERS_OF_TEN[scale];
+
+            return negative ? -value : value;
+        }
+
+        try {
+            return Double.parseDouble(new String(json, start, end - start, StandardCharsets.ISO_8859_1));
+        } catch (NumberFormatException e) {
+            mismatch(name, "is not a number.");
+            return 0;
+        }
+    }
+
+    private void skipValue() throws JSONException {
+        int depth = 0;
+
+        do {
+            int c = skipWhitespace();
+
+            switch (c) {
+                case '{', '[' -> {
+                    depth++;
+                    pos++;
+                }
+                case '}', ']' -> {
+                    if(depth == 0) throw syntaxError("Unexpected '" + (char) c + "'");
+                    depth--;
+                    pos++;
+                }
+                case ',', ':' -> {
+                    if(depth == 0) throw syntaxError("Missing value");
+                    pos++;
+                }
+                case '"' -> {
+                    pos++;
+                    while (true) {
+                        if(pos >= json.length) throw syntaxError("Unterminated string");
+
+                        byte b = json[pos++];
+                        if(b == '"') break;
+                        if(b == '\\') pos++;
+                    }
+                }
+                case -1 -> throw syntaxError("Missing value");
+                default -> {
+                    // Numbers, true, false and null.
+                    int start = pos;
+                    while (pos < json.length && isLiteralByte(json[pos])) pos++;
+
+                    if(pos == start) throw syntaxError("Unexpected '" + (char) c + "'");
+                }
+            }
+        } while (depth > 0);
+    }
+
+    private void endDocument() throws JSONException {
+        if(skipWhitespace() != -1) throw syntaxError("Unexpected content after the JSONObject");
+    }
+
+    private boolean literal(String word) {
+        int length = word.length();
+
+        if(pos + length > json.length) return false;
+        for (int i = 0; i < length; i++) {
+            if(json[pos + i] != word.charAt(i)) return false;
+        }
+        if(pos + length < json.length && isLiteralByte(json[pos + length])) return false;
+
+        pos += length;
+        return true;
+    }
+
+    private boolean equalsIgnoreCase(int from, String word) {
+        for (int i = 0; i < word.length(); i++) {
+            if((json[from + i] | 0x20) != word.charAt(i)) return false;
+        }
+        return true;
+    }
+
+    private static boolean isLiteralByte(byte b) {
+        return (b >= '0' && b <= '9') || (b >= 'a' && b <= 'z') || (b >= 'A' && b <= 'Z')
+                || b == '-' || b == '+' || b == '.';
+    }
+
+    /**
+     * @return The next non-whitespace byte without consuming it, or -1 at the end of the input.
+     */
+    private int skipWhitespace() {
+        while (pos < json.length) {
+            byte b = json[pos];
+
+            if(b != ' ' && b != '\n' && b != '\r' && b != '\t') return b;
+            pos++;
+        }
+        return -1;
+    }
+
+    private JSONException syntaxError(String message) {
+        return new JSONException(message + " at " + pos);
+    }
+
+    private int markSeen(int seen, int field, String[] names) throws JSONException {
+        current = field;
+        if(field < 0) return seen;
+
+        if((seen & 1 << field) != 0) throw new JSONException("Duplicate key \"" + names[field] + "\"");
+        return seen | 1 << field;
+    }
+
+    /**
+     * Throws for the first required field that is missing or was of the wrong type. Like the
+     * {@link dev.brighten.antivpn.utils.json.JSONObject} getters, fields that are never needed may hold anything.
+     */
+    private void require(int seen, int required, String[] names) throws JSONException {
+        int missing = required & ~seen;
+
+        if(missing != 0) {
+            throw new JSONException("JSONObject[\"" + names[Integer.numberOfTrailingZeros(missing)]
+                    + "\"] not found.");
+        }
+        if(mismatches == null) return;
+
+        for (int field = 0; field < mismatches.length; field++) {
+            if((required & 1 << field) != 0 && mismatches[field] != null) {
+                throw new JSONException(mismatches[field]);
+            }
+        }
+    }
+
+    private void mismatch(String name, String problem) {
+        if(mismatches == null) mismatches = new String[32];
+
+        if(mismatches[current] == null) mismatches[current] = "JSONObject[\"" + name + "\"] " + problem;
+    }
+
+    private static int bits(int... fields) {
+        int bits = 0;
+
+        for (int field : fields) {
+            bits |= 1 << field;
+        }
+        return bits;
+    }
+
+    private static byte[][] ascii(String[] names) {
+        byte[][] keys = new byte[names.length][];
+
+        for (int i = 0; i < names.length; i++) {
+            keys[i] = names[i].getBytes(StandardCharsets.US_ASCII);
+        }
+        return keys;
+    }
+}
@@ -0,0 +1,166 @@
+/*
+ * Copyright 2026 Dawson Hessler
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package dev.brighten.antivpn.web;
+
+import dev.brighten.antivpn.utils.json.JSONException;
+import dev.brighten.antivpn.utils.json.JSONObject;
+import lombok.Getter;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * A shared, persistent HTTP client used for all outbound web requests. Connections are kept alive and
+ * multiplexed over HTTP/2 where the remote supports it, so lookups no longer pay for a new TLS handshake
+ * each time and never hold a plugin thread while waiting on the network.
+ */
+public class WebClient implements AutoCloseable {
+
+    private static final String USER_AGENT = "KauriVPN";
+
+    private final HttpClient client;
+    @Getter
+    private final Duration connectTimeout, readTimeout;
+
+    public WebClient(Duration connectTimeout, Duration readTimeout) {
+        this.connectTimeout = connectTimeout;
+        this.readTimeout = readTimeout;
+        this.client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_2)
+                .connectTimeout(connectTimeout)
+                .followRedirects(HttpClient.Redirect.NORMAL)
+                .build();
+    }
+
+    /**
+     * Sends a GET request to the provided URL and completes with the (decompressed) response body.
+     *
+     * @param url String
+     * @return CompletableFuture of the raw response body
+     */
+    public CompletableFuture<byte[]> get(String url) {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(url))
+                .timeout(readTimeout)
+                .header("Accept", "application/json")
+                .header("Accept-Encoding", "gzip")
+                .header("User-Agent", USER_AGENT)
+                .GET()
+                .build();
+
+        return client.sendAsync(request, HttpResponse.BodyHandlers.ofByteArray())
+                .thenApply(WebClient::decodeBody);
+    }
+
+    /**
+     * Sends a GET request to the provided URL and parses the response body as a {@link JSONObject}.
+     *
+     * @param url String
+     * @return CompletableFuture of the parsed JSON
+     */
+    public CompletableFuture<JSONObject> getJson(String url) {
+        return get(url).thenApply(body -> {
+            try {
+                return new JSONObject(new String(body, StandardCharsets.UTF_8));
+            } catch (JSONException e) {
+                throw new CompletionException(e);
+            }
+        });
+    }
+
+    /**
+     * Stops the client from taking new requests and releases its connections and selector thread once the
+     * requests already sent have finished. Does not wait for them, so it is safe to call while lookups run.
+     */
+    @Override
+    public void close() {
+        client.shutdown();
+    }
+
+    /**
+     * Waits on a future returned by this client, rethrowing the original {@link IOException} or
+     * {@link JSONException} for callers that still need a blocking call.
+     *
+     * @param future CompletableFuture
+     * @return T
+     * @throws JSONException Throws when JSON response is not formatted properly.
+     * @throws IOException Throws when there is an error connecting to or reading from the remote.
+     */
+    public static <T> T await(CompletableFuture<T> future) throws JSONException, IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting on web request", e);
+        } catch (ExecutionException e) {
+            Throwable cause = unwrap(e);
+
+            if(cause instanceof JSONException jsonException) throw jsonException;
+            if(cause instanceof IOException ioException) throw ioException;
+            if(cause instanceof RuntimeException runtimeException) throw runtimeException;
+            throw new IOException(cause);
+        }
+    }
+
+    /**
+     * Strips the {@link CompletionException} and {@link ExecutionException} wrappers that futures add.
+     *
+     * @param throwable Throwable
+     * @return The underlying cause
+     */
+    public static Throwable unwrap(Throwable throwable) {
+        while((throwable instanceof CompletionException || throwable instanceof ExecutionException
+                || throwable instanceof UncheckedIOException) && throwable.getCause() != null) {
+            throwable = throwable.getCause();
+        }
+        return throwable;
+    }
+
+    private static byte[] decodeBody(HttpResponse<byte[]> response) {
+        byte[] body = response.body();
+
+        // Error pages are rarely the JSON we expect, so they fail here with their status instead of in the decoder.
+        if(response.statusCode() < 200 || response.statusCode() >= 300) {
+            throw new UncheckedIOException(new IOException("Server returned HTTP " + response.statusCode()
+                    + " for " + response.uri()));
+        }
+
+        boolean gzipped = response.headers().firstValue("Content-Encoding")
+                .map(encoding -> encoding.equalsIgnoreCase("gzip"))
+                .orElse(false);
+
+        if(!gzipped) {
+            return body;
+        }
+
+        try(GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(body))) {
+            return in.readAllBytes();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
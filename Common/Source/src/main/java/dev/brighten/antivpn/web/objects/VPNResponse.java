@@ -18,10 +18,13 @@ package dev.brighten.antivpn.web.objects;
 
 import dev.brighten.antivpn.utils.json.JSONException;
 import dev.brighten.antivpn.utils.json.JSONObject;
+import dev.brighten.antivpn.web.ResponseDecoder;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 
+import java.nio.charset.StandardCharsets;
+
 @Data
 @AllArgsConstructor
 @Builder
@@ -52,14 +55,14 @@ public class VPNResponse {
     }
 
     /**
-     * Feeds into {@link VPNResponse#fromJson(JSONObject)} formatting the JSON {@link String} into
-     * a {@link JSONObject}
+     * Decodes the JSON {@link String} with {@link ResponseDecoder}, without building a {@link JSONObject}.
      *
      * @param json String
      * @return VPNResponse
+     * @throws JSONException Throws when JSON is not formatted properly.
      */
     public static VPNResponse fromJson(String json) throws JSONException {
-        return fromJson(new JSONObject(json));
+        return ResponseDecoder.decodeVPNResponse(json.getBytes(StandardCharsets.UTF_8));
     }
 
     public static final VPNResponse FAILED_RESPONSE = VPNResponse.builder()
@@ -0,0 +1,380 @@
+/*
+ * Copyright 2026 Dawson Hessler
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package dev.brighten.antivpn.web.objects;
+
+import dev.brighten.antivpn.utils.IpAddress;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A compact, versioned binary encoding of {@link VPNResponse} for caches, storage and snapshots.
+ * <p>
+ * Every field round-trips exactly. Address literals are packed into their 4 or 16 bytes, two letter country codes
+ * into 2 bytes and {@code AS<number>} into a varint, falling back to the plain string whenever packing would not
+ * give back the same text. Other strings go through a dictionary scoped to one {@link #encode} or
+ * {@link #encodeAll} call: the first occurrence is written inline, later ones as a reference to it, so a snapshot
+ * of many responses only stores each ISP, city and time zone once.
+ */
+public final class VPNResponseCodec {
+
+    /**
+     * Leading byte of a single encoded response.
+     */
+    public static final int VERSION = 1;
+    /**
+     * Leading byte of a batch written by {@link #encodeAll(Collection)}.
+     */
+    public static final int BATCH_VERSION = 0x80 | VERSION;
+
+    private static final int SUCCESS = 1, PROXY = 1 << 1, CACHED = 1 << 2, IPV4 = 1 << 3, IPV6 = 1 << 4,
+            COUNTRY_CODE = 1 << 5, ASN = 1 << 6;
+
+    // String references, anything above DICTIONARY is an index into the strings seen so far.
+    private static final int NULL = 0, INLINE = 1, DICTIONARY = 2;
+
+    private VPNResponseCodec() {
+    }
+
+    /**
+     * @param response VPNResponse
+     * @return byte[]
+     */
+    public static byte[] encode(VPNResponse response) {
+        Writer writer = new Writer(64);
+
+        writer.writeByte(VERSION);
+        writer.writeResponse(response);
+        return writer.toByteArray();
+    }
+
+    /**
+     * @param bytes byte[] written by {@link #encode(VPNResponse)}
+     * @return VPNResponse
+     * @throws IllegalArgumentException if the bytes are truncated or of an unknown version
+     */
+    public static VPNResponse decode(byte[] bytes) {
+        Reader reader = new Reader(bytes);
+
+        reader.readVersion(VERSION);
+        VPNResponse response = reader.readResponse();
+        reader.requireEnd();
+        return response;
+    }
+
+    /**
+     * Encodes the responses into one batch sharing a single string dictionary.
+     *
+     * @param responses Collection
+     * @return byte[]
+     */
+    public static byte[] encodeAll(Collection<VPNResponse> responses) {
+        Writer writer = new Writer(16 + responses.size() * 32);
+
+        writer.writeByte(BATCH_VERSION);
+        writer.writeVarLong(responses.size());
+        for (VPNResponse response : responses) {
+            writer.writeResponse(response);
+        }
+        return writer.toByteArray();
+    }
+
+    /**
+     * @param bytes byte[] written by {@link #encodeAll(Collection)}
+     * @return List, in the order the responses were encoded
+     * @throws IllegalArgumentException if the bytes are truncated or of an unknown version
+     */
+    public static List<VPNResponse> decodeAll(byte[] bytes) {
+        Reader reader = new Reader(bytes);
+
+        reader.readVersion(BATCH_VERSION);
+        long count = reader.readVarLong();
+        // Every response takes at least a few bytes, so a larger count can only come from corrupt input.
+        if(count < 0 || count > bytes.length) {
+            throw new IllegalArgumentException("Invalid VPNResponse batch size " + count);
+        }
+
+        List<VPNResponse> responses = new ArrayList<>((int) count);
+        for (long i = 0; i < count; i++) {
+            responses.add(reader.readResponse());
+        }
+        reader.requireEnd();
+        return responses;
+    }
+
+    private static final class Writer {
+        private final Map<String, Integer> dictionary = new HashMap<>();
+        private byte[] buffer;
+        private int size;
+
+        private Writer(int capacity) {
+            buffer = new byte[capacity];
+        }
+
+        private void writeResponse(VPNResponse response) {
+            IpAddress ip = packedIp(response.getIp());
+            String countryCode = response.getCountryCode();
+            boolean packCountry = isPackableCountryCode(countryCode);
+            long asn = packedAsn(response.getAsn());
+
+            int flags = (response.isSuccess() ? SUCCESS : 0) | (response.isProxy() ? PROXY : 0)
+                    | (response.isCached() ? CACHED : 0) | (packCountry ? COUNTRY_CODE : 0) | (asn >= 0 ? ASN : 0);
+            if(ip != null) {
+                flags |= ip.ipv4() ? IPV4 : IPV6;
+            }
+            writeByte(flags);
+
+            if(ip == null) {
+                writeString(response.getIp());
+            } else if(ip.ipv4()) {
+                writeInt((int) ip.lo());
+            } else {
+                writeLong(ip.hi());
+                writeLong(ip.lo());
+            }
+
+            if(packCountry) {
+                writeByte(countryCode.charAt(0));
+                writeByte(countryCode.charAt(1));
+            } else writeString(countryCode);
+
+            if(asn >= 0) {
+                writeVarLong(asn);
+            } else writeString(response.getAsn());
+
+            writeString(response.getCountryName());
+            writeString(response.getCity());
+            writeString(response.getTimeZone());
+            writeString(response.getMethod());
+            writeString(response.getIsp());
+            writeString(response.getFailureReason());
+            writeLong(Double.doubleToRawLongBits(response.getLatitude()));
+            writeLong(Double.doubleToRawLongBits(response.getLongitude()));
+            writeVarLong(response.getLastAccess());
+            writeVarLong(response.getQueriesLeft());
+        }
+
+        private void writeString(String value) {
+            if(value == null) {
+                writeVarLong(NULL);
+                return;
+            }
+
+            Integer index = dictionary.get(value);
+            if(index != null) {
+                writeVarLong(DICTIONARY + (long) index);
+                return;
+            }
+
+            dictionary.put(value, dictionary.size());
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            writeVarLong(INLINE);
+            writeVarLong(bytes.length);
+            ensure(bytes.length);
+            System.arraycopy(bytes, 0, buffer, size, bytes.length);
+            size += bytes.length;
+        }
+
+        // Zigzag LEB128, so small values of either sign take one or two bytes.
+        private void writeVarLong(long value) {
+            long zigzag = (value << 1) ^ (value >> 63);
+
+            ensure(10);
+            while ((zigzag & ~0x7FL) != 0) {
+                buffer[size++] = (byte) ((zigzag & 0x7F) | 0x80);
+                zigzag >>>= 7;
+            }
+            buffer[size++] = (byte) zigzag;
+        }
+
+        private void writeInt(int value) {
+            ensure(4);
+            for (int shift = 24; shift >= 0; shift -= 8) {
+                buffer[size++] = (byte) (value >>> shift);
+            }
+        }
+
+        private void writeLong(long value) {
+            writeInt((int) (value >>> 32));
+            writeInt((int) value);
+        }
+
+        private void writeByte(int value) {
+            ensure(1);
+            buffer[size++] = (byte) value;
+        }
+
+        private void ensure(int extra) {
+            if(size + extra > buffer.length) {
+                buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, size + extra));
+            }
+        }
+
+        private byte[] toByteArray() {
+            return Arrays.copyOf(buffer, size);
+        }
+    }
+
+    private static final class Reader {
+        private final List<String> dictionary = new ArrayList<>();
+        private final byte[] bytes;
+        private int position;
+
+        private Reader(byte[] bytes) {
+            this.bytes = bytes;
+        }
+
+        private void readVersion(int expected) {
+            int version = readByte();
+
+            if(version != expected) {
+                throw new IllegalArgumentException("Unsupported VPNResponse encoding version " + version
+                        + ", expected " + expected);
+            }
+        }
+
+        private VPNResponse readResponse() {
+            int flags = readByte();
+
+            String ip;
+            if((flags & IPV4) != 0) {
+                ip = IpAddress.ofIpv4(readInt() & 0xFFFFFFFFL).toString();
+            } else if((flags & IPV6) != 0) {
+                ip = IpAddress.ofIpv6(readLong(), readLong()).toString();
+            } else ip = readString();
+
+            String countryCode = (flags & COUNTRY_CODE) != 0
+                    ? new String(new char[] {(char) readByte(), (char) readByte()})
+                    : readString();
+            String asn = (flags & ASN) != 0 ? "AS" + readVarLong() : readString();
+
+            return new VPNResponse(asn, ip, readString(), countryCode, readString(), readString(), readString(),
+                    readString(), readString(), (flags & PROXY) != 0, (flags & CACHED) != 0,
+                    (flags & SUCCESS) != 0, Double.longBitsToDouble(readLong()),
+                    Double.longBitsToDouble(readLong()), readVarLong(), readVarLong());
+        }
+
+        private String readString() {
+            long reference = readVarLong();
+
+            if(reference == NULL) return null;
+            if(reference >= DICTIONARY) {
+                if(reference - DICTIONARY >= dictionary.size()) {
+                    throw new IllegalArgumentException("Unknown string reference " + reference + " at " + position);
+                }
+                return dictionary.get((int) (reference - DICTIONARY));
+            }
+            if(reference != INLINE) {
+                throw new IllegalArgumentException("Invalid string reference " + reference + " at " + position);
+            }
+
+            long length = readVarLong();
+            if(length < 0 || length > bytes.length - position) {
+                throw truncated();
+            }
+
+            String value = new String(bytes, position, (int) length, StandardCharsets.UTF_8);
+            position += (int) length;
+            dictionary.add(value);
+            return value;
+        }
+
+        private long readVarLong() {
+            long zigzag = 0;
+
+            for (int shift = 0; shift < 64; shift += 7) {
+                int b = readByte();
+
+                zigzag |= (long) (b & 0x7F) << shift;
+                if((b & 0x80) == 0) {
+                    return (zigzag >>> 1) ^ -(zigzag & 1);
+                }
+            }
+            throw new IllegalArgumentException("Malformed varint at " + position);
+        }
+
+        private int readInt() {
+            if(bytes.length - position < 4) throw truncated();
+
+            int value = 0;
+            for (int i = 0; i < 4; i++) {
+                value = (value << 8) | (bytes[position++] & 0xFF);
+            }
+            return value;
+        }
+
+        private long readLong() {
+            return ((long) readInt() << 32) | (readInt() & 0xFFFFFFFFL);
+        }
+
+        private int readByte() {
+            if(position >= bytes.length) throw truncated();
+
+            return bytes[position++] & 0xFF;
+        }
+
+        private void requireEnd() {
+            if(position != bytes.length) {
+                throw new IllegalArgumentException((bytes.length - position) + " trailing bytes after VPNResponse");
+            }
+        }
+
+        private IllegalArgumentException truncated() {
+            return new IllegalArgumentException("Truncated VPNResponse encoding at " + position);
+        }
+    }
+
+    private static IpAddress packedIp(String ip) {
+        if(ip == null) return null;
+
+        IpAddress address = IpAddress.tryParse(ip);
+        // Only when decoding gives back the exact same text, e.g. not for compressed IPv6 literals.
+        return address != null && address.toString().equals(ip) ? address : null;
+    }
+
+    private static boolean isPackableCountryCode(String code) {
+        return code != null && code.length() == 2 && isUpperAscii(code.charAt(0)) && isUpperAscii(code.charAt(1));
+    }
+
+    private static boolean isUpperAscii(char c) {
+        return c >= 'A' && c <= 'Z';
+    }
+
+    /**
+     * @return the number of an {@code AS<number>} string in canonical form, or -1 if it is not one
+     */
+    private static long packedAsn(String asn) {
+        if(asn == null || asn.length() < 3 || asn.length() > 12 || !asn.startsWith("AS")
+                || (asn.charAt(2) == '0' && asn.length() > 3)) {
+            return -1;
+        }
+
+        long number = 0;
+        for (int i = 2; i < asn.length(); i++) {
+            char c = asn.charAt(i);
+
+            if(c < '0' || c > '9') return -1;
+            number = number * 10 + (c - '0');
+        }
+        return number;
+    }
+}
@@ -0,0 +1,55 @@
+package dev.brighten.antivpn.api;
+
+import dev.brighten.antivpn.web.objects.VPNResponse;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CheckPolicyTest {
+
+    private static VPNResponse response(String countryCode, boolean proxy) {
+        return VPNResponse.builder().success(true).countryCode(countryCode).proxy(proxy).build();
+    }
+
+    @Test
+    void exemptsConfiguredNamePrefixes() {
+        CheckPolicy policy = new CheckPolicy(List.of(".", "BE_"), List.of(), true, List.of());
+
+        assertTrue(policy.isExempt(".BedrockPlayer"));
+        assertTrue(policy.isExempt("BE_Steve"));
+        assertFalse(policy.isExempt("BEN"));
+        assertFalse(policy.isExempt("Steve"));
+        assertFalse(CheckPolicy.EMPTY.isExempt("Steve"));
+    }
+
+    @Test
+    void deniesCountriesOutsideTheAllowlist() {
+        CheckPolicy policy = new CheckPolicy(List.of(), List.of("US", "ca"), true, List.of());
+
+        assertEquals(ResultType.ALLOWED, policy.evaluate(response("US", false)));
+        assertEquals(ResultType.ALLOWED, policy.evaluate(response("CA", false)));
+        assertEquals(ResultType.DENIED_COUNTRY, policy.evaluate(response("DE", false)));
+        assertEquals(ResultType.DENIED_COUNTRY, policy.evaluate(response(null, false)));
+        assertEquals(ResultType.DENIED_PROXY, policy.evaluate(response("US", true)));
+    }
+
+    @Test
+    void deniesBlocklistedCountries() {
+        CheckPolicy policy = new CheckPolicy(List.of(), List.of("RU"), false, List.of());
+
+        assertEquals(ResultType.DENIED_COUNTRY, policy.evaluate(response("RU", false)));
+        assertEquals(ResultType.ALLOWED, policy.evaluate(response("FR", false)));
+        assertEquals(ResultType.ALLOWED, CheckPolicy.EMPTY.evaluate(response("RU", false)));
+    }
+
+    @Test
+    void responseRulesRunBeforeTheProxyCheck() {
+        CheckPolicy policy = new CheckPolicy(List.of(), List.of(), true,
+                List.of(response -> "AS13335".equals(response.getAsn()) ? ResultType.DENIED_PROXY : null));
+
+        assertEquals(ResultType.DENIED_PROXY, policy.evaluate(VPNResponse.builder().success(true).asn("AS13335").build()));
+        assertEquals(ResultType.ALLOWED, policy.evaluate(response("US", false)));
+    }
+}
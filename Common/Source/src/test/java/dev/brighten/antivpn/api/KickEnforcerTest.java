@@ -0,0 +1,133 @@
+package dev.brighten.antivpn.api;
+
+import dev.brighten.antivpn.AntiVPN;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Field;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class KickEnforcerTest {
+
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+    private final KickEnforcer enforcer = new KickEnforcer(scheduler, 10, 200);
+    private final UUID uuid = UUID.randomUUID();
+    private final AtomicBoolean online = new AtomicBoolean();
+    private final AtomicInteger kicks = new AtomicInteger();
+
+    @BeforeEach
+    void setUp() throws Exception {
+        AntiVPN antiVPN = mock(AntiVPN.class);
+        when(antiVPN.getExecutor()).thenReturn(mock(VPNExecutor.class));
+        setInstance(antiVPN);
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        scheduler.shutdownNow();
+        setInstance(null);
+    }
+
+    private static void setInstance(AntiVPN antiVPN) throws Exception {
+        Field instanceField = AntiVPN.class.getDeclaredField("INSTANCE");
+        instanceField.setAccessible(true);
+        instanceField.set(null, antiVPN);
+    }
+
+    private boolean tryKick() {
+        if(!online.get()) return false;
+
+        kicks.incrementAndGet();
+        return true;
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.nanoTime() < deadline, "Timed out waiting for condition");
+            Thread.sleep(5);
+        }
+    }
+
+    @Test
+    void waitsForTheJoinBeforeKicking() throws Exception {
+        enforcer.enforce(uuid, this::tryKick);
+        assertEquals(KickEnforcer.State.PENDING, enforcer.getState(uuid));
+        assertEquals(0, kicks.get());
+
+        online.set(true);
+        enforcer.joined(uuid);
+        await(() -> kicks.get() >= 1);
+        assertEquals(KickEnforcer.State.KICKED, enforcer.getState(uuid));
+
+        online.set(false);
+        enforcer.disconnected(uuid);
+        assertNull(enforcer.getState(uuid));
+        assertEquals(0, enforcer.size());
+    }
+
+    @Test
+    void retriesUntilThePlayerIsGone() throws Exception {
+        online.set(true);
+        enforcer.enforce(uuid, this::tryKick);
+        assertEquals(1, kicks.get());
+
+        await(() -> kicks.get() >= 3);
+        online.set(false);
+        await(() -> enforcer.getState(uuid) == null);
+
+        int kicked = kicks.get();
+        Thread.sleep(100);
+        assertEquals(kicked, kicks.get());
+    }
+
+    @Test
+    void givesUpAfterTheLastAttempt() throws Exception {
+        online.set(true);
+        enforcer.enforce(uuid, this::tryKick);
+
+        await(() -> enforcer.getState(uuid) == null);
+        assertEquals(KickEnforcer.MAX_ATTEMPTS, kicks.get());
+    }
+
+    @Test
+    void dropsDecisionsWhosePlayerNeverJoins() throws Exception {
+        enforcer.enforce(uuid, this::tryKick);
+
+        await(() -> enforcer.getState(uuid) == null);
+        assertEquals(0, kicks.get());
+    }
+
+    @Test
+    void aNewDecisionReplacesTheOldOne() throws Exception {
+        AtomicInteger oldKicks = new AtomicInteger();
+        online.set(true);
+        enforcer.enforce(uuid, () -> {
+            oldKicks.incrementAndGet();
+            return true;
+        });
+        enforcer.enforce(uuid, this::tryKick);
+
+        await(() -> kicks.get() >= 2);
+        assertEquals(1, oldKicks.get());
+        assertEquals(1, enforcer.size());
+    }
+
+    @Test
+    void disconnectOfAnOlderSessionKeepsThePendingDecision() {
+        enforcer.enforce(uuid, this::tryKick);
+        enforcer.disconnected(uuid);
+
+        assertEquals(KickEnforcer.State.PENDING, enforcer.getState(uuid));
+    }
+}
@@ -0,0 +1,138 @@
+package dev.brighten.antivpn.api;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LookupAdmissionTest {
+
+    private final AtomicInteger limit = new AtomicInteger(1);
+    private final LookupAdmission admission = new LookupAdmission(limit::get);
+    private final List<String> started = new ArrayList<>();
+
+    private CompletableFuture<String> submit(LookupPriority priority, String name, CompletableFuture<String> lookup) {
+        return admission.submit(priority, () -> {
+            started.add(name);
+            return lookup;
+        });
+    }
+
+    @Test
+    void queuesLookupsBeyondTheLimit() {
+        CompletableFuture<String> first = new CompletableFuture<>();
+        CompletableFuture<String> firstResult = submit(LookupPriority.LOGIN, "first", first);
+        CompletableFuture<String> secondResult = submit(LookupPriority.LOGIN, "second",
+                CompletableFuture.completedFuture("second"));
+
+        assertEquals(List.of("first"), started);
+        assertEquals(1, admission.getQueued(LookupPriority.LOGIN));
+
+        first.complete("first");
+        assertEquals("first", firstResult.join());
+        assertEquals("second", secondResult.join());
+        assertEquals(0, admission.getRunning());
+    }
+
+    @Test
+    void servesHigherClassesFirst() {
+        CompletableFuture<String> blocker = new CompletableFuture<>();
+        submit(LookupPriority.LOGIN, "blocker", blocker);
+
+        submit(LookupPriority.RECHECK, "recheck", CompletableFuture.completedFuture("recheck"));
+        submit(LookupPriority.LOGIN, "login", CompletableFuture.completedFuture("login"));
+        submit(LookupPriority.RELOGIN, "relogin", CompletableFuture.completedFuture("relogin"));
+        submit(LookupPriority.STAFF, "staff", CompletableFuture.completedFuture("staff"));
+
+        blocker.complete("blocker");
+        assertEquals(List.of("blocker", "staff", "relogin", "login", "recheck"), started);
+    }
+
+    @Test
+    void rejectsNewStaffLookupsOnceFull() {
+        submit(LookupPriority.STAFF, "blocker", new CompletableFuture<>());
+        for (int i = 0; i < LookupPriority.STAFF.getQueueCapacity(); i++) {
+            submit(LookupPriority.STAFF, "queued", new CompletableFuture<>());
+        }
+
+        CompletableFuture<String> rejected = submit(LookupPriority.STAFF, "rejected", new CompletableFuture<>());
+
+        CompletionException e = assertThrows(CompletionException.class, rejected::join);
+        assertInstanceOf(RejectedExecutionException.class, e.getCause());
+        assertEquals(1, admission.getShed(LookupPriority.STAFF));
+        assertEquals(LookupPriority.STAFF.getQueueCapacity(), admission.getQueued(LookupPriority.STAFF));
+    }
+
+    @Test
+    void dropsTheOldestLoginOnceFull() {
+        CompletableFuture<String> blocker = new CompletableFuture<>();
+        submit(LookupPriority.LOGIN, "blocker", blocker);
+        CompletableFuture<String> oldest = submit(LookupPriority.LOGIN, "oldest",
+                CompletableFuture.completedFuture("oldest"));
+        for (int i = 1; i < LookupPriority.LOGIN.getQueueCapacity(); i++) {
+            submit(LookupPriority.LOGIN, "queued", CompletableFuture.completedFuture("queued"));
+        }
+
+        CompletableFuture<String> newest = submit(LookupPriority.LOGIN, "newest",
+                CompletableFuture.completedFuture("newest"));
+
+        CompletionException e = assertThrows(CompletionException.class, oldest::join);
+        assertInstanceOf(RejectedExecutionException.class, e.getCause());
+        assertEquals(1, admission.getShed(LookupPriority.LOGIN));
+
+        blocker.complete("blocker");
+        assertEquals("newest", newest.join());
+        assertFalse(started.contains("oldest"));
+    }
+
+    @Test
+    void followsARaisedLimitOnceALookupFinishes() {
+        CompletableFuture<String> first = new CompletableFuture<>();
+        submit(LookupPriority.LOGIN, "first", first);
+        submit(LookupPriority.LOGIN, "second", new CompletableFuture<>());
+        submit(LookupPriority.LOGIN, "third", new CompletableFuture<>());
+        submit(LookupPriority.LOGIN, "fourth", new CompletableFuture<>());
+
+        limit.set(3);
+        first.complete("first");
+        assertEquals(List.of("first", "second", "third", "fourth"), started);
+        assertEquals(3, admission.getRunning());
+    }
+
+    @Test
+    void followsALoweredLimitForNewLookups() {
+        limit.set(2);
+        CompletableFuture<String> first = new CompletableFuture<>();
+        submit(LookupPriority.LOGIN, "first", first);
+        submit(LookupPriority.LOGIN, "second", new CompletableFuture<>());
+
+        limit.set(1);
+        submit(LookupPriority.LOGIN, "third", new CompletableFuture<>());
+        first.complete("first");
+        assertEquals(List.of("first", "second"), started);
+        assertEquals(1, admission.getQueued(LookupPriority.LOGIN));
+    }
+
+    @Test
+    void drainsLookupsThatFailRightAway() {
+        CompletableFuture<String> blocker = new CompletableFuture<>();
+        submit(LookupPriority.LOGIN, "blocker", blocker);
+
+        List<CompletableFuture<String>> failing = new ArrayList<>();
+        for (int i = 0; i < LookupPriority.LOGIN.getQueueCapacity(); i++) {
+            failing.add(admission.submit(LookupPriority.LOGIN, () -> {
+                throw new RejectedExecutionException("Executor is shut down");
+            }));
+        }
+
+        blocker.complete("blocker");
+        assertTrue(failing.stream().allMatch(CompletableFuture::isCompletedExceptionally));
+        assertEquals(0, admission.getRunning());
+    }
+}
@@ -0,0 +1,144 @@
+package dev.brighten.antivpn.api;
+
+import dev.brighten.antivpn.AntiVPN;
+import dev.brighten.antivpn.database.VPNDatabase;
+import dev.brighten.antivpn.web.objects.VPNResponse;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class VPNExecutorTest {
+
+    private static final String IP = "1.2.3.4";
+    private static final int CALLERS = 8;
+
+    private final VPNDatabase database = mock(VPNDatabase.class);
+    private final TestVPNExecutor executor = new TestVPNExecutor();
+    // Holds the lookup in the database read until released, so every caller finds it still running.
+    private final CountDownLatch release = new CountDownLatch(1);
+    private final ExecutorService callers = Executors.newFixedThreadPool(CALLERS);
+
+    @BeforeEach
+    void setUp() throws Exception {
+        AntiVPN antiVPN = mock(AntiVPN.class);
+        when(antiVPN.getExecutor()).thenReturn(executor);
+        when(antiVPN.getDatabase()).thenReturn(database);
+        setInstance(antiVPN);
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        release.countDown();
+        callers.shutdownNow();
+        executor.shutdownThreads();
+        setInstance(null);
+    }
+
+    private static void setInstance(AntiVPN antiVPN) throws Exception {
+        Field instanceField = AntiVPN.class.getDeclaredField("INSTANCE");
+        instanceField.setAccessible(true);
+        instanceField.set(null, antiVPN);
+    }
+
+    /**
+     * Checks the IP from {@link #CALLERS} threads at once while the lookup is held.
+     */
+    private List<CompletableFuture<VPNResponse>> checkConcurrently() throws Exception {
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<CompletableFuture<VPNResponse>>> submitted = new ArrayList<>();
+
+        for (int i = 0; i < CALLERS; i++) {
+            submitted.add(callers.submit(() -> {
+                start.await();
+                return executor.checkIp(IP, LookupPriority.LOGIN);
+            }));
+        }
+        start.countDown();
+
+        List<CompletableFuture<VPNResponse>> results = new ArrayList<>();
+        for (Future<CompletableFuture<VPNResponse>> future : submitted) {
+            results.add(future.get(5, TimeUnit.SECONDS));
+        }
+        return results;
+    }
+
+    @Test
+    void concurrentCallersShareOneLookup() throws Exception {
+        VPNResponse stored = VPNResponse.builder().ip(IP).asn("AS1").countryCode("US").success(true).build();
+        when(database.getStoredResponse(IP)).thenAnswer(invocation -> {
+            release.await();
+            return Optional.of(stored);
+        });
+
+        List<CompletableFuture<VPNResponse>> results = checkConcurrently();
+        assertEquals(CALLERS - 1, executor.getCoalescedLookupCount());
+
+        release.countDown();
+        for (CompletableFuture<VPNResponse> result : results) {
+            assertEquals("AS1", result.get(5, TimeUnit.SECONDS).getAsn());
+        }
+        verify(database, times(1)).getStoredResponse(IP);
+
+        // Answered from the cache once the lookup finished, without joining or starting another one.
+        CompletableFuture<VPNResponse> late = executor.checkIp(IP, LookupPriority.LOGIN);
+        assertTrue(late.isDone());
+        assertEquals("AS1", late.join().getAsn());
+        assertEquals(CALLERS - 1, executor.getCoalescedLookupCount());
+        verify(database, times(1)).getStoredResponse(IP);
+    }
+
+    @Test
+    void failedLookupReleasesEveryCaller() throws Exception {
+        when(database.getStoredResponse(IP)).thenAnswer(invocation -> {
+            release.await();
+            throw new IllegalStateException("Database unavailable");
+        });
+
+        List<CompletableFuture<VPNResponse>> results = checkConcurrently();
+        release.countDown();
+
+        for (CompletableFuture<VPNResponse> result : results) {
+            CompletionException e = assertThrows(CompletionException.class, result::join);
+            assertInstanceOf(IllegalStateException.class, e.getCause());
+        }
+        verify(database, times(1)).getStoredResponse(IP);
+        assertEquals(CALLERS - 1, executor.getCoalescedLookupCount());
+        assertNull(executor.getCachedResponse(IP));
+    }
+
+    private static final class TestVPNExecutor extends VPNExecutor {
+        @Override
+        public void registerListeners() {}
+
+        @Override
+        public void log(Level level, String log, Object... objects) {}
+
+        @Override
+        public void log(String log, Object... objects) {}
+
+        @Override
+        public void logException(String message, Throwable ex) {}
+
+        @Override
+        public void runCommand(String command) {}
+
+        @Override
+        public void disablePlugin() {}
+    }
+}
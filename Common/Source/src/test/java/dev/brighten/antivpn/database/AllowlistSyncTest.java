@@ -0,0 +1,240 @@
+package dev.brighten.antivpn.database;
+
+import dev.brighten.antivpn.AntiVPN;
+import dev.brighten.antivpn.api.VPNExecutor;
+import dev.brighten.antivpn.utils.CIDRTrie;
+import dev.brighten.antivpn.utils.CIDRUtils;
+import dev.brighten.antivpn.utils.SnapshotSet;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class AllowlistSyncTest {
+
+    private final FakeChangeLog log = new FakeChangeLog();
+    private final SnapshotSet<UUID> players = new SnapshotSet<>();
+    private final CIDRTrie ranges = new CIDRTrie();
+    private final SnapshotSet<UUID> alerts = new SnapshotSet<>();
+    private final AtomicLong clock = new AtomicLong();
+    private final AllowlistSync sync = new AllowlistSync(log, players, ranges, alerts, clock::get);
+
+    @BeforeEach
+    void setUp() throws Exception {
+        // Failures are logged through the plugin's executor.
+        AntiVPN antiVPN = mock(AntiVPN.class);
+        when(antiVPN.getExecutor()).thenReturn(mock(VPNExecutor.class));
+        setInstance(antiVPN);
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        setInstance(null);
+    }
+
+    private static void setInstance(AntiVPN antiVPN) throws Exception {
+        Field instanceField = AntiVPN.class.getDeclaredField("INSTANCE");
+        instanceField.setAccessible(true);
+        instanceField.set(null, antiVPN);
+    }
+
+    @Test
+    void appliesOnlyNewChangesInOrder() throws Exception {
+        UUID first = UUID.randomUUID(), second = UUID.randomUUID();
+        log.add(AllowlistSync.Kind.PLAYER, first.toString(), true);
+        assertTrue(sync.reload());
+        assertEquals(Set.of(first), players.snapshot());
+
+        log.add(AllowlistSync.Kind.PLAYER, second.toString(), true);
+        log.add(AllowlistSync.Kind.RANGE, "10.0.0.0/8", true);
+        log.add(AllowlistSync.Kind.PLAYER, first.toString(), false);
+        log.queries = 0;
+
+        assertEquals(3, sync.sync());
+        assertEquals(Set.of(second), players.snapshot());
+        assertTrue(ranges.contains(new CIDRUtils("10.1.2.3/32")));
+        assertEquals(4, sync.getRevision());
+        // Nothing is reloaded, only the three changes were read.
+        assertEquals(1, log.queries);
+
+        assertEquals(0, sync.sync());
+    }
+
+    @Test
+    void keepsAlertSubscriptionsApartFromTheAllowlist() {
+        UUID staff = UUID.randomUUID(), other = UUID.randomUUID();
+        log.add(AllowlistSync.Kind.ALERTS, staff.toString(), true);
+        assertTrue(sync.reload());
+        assertEquals(Set.of(staff), alerts.snapshot());
+        assertTrue(players.snapshot().isEmpty());
+
+        log.add(AllowlistSync.Kind.ALERTS, other.toString(), true);
+        log.add(AllowlistSync.Kind.ALERTS, staff.toString(), false);
+
+        assertEquals(2, sync.sync());
+        assertEquals(Set.of(other), alerts.snapshot());
+        assertTrue(players.snapshot().isEmpty());
+    }
+
+    @Test
+    void appliesOnlyTheLastChangeOfAnEntryInABatch() {
+        UUID gone = UUID.randomUUID(), back = UUID.randomUUID();
+        assertTrue(sync.reload());
+
+        log.add(AllowlistSync.Kind.PLAYER, gone.toString(), true);
+        log.add(AllowlistSync.Kind.PLAYER, back.toString(), true);
+        log.add(AllowlistSync.Kind.PLAYER, gone.toString(), false);
+        log.add(AllowlistSync.Kind.PLAYER, back.toString(), false);
+        log.add(AllowlistSync.Kind.PLAYER, back.toString(), true);
+        log.add(AllowlistSync.Kind.RANGE, "10.0.0.0/8", true);
+        log.add(AllowlistSync.Kind.RANGE, "10.0.0.0/8", false);
+
+        assertEquals(7, sync.sync());
+        assertEquals(Set.of(back), players.snapshot());
+        assertTrue(ranges.isEmpty());
+        assertEquals(7, sync.getRevision());
+    }
+
+    @Test
+    void readsLargeBacklogsInBatches() {
+        assertTrue(sync.reload());
+        for (int i = 0; i < AllowlistSync.BATCH_SIZE + 5; i++) {
+            log.add(AllowlistSync.Kind.PLAYER, UUID.randomUUID().toString(), true);
+        }
+
+        assertEquals(AllowlistSync.BATCH_SIZE + 5, sync.sync());
+        assertEquals(AllowlistSync.BATCH_SIZE + 5, players.size());
+    }
+
+    @Test
+    void waitsForMissingRevisionsThenReloads() {
+        UUID late = UUID.randomUUID(), next = UUID.randomUUID();
+        assertTrue(sync.reload());
+
+        // Revision 1 was taken but is not visible yet.
+        long missing = log.revision.incrementAndGet();
+        log.add(AllowlistSync.Kind.PLAYER, next.toString(), true);
+
+        assertEquals(0, sync.sync());
+        assertFalse(players.contains(next));
+
+        log.commit(missing, AllowlistSync.Kind.PLAYER, late.toString(), true);
+        assertEquals(2, sync.sync());
+        assertEquals(Set.of(late, next), players.snapshot());
+
+        // This one never shows up, the full reload after the timeout still brings the allowlist up to date.
+        log.revision.incrementAndGet();
+        UUID after = UUID.randomUUID();
+        log.add(AllowlistSync.Kind.PLAYER, after.toString(), true);
+        assertEquals(0, sync.sync());
+        assertFalse(players.contains(after));
+
+        clock.addAndGet(AllowlistSync.GAP_TIMEOUT_NANOS);
+        sync.sync();
+        assertTrue(players.contains(after));
+        assertEquals(4, sync.getRevision());
+    }
+
+    @Test
+    void dropsTheStaleBatchAfterAGapReload() {
+        UUID removed = UUID.randomUUID();
+        assertTrue(sync.reload());
+
+        log.revision.incrementAndGet();
+        log.add(AllowlistSync.Kind.PLAYER, removed.toString(), true);
+        assertEquals(0, sync.sync());
+
+        // Removed again after the batch was read but before the reload, replaying the batch would add it back.
+        clock.addAndGet(AllowlistSync.GAP_TIMEOUT_NANOS);
+        log.beforeLoad = () -> log.add(AllowlistSync.Kind.PLAYER, removed.toString(), false);
+        assertEquals(0, sync.sync());
+        log.beforeLoad = () -> {};
+
+        assertFalse(players.contains(removed));
+        assertEquals(3, sync.getRevision());
+        assertEquals(0, sync.sync());
+        assertEquals(3, sync.getRevision());
+    }
+
+    @Test
+    void keepsTheAllowlistWhenLoadingFails() {
+        UUID uuid = UUID.randomUUID();
+        log.add(AllowlistSync.Kind.PLAYER, uuid.toString(), true);
+        assertTrue(sync.reload());
+
+        log.failing = true;
+        assertFalse(sync.reload());
+        assertEquals(Set.of(uuid), players.snapshot());
+    }
+
+    private static final class FakeChangeLog implements AllowlistSync.ChangeLog {
+        private final AtomicLong revision = new AtomicLong();
+        private final List<AllowlistSync.Change> changes = new ArrayList<>();
+        private final Set<UUID> players = new LinkedHashSet<>();
+        private final Set<UUID> alerts = new LinkedHashSet<>();
+        private final List<CIDRUtils> ranges = new ArrayList<>();
+        private int queries;
+        private boolean failing;
+        private Runnable beforeLoad = () -> {};
+
+        private void add(AllowlistSync.Kind kind, String entry, boolean added) {
+            commit(revision.incrementAndGet(), kind, entry, added);
+        }
+
+        private void commit(long revision, AllowlistSync.Kind kind, String entry, boolean added) {
+            Set<UUID> uuids = kind == AllowlistSync.Kind.ALERTS ? alerts : players;
+            if(kind != AllowlistSync.Kind.RANGE) {
+                if(added) uuids.add(UUID.fromString(entry));
+                else uuids.remove(UUID.fromString(entry));
+            }
+            changes.add(new AllowlistSync.Change(revision, kind, entry, added));
+            changes.sort((a, b) -> Long.compare(a.revision(), b.revision()));
+        }
+
+        @Override
+        public long latestRevision() throws Exception {
+            check();
+            beforeLoad.run();
+            return revision.get();
+        }
+
+        @Override
+        public List<AllowlistSync.Change> changesSince(long revision, int limit) throws Exception {
+            check();
+            queries++;
+            return changes.stream().filter(change -> change.revision() > revision).limit(limit).toList();
+        }
+
+        @Override
+        public List<UUID> allPlayers() throws Exception {
+            check();
+            return new ArrayList<>(players);
+        }
+
+        @Override
+        public List<CIDRUtils> allRanges() throws Exception {
+            check();
+            return new ArrayList<>(ranges);
+        }
+
+        @Override
+        public List<UUID> allAlerts() throws Exception {
+            check();
+            return new ArrayList<>(alerts);
+        }
+
+        private void check() throws Exception {
+            if(failing) throw new Exception("Database unavailable");
+        }
+    }
+}
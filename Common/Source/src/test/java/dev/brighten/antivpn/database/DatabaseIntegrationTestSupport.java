@@ -61,6 +61,19 @@ abstract class DatabaseIntegrationTestSupport {
         lenient().when(vpnConfig.getPort()).thenReturn(-1);
         lenient().when(vpnConfig.mongoDatabaseURL()).thenReturn("");
         lenient().when(vpnConfig.useDatabaseCreds()).thenReturn(false);
+        lenient().when(vpnConfig.getDatabasePoolMinimumIdle()).thenReturn(1);
+        lenient().when(vpnConfig.getDatabasePoolMaximumSize()).thenReturn(4);
+        lenient().when(vpnConfig.getDatabasePoolIdleTimeout()).thenReturn(600000);
+        lenient().when(vpnConfig.getDatabasePoolBorrowTimeout()).thenReturn(5000);
+        lenient().when(vpnConfig.isMysqlUseServerPrepStmts()).thenReturn(true);
+        lenient().when(vpnConfig.isMysqlCachePrepStmts()).thenReturn(true);
+        lenient().when(vpnConfig.getMysqlPrepStmtCacheSize()).thenReturn(250);
+        lenient().when(vpnConfig.getWriteBehindMaxBatchSize()).thenReturn(100);
+        lenient().when(vpnConfig.getWriteBehindFlushInterval()).thenReturn(50);
+        lenient().when(vpnConfig.getResponseTtl()).thenReturn(60);
+        lenient().when(vpnConfig.getResponsePurgeInterval()).thenReturn(10);
+        lenient().when(vpnConfig.getResponsePurgeBatchSize()).thenReturn(1000);
+        lenient().when(vpnConfig.isMysqlRewriteBatchedStatements()).thenReturn(true);
 
         setAntiVpnInstance(antiVPN);
     }
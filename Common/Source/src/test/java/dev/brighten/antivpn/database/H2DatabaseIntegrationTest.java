@@ -1,12 +1,83 @@
 package dev.brighten.antivpn.database;
 
 import dev.brighten.antivpn.database.local.H2VPN;
+import dev.brighten.antivpn.database.sql.utils.Query;
+import dev.brighten.antivpn.utils.IpAddress;
+import dev.brighten.antivpn.web.objects.VPNResponse;
 import org.junit.jupiter.api.Test;
 
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.when;
+
 class H2DatabaseIntegrationTest extends DatabaseIntegrationTestSupport {
 
     @Test
     void h2DatabaseImplementsTheVpnDatabaseContract() throws Exception {
         assertDatabaseContract(new H2VPN());
     }
+
+    @Test
+    void repeatedLookupsKeepOneRowPerIp() throws Exception {
+        H2VPN database = new H2VPN();
+        registerDatabase(database);
+        database.init();
+
+        database.cacheResponse(response("AS1"));
+        awaitCondition(() -> "AS1".equals(storedAsn()), "Expected the first response to be written");
+
+        database.cacheResponse(response("AS2"));
+        awaitCondition(() -> "AS2".equals(storedAsn()), "Expected the second response to replace the first");
+        awaitCondition(() -> countResponses() == 1, "Expected a single row for the IP");
+    }
+
+    @Test
+    void purgeRemovesExpiredResponsesInChunks() throws Exception {
+        when(vpnConfig.getResponsePurgeBatchSize()).thenReturn(2);
+        H2VPN database = new H2VPN();
+        registerDatabase(database);
+        database.init();
+
+        long expired = System.currentTimeMillis() - TimeUnit.MINUTES.toMillis(61);
+        for (int i = 1; i <= 5; i++) {
+            insert(database, "10.0.0." + i, expired);
+        }
+        insert(database, "10.0.1.1", System.currentTimeMillis());
+
+        assertTrue(database.getStoredResponse("10.0.0.1").isEmpty(), "Expected expired responses to be skipped");
+        assertEquals(5, database.purgeExpiredResponses());
+        assertEquals(1, countResponses());
+        assertTrue(database.getStoredResponse("10.0.1.1").isPresent(), "Expected fresh responses to be kept");
+    }
+
+    private static void insert(H2VPN database, String ip, long inserted) throws SQLException {
+        try (var statement = Query.prepare(database.responseUpsertSql("responses"))
+                .append(IpAddress.parse(ip).toBytes()).append("AS1").append("United States").append("US")
+                .append("New York").append("America/New_York").append("test").append("isp").append(false)
+                .append(false).append(new Timestamp(inserted)).append(0D).append(0D)) {
+            statement.execute();
+        }
+    }
+
+    private static VPNResponse response(String asn) {
+        return VPNResponse.builder().ip("1.2.3.4").asn(asn).countryCode("US").success(true).build();
+    }
+
+    private static String storedAsn() throws SQLException {
+        try (var statement = Query.prepare("select `asn` from `responses`");
+             var set = statement.executeQuery()) {
+            return set.next() ? set.getString("asn") : null;
+        }
+    }
+
+    private static int countResponses() throws SQLException {
+        try (var statement = Query.prepare("select count(*) from `responses`");
+             var set = statement.executeQuery()) {
+            return set.next() ? set.getInt(1) : 0;
+        }
+    }
 }
@@ -0,0 +1,128 @@
+package dev.brighten.antivpn.database;
+
+import dev.brighten.antivpn.api.CheckPolicy;
+import dev.brighten.antivpn.api.PlayerExecutor;
+import dev.brighten.antivpn.database.local.H2VPN;
+import dev.brighten.antivpn.database.mongo.MongoVPN;
+import dev.brighten.antivpn.database.sql.MySqlVPN;
+import dev.brighten.antivpn.load.LoginLoadGenerator;
+import dev.brighten.antivpn.metrics.LatencyHistogram;
+import dev.brighten.antivpn.metrics.Stage;
+import dev.brighten.antivpn.metrics.VPNMetrics;
+import dev.brighten.antivpn.web.FunkemunkyAPI;
+import dev.brighten.antivpn.web.StubVPNApiServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.testcontainers.containers.MongoDBContainer;
+import org.testcontainers.containers.MySQLContainer;
+
+import java.time.Duration;
+import java.util.UUID;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Opt-in login storms against the stub API, e.g.
+ * {@code ./gradlew :Common:Source:test --tests '*LoginLoadTest' -Pantivpn.loadTest=h2,mysql -Pantivpn.load.rate=5000}.
+ * Tuned with the {@code antivpn.load.*} properties read below.
+ */
+class LoginLoadTest extends DatabaseIntegrationTestSupport {
+
+    private static final Logger LOGGER = Logger.getLogger(LoginLoadTest.class.getName());
+
+    private final VPNMetrics metrics = new VPNMetrics();
+    private final LongAdder queries = new LongAdder();
+    private StubVPNApiServer api;
+
+    @BeforeEach
+    void setUpLoad() throws Exception {
+        api = StubVPNApiServer.start()
+                .proxyRatio(doubleProperty("antivpn.load.proxyRatio", 0.1))
+                .errorRate(doubleProperty("antivpn.load.errorRate", 0))
+                .latency(StubVPNApiServer.LatencyDistribution.logNormal(
+                        Duration.ofMillis(Integer.getInteger("antivpn.load.latencyMs", 40)), 0.5));
+        FunkemunkyAPI.setBaseUrl(api.getBaseUrl());
+
+        when(antiVPN.getMetrics()).thenReturn(metrics);
+        when(antiVPN.getPlayerExecutor()).thenReturn(mock(PlayerExecutor.class));
+        when(vpnConfig.getPolicy()).thenReturn(CheckPolicy.EMPTY);
+        when(vpnConfig.getLicense()).thenReturn("");
+        vpnExecutor.registerMetrics(metrics);
+    }
+
+    @AfterEach
+    void tearDownLoad() {
+        FunkemunkyAPI.setBaseUrl(null);
+        api.close();
+    }
+
+    @Test
+    @EnabledIfSystemProperty(named = "antivpn.loadTest", matches = ".*h2.*")
+    void h2LoginStorm() throws Exception {
+        storm("H2", new H2VPN());
+    }
+
+    @Test
+    @EnabledIfSystemProperty(named = "antivpn.loadTest", matches = ".*mysql.*")
+    void mysqlLoginStorm() throws Exception {
+        try (MySQLContainer<?> mysql = new MySQLContainer<>("mysql:8.0.36")
+                .withDatabaseName("antivpn")
+                .withUsername("testuser")
+                .withPassword("testpass")) {
+            mysql.start();
+
+            when(vpnConfig.getIp()).thenReturn(mysql.getHost());
+            when(vpnConfig.getPort()).thenReturn(mysql.getMappedPort(3306));
+            when(vpnConfig.getDatabaseName()).thenReturn(mysql.getDatabaseName());
+            when(vpnConfig.getUsername()).thenReturn(mysql.getUsername());
+            when(vpnConfig.getPassword()).thenReturn(mysql.getPassword());
+
+            storm("MySQL", new MySqlVPN());
+        }
+    }
+
+    @Test
+    @EnabledIfSystemProperty(named = "antivpn.loadTest", matches = ".*mongo.*")
+    void mongoLoginStorm() throws Exception {
+        try (MongoDBContainer mongo = new MongoDBContainer("mongo:6.0.14")) {
+            mongo.start();
+
+            when(vpnConfig.getIp()).thenReturn(mongo.getHost());
+            when(vpnConfig.getPort()).thenReturn(mongo.getMappedPort(27017));
+            when(vpnConfig.getDatabaseName()).thenReturn("antivpn_" + UUID.randomUUID().toString().replace("-", ""));
+
+            storm("Mongo", new MongoVPN());
+        }
+    }
+
+    private void storm(String name, VPNDatabase database) throws Exception {
+        registerDatabase(LoginLoadGenerator.countQueries(database, queries));
+        database.init();
+
+        LoginLoadGenerator generator = new LoginLoadGenerator(Integer.getInteger("antivpn.load.rate", 2000),
+                Duration.ofSeconds(Integer.getInteger("antivpn.load.seconds", 10)),
+                Integer.getInteger("antivpn.load.ips", 20000));
+        LoginLoadGenerator.Report report = generator.run(api::getVpnRequests, queries::sum, Duration.ofSeconds(30));
+
+        LOGGER.info("[" + name + "] " + report);
+        for (Stage stage : Stage.values()) {
+            LatencyHistogram latency = metrics.latency(stage);
+
+            LOGGER.info(String.format("[%s] %s: n=%d p50=%.2fms p99=%.2fms", name, stage, latency.getCount(),
+                    latency.getPercentileMillis(0.5), latency.getPercentileMillis(0.99)));
+        }
+        assertTrue(report.drained(), "Not every login finished its check: " + report);
+    }
+
+    private static double doubleProperty(String name, double defaultValue) {
+        String value = System.getProperty(name);
+
+        return value == null ? defaultValue : Double.parseDouble(value);
+    }
+}
@@ -0,0 +1,126 @@
+package dev.brighten.antivpn.database;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WriteBehindBufferTest {
+
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+    private final List<List<String>> batches = new CopyOnWriteArrayList<>();
+
+    @AfterEach
+    void stopScheduler() {
+        scheduler.shutdownNow();
+    }
+
+    private WriteBehindBuffer<String, String> buffer(int maxBatchSize, Duration flushInterval) {
+        // Values are "key=value", batches are written on the calling thread.
+        return new WriteBehindBuffer<>(maxBatchSize, flushInterval, scheduler, Runnable::run,
+                value -> value.substring(0, value.indexOf('=')), batch -> batches.add(List.copyOf(batch)));
+    }
+
+    @Test
+    void writesOnceTheBatchIsFull() {
+        WriteBehindBuffer<String, String> buffer = buffer(3, Duration.ofMinutes(1));
+
+        buffer.add("a=1");
+        buffer.add("b=1");
+        assertTrue(batches.isEmpty());
+
+        buffer.add("c=1");
+        assertEquals(List.of(List.of("a=1", "b=1", "c=1")), batches);
+        assertEquals(0, buffer.size());
+    }
+
+    @Test
+    void writesAfterTheFlushInterval() throws Exception {
+        WriteBehindBuffer<String, String> buffer = buffer(100, Duration.ofMillis(20));
+
+        buffer.add("a=1");
+        buffer.add("b=1");
+
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (batches.isEmpty() && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+        assertEquals(List.of(List.of("a=1", "b=1")), batches);
+    }
+
+    @Test
+    void latestValuePerKeyWinsAndStaysVisibleUntilWritten() {
+        WriteBehindBuffer<String, String> buffer = buffer(100, Duration.ofMinutes(1));
+
+        buffer.add("a=1");
+        buffer.add("a=2");
+        assertEquals("a=2", buffer.getPending("a"));
+        assertNull(buffer.getPending("b"));
+
+        buffer.flush();
+        assertEquals(List.of(List.of("a=2")), batches);
+        assertNull(buffer.getPending("a"));
+    }
+
+    @Test
+    void pendingValuesAreVisibleWhileTheirBatchIsWritten() throws Exception {
+        CountDownLatch writing = new CountDownLatch(1), proceed = new CountDownLatch(1);
+        WriteBehindBuffer<String, String> buffer = new WriteBehindBuffer<>(100, Duration.ofMinutes(1),
+                scheduler, Runnable::run, value -> value.substring(0, value.indexOf('=')), batch -> {
+                    writing.countDown();
+                    try {
+                        proceed.await(5, TimeUnit.SECONDS);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    batches.add(List.copyOf(batch));
+                });
+
+        buffer.add("a=1");
+        Thread flusher = new Thread(buffer::flush);
+        flusher.start();
+        assertTrue(writing.await(5, TimeUnit.SECONDS));
+
+        assertEquals("a=1", buffer.getPending("a"));
+        proceed.countDown();
+        flusher.join(5000);
+        assertNull(buffer.getPending("a"));
+    }
+
+    @Test
+    void removedAndClearedValuesAreNeverWritten() {
+        WriteBehindBuffer<String, String> buffer = buffer(100, Duration.ofMinutes(1));
+
+        buffer.add("a=1");
+        buffer.add("b=1");
+        assertEquals("a=1", buffer.remove("a"));
+        buffer.flush();
+        assertEquals(List.of(List.of("b=1")), batches);
+
+        buffer.add("c=1");
+        buffer.clear();
+        buffer.flush();
+        assertEquals(1, batches.size());
+    }
+
+    @Test
+    void closeWritesWhatIsLeftAndIgnoresLaterValues() {
+        WriteBehindBuffer<String, String> buffer = buffer(2, Duration.ofMinutes(1));
+
+        buffer.add("a=1");
+        buffer.close();
+        assertEquals(List.of(List.of("a=1")), batches);
+
+        buffer.add("b=1");
+        assertEquals(0, buffer.size());
+        assertNull(buffer.getPending("b"));
+    }
+}
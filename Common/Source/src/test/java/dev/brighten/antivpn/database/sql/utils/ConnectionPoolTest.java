@@ -0,0 +1,145 @@
+package dev.brighten.antivpn.database.sql.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConnectionPoolTest {
+
+    private final List<FakeConnection> opened = new ArrayList<>();
+
+    private ConnectionPool pool(int minimumIdle, int maximumSize, Duration idleTimeout) {
+        return new ConnectionPool(() -> {
+            FakeConnection connection = new FakeConnection();
+            opened.add(connection);
+            return connection.proxy;
+        }, minimumIdle, maximumSize, idleTimeout, Duration.ofMillis(200));
+    }
+
+    @Test
+    void reusesReleasedConnections() throws Exception {
+        ConnectionPool pool = pool(0, 2, Duration.ofMinutes(10));
+
+        Connection first = pool.borrow();
+        assertEquals(1, pool.getActive());
+        pool.release(first);
+
+        assertSame(first, pool.borrow());
+        assertEquals(1, opened.size());
+        assertEquals(1, pool.getTotal());
+    }
+
+    @Test
+    void nestedBorrowsShareTheThreadsConnection() throws Exception {
+        ConnectionPool pool = pool(0, 1, Duration.ofMinutes(10));
+
+        Connection outer = pool.borrow();
+        assertSame(outer, pool.borrow());
+        pool.release(outer);
+        assertEquals(1, pool.getActive());
+
+        pool.release(outer);
+        assertEquals(0, pool.getActive());
+        assertEquals(1, pool.getIdle());
+    }
+
+    @Test
+    void waitsForAFreeConnectionThenTimesOut() throws Exception {
+        ConnectionPool pool = pool(0, 1, Duration.ofMinutes(10));
+        Connection held = pool.borrow();
+
+        CompletableFuture<Connection> waiting = CompletableFuture.supplyAsync(() -> {
+            try {
+                return pool.borrow();
+            } catch (SQLException e) {
+                throw new RuntimeException(e);
+            }
+        });
+        pool.release(held);
+        assertNotNull(waiting.get(1, TimeUnit.SECONDS));
+
+        // The connection is now held by the other thread and never handed back.
+        assertThrows(SQLTransientConnectionException.class, pool::borrow);
+    }
+
+    @Test
+    void replacesBrokenConnections() throws Exception {
+        ConnectionPool pool = pool(0, 2, Duration.ofMinutes(10));
+
+        Connection first = pool.borrow();
+        opened.get(0).closed = true;
+        pool.release(first);
+        assertEquals(0, pool.getTotal());
+
+        Connection second = pool.borrow();
+        assertNotSame(first, second);
+        assertEquals(2, opened.size());
+
+        // Transactions left open are rolled back before anyone else gets the connection.
+        second.setAutoCommit(false);
+        pool.release(second);
+        assertTrue(opened.get(1).rolledBack);
+        assertTrue(second.getAutoCommit());
+    }
+
+    @Test
+    void evictsIdleConnectionsDownToTheMinimum() throws Exception {
+        ConnectionPool pool = pool(1, 3, Duration.ZERO);
+
+        pool.evictIdle();
+        assertEquals(1, pool.getIdle());
+
+        Connection a = pool.borrow(), b = CompletableFuture.supplyAsync(() -> {
+            try {
+                Connection connection = pool.borrow();
+                pool.release(connection);
+                return connection;
+            } catch (SQLException e) {
+                throw new RuntimeException(e);
+            }
+        }).get(1, TimeUnit.SECONDS);
+        pool.release(a);
+        assertNotSame(a, b);
+        assertEquals(2, pool.getIdle());
+
+        pool.evictIdle();
+        assertEquals(1, pool.getIdle());
+        assertEquals(1, pool.getTotal());
+        assertEquals(1, opened.stream().filter(connection -> connection.closed).count());
+
+        pool.close();
+        assertTrue(opened.stream().allMatch(connection -> connection.closed));
+        assertThrows(SQLException.class, pool::borrow);
+    }
+
+    private static final class FakeConnection {
+        private final Connection proxy;
+        private volatile boolean closed, rolledBack, autoCommit = true;
+
+        private FakeConnection() {
+            proxy = (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                    new Class<?>[] {Connection.class}, (instance, method, args) -> switch (method.getName()) {
+                        case "close" -> closed = true;
+                        case "isClosed" -> closed;
+                        case "isValid" -> !closed;
+                        case "getAutoCommit" -> autoCommit;
+                        case "setAutoCommit" -> autoCommit = (boolean) args[0];
+                        case "rollback" -> rolledBack = true;
+                        case "hashCode" -> System.identityHashCode(instance);
+                        case "equals" -> instance == args[0];
+                        case "toString" -> "FakeConnection@" + System.identityHashCode(instance);
+                        default -> throw new UnsupportedOperationException(method.getName());
+                    });
+        }
+    }
+}
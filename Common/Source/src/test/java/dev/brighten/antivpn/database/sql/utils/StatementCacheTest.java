@@ -0,0 +1,147 @@
+package dev.brighten.antivpn.database.sql.utils;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StatementCacheTest {
+
+    private final List<FakeStatement> prepared = new ArrayList<>();
+
+    @AfterEach
+    void resetQuery() {
+        Query.use((Connection) null);
+    }
+
+    @Test
+    void onlyCachesDataStatements() {
+        assertTrue(StatementCache.isCacheable("select * from `responses` where `ip` = ? limit 1"));
+        assertTrue(StatementCache.isCacheable("  INSERT INTO `alerts` (`uuid`) VALUES (?)"));
+        assertTrue(StatementCache.isCacheable("delete from `whitelisted` where `uuid` = ?"));
+        assertTrue(StatementCache.isCacheable("merge into `responses` key (`ip`) values (?, ?)"));
+        assertFalse(StatementCache.isCacheable("create table if not exists `alerts` (`uuid` varchar(36) not null)"));
+        assertFalse(StatementCache.isCacheable("BACKUP TO 'backup.zip'"));
+        assertFalse(StatementCache.isCacheable(""));
+    }
+
+    @Test
+    void reusesResetStatements() {
+        StatementCache cache = new StatementCache(4);
+        FakeStatement statement = statement();
+
+        assertNull(cache.take("select 1"));
+        cache.release("select 1", statement.proxy);
+        assertEquals(1, statement.cleared);
+        assertFalse(statement.closed);
+
+        assertSame(statement.proxy, cache.take("select 1"));
+        // Taken statements belong to the caller until they are released again.
+        assertNull(cache.take("select 1"));
+    }
+
+    @Test
+    void closesDuplicatesEvictedAndBrokenStatements() {
+        StatementCache cache = new StatementCache(2);
+        FakeStatement first = statement(), duplicate = statement(), broken = statement();
+
+        cache.release("select 1", first.proxy);
+        cache.release("select 1", duplicate.proxy);
+        assertTrue(duplicate.closed);
+
+        broken.closed = true;
+        cache.release("select 2", broken.proxy);
+        assertEquals(1, cache.size());
+
+        FakeStatement second = statement(), third = statement();
+        cache.release("select 2", second.proxy);
+        cache.take("select 1");
+        cache.release("select 1", first.proxy);
+        // select 2 is now the least recently used statement.
+        cache.release("select 3", third.proxy);
+        assertTrue(second.closed);
+        assertFalse(first.closed);
+        assertEquals(2, cache.size());
+
+        cache.close();
+        assertTrue(first.closed && third.closed);
+        FakeStatement late = statement();
+        cache.release("select 4", late.proxy);
+        assertTrue(late.closed);
+    }
+
+    @Test
+    void queryReusesStatementsPerConnection() throws Exception {
+        Connection connection = connection();
+        Query.use(connection);
+
+        PreparedStatement first, second;
+        try (ExecutableStatement statement = Query.prepare("select * from `responses` where `ip` = ? limit 1")) {
+            first = statement.getStatement();
+
+            // A second user of the same SQL while the first still holds it gets its own statement.
+            try (ExecutableStatement nested = Query.prepare("select * from `responses` where `ip` = ? limit 1")) {
+                second = nested.getStatement();
+                assertNotSame(first, second);
+            }
+        }
+        // Whichever came back first is kept, the other one is closed.
+        try (ExecutableStatement statement = Query.prepare("select * from `responses` where `ip` = ? limit 1")) {
+            assertSame(second, statement.getStatement());
+        }
+
+        try (ExecutableStatement statement = Query.prepare("create index `responses_ip_1` on `responses` (`ip`)")) {
+            assertNotNull(statement.getStatement());
+        }
+        assertEquals(3, prepared.size());
+        assertTrue(prepared.get(0).closed && prepared.get(2).closed);
+        assertFalse(prepared.get(1).closed);
+
+        Query.closeStatements();
+        assertTrue(prepared.stream().allMatch(statement -> statement.closed));
+    }
+
+    private Connection connection() {
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                new Class<?>[] {Connection.class}, (instance, method, args) -> switch (method.getName()) {
+                    case "prepareStatement" -> statement().proxy;
+                    case "hashCode" -> System.identityHashCode(instance);
+                    case "equals" -> instance == args[0];
+                    case "toString" -> "FakeConnection@" + System.identityHashCode(instance);
+                    default -> throw new UnsupportedOperationException(method.getName());
+                });
+    }
+
+    private FakeStatement statement() {
+        FakeStatement statement = new FakeStatement();
+
+        prepared.add(statement);
+        return statement;
+    }
+
+    private static final class FakeStatement {
+        private final PreparedStatement proxy;
+        private boolean closed;
+        private int cleared;
+
+        private FakeStatement() {
+            proxy = (PreparedStatement) Proxy.newProxyInstance(PreparedStatement.class.getClassLoader(),
+                    new Class<?>[] {PreparedStatement.class}, (instance, method, args) -> switch (method.getName()) {
+                        case "close" -> closed = true;
+                        case "isClosed" -> closed;
+                        case "clearParameters" -> cleared++;
+                        case "clearBatch", "clearWarnings" -> null;
+                        case "hashCode" -> System.identityHashCode(instance);
+                        case "equals" -> instance == args[0];
+                        case "toString" -> "FakeStatement@" + System.identityHashCode(instance);
+                        default -> throw new UnsupportedOperationException(method.getName());
+                    });
+        }
+    }
+}
@@ -0,0 +1,165 @@
+package dev.brighten.antivpn.load;
+
+import dev.brighten.antivpn.api.OfflinePlayer;
+import dev.brighten.antivpn.api.ResultType;
+import dev.brighten.antivpn.database.VPNDatabase;
+import dev.brighten.antivpn.metrics.LatencyHistogram;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.LongSupplier;
+
+/**
+ * Drives a storm of synthetic {@link OfflinePlayer} logins through {@link OfflinePlayer#checkPlayer} at a fixed
+ * rate and reports throughput, tail latency, and API calls and database queries per login.
+ * <p>
+ * Logins are started on schedule whether or not earlier ones have finished, and latency is measured from the
+ * scheduled start, so a stalled backend shows up in the tail instead of silently lowering the rate.
+ */
+public class LoginLoadGenerator {
+
+    private final int loginsPerSecond;
+    private final Duration duration;
+    private final int distinctIps;
+
+    /**
+     * @param loginsPerSecond int
+     * @param duration Duration
+     * @param distinctIps number of addresses logins are spread over, lower values exercise the caches more
+     */
+    public LoginLoadGenerator(int loginsPerSecond, Duration duration, int distinctIps) {
+        this.loginsPerSecond = loginsPerSecond;
+        this.duration = duration;
+        this.distinctIps = distinctIps;
+    }
+
+    /**
+     * Wraps the database so every call made through it is counted.
+     *
+     * @param database VPNDatabase
+     * @param queries LongAdder incremented on every call
+     * @return VPNDatabase
+     */
+    public static VPNDatabase countQueries(VPNDatabase database, LongAdder queries) {
+        return (VPNDatabase) Proxy.newProxyInstance(VPNDatabase.class.getClassLoader(),
+                new Class<?>[] {VPNDatabase.class}, (proxy, method, args) -> {
+                    if(method.getDeclaringClass() != Object.class) {
+                        queries.increment();
+                    }
+                    try {
+                        return method.invoke(database, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+                });
+    }
+
+    /**
+     * Runs the storm and waits up to {@code drainTimeout} for outstanding checks once every login was started.
+     *
+     * @param apiCalls total API requests served so far
+     * @param dbQueries total database calls made so far
+     * @param drainTimeout Duration
+     * @return Report
+     * @throws InterruptedException if interrupted while waiting for checks to finish
+     */
+    public Report run(LongSupplier apiCalls, LongSupplier dbQueries, Duration drainTimeout)
+            throws InterruptedException {
+        int logins = (int) Math.max(1, loginsPerSecond * duration.toNanos() / TimeUnit.SECONDS.toNanos(1));
+        long interval = TimeUnit.SECONDS.toNanos(1) / loginsPerSecond;
+        InetAddress[] addresses = addresses(distinctIps);
+        LatencyHistogram latency = new LatencyHistogram();
+        Map<ResultType, LongAdder> results = new ConcurrentHashMap<>();
+        CountDownLatch finished = new CountDownLatch(logins);
+        long apiBefore = apiCalls.getAsLong(), dbBefore = dbQueries.getAsLong();
+
+        long start = System.nanoTime();
+        for (int i = 0; i < logins; i++) {
+            long scheduled = start + i * interval;
+            long wait = scheduled - System.nanoTime();
+
+            if(wait > 0) {
+                LockSupport.parkNanos(wait);
+            }
+
+            AtomicBoolean done = new AtomicBoolean();
+            OfflinePlayer player = new OfflinePlayer(UUID.randomUUID(), "Load" + i, addresses[i % addresses.length]);
+
+            player.checkPlayer(result -> {
+                // checkPlayer reports UNKNOWN while a lookup is still running, only the verdict ends the login.
+                if(result.resultType() == ResultType.UNKNOWN || !done.compareAndSet(false, true)) return;
+
+                latency.recordSince(scheduled);
+                results.computeIfAbsent(result.resultType(), type -> new LongAdder()).increment();
+                finished.countDown();
+            });
+        }
+
+        boolean drained = finished.await(drainTimeout.toMillis(), TimeUnit.MILLISECONDS);
+        long elapsed = System.nanoTime() - start;
+
+        Map<ResultType, Long> counts = new EnumMap<>(ResultType.class);
+        results.forEach((type, count) -> counts.put(type, count.sum()));
+
+        return new Report(logins, logins - finished.getCount(), drained, Duration.ofNanos(elapsed), latency,
+                apiCalls.getAsLong() - apiBefore, dbQueries.getAsLong() - dbBefore, counts);
+    }
+
+    private static InetAddress[] addresses(int count) {
+        InetAddress[] addresses = new InetAddress[Math.max(1, count)];
+        // A random starting /16 so runs in the same JVM do not hit each other's cached check results.
+        int base = ThreadLocalRandom.current().nextInt(256) << 16;
+
+        for (int i = 0; i < addresses.length; i++) {
+            // Spread over 10.0.0.0/8 and skip .0 so every address is a usable host.
+            int host = base + i + 1 + i / 255;
+            try {
+                addresses[i] = InetAddress.getByAddress(new byte[] {10, (byte) (host >>> 16), (byte) (host >>> 8),
+                        (byte) host});
+            } catch (UnknownHostException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+        return addresses;
+    }
+
+    public record Report(int logins, long completed, boolean drained, Duration elapsed, LatencyHistogram latency,
+                         long apiCalls, long dbQueries, Map<ResultType, Long> results) {
+
+        public double throughput() {
+            return completed / Math.max(1e-9, elapsed.toNanos() / 1e9);
+        }
+
+        public double apiCallsPerLogin() {
+            return apiCalls / (double) logins;
+        }
+
+        public double dbQueriesPerLogin() {
+            return dbQueries / (double) logins;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d/%d logins in %.2fs (%.0f/s)%s%n"
+                            + "latency ms: mean=%.2f p50=%.2f p99=%.2f p99.9=%.2f max=%.2f%n"
+                            + "per login: api=%.3f db=%.3f%nresults: %s",
+                    completed, logins, elapsed.toNanos() / 1e9, throughput(), drained ? "" : " (timed out)",
+                    latency.getMeanMillis(), latency.getPercentileMillis(0.5), latency.getPercentileMillis(0.99),
+                    latency.getPercentileMillis(0.999), latency.getMaxNanos() / 1e6,
+                    apiCallsPerLogin(), dbQueriesPerLogin(), results);
+        }
+    }
+}
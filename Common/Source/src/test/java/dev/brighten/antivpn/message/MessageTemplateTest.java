@@ -0,0 +1,42 @@
+package dev.brighten.antivpn.message;
+
+import dev.brighten.antivpn.api.OfflinePlayer;
+import dev.brighten.antivpn.web.objects.VPNResponse;
+import org.junit.jupiter.api.Test;
+
+import java.net.InetAddress;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MessageTemplateTest {
+
+    @Test
+    void rendersDetectionDetailsWithTranslatedColors() {
+        MessageTemplate template = MessageTemplate.compile(
+                "&e%player% &7joined on %reason% from %city%, %country% (%code%) %unknown%");
+        VPNResponse response = VPNResponse.builder().success(true).method("Tor").city("Berlin")
+                .countryName("Germany").countryCode("DE").build();
+
+        String rendered = template.render(new OfflinePlayer(UUID.randomUUID(), "Steve",
+                InetAddress.getLoopbackAddress()), response);
+
+        assertEquals("§eSteve §7joined on Tor from Berlin, Germany (DE) %unknown%", rendered);
+    }
+
+    @Test
+    void leavesStrayPercentSignsAlone() {
+        MessageTemplate template = MessageTemplate.compile("100% of %state% is 50%% off", false);
+
+        assertEquals("100% of on is 50%% off", template.render(new VpnString.Var<>("state", "on")));
+        assertEquals("100% of %state% is 50%% off", template.render());
+    }
+
+    @Test
+    void keepsColorCodesWhenNotTranslating() {
+        MessageTemplate template = MessageTemplate.compile("&7Alerts: &e%state%", false);
+
+        assertEquals("&7Alerts: &etrue", template.render(new VpnString.Var<>("state", true)));
+        assertEquals("&7Alerts: &etrue", template.getRaw().replace("%state%", "true"));
+    }
+}
@@ -0,0 +1,66 @@
+package dev.brighten.antivpn.metrics;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class VPNMetricsTest {
+
+    @Test
+    void histogramReportsBucketedPercentiles() {
+        LatencyHistogram histogram = new LatencyHistogram();
+
+        for (int i = 0; i < 99; i++) {
+            histogram.record(TimeUnit.MICROSECONDS.toNanos(500));
+        }
+        histogram.record(TimeUnit.MILLISECONDS.toNanos(200));
+
+        assertEquals(100, histogram.getCount());
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(200), histogram.getMaxNanos());
+        assertTrue(histogram.getPercentileMillis(0.5) >= 0.5 && histogram.getPercentileMillis(0.5) < 1.1);
+        assertEquals(200, histogram.getPercentileMillis(1), 0.001);
+        assertEquals(2.495, histogram.getMeanMillis(), 0.001);
+
+        histogram.reset();
+        assertEquals(0, histogram.getCount());
+        assertEquals(0, histogram.getPercentileMillis(0.99));
+    }
+
+    @Test
+    void tracksHitRatiosAndGauges() {
+        VPNMetrics metrics = new VPNMetrics();
+
+        metrics.recordCacheLookup(true);
+        metrics.recordCacheLookup(true);
+        metrics.recordCacheLookup(false);
+        metrics.registerGauge("queue.kick", () -> 3);
+        metrics.record(Stage.API, System.nanoTime());
+
+        assertEquals(2 / 3D, metrics.getCacheHitRatio(), 0.0001);
+        assertEquals(0, metrics.getDatabaseHitRatio());
+        assertEquals(3L, metrics.readGauges().get("queue.kick"));
+        assertEquals(1, metrics.latency(Stage.API).getCount());
+
+        metrics.reset();
+        assertEquals(0, metrics.getCacheHits().sum());
+        assertEquals(0, metrics.latency(Stage.API).getCount());
+    }
+
+    @Test
+    void checkCountResetKeepsLatencies() {
+        VPNMetrics metrics = new VPNMetrics();
+
+        metrics.getChecked().increment();
+        metrics.getDetections().increment();
+        metrics.recordCacheLookup(true);
+        metrics.record(Stage.API, System.nanoTime());
+
+        metrics.resetCheckCounts();
+        assertEquals(0, metrics.getChecked().sum());
+        assertEquals(0, metrics.getDetections().sum());
+        assertEquals(1, metrics.getCacheHits().sum());
+        assertEquals(1, metrics.latency(Stage.API).getCount());
+    }
+}
@@ -0,0 +1,59 @@
+package dev.brighten.antivpn.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.net.InetAddress;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CIDRTrieTest {
+
+    @Test
+    void containsAddressesInsideStoredRanges() throws Exception {
+        CIDRTrie trie = new CIDRTrie();
+        trie.add(new CIDRUtils("192.168.1.0/24"));
+        trie.add(new CIDRUtils("10.0.0.0/8"));
+        trie.add(new CIDRUtils("2001:db8::/32"));
+
+        assertTrue(trie.contains(InetAddress.getByName("192.168.1.77")));
+        assertTrue(trie.contains(InetAddress.getByName("10.200.3.4")));
+        assertTrue(trie.contains(InetAddress.getByName("2001:db8:1234::1")));
+        assertFalse(trie.contains(InetAddress.getByName("192.168.2.1")));
+        assertFalse(trie.contains(InetAddress.getByName("11.0.0.1")));
+        assertFalse(trie.contains(InetAddress.getByName("2001:db9::1")));
+        assertTrue(trie.contains(new CIDRUtils("192.168.1.128/25")));
+        assertFalse(trie.contains(new CIDRUtils("192.168.0.0/16")));
+        assertEquals(3, trie.size());
+    }
+
+    @Test
+    void removingARangeKeepsOverlappingRanges() throws Exception {
+        CIDRTrie trie = new CIDRTrie();
+        CIDRUtils wide = new CIDRUtils("172.16.0.0/12");
+        CIDRUtils narrow = new CIDRUtils("172.16.5.0/24");
+
+        assertTrue(trie.add(wide));
+        assertTrue(trie.add(narrow));
+        assertFalse(trie.add(new CIDRUtils("172.16.5.0/24")));
+
+        assertTrue(trie.remove(wide));
+        assertTrue(trie.contains(InetAddress.getByName("172.16.5.9")));
+        assertFalse(trie.contains(InetAddress.getByName("172.17.0.1")));
+        assertFalse(trie.remove(wide));
+        assertEquals(1, trie.size());
+    }
+
+    @Test
+    void replaceAllSwapsTheWholeAllowlist() throws Exception {
+        CIDRTrie trie = new CIDRTrie();
+        trie.add(new CIDRUtils("1.1.1.1/32"));
+
+        trie.replaceAll(List.of(new CIDRUtils("8.8.8.0/24"), new CIDRUtils("::1/128")));
+
+        assertFalse(trie.contains(InetAddress.getByName("1.1.1.1")));
+        assertTrue(trie.contains(InetAddress.getByName("8.8.8.8")));
+        assertTrue(trie.contains(InetAddress.getByName("::1")));
+        assertEquals(2, trie.toList().size());
+    }
+}
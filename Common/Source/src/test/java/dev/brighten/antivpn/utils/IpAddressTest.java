@@ -0,0 +1,92 @@
+package dev.brighten.antivpn.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.net.InetAddress;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IpAddressTest {
+
+    @Test
+    void parsesLiteralsLikeInetAddress() throws Exception {
+        for (String literal : new String[] {"127.0.0.1", "255.255.255.255", "::", "::1", "2001:db8::ff00:42:8329",
+                "1:2:3:4:5:6:7:8", "::1.2.3.4", "fe80::1:2"}) {
+            InetAddress expected = InetAddress.getByName(literal);
+            IpAddress address = IpAddress.parse(literal);
+
+            assertArrayEquals(expected.getAddress(), address.toBytes(), literal);
+            assertEquals(expected.getHostAddress(), address.toString(), literal);
+        }
+    }
+
+    @Test
+    void rejectsAnythingThatIsNotALiteral() {
+        for (String input : new String[] {"", "localhost", "1.2.3", "256.1.1.1", "1..2.3", ":::", "1::2::3",
+                "12345::", "1:2:3:4:5:6:7", "1:2:3:4:5:6:7:8:9", "1.2.3.4::"}) {
+            assertNull(IpAddress.tryParse(input), input);
+        }
+        assertThrows(IllegalArgumentException.class, () -> IpAddress.parse("example.com"));
+    }
+
+    @Test
+    void normalizesIpv4MappedAddresses() throws Exception {
+        IpAddress mapped = IpAddress.parse("::ffff:10.1.2.3");
+
+        assertTrue(mapped.ipv4());
+        assertEquals(IpAddress.parse("10.1.2.3"), mapped);
+
+        CIDRUtils range = new CIDRUtils("::ffff:10.0.0.0/104");
+        assertTrue(range.isIpv4());
+        assertEquals(8, range.getPrefixLength());
+        assertEquals("10.0.0.0/8", range.getCidr());
+        assertEquals(range, new CIDRUtils(range.getCidr()));
+
+        CIDRUtils wide = new CIDRUtils("::ffff:10.0.0.0/90");
+        assertFalse(wide.isIpv4());
+        assertEquals(wide, new CIDRUtils(wide.getCidr()));
+    }
+
+    @Test
+    void takesTheFamilyOfNumericValuesFromTheCaller() {
+        assertEquals(IpAddress.parse("::1"), IpAddress.of(BigInteger.ONE, false));
+        assertEquals(IpAddress.parse("0.0.0.1"), IpAddress.of(BigInteger.ONE, true));
+        assertThrows(IllegalArgumentException.class, () -> IpAddress.of(BigInteger.ONE.shiftLeft(32), true));
+        assertThrows(IllegalArgumentException.class, () -> IpAddress.of(BigInteger.ONE.shiftLeft(128), false));
+
+        assertEquals("0:0:0:0:0:0:0:1", IpUtils.getIpv6(BigDecimal.ONE));
+        assertEquals("Error", IpUtils.getIpv6(new BigDecimal(BigInteger.ONE.shiftLeft(128))));
+        assertEquals("Error", IpUtils.getIpv6(BigDecimal.valueOf(-1)));
+    }
+
+    @Test
+    void computesRangeBounds() throws Exception {
+        CIDRUtils ipv4 = new CIDRUtils("192.168.1.77/24");
+        assertEquals(BigInteger.valueOf(3232235776L), ipv4.getStartIpInt());
+        assertEquals(BigInteger.valueOf(3232236031L), ipv4.getEndIpInt());
+        assertTrue(ipv4.isInRange("192.168.1.255"));
+        assertFalse(ipv4.isInRange("192.168.2.0"));
+
+        CIDRUtils ipv6 = new CIDRUtils("2001:db8::/32");
+        assertEquals(IpAddress.parse("2001:db8:ffff:ffff:ffff:ffff:ffff:ffff"), ipv6.getEnd());
+        assertTrue(ipv6.isInRange("2001:db8::1"));
+        assertFalse(ipv6.isInRange("10.0.0.1"));
+    }
+
+    @Test
+    void splitsRangesIntoCidrBlocks() {
+        List<CIDRUtils> ranges = MiscUtils.rangeToCidrs(IpAddress.parse("10.0.0.1"), IpAddress.parse("10.0.0.8"));
+
+        assertEquals(List.of("10.0.0.1/32", "10.0.0.2/31", "10.0.0.4/30", "10.0.0.8/32"),
+                ranges.stream().map(CIDRUtils::getCidr).toList());
+
+        assertEquals(1, MiscUtils.rangeToCidrs(BigInteger.ZERO, BigInteger.valueOf(0xFFFFFFFFL), true).size());
+        assertEquals(List.of("0:0:0:0:0:0:0:0/127"), MiscUtils.rangeToCidrs(BigInteger.ZERO, BigInteger.ONE, false)
+                .stream().map(CIDRUtils::getCidr).toList());
+        assertEquals(1, MiscUtils.rangeToCidrs(IpAddress.parse("::"),
+                IpAddress.parse("ffff:ffff:ffff:ffff:ffff:ffff:ffff:ffff")).size());
+    }
+}
@@ -0,0 +1,44 @@
+package dev.brighten.antivpn.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SnapshotSetTest {
+
+    @Test
+    void writesPublishNewSnapshotsWithoutTouchingOldOnes() {
+        SnapshotSet<UUID> set = new SnapshotSet<>();
+        UUID first = UUID.randomUUID(), second = UUID.randomUUID();
+
+        assertTrue(set.add(first));
+        assertFalse(set.add(first));
+        Set<UUID> before = set.snapshot();
+
+        assertTrue(set.add(second));
+        assertTrue(set.contains(second));
+        assertFalse(before.contains(second));
+
+        assertTrue(set.remove(first));
+        assertFalse(set.contains(first));
+        assertFalse(set.contains(null));
+        assertEquals(1, set.size());
+    }
+
+    @Test
+    void replaceAllSwapsTheWholeContents() {
+        SnapshotSet<UUID> set = new SnapshotSet<>();
+        UUID old = UUID.randomUUID(), fresh = UUID.randomUUID();
+        set.add(old);
+
+        set.replaceAll(List.of(fresh, fresh));
+
+        assertEquals(Set.of(fresh), set.snapshot());
+        set.clear();
+        assertTrue(set.isEmpty());
+    }
+}
@@ -0,0 +1,141 @@
+package dev.brighten.antivpn.web;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AdaptiveLimiterTest {
+
+    private static final long FAST = TimeUnit.MILLISECONDS.toNanos(50);
+
+    private final AtomicLong clock = new AtomicLong();
+    private final AdaptiveLimiter limiter = new AdaptiveLimiter(20, 5, clock::get);
+
+    /**
+     * Starts as many calls as the limit allows, lets them all take the given time and completes them.
+     */
+    private void round(long latency, boolean fail) {
+        List<CompletableFuture<String>> calls = new ArrayList<>();
+        int limit = limiter.getLimit();
+
+        for (int i = 0; i < limit; i++) {
+            CompletableFuture<String> call = new CompletableFuture<>();
+            calls.add(call);
+            limiter.submit(() -> call);
+        }
+
+        clock.addAndGet(latency);
+        for (CompletableFuture<String> call : calls) {
+            if(fail) call.completeExceptionally(new IOException("Timed out"));
+            else call.complete("ok");
+        }
+    }
+
+    @Test
+    void growsWhileTheRemoteStaysFast() {
+        assertEquals(AdaptiveLimiter.INITIAL_LIMIT, limiter.getLimit());
+
+        for (int i = 0; i < 5; i++) {
+            round(FAST, false);
+        }
+        assertTrue(limiter.getLimit() > AdaptiveLimiter.INITIAL_LIMIT);
+
+        for (int i = 0; i < 100; i++) {
+            round(FAST, false);
+        }
+        assertEquals(20, limiter.getLimit());
+    }
+
+    @Test
+    void backsOffOnFailures() {
+        round(FAST, true);
+
+        assertTrue(limiter.getLimit() < AdaptiveLimiter.INITIAL_LIMIT);
+        assertEquals(0, limiter.getInFlight());
+
+        for (int i = 0; i < 50; i++) {
+            round(FAST, true);
+        }
+        assertEquals(1, limiter.getLimit());
+    }
+
+    @Test
+    void cutsOnceForABurstOfFailures() {
+        round(FAST, true);
+        assertEquals((int) (AdaptiveLimiter.INITIAL_LIMIT * AdaptiveLimiter.BACKOFF_RATIO), limiter.getLimit());
+
+        // Started after the cut, so it is a new round.
+        round(FAST, true);
+        assertEquals((int) (AdaptiveLimiter.INITIAL_LIMIT * AdaptiveLimiter.BACKOFF_RATIO
+                * AdaptiveLimiter.BACKOFF_RATIO), limiter.getLimit());
+    }
+
+    @Test
+    void backsOffOnceTheRemoteSlowsDown() {
+        for (int i = 0; i < 3; i++) {
+            round(FAST, false);
+        }
+        int before = limiter.getLimit();
+
+        round(FAST * 10, false);
+        assertTrue(limiter.getLimit() < before);
+    }
+
+    @Test
+    void doesNotGrowWhileIdle() {
+        for (int i = 0; i < 50; i++) {
+            CompletableFuture<String> call = new CompletableFuture<>();
+            limiter.submit(() -> call);
+            clock.addAndGet(FAST);
+            call.complete("ok");
+        }
+
+        assertEquals(AdaptiveLimiter.INITIAL_LIMIT, limiter.getLimit());
+    }
+
+    @Test
+    void queuesThenShedsCallsBeyondTheLimit() {
+        List<CompletableFuture<String>> running = new ArrayList<>();
+        for (int i = 0; i < AdaptiveLimiter.INITIAL_LIMIT; i++) {
+            CompletableFuture<String> call = new CompletableFuture<>();
+            running.add(call);
+            limiter.submit(() -> call);
+        }
+
+        List<CompletableFuture<String>> queued = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            queued.add(limiter.submit(() -> CompletableFuture.completedFuture("queued")));
+        }
+        assertEquals(5, limiter.getQueued());
+
+        CompletableFuture<String> shed = limiter.submit(() -> CompletableFuture.completedFuture("shed"));
+        CompletionException e = assertThrows(CompletionException.class, shed::join);
+        assertInstanceOf(RejectedExecutionException.class, e.getCause());
+        assertEquals(1, limiter.getRejected());
+
+        clock.addAndGet(FAST);
+        running.get(0).complete("ok");
+        for (CompletableFuture<String> call : queued) {
+            assertEquals("queued", call.join());
+        }
+        assertEquals(0, limiter.getQueued());
+    }
+
+    @Test
+    void shedsRightAwayWithoutAQueue() {
+        limiter.configure(1, 0);
+        limiter.submit(CompletableFuture::new);
+
+        assertTrue(limiter.submit(() -> CompletableFuture.completedFuture("shed")).isCompletedExceptionally());
+        assertEquals(1, limiter.getLimit());
+    }
+}
@@ -0,0 +1,75 @@
+package dev.brighten.antivpn.web;
+
+import dev.brighten.antivpn.utils.json.JSONException;
+import dev.brighten.antivpn.utils.json.JSONObject;
+import dev.brighten.antivpn.web.objects.QueryResponse;
+import dev.brighten.antivpn.web.objects.VPNResponse;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ResponseDecoderTest {
+
+    private static final String LOOKUP = "{\"success\":true,\"ip\":\"203.0.113.7\",\"asn\":\"AS64500\","
+            + "\"countryName\":\"Germany\",\"countryCode\":\"DE\",\"city\":\"Frankfurt am Main\","
+            + "\"timeZone\":\"Europe/Berlin\",\"method\":\"ASN\",\"isp\":\"Example Hosting GmbH\","
+            + "\"proxy\":true,\"cached\":true,\"latitude\":50.1109,\"longitude\":-8.6821,"
+            + "\"lastAccess\":1767225600000,\"queriesLeft\":48211}";
+
+    @Test
+    void decodesLookupsLikeJsonObject() throws Exception {
+        assertEquals(VPNResponse.fromJson(new JSONObject(LOOKUP)), decode(LOOKUP));
+
+        String reordered = "{ \"extra\": {\"nested\": [1, {\"}\": \"]\"}], \"x\": null},\n"
+                + "\"queriesLeft\": \"12\", \"lastAccess\": 1.5e3, \"longitude\": 0, \"latitude\": \"-12.25\","
+                + "\"cached\": \"FALSE\", \"proxy\": false, \"isp\": \"Z\\u00fcrich \\\"Net\\\"\\n\","
+                + "\"timeZone\": \"\", \"city\": \"S\u00e3o Paulo\", \"countryCode\": \"BR\","
+                + "\"countryName\": \"Brazil \\ud83d\\ude00\", \"\\u0061sn\": \"AS1\", \"ip\": \"::1\", "
+                + "\"success\": true }";
+        assertEquals(VPNResponse.fromJson(new JSONObject(reordered)), decode(reordered));
+
+        VPNResponse response = decode(reordered);
+        assertEquals("N/A", response.getMethod());
+        assertEquals("Z\u00fcrich \"Net\"\n", response.getIsp());
+        assertEquals("Brazil \uD83D\uDE00", response.getCountryName());
+        assertEquals(1500, response.getLastAccess());
+        assertEquals(-12.25, response.getLatitude());
+    }
+
+    @Test
+    void decodesFailuresWithoutLookingAtOtherFields() throws Exception {
+        VPNResponse failure = decode("{\"success\":false,\"failureReason\":\"Invalid license\",\"ip\":true}");
+
+        assertFalse(failure.isSuccess());
+        assertEquals("Invalid license", failure.getFailureReason());
+    }
+
+    @Test
+    void rejectsWhatJsonObjectRejects() {
+        for (String json : new String[] {"", "[]", "{", "{\"success\":true", "{\"success\" true}",
+                "{\"success\":false,\"failureReason\":\"x\"} trailing", "{\"success\":true}",
+                LOOKUP.replace("\"proxy\":true", "\"proxy\":1"), LOOKUP.replace("\"AS64500\"", "null"),
+                LOOKUP.replace("\"queriesLeft\":48211", "\"queriesLeft\":\"lots\""),
+                "{\"success\":false,\"success\":false,\"failureReason\":\"x\"}"}) {
+            assertThrows(JSONException.class, () -> decode(json), json);
+        }
+    }
+
+    @Test
+    void decodesQueryChecks() throws Exception {
+        QueryResponse plan = ResponseDecoder.decodeQueryResponse(
+                "{\"validPlan\":true,\"planType\":\"Pro\",\"queries\":12,\"queryLimit\":500000}"
+                        .getBytes(StandardCharsets.UTF_8));
+
+        assertEquals(QueryResponse.builder().validPlan(true).planType("Pro").queries(12).queriesMax(500000).build(),
+                plan);
+        assertFalse(ResponseDecoder.decodeQueryResponse("{\"validPlan\":false}".getBytes(StandardCharsets.UTF_8))
+                .isValidPlan());
+    }
+
+    private static VPNResponse decode(String json) throws JSONException {
+        return ResponseDecoder.decodeVPNResponse(json.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,222 @@
+package dev.brighten.antivpn.web;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A loopback stand-in for the {@code /vpn} and {@code /vpn/queryCheck} endpoints, so lookups can be load tested
+ * without spending real API quota. Point {@link FunkemunkyAPI#setBaseUrl(String)} at {@link #getBaseUrl()}.
+ * <p>
+ * Whether an IP is reported as a proxy only depends on the IP and the configured ratio, so repeated lookups of
+ * the same address agree with each other. Latency and errors are drawn independently for every request.
+ */
+public class StubVPNApiServer implements AutoCloseable {
+
+    private static final String[][] COUNTRIES = {
+            {"US", "United States", "New York"}, {"DE", "Germany", "Frankfurt am Main"},
+            {"NL", "Netherlands", "Amsterdam"}, {"BR", "Brazil", "Sao Paulo"}, {"JP", "Japan", "Tokyo"}
+    };
+
+    private final HttpServer server;
+    private final ExecutorService handlers = Executors.newVirtualThreadPerTaskExecutor();
+    private final LongAdder vpnRequests = new LongAdder(), queryRequests = new LongAdder(), errors = new LongAdder();
+
+    private volatile LatencyDistribution latency = LatencyDistribution.none();
+    private volatile double errorRate, proxyRatio;
+
+    private StubVPNApiServer() throws IOException {
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 1024);
+        server.setExecutor(handlers);
+        server.createContext("/vpn/queryCheck", exchange -> handle(exchange, queryRequests, false));
+        server.createContext("/vpn", exchange -> handle(exchange, vpnRequests, true));
+    }
+
+    /**
+     * Starts a server on a free loopback port with no latency, no errors and no proxies.
+     *
+     * @return StubVPNApiServer
+     * @throws IOException if the server could not bind
+     */
+    public static StubVPNApiServer start() throws IOException {
+        StubVPNApiServer stub = new StubVPNApiServer();
+
+        stub.server.start();
+        return stub;
+    }
+
+    public StubVPNApiServer latency(LatencyDistribution latency) {
+        this.latency = latency;
+        return this;
+    }
+
+    /**
+     * @param errorRate fraction of requests, between 0 and 1, answered with HTTP 500
+     * @return this
+     */
+    public StubVPNApiServer errorRate(double errorRate) {
+        this.errorRate = errorRate;
+        return this;
+    }
+
+    /**
+     * @param proxyRatio fraction of IPs, between 0 and 1, reported as proxies
+     * @return this
+     */
+    public StubVPNApiServer proxyRatio(double proxyRatio) {
+        this.proxyRatio = proxyRatio;
+        return this;
+    }
+
+    public String getBaseUrl() {
+        return "http://" + server.getAddress().getHostString() + ":" + server.getAddress().getPort();
+    }
+
+    public long getVpnRequests() {
+        return vpnRequests.sum();
+    }
+
+    public long getQueryRequests() {
+        return queryRequests.sum();
+    }
+
+    public long getErrors() {
+        return errors.sum();
+    }
+
+    public void resetCounters() {
+        vpnRequests.reset();
+        queryRequests.reset();
+        errors.reset();
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        handlers.shutdownNow();
+    }
+
+    private void handle(HttpExchange exchange, LongAdder counter, boolean lookup) throws IOException {
+        counter.increment();
+
+        try (exchange) {
+            long delay = latency.sampleNanos();
+            if(delay > 0) {
+                TimeUnit.NANOSECONDS.sleep(delay);
+            }
+
+            if(ThreadLocalRandom.current().nextDouble() < errorRate) {
+                errors.increment();
+                exchange.sendResponseHeaders(500, -1);
+                return;
+            }
+
+            String body = lookup ? lookupJson(queryParameter(exchange, "ip")) : queryCheckJson();
+            byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+
+            exchange.getResponseHeaders().set("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, bytes.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(bytes);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private String lookupJson(String ip) {
+        if(ip == null || ip.isEmpty()) {
+            return "{\"success\":false,\"failureReason\":\"No IP provided\"}";
+        }
+
+        int hash = mix(ip.hashCode());
+        boolean proxy = (hash & 0xFFFF) < proxyRatio * 0x10000;
+        String[] country = COUNTRIES[(hash >>> 16) % COUNTRIES.length];
+
+        return "{\"success\":true,\"ip\":\"" + ip + "\",\"asn\":\"AS" + (64500 + (hash >>> 20) % 500) + "\","
+                + "\"countryName\":\"" + country[1] + "\",\"countryCode\":\"" + country[0] + "\","
+                + "\"city\":\"" + country[2] + "\",\"timeZone\":\"UTC\","
+                + "\"method\":\"" + (proxy ? "ASN" : "N/A") + "\",\"isp\":\"Stub Networks\","
+                + "\"proxy\":" + proxy + ",\"cached\":false,\"latitude\":0.0,\"longitude\":0.0,"
+                + "\"lastAccess\":" + System.currentTimeMillis() + ",\"queriesLeft\":1000000}";
+    }
+
+    private String queryCheckJson() {
+        return "{\"validPlan\":true,\"planType\":\"Stub\",\"queries\":" + vpnRequests.sum()
+                + ",\"queryLimit\":1000000}";
+    }
+
+    private static String queryParameter(HttpExchange exchange, String name) {
+        String query = exchange.getRequestURI().getRawQuery();
+
+        if(query == null) return null;
+
+        for (String pair : query.split("&")) {
+            int split = pair.indexOf('=');
+
+            if(split > 0 && pair.substring(0, split).equals(name)) {
+                return URLDecoder.decode(pair.substring(split + 1), StandardCharsets.UTF_8);
+            }
+        }
+        return null;
+    }
+
+    private static int mix(int hash) {
+        // Spreads similar IPs such as 10.0.0.1 and 10.0.0.2 across the whole range.
+        hash ^= hash >>> 16;
+        hash *= 0x85EBCA6B;
+        hash ^= hash >>> 13;
+        hash *= 0xC2B2AE35;
+        return (hash ^ (hash >>> 16)) & Integer.MAX_VALUE;
+    }
+
+    /**
+     * How long the stub waits before answering a request.
+     */
+    @FunctionalInterface
+    public interface LatencyDistribution {
+        long sampleNanos();
+
+        static LatencyDistribution none() {
+            return () -> 0L;
+        }
+
+        static LatencyDistribution fixed(Duration latency) {
+            long nanos = latency.toNanos();
+
+            return () -> nanos;
+        }
+
+        static LatencyDistribution uniform(Duration min, Duration max) {
+            long from = min.toNanos(), to = max.toNanos();
+
+            return () -> from >= to ? from : ThreadLocalRandom.current().nextLong(from, to);
+        }
+
+        /**
+         * A long-tailed distribution like real network latency, where most requests take about the median and a
+         * few take many times longer.
+         *
+         * @param median Duration
+         * @param sigma spread of the underlying normal distribution, 0.5 gives a p99 of roughly 3x the median
+         * @return LatencyDistribution
+         */
+        static LatencyDistribution logNormal(Duration median, double sigma) {
+            double medianNanos = median.toNanos();
+
+            return () -> (long) (medianNanos * Math.exp(sigma * ThreadLocalRandom.current().nextGaussian()));
+        }
+    }
+}
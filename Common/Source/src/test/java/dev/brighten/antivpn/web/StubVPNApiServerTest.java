@@ -0,0 +1,63 @@
+package dev.brighten.antivpn.web;
+
+import dev.brighten.antivpn.web.objects.QueryResponse;
+import dev.brighten.antivpn.web.objects.VPNResponse;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StubVPNApiServerTest {
+
+    private StubVPNApiServer api;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        api = StubVPNApiServer.start();
+        FunkemunkyAPI.setBaseUrl(api.getBaseUrl() + "/");
+    }
+
+    @AfterEach
+    void tearDown() {
+        FunkemunkyAPI.setBaseUrl(null);
+        api.close();
+    }
+
+    @Test
+    void apiQueriesGoToTheConfiguredBaseUrl() throws Exception {
+        assertEquals(api.getBaseUrl(), FunkemunkyAPI.getBaseUrl());
+
+        VPNResponse response = FunkemunkyAPI.getVPNResponse("10.1.2.3", "", true);
+        assertTrue(response.isSuccess());
+        assertEquals("10.1.2.3", response.getIp());
+        assertFalse(response.isProxy());
+
+        QueryResponse query = FunkemunkyAPI.getQueryResponse();
+        assertTrue(query.isValidPlan());
+        assertEquals(1, api.getVpnRequests());
+        assertEquals(1, api.getQueryRequests());
+
+        FunkemunkyAPI.setBaseUrl(null);
+        assertEquals(FunkemunkyAPI.DEFAULT_BASE_URL, FunkemunkyAPI.getBaseUrl());
+    }
+
+    @Test
+    void proxyRatioAndErrorRateAreApplied() throws Exception {
+        api.proxyRatio(1);
+        assertTrue(FunkemunkyAPI.getVPNResponse("10.1.2.4", "", true).isProxy());
+
+        api.errorRate(1);
+        assertThrows(IOException.class, () -> FunkemunkyAPI.getVPNResponse("10.1.2.5", "", true));
+        assertEquals(1, api.getErrors());
+    }
+
+    @Test
+    void failsWithTheStatusOfErrorPages() {
+        IOException e = assertThrows(IOException.class,
+                () -> WebClient.await(FunkemunkyAPI.getClient().getJson(api.getBaseUrl() + "/missing")));
+        assertTrue(e.getMessage().contains("HTTP 404"), e.getMessage());
+    }
+}
@@ -0,0 +1,75 @@
+package dev.brighten.antivpn.web.objects;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class VPNResponseCodecTest {
+
+    private static VPNResponse response(String ip, String asn, String countryCode, String city) {
+        return new VPNResponse(asn, ip, "Germany", countryCode, city, "Europe/Berlin", "ASN",
+                "Example Hosting GmbH", "N/A", true, false, true, 50.1109, -8.6821, 1767225600000L, 48211);
+    }
+
+    @Test
+    void roundTripsEveryField() {
+        List<VPNResponse> responses = List.of(
+                response("203.0.113.7", "AS64500", "DE", "Frankfurt am Main"),
+                response("2001:db8:0:0:0:0:0:1", "AS4200000000", "de", "São Paulo 😀"),
+                // Neither of these can be packed without changing the text.
+                response("2001:db8::1", "AS064500", "DEU", ""),
+                response("::ffff:10.0.0.1", "Unknown", null, null),
+                new VPNResponse(null, null, null, null, null, null, null, null, null, false, true, false,
+                        Double.NaN, -0.0, -1, Long.MIN_VALUE),
+                VPNResponse.FAILED_RESPONSE);
+
+        for (VPNResponse response : responses) {
+            assertEquals(response, VPNResponseCodec.decode(VPNResponseCodec.encode(response)));
+        }
+        assertEquals(responses, VPNResponseCodec.decodeAll(VPNResponseCodec.encodeAll(responses)));
+    }
+
+    @Test
+    void packsLookupsCompactly() throws Exception {
+        VPNResponse response = response("203.0.113.7", "AS64500", "DE", "Frankfurt am Main");
+        byte[] single = VPNResponseCodec.encode(response);
+
+        assertTrue(single.length < response.toJson().toString().length() / 2, "Encoded to " + single.length);
+
+        List<VPNResponse> snapshot = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            snapshot.add(response("10.0." + (i / 256) + "." + (i % 256), "AS" + (64500 + i % 7), "DE",
+                    "Frankfurt am Main"));
+        }
+        byte[] batch = VPNResponseCodec.encodeAll(snapshot);
+
+        // Repeated strings are only written once per batch.
+        assertTrue(batch.length < snapshot.size() * 48, "Encoded to " + batch.length);
+        assertEquals(snapshot, VPNResponseCodec.decodeAll(batch));
+    }
+
+    @Test
+    void rejectsCorruptInput() {
+        byte[] encoded = VPNResponseCodec.encode(response("203.0.113.7", "AS64500", "DE", "Frankfurt am Main"));
+
+        for (int length = 0; length < encoded.length; length++) {
+            byte[] truncated = Arrays.copyOf(encoded, length);
+            assertThrows(IllegalArgumentException.class, () -> VPNResponseCodec.decode(truncated));
+        }
+        assertThrows(IllegalArgumentException.class,
+                () -> VPNResponseCodec.decode(Arrays.copyOf(encoded, encoded.length + 1)));
+
+        byte[] future = encoded.clone();
+        future[0] = VPNResponseCodec.VERSION + 1;
+        assertThrows(IllegalArgumentException.class, () -> VPNResponseCodec.decode(future));
+
+        // Single responses and batches are not interchangeable.
+        assertThrows(IllegalArgumentException.class, () -> VPNResponseCodec.decodeAll(encoded));
+        assertThrows(IllegalArgumentException.class,
+                () -> VPNResponseCodec.decode(VPNResponseCodec.encodeAll(List.of())));
+    }
+}
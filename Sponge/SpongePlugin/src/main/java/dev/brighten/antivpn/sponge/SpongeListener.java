@@ -18,7 +18,7 @@ package dev.brighten.antivpn.sponge;
 
 import dev.brighten.antivpn.AntiVPN;
 import dev.brighten.antivpn.api.*;
-import dev.brighten.antivpn.utils.StringUtil;
+import dev.brighten.antivpn.message.VpnString;
 import net.kyori.adventure.text.Component;
 import org.spongepowered.api.Sponge;
 import org.spongepowered.api.command.exception.CommandException;
@@ -26,43 +26,55 @@ import org.spongepowered.api.event.Listener;
 import org.spongepowered.api.event.Order;
 import org.spongepowered.api.event.network.ServerSideConnectionEvent;
 
-import java.util.concurrent.atomic.AtomicReference;
 import java.util.logging.Level;
 
 public class SpongeListener extends VPNExecutor {
 
+    /**
+     * Sponge fires the auth event on its asynchronous authentication threads, so waiting for the verdict here
+     * holds only this login and never the main thread.
+     */
     @Listener(order = Order.EARLY)
-    public void onJoin(ServerSideConnectionEvent.Login event) {
-        AtomicReference<APIPlayer> player = new AtomicReference<>(AntiVPN.getInstance().getPlayerExecutor()
+    public void onJoin(ServerSideConnectionEvent.Auth event) {
+        APIPlayer player = AntiVPN.getInstance().getPlayerExecutor()
                 .getPlayer(event.profile().uuid())
                 .orElse(new OfflinePlayer(
                         event.profile().uuid(),
                         event.profile().name().orElse("Unknown"),
                         event.connection().address().getAddress()
-                )));
-
-        player.get().checkPlayer(result -> {
-            if(!result.resultType().isShouldBlock()) return;
-
-            if(!AntiVPN.getInstance().getVpnConfig().isKickPlayers()) {
-                return;
-            }
-
-            event.setCancelled(true);
-            event.setMessage(Component.text(switch (result.resultType()) {
-                case DENIED_PROXY -> StringUtil.varReplace(AntiVPN.getInstance().getVpnConfig()
-                        .getKickMessage(), player.get(), result.response());
-                case DENIED_COUNTRY -> StringUtil.varReplace(AntiVPN.getInstance().getVpnConfig()
-                        .getCountryVanillaKickReason(), player.get(), result.response());
-                default -> "You were kicked by KauriVPN for an unknown reason!";
-            }));
-        });
+                ));
+
+        CheckResult result = player.loginVerdict().join();
+
+        if(!result.resultType().isShouldBlock()) return;
+
+        if(!AntiVPN.getInstance().getVpnConfig().isKickPlayers()) {
+            return;
+        }
+
+        event.setCancelled(true);
+        event.setMessage(Component.text(switch (result.resultType()) {
+            case DENIED_PROXY -> AntiVPN.getInstance().getVpnConfig().getKickTemplate()
+                    .render(player, result.response());
+            case DENIED_COUNTRY -> AntiVPN.getInstance().getVpnConfig().getCountryKickTemplate()
+                    .render(player, result.response());
+            case TIMED_OUT -> AntiVPN.getInstance().getVpnConfig().getLoginTimeoutTemplate()
+                    .render(new VpnString.Var<>("player", player.getName()));
+            default -> "You were kicked by KauriVPN for an unknown reason!";
+        }));
+    }
+
+    @Listener
+    public void onPlayerJoin(ServerSideConnectionEvent.Join event) {
+        AntiVPN.getInstance().getExecutor().playerJoined(event.player().uniqueId());
     }
 
     @Listener
     public void onPlayerDisconnect(ServerSideConnectionEvent.Disconnect event) {
-        event.profile().ifPresent(profile ->
-                AntiVPN.getInstance().getPlayerExecutor().unloadPlayer(profile.uuid()));
+        event.profile().ifPresent(profile -> {
+            AntiVPN.getInstance().getPlayerExecutor().unloadPlayer(profile.uuid());
+            AntiVPN.getInstance().getExecutor().playerQuit(profile.uuid());
+        });
     }
 
     @Override
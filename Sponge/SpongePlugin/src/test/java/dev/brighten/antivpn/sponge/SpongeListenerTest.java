@@ -1,11 +1,14 @@
 package dev.brighten.antivpn.sponge;
 
 import dev.brighten.antivpn.AntiVPN;
+import dev.brighten.antivpn.api.CheckPolicy;
 import dev.brighten.antivpn.api.PlayerExecutor;
 import dev.brighten.antivpn.api.VPNConfig;
 import dev.brighten.antivpn.api.VPNExecutor;
 import dev.brighten.antivpn.message.MessageHandler;
+import dev.brighten.antivpn.message.MessageTemplate;
 import dev.brighten.antivpn.message.VpnString;
+import dev.brighten.antivpn.metrics.VPNMetrics;
 import dev.brighten.antivpn.web.objects.VPNResponse;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
@@ -39,18 +42,22 @@ public class SpongeListenerTest {
         when(antiVPN.getPlayerExecutor()).thenReturn(playerExecutor);
         when(antiVPN.getExecutor()).thenReturn(vpnExecutor);
         when(antiVPN.getMessageHandler()).thenReturn(messageHandler);
+        when(antiVPN.getMetrics()).thenReturn(new VPNMetrics());
 
         when(playerExecutor.getPlayer(any(UUID.class))).thenReturn(Optional.empty());
         when(config.getPrefixWhitelists()).thenReturn(java.util.Collections.emptyList());
         when(config.getCountryList()).thenReturn(java.util.Collections.emptyList());
+        when(config.getPolicy()).thenReturn(CheckPolicy.EMPTY);
         when(config.isKickPlayers()).thenReturn(true);
         when(config.getKickMessage()).thenReturn("Blocked!");
+        when(config.getKickTemplate()).thenReturn(MessageTemplate.compile("Blocked!"));
+        when(config.getCountryKickTemplate()).thenReturn(MessageTemplate.compile("Blocked!"));
 
         VpnString mockVpnString = mock(VpnString.class);
         when(mockVpnString.getFormattedMessage(any())).thenReturn("Blocked!");
         when(messageHandler.getString(anyString())).thenReturn(mockVpnString);
 
-        when(vpnExecutor.checkIp(anyString())).thenReturn(CompletableFuture.completedFuture(
+        when(vpnExecutor.checkIp(anyString(), any())).thenReturn(CompletableFuture.completedFuture(
                 VPNResponse.builder().success(true).proxy(false).ip("127.0.0.1")
                         .method("N/A").countryName("N/A").city("N/A").build()
         ));
@@ -73,7 +80,7 @@ public class SpongeListenerTest {
 
     @Test
     public void testLoginEventAllowed() {
-        ServerSideConnectionEvent.Login event = mock(ServerSideConnectionEvent.Login.class);
+        ServerSideConnectionEvent.Auth event = mock(ServerSideConnectionEvent.Auth.class);
         GameProfile profile = mock(GameProfile.class);
         ServerSideConnection connection = mock(ServerSideConnection.class);
 
@@ -90,7 +97,7 @@ public class SpongeListenerTest {
 
     @Test
     public void testLoginEventBlocked() {
-        ServerSideConnectionEvent.Login event = mock(ServerSideConnectionEvent.Login.class);
+        ServerSideConnectionEvent.Auth event = mock(ServerSideConnectionEvent.Auth.class);
         GameProfile profile = mock(GameProfile.class);
         ServerSideConnection connection = mock(ServerSideConnection.class);
 
@@ -101,7 +108,7 @@ public class SpongeListenerTest {
         when(connection.address()).thenReturn(new InetSocketAddress("1.1.1.1", 12345));
 
         // Mock proxy response
-        when(vpnExecutor.checkIp("1.1.1.1")).thenReturn(CompletableFuture.completedFuture(
+        when(vpnExecutor.checkIp(eq("1.1.1.1"), any())).thenReturn(CompletableFuture.completedFuture(
                 VPNResponse.builder().success(true).proxy(true).ip("1.1.1.1")
                         .method("N/A").countryName("N/A").countryCode("N/A").city("N/A").build()
         ));
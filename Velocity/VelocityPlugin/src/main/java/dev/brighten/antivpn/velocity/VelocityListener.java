@@ -16,15 +16,18 @@
 
 package dev.brighten.antivpn.velocity;
 
+import com.velocitypowered.api.event.AwaitingEventExecutor;
+import com.velocitypowered.api.event.EventTask;
 import com.velocitypowered.api.event.ResultedEvent;
 import com.velocitypowered.api.event.connection.DisconnectEvent;
 import com.velocitypowered.api.event.connection.LoginEvent;
+import com.velocitypowered.api.event.connection.PostLoginEvent;
 import dev.brighten.antivpn.AntiVPN;
 import dev.brighten.antivpn.api.APIPlayer;
 import dev.brighten.antivpn.api.OfflinePlayer;
 import dev.brighten.antivpn.api.VPNExecutor;
+import dev.brighten.antivpn.message.VpnString;
 import dev.brighten.antivpn.utils.StringUtil;
-import net.kyori.adventure.text.serializer.legacy.LegacyComponentSerializer;
 
 import java.util.logging.Level;
 
@@ -36,15 +39,25 @@ public class VelocityListener extends VPNExecutor {
                 .register(VelocityPlugin.INSTANCE.getPluginInstance(), this);
 
         VelocityPlugin.INSTANCE.getServer().getEventManager().register(VelocityPlugin.INSTANCE.getPluginInstance(), DisconnectEvent.class,
-                event -> AntiVPN.getInstance()
-                        .getPlayerExecutor()
-                        .unloadPlayer(event.getPlayer().getUniqueId()));
+                event -> {
+                    AntiVPN.getInstance().getPlayerExecutor().unloadPlayer(event.getPlayer().getUniqueId());
+                    AntiVPN.getInstance().getExecutor().playerQuit(event.getPlayer().getUniqueId());
+                });
+
+        VelocityPlugin.INSTANCE.getServer().getEventManager().register(VelocityPlugin.INSTANCE.getPluginInstance(), PostLoginEvent.class,
+                event -> AntiVPN.getInstance().getExecutor().playerJoined(event.getPlayer().getUniqueId()));
 
         VelocityPlugin.INSTANCE.getServer().getEventManager().register(VelocityPlugin.INSTANCE.getPluginInstance(), LoginEvent.class,
-                this::onLogin);
+                (AwaitingEventExecutor<LoginEvent>) this::onLogin);
     }
 
-    public void onLogin(LoginEvent event) {
+    /**
+     * Velocity holds the login until the returned task completes, without tying up a network or event thread.
+     *
+     * @param event LoginEvent
+     * @return EventTask that completes once the verdict is applied
+     */
+    public EventTask onLogin(LoginEvent event) {
         APIPlayer player = AntiVPN.getInstance().getPlayerExecutor().getPlayer(event.getPlayer().getUniqueId())
                 .orElse(new OfflinePlayer(
                         event.getPlayer().getUniqueId(),
@@ -52,7 +65,7 @@ public class VelocityListener extends VPNExecutor {
                         event.getPlayer().getRemoteAddress().getAddress()
                 ));
 
-        player.checkPlayer(result -> {
+        return EventTask.resumeWhenComplete(player.loginVerdict().thenAccept(result -> {
             if(!result.resultType().isShouldBlock()) return;
 
             if(!AntiVPN.getInstance().getVpnConfig().isKickPlayers()) {
@@ -61,26 +74,21 @@ public class VelocityListener extends VPNExecutor {
 
             switch (result.resultType()) {
                 case DENIED_COUNTRY -> event.setResult(ResultedEvent.ComponentResult.denied(
-                        LegacyComponentSerializer.builder()
-                                .character('&')
-                                .build().deserialize(AntiVPN.getInstance().getVpnConfig()
-                                        .getCountryVanillaKickReason()
-                                        .replace("%player%", event.getPlayer().getUsername())
-                                        .replace("%country%", result.response().getCountryName())
-                                        .replace("%code%", result.response().getCountryCode()))));
+                        VelocityPlayer.SECTION_SERIALIZER.deserialize(AntiVPN.getInstance().getVpnConfig()
+                                .getCountryKickTemplate().render(player, result.response()))));
                 case DENIED_PROXY -> {
                     VelocityPlugin.INSTANCE.getLogger().info(event.getPlayer().getUsername()
                             + " joined on a VPN/Proxy (" + result.response().getMethod() + ")");
-                    event.setResult(ResultedEvent.ComponentResult.denied(LegacyComponentSerializer.builder()
-                            .character('&')
-                            .build().deserialize(AntiVPN.getInstance().getVpnConfig()
-                                    .getKickMessage()
-                                    .replace("%player%", event.getPlayer().getUsername())
-                                    .replace("%country%", result.response().getCountryName())
-                                    .replace("%code%", result.response().getCountryCode()))));
+                    event.setResult(ResultedEvent.ComponentResult.denied(
+                            VelocityPlayer.SECTION_SERIALIZER.deserialize(AntiVPN.getInstance().getVpnConfig()
+                                    .getKickTemplate().render(player, result.response()))));
                 }
+                case TIMED_OUT -> event.setResult(ResultedEvent.ComponentResult.denied(
+                        VelocityPlayer.SECTION_SERIALIZER.deserialize(AntiVPN.getInstance().getVpnConfig()
+                                .getLoginTimeoutTemplate()
+                                .render(new VpnString.Var<>("player", player.getName())))));
             }
-        });
+        }));
     }
 
     @Override
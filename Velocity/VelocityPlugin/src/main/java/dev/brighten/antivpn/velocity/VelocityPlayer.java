@@ -22,6 +22,11 @@ import net.kyori.adventure.text.serializer.legacy.LegacyComponentSerializer;
 
 public class VelocityPlayer extends APIPlayer {
 
+    // Serializers are immutable, so they are built once instead of on every message.
+    static final LegacyComponentSerializer AMPERSAND_SERIALIZER = LegacyComponentSerializer.builder()
+            .character('&').build();
+    static final LegacyComponentSerializer SECTION_SERIALIZER = LegacyComponentSerializer.legacySection();
+
     private final Player player;
     public VelocityPlayer(Player player) {
         super(player.getUniqueId(), player.getUsername(), player.getRemoteAddress().getAddress());
@@ -32,12 +37,12 @@ public class VelocityPlayer extends APIPlayer {
 
     @Override
     public void sendMessage(String message) {
-        player.sendMessage(LegacyComponentSerializer.builder().character('&').build().deserialize(message));
+        player.sendMessage(AMPERSAND_SERIALIZER.deserialize(message));
     }
 
     @Override
     public void kickPlayer(String reason) {
-        player.disconnect(LegacyComponentSerializer.builder().character('&').build().deserialize(reason));
+        player.disconnect(AMPERSAND_SERIALIZER.deserialize(reason));
     }
 
     @Override
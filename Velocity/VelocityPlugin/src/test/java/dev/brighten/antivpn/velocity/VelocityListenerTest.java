@@ -3,11 +3,14 @@ package dev.brighten.antivpn.velocity;
 import com.velocitypowered.api.event.connection.LoginEvent;
 import com.velocitypowered.api.proxy.Player;
 import dev.brighten.antivpn.AntiVPN;
+import dev.brighten.antivpn.api.CheckPolicy;
 import dev.brighten.antivpn.api.PlayerExecutor;
 import dev.brighten.antivpn.api.VPNConfig;
 import dev.brighten.antivpn.api.VPNExecutor;
 import dev.brighten.antivpn.message.MessageHandler;
+import dev.brighten.antivpn.message.MessageTemplate;
 import dev.brighten.antivpn.message.VpnString;
+import dev.brighten.antivpn.metrics.VPNMetrics;
 import dev.brighten.antivpn.web.objects.VPNResponse;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
@@ -46,20 +49,24 @@ public class VelocityListenerTest {
         when(antiVPN.getPlayerExecutor()).thenReturn(playerExecutor);
         when(antiVPN.getExecutor()).thenReturn(vpnExecutor);
         when(antiVPN.getMessageHandler()).thenReturn(messageHandler);
+        when(antiVPN.getMetrics()).thenReturn(new VPNMetrics());
 
         when(velocityPlugin.getLogger()).thenReturn(Logger.getLogger("AntiVPN"));
 
         when(playerExecutor.getPlayer(any(UUID.class))).thenReturn(Optional.empty());
         when(config.getPrefixWhitelists()).thenReturn(java.util.Collections.emptyList());
         when(config.getCountryList()).thenReturn(java.util.Collections.emptyList());
+        when(config.getPolicy()).thenReturn(CheckPolicy.EMPTY);
         when(config.isKickPlayers()).thenReturn(true);
         when(config.getKickMessage()).thenReturn("Blocked!");
+        when(config.getKickTemplate()).thenReturn(MessageTemplate.compile("Blocked!"));
+        when(config.getCountryKickTemplate()).thenReturn(MessageTemplate.compile("Blocked!"));
 
         VpnString mockVpnString = mock(VpnString.class);
         when(mockVpnString.getFormattedMessage(any())).thenReturn("Blocked!");
         when(messageHandler.getString(anyString())).thenReturn(mockVpnString);
 
-        when(vpnExecutor.checkIp(anyString())).thenReturn(CompletableFuture.completedFuture(
+        when(vpnExecutor.checkIp(anyString(), any())).thenReturn(CompletableFuture.completedFuture(
                 VPNResponse.builder().success(true).proxy(false).ip("127.0.0.1")
                         .method("N/A").countryName("N/A").city("N/A").countryCode("N/A").build()
         ));
@@ -114,7 +121,7 @@ public class VelocityListenerTest {
         when(player.getRemoteAddress()).thenReturn(new InetSocketAddress("1.1.1.1", 12345));
 
         // Mock proxy response
-        when(vpnExecutor.checkIp("1.1.1.1")).thenReturn(CompletableFuture.completedFuture(
+        when(vpnExecutor.checkIp(eq("1.1.1.1"), any())).thenReturn(CompletableFuture.completedFuture(
                 VPNResponse.builder().success(true).proxy(true).ip("1.1.1.1")
                         .method("N/A").countryName("N/A").city("N/A").countryCode("N/A").build()
         ));
@@ -123,4 +130,25 @@ public class VelocityListenerTest {
 
         verify(event).setResult(any());
     }
+
+    @Test
+    public void testLoginRefusedAtDeadlineWhenFailingClosed() throws Exception {
+        LoginEvent event = mock(LoginEvent.class);
+        Player player = mock(Player.class);
+
+        when(event.getPlayer()).thenReturn(player);
+        when(player.getUniqueId()).thenReturn(UUID.randomUUID());
+        when(player.getUsername()).thenReturn("SlowPlayer");
+        when(player.getRemoteAddress()).thenReturn(new InetSocketAddress("2.2.2.2", 12345));
+        when(config.getLoginDeadline()).thenReturn(50);
+        when(config.isLoginFailClosed()).thenReturn(true);
+        when(config.getLoginTimeoutTemplate()).thenReturn(MessageTemplate.compile("Try again"));
+
+        // The lookup never answers.
+        when(vpnExecutor.checkIp(eq("2.2.2.2"), any())).thenReturn(new CompletableFuture<>());
+
+        listener.onLogin(event);
+
+        verify(event, timeout(5000)).setResult(any());
+    }
 }